@@ -0,0 +1,45 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks, writing the results to {@code jmh-result.json}.
+ * <p>
+ * Takes the usual JMH command line, so a subset can be selected with a
+ * regular expression and {@code -rf}/{@code -rff} pick another format or
+ * file. Keeping JSON the default lets runs be compared by tools such as
+ * JMH Visualizer without remembering any flags.
+ */
+public class BenchmarkMain {
+  public static final String RESULT_FILE = "jmh-result.json";
+
+  public static void main(final String[] argv) throws Exception {
+    final CommandLineOptions cmd = new CommandLineOptions(argv);
+    final ChainedOptionsBuilder opts = new OptionsBuilder().parent(cmd);
+    if (!cmd.getResultFormat().hasValue()) {
+      opts.resultFormat(ResultFormatType.JSON);
+    }
+    if (!cmd.getResult().hasValue()) {
+      opts.result(RESULT_FILE);
+    }
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,206 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.corpus;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.apache.commons.io.IOUtils.copy;
+
+/**
+ * Writes synthetic repositories shaped like busy production ones.
+ * <p>
+ * Each selected {@link Shape} becomes a bare {@code <shape>.git} under the
+ * output directory, usually a site's {@code gerrit.basePath}:
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.google.gerrit.corpus.CorpusGenerator \
+ *   --out site/git --shapes many-refs,deep-history --seed 42 --zip
+ * </pre>
+ *
+ * The same seed and scale always produce the same object and ref names.
+ * With {@code --zip} each repository is stored as {@code <shape>.git.zip}
+ * instead, which LocalDiskRepositoryManager unpacks when the server starts.
+ */
+public class CorpusGenerator {
+  public static void main(final String[] argv) {
+    final CorpusGenerator g = new CorpusGenerator();
+    try {
+      g.parse(argv);
+    } catch (IllegalArgumentException e) {
+      System.err.println("fatal: " + e.getMessage());
+      usage(System.err);
+      System.exit(1);
+      return;
+    }
+    if (g.help) {
+      usage(System.out);
+      return;
+    }
+    try {
+      g.run(System.out);
+    } catch (Exception e) {
+      System.err.println("fatal: " + e);
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  private static void usage(final PrintStream out) {
+    out.println("usage: CorpusGenerator --out DIR [options]");
+    out.println();
+    out.println("  --shapes S,...   many-refs, deep-history, wide-merges,");
+    out.println("                   large-binaries, many-packs and");
+    out.println("                   loose-objects (default: all)");
+    out.println("  --seed N         random seed (default: 1)");
+    out.println("  --scale F        multiply every size by F (default: 1)");
+    out.println("  --zip            write <shape>.git.zip archives");
+    out.println("  --force          replace existing repositories");
+  }
+
+  File out;
+  Set<Shape> shapes = EnumSet.allOf(Shape.class);
+  long seed = 1;
+  double scale = 1;
+  boolean zip;
+  boolean force;
+  boolean help;
+
+  void parse(final String[] argv) {
+    for (int i = 0; i < argv.length; i++) {
+      final String a = argv[i];
+      if ("-h".equals(a) || "--help".equals(a)) {
+        help = true;
+      } else if ("--out".equals(a)) {
+        out = new File(value(argv, ++i, a));
+      } else if ("--shapes".equals(a)) {
+        shapes = EnumSet.noneOf(Shape.class);
+        for (final String s : value(argv, ++i, a).split(",")) {
+          shapes.add(Shape.forLabel(s.trim()));
+        }
+      } else if ("--seed".equals(a)) {
+        seed = Long.parseLong(value(argv, ++i, a));
+      } else if ("--scale".equals(a)) {
+        scale = Double.parseDouble(value(argv, ++i, a));
+        if (scale <= 0) {
+          throw new IllegalArgumentException("--scale must be positive");
+        }
+      } else if ("--zip".equals(a)) {
+        zip = true;
+      } else if ("--force".equals(a)) {
+        force = true;
+      } else {
+        throw new IllegalArgumentException("unknown option " + a);
+      }
+    }
+    if (out == null && !help) {
+      throw new IllegalArgumentException("--out is required");
+    }
+  }
+
+  private static String value(final String[] argv, final int i,
+      final String opt) {
+    if (i >= argv.length) {
+      throw new IllegalArgumentException(opt + " requires a value");
+    }
+    return argv[i];
+  }
+
+  void run(final PrintStream log) throws Exception {
+    if (!out.isDirectory() && !out.mkdirs()) {
+      throw new IOException("Cannot create " + out);
+    }
+    for (final Shape s : shapes) {
+      final File gitDir = new File(out, s.label() + ".git");
+      final File archive = new File(out, gitDir.getName() + ".zip");
+      if (gitDir.exists() || archive.exists()) {
+        if (!force) {
+          throw new IOException(gitDir + " already exists, use --force");
+        }
+        deleteDirectory(gitDir);
+        if (archive.exists() && !archive.delete()) {
+          throw new IOException("Cannot delete " + archive);
+        }
+      }
+
+      final long start = System.currentTimeMillis();
+      // Each shape gets its own stream so selecting fewer shapes
+      // does not change the content of the others.
+      final Random rnd = new Random(seed * 31 + s.ordinal());
+      final CorpusWriter w = new CorpusWriter(gitDir);
+      try {
+        s.generate(w, rnd, scale);
+      } finally {
+        w.close();
+      }
+
+      if (zip) {
+        zip(gitDir, archive);
+        deleteDirectory(gitDir);
+      }
+      log.println((zip ? archive : gitDir) + ": "
+          + (System.currentTimeMillis() - start) + " ms");
+    }
+  }
+
+  /** Zip the contents of {@code dir}, relative to it, as unzip expects. */
+  static void zip(final File dir, final File archive) throws IOException {
+    final ZipOutputStream zos = new ZipOutputStream(
+        new BufferedOutputStream(new FileOutputStream(archive)));
+    try {
+      add(zos, dir, "");
+    } finally {
+      zos.close();
+    }
+  }
+
+  private static void add(final ZipOutputStream zos, final File dir,
+      final String prefix) throws IOException {
+    final File[] entries = dir.listFiles();
+    if (entries == null) {
+      return;
+    }
+    for (final File f : entries) {
+      final String name = prefix + f.getName();
+      if (f.isDirectory()) {
+        zos.putNextEntry(new ZipEntry(name + "/"));
+        zos.closeEntry();
+        add(zos, f, name + "/");
+      } else {
+        final ZipEntry e = new ZipEntry(name);
+        e.setTime(f.lastModified());
+        zos.putNextEntry(e);
+        final InputStream in = new FileInputStream(f);
+        try {
+          copy(in, zos);
+        } finally {
+          in.close();
+        }
+        zos.closeEntry();
+      }
+    }
+  }
+}
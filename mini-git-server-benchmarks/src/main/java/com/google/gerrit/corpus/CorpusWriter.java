@@ -0,0 +1,133 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.corpus;
+
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepository;
+import org.eclipse.jgit.storage.pack.PackWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+/** A bare repository being filled in by a {@link Shape}. */
+class CorpusWriter {
+  private final Repository db;
+  private final TestRepository<Repository> util;
+  private boolean incremental;
+
+  CorpusWriter(final File gitDir) throws Exception {
+    db = new FileRepository(gitDir);
+    db.create(true);
+    util = new TestRepository<Repository>(db);
+  }
+
+  TestRepository<Repository> util() {
+    return util;
+  }
+
+  /** Pack everything reachable into one pack and drop the loose copies. */
+  void packAll() throws Exception {
+    util.packAndPrune();
+  }
+
+  /**
+   * Write the objects reachable from {@code tip} but not {@code base} as a
+   * pack of their own. The loose copies stay readable until {@link #close()}.
+   */
+  void packIncrement(final ObjectId tip, final ObjectId base)
+      throws IOException {
+    final ProgressMonitor m = NullProgressMonitor.INSTANCE;
+    final File packDir = new File(db.getDirectory(), "objects/pack");
+    final PackWriter pw = new PackWriter(db);
+    try {
+      pw.preparePack(m, Collections.singleton(tip),
+          Collections.singleton(base));
+      final String name = "pack-" + pw.computeName().name();
+      OutputStream out = new BufferedOutputStream(
+          new FileOutputStream(new File(packDir, name + ".pack")));
+      try {
+        pw.writePack(m, m, out);
+      } finally {
+        out.close();
+      }
+      out = new BufferedOutputStream(
+          new FileOutputStream(new File(packDir, name + ".idx")));
+      try {
+        pw.writeIndex(out);
+      } finally {
+        out.close();
+      }
+    } finally {
+      pw.release();
+    }
+    incremental = true;
+  }
+
+  /**
+   * Write {@code names} to packed-refs, each pointing at a random commit of
+   * {@code targets}. Much faster than a loose file per ref, and how a
+   * server holding that many refs would keep them anyway.
+   */
+  void writePackedRefs(final List<String> names,
+      final List<RevCommit> targets, final Random rnd) throws IOException {
+    final List<String> sorted = new ArrayList<String>(names);
+    Collections.sort(sorted);
+    final Writer w = new OutputStreamWriter(new BufferedOutputStream(
+        new FileOutputStream(new File(db.getDirectory(), "packed-refs"))),
+        "UTF-8");
+    try {
+      w.write("# pack-refs with: peeled \n");
+      for (final String name : sorted) {
+        w.write(targets.get(rnd.nextInt(targets.size())).name());
+        w.write(' ');
+        w.write(name);
+        w.write('\n');
+      }
+    } finally {
+      w.close();
+    }
+  }
+
+  /** Close the repository, pruning objects written to incremental packs. */
+  void close() throws IOException {
+    db.close();
+    if (incremental) {
+      final File[] dirs = new File(db.getDirectory(), "objects").listFiles();
+      if (dirs != null) {
+        for (final File d : dirs) {
+          if (d.getName().length() == 2) {
+            deleteDirectory(d);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,219 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.corpus;
+
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Kinds of repository the corpus generator can build.
+ * <p>
+ * Sizes given here are for a scale of 1; each shape draws all of its content
+ * from the {@link Random} it is handed so a seed always yields the same
+ * objects and refs.
+ */
+enum Shape {
+  /** Short history with 100k change refs, written as packed-refs. */
+  MANY_REFS("many-refs") {
+    @Override
+    void generate(final CorpusWriter w, final Random rnd, final double scale)
+        throws Exception {
+      final List<RevCommit> history = linear(w.util(), rnd, 1000, 100);
+      w.util().update(Constants.MASTER, history.get(history.size() - 1));
+      w.packAll();
+
+      final int n = scaled(100000, scale);
+      final List<String> names = new ArrayList<String>(n);
+      for (int i = 1; i <= n; i++) {
+        names.add(String.format("refs/changes/%02d/%d/%d", i % 100, i,
+            1 + rnd.nextInt(5)));
+      }
+      w.writePackedRefs(names, history, rnd);
+    }
+  },
+
+  /** A single branch of many small commits. */
+  DEEP_HISTORY("deep-history") {
+    @Override
+    void generate(final CorpusWriter w, final Random rnd, final double scale)
+        throws Exception {
+      final List<RevCommit> history =
+          linear(w.util(), rnd, scaled(50000, scale), 500);
+      w.util().update(Constants.MASTER, history.get(history.size() - 1));
+      w.packAll();
+    }
+  },
+
+  /** Topic branches merged back constantly, with periodic octopus merges. */
+  WIDE_MERGES("wide-merges") {
+    @Override
+    void generate(final CorpusWriter w, final Random rnd, final double scale)
+        throws Exception {
+      final TestRepository<Repository> util = w.util();
+      RevCommit tip = util.commit().add("README", "wide merges\n").create();
+      final int merges = scaled(2000, scale);
+      for (int m = 0; m < merges; m++) {
+        final int width = m % 50 == 49 ? 16 : 2 + rnd.nextInt(7);
+        final TestRepository<Repository>.CommitBuilder merge =
+            util.commit().parent(tip);
+        for (int b = 1; b < width; b++) {
+          final String path = "topic/" + m + "/" + b;
+          RevCommit topic = tip;
+          RevBlob content = null;
+          final int len = 1 + rnd.nextInt(3);
+          for (int c = 0; c < len; c++) {
+            content = util.blob(text(rnd, 5));
+            topic = util.commit().parent(topic).add(path, content)
+                .message("topic " + m + "." + b + "." + c).create();
+          }
+          // Topics touch disjoint files, so the merge keeps each result.
+          merge.parent(topic).add(path, content);
+        }
+        tip = merge.message("merge " + m).create();
+      }
+      util.update(Constants.MASTER, tip);
+      w.packAll();
+    }
+  },
+
+  /** A few commits carrying incompressible blobs of 1 MiB and up. */
+  LARGE_BINARIES("large-binaries") {
+    @Override
+    void generate(final CorpusWriter w, final Random rnd, final double scale)
+        throws Exception {
+      final TestRepository<Repository> util = w.util();
+      RevCommit tip = util.commit().add("README", "binaries\n").create();
+      final int n = scaled(12, scale);
+      for (int i = 0; i < n; i++) {
+        final byte[] data = new byte[(1 << 20) << (i % 5)];
+        rnd.nextBytes(data);
+        final RevBlob blob = util.blob(data);
+        tip = util.commit().parent(tip).add("assets/blob" + (i % 4), blob)
+            .message("binary " + i).create();
+      }
+      util.update(Constants.MASTER, tip);
+      w.packAll();
+    }
+  },
+
+  /** History delivered as many small pushes, one pack each. */
+  MANY_PACKS("many-packs") {
+    @Override
+    void generate(final CorpusWriter w, final Random rnd, final double scale)
+        throws Exception {
+      final TestRepository<Repository> util = w.util();
+      RevCommit tip = util.commit().add("README", "many packs\n").create();
+      util.update(Constants.MASTER, tip);
+      w.packAll();
+      final int packs = scaled(300, scale);
+      for (int p = 0; p < packs; p++) {
+        final RevCommit base = tip;
+        final int len = 1 + rnd.nextInt(5);
+        for (int c = 0; c < len; c++) {
+          tip = util.commit().parent(tip)
+              .add("src/file" + rnd.nextInt(200), text(rnd, 20))
+              .message("push " + p + "." + c).create();
+        }
+        util.update(Constants.MASTER, tip);
+        w.packIncrement(tip, base);
+      }
+    }
+  },
+
+  /** Recent history never packed, as left behind by unpacked pushes. */
+  LOOSE_OBJECTS("loose-objects") {
+    @Override
+    void generate(final CorpusWriter w, final Random rnd, final double scale)
+        throws Exception {
+      final TestRepository<Repository> util = w.util();
+      RevCommit tip = util.commit().add("README", "loose objects\n").create();
+      final int commits = scaled(3000, scale);
+      for (int c = 0; c < commits; c++) {
+        final TestRepository<Repository>.CommitBuilder b =
+            util.commit().parent(tip);
+        for (int f = 0; f < 4; f++) {
+          b.add("src/d" + rnd.nextInt(20) + "/f" + rnd.nextInt(50),
+              text(rnd, 10));
+        }
+        tip = b.message("loose " + c).create();
+      }
+      util.update(Constants.MASTER, tip);
+    }
+  };
+
+  private final String label;
+
+  private Shape(final String label) {
+    this.label = label;
+  }
+
+  /** @return name of the repository and of the option selecting it. */
+  String label() {
+    return label;
+  }
+
+  abstract void generate(CorpusWriter w, Random rnd, double scale)
+      throws Exception;
+
+  static Shape forLabel(final String label) {
+    for (final Shape s : values()) {
+      if (s.label.equals(label)) {
+        return s;
+      }
+    }
+    throw new IllegalArgumentException("unknown shape " + label);
+  }
+
+  static int scaled(final int n, final double scale) {
+    return Math.max(1, (int) Math.round(n * scale));
+  }
+
+  /** Linear history editing {@code files} files; returns every commit. */
+  static List<RevCommit> linear(final TestRepository<Repository> util,
+      final Random rnd, final int commits, final int files) throws Exception {
+    final List<RevCommit> history = new ArrayList<RevCommit>(commits);
+    RevCommit tip = null;
+    for (int i = 0; i < commits; i++) {
+      final TestRepository<Repository>.CommitBuilder b = util.commit();
+      if (tip != null) {
+        b.parent(tip);
+      }
+      tip = b.add("src/file" + rnd.nextInt(files), text(rnd, 10))
+          .message("commit " + i).create();
+      history.add(tip);
+    }
+    return history;
+  }
+
+  /** Source-like text of {@code lines} lines. */
+  static String text(final Random rnd, final int lines) {
+    final StringBuilder b = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      final int words = 1 + rnd.nextInt(10);
+      for (int j = 0; j < words; j++) {
+        b.append(j == 0 ? "" : " ").append(Long.toString(rnd.nextLong(), 36));
+      }
+      b.append('\n');
+    }
+    return b.toString();
+  }
+}
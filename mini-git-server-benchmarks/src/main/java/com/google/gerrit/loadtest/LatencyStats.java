@@ -0,0 +1,68 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.loadtest;
+
+import java.util.Arrays;
+
+/** Latencies recorded for one operation, in nanoseconds. */
+class LatencyStats {
+  private long[] samples = new long[1024];
+  private int count;
+  private int errors;
+
+  synchronized void record(final long nanos) {
+    if (count == samples.length) {
+      samples = Arrays.copyOf(samples, count * 2);
+    }
+    samples[count++] = nanos;
+  }
+
+  synchronized void error() {
+    errors++;
+  }
+
+  synchronized Summary summarize(final long elapsedNanos) {
+    final long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    final Summary s = new Summary();
+    s.count = count;
+    s.errors = errors;
+    s.opsPerSec = elapsedNanos > 0 ? count * 1e9 / elapsedNanos : 0;
+    s.p50 = percentile(sorted, 0.50);
+    s.p99 = percentile(sorted, 0.99);
+    s.p999 = percentile(sorted, 0.999);
+    s.max = count > 0 ? sorted[count - 1] : 0;
+    return s;
+  }
+
+  /** Nearest-rank percentile of an ascending array. */
+  static long percentile(final long[] sorted, final double p) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    final int rank = (int) Math.ceil(p * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+  }
+
+  static class Summary {
+    int count;
+    int errors;
+    double opsPerSec;
+    long p50;
+    long p99;
+    long p999;
+    long max;
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.loadtest;
+
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepository;
+import org.eclipse.jgit.transport.FetchConnection;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * One simulated user: a bare clone of the project which fetches and pushes
+ * against the server, and from which fresh clones are made.
+ */
+class LoadClient {
+  private static final RefSpec ALL_HEADS =
+      new RefSpec("+refs/heads/*:refs/heads/*");
+
+  private final int id;
+  private final URIish uri;
+  private final File dir;
+  private Repository db;
+  private int pushes;
+
+  LoadClient(final int id, final URIish uri, final File dir) {
+    this.id = id;
+    this.uri = uri;
+    this.dir = dir;
+  }
+
+  void open() throws IOException {
+    db = createBare(new File(dir, "client-" + id + ".git"));
+    fetch(db);
+  }
+
+  void close() {
+    if (db != null) {
+      db.close();
+      deleteQuietly(db.getDirectory());
+    }
+  }
+
+  void cloneProject() throws IOException {
+    final Repository fresh =
+        createBare(new File(dir, "clone-" + id + "-" + System.nanoTime()));
+    try {
+      fetch(fresh);
+    } finally {
+      fresh.close();
+      deleteQuietly(fresh.getDirectory());
+    }
+  }
+
+  void fetchProject() throws IOException {
+    fetch(db);
+  }
+
+  void lsRemote() throws IOException {
+    final Transport tn = Transport.open(db, uri);
+    try {
+      final FetchConnection c = tn.openFetch();
+      try {
+        if (c.getRefs().isEmpty()) {
+          throw new IOException("no refs advertised by " + uri);
+        }
+      } finally {
+        c.close();
+      }
+    } finally {
+      tn.close();
+    }
+  }
+
+  /** Commit one small file on this client's own branch and push it. */
+  void push() throws Exception {
+    final String branch = "refs/heads/load/" + id;
+    Ref tip = db.getRef(branch);
+    if (tip == null) {
+      tip = db.getRef(Constants.MASTER);
+    }
+
+    final TestRepository<Repository> util = new TestRepository<Repository>(db);
+    final RevCommit parent = util.getRevWalk().parseCommit(tip.getObjectId());
+    final RevCommit c = util.commit().parent(parent)
+        .add("load/" + id, "push " + (++pushes) + "\n")
+        .message("load " + id + "." + pushes).create();
+    util.update(branch, c);
+
+    final Transport tn = Transport.open(db, uri);
+    try {
+      final RemoteRefUpdate u = new RemoteRefUpdate(db, branch, branch,
+          true /* force */, null, (ObjectId) null);
+      final PushResult r = tn.push(NullProgressMonitor.INSTANCE,
+          Collections.singleton(u));
+      final RemoteRefUpdate.Status s =
+          r.getRemoteUpdate(branch).getStatus();
+      if (s != RemoteRefUpdate.Status.OK) {
+        throw new IOException("push " + branch + ": " + s);
+      }
+    } finally {
+      tn.close();
+    }
+  }
+
+  private void fetch(final Repository into) throws IOException {
+    final Transport tn = Transport.open(into, uri);
+    try {
+      tn.fetch(NullProgressMonitor.INSTANCE, Collections.singleton(ALL_HEADS));
+    } finally {
+      tn.close();
+    }
+  }
+
+  private static Repository createBare(final File gitDir) throws IOException {
+    final Repository r = new FileRepository(gitDir);
+    r.create(true);
+    return r;
+  }
+}
@@ -0,0 +1,439 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.loadtest;
+
+import com.google.gerrit.embedded.EmbeddedMiniGitServer;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.KeyPair;
+import com.jcraft.jsch.Session;
+
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.OpenSshConfig;
+import org.eclipse.jgit.transport.SshConfigSessionFactory;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * Drives concurrent git clients against an embedded server.
+ * <p>
+ * Each client runs a weighted random mix of clone, fetch, ls-remote and push
+ * over SSH (JSch, through JGit's transport) or smart HTTP (ProjectServlet in
+ * Jetty). Latencies recorded after the warmup are reported per operation:
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.google.gerrit.loadtest.LoadGenerator \
+ *   --clients 16 --duration 60 --mix fetch=8,ls-remote=2 --save base.properties
+ * </pre>
+ *
+ * A later run given {@code --baseline base.properties} exits with status 2
+ * if any operation's throughput dropped, or its p99 latency grew, by more
+ * than {@code --tolerance} percent.
+ */
+public class LoadGenerator {
+  static final String PROJECT = "load";
+  static final String USER = "loadtest";
+
+  public static void main(final String[] argv) {
+    final LoadGenerator g = new LoadGenerator();
+    try {
+      g.parse(argv);
+    } catch (IllegalArgumentException e) {
+      System.err.println("fatal: " + e.getMessage());
+      usage(System.err);
+      System.exit(1);
+      return;
+    }
+    if (g.help) {
+      usage(System.out);
+      return;
+    }
+    try {
+      System.exit(g.run(System.out) ? 0 : 2);
+    } catch (Exception e) {
+      System.err.println("fatal: " + e);
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  private static void usage(final PrintStream out) {
+    out.println("usage: LoadGenerator [options]");
+    out.println();
+    out.println("  --clients N          concurrent clients (default: 8)");
+    out.println("  --duration SECS      measured run time (default: 30)");
+    out.println("  --warmup SECS        unmeasured time first (default: 5)");
+    out.println("  --mix OP=W,...       weights of clone, fetch, ls-remote");
+    out.println("                       and push (default: clone=1,fetch=4,");
+    out.println("                       ls-remote=4,push=1; no push on http)");
+    out.println("  --transport ssh|http protocol to use (default: ssh)");
+    out.println("  --commits N          history of the seeded project");
+    out.println("                       (default: 200)");
+    out.println("  --save FILE          write results as a baseline");
+    out.println("  --baseline FILE      compare results with a baseline");
+    out.println("  --tolerance PCT      allowed regression (default: 10)");
+  }
+
+  int clients = 8;
+  int duration = 30;
+  int warmup = 5;
+  Map<Operation, Integer> mix;
+  boolean http;
+  int commits = 200;
+  File save;
+  File baseline;
+  double tolerance = 10;
+  boolean help;
+
+  void parse(final String[] argv) {
+    for (int i = 0; i < argv.length; i++) {
+      final String a = argv[i];
+      if ("-h".equals(a) || "--help".equals(a)) {
+        help = true;
+      } else if ("--clients".equals(a)) {
+        clients = positive(a, value(argv, ++i, a));
+      } else if ("--duration".equals(a)) {
+        duration = positive(a, value(argv, ++i, a));
+      } else if ("--warmup".equals(a)) {
+        warmup = Integer.parseInt(value(argv, ++i, a));
+      } else if ("--mix".equals(a)) {
+        mix = parseMix(value(argv, ++i, a));
+      } else if ("--transport".equals(a)) {
+        final String t = value(argv, ++i, a);
+        if ("http".equals(t)) {
+          http = true;
+        } else if (!"ssh".equals(t)) {
+          throw new IllegalArgumentException("unknown transport " + t);
+        }
+      } else if ("--commits".equals(a)) {
+        commits = positive(a, value(argv, ++i, a));
+      } else if ("--save".equals(a)) {
+        save = new File(value(argv, ++i, a));
+      } else if ("--baseline".equals(a)) {
+        baseline = new File(value(argv, ++i, a));
+      } else if ("--tolerance".equals(a)) {
+        tolerance = Double.parseDouble(value(argv, ++i, a));
+      } else {
+        throw new IllegalArgumentException("unknown option " + a);
+      }
+    }
+
+    if (mix == null) {
+      mix = parseMix(http ? "clone=1,fetch=4,ls-remote=4"
+          : "clone=1,fetch=4,ls-remote=4,push=1");
+    }
+    if (http && mix.containsKey(Operation.PUSH)) {
+      // ProjectServlet only serves git-upload-pack.
+      throw new IllegalArgumentException("push is not served over http");
+    }
+  }
+
+  private static String value(final String[] argv, final int i,
+      final String opt) {
+    if (i >= argv.length) {
+      throw new IllegalArgumentException(opt + " requires a value");
+    }
+    return argv[i];
+  }
+
+  private static int positive(final String opt, final String v) {
+    final int n = Integer.parseInt(v);
+    if (n <= 0) {
+      throw new IllegalArgumentException(opt + " must be positive");
+    }
+    return n;
+  }
+
+  static Map<Operation, Integer> parseMix(final String spec) {
+    final Map<Operation, Integer> m =
+        new EnumMap<Operation, Integer>(Operation.class);
+    for (final String part : spec.split(",")) {
+      final int eq = part.indexOf('=');
+      if (eq <= 0) {
+        throw new IllegalArgumentException("invalid mix entry " + part);
+      }
+      final Operation op = Operation.forLabel(part.substring(0, eq).trim());
+      final int w = Integer.parseInt(part.substring(eq + 1).trim());
+      if (w < 0) {
+        throw new IllegalArgumentException("negative weight for " + part);
+      } else if (w > 0) {
+        m.put(op, w);
+      }
+    }
+    if (m.isEmpty()) {
+      throw new IllegalArgumentException("empty mix " + spec);
+    }
+    return m;
+  }
+
+  boolean run(final PrintStream out) throws Exception {
+    final File work = File.createTempFile("loadtest", ".clients");
+    if (!work.delete() || !work.mkdir()) {
+      throw new IOException("Cannot create " + work);
+    }
+    EmbeddedMiniGitServer server = null;
+    try {
+      final File key = new File(work, "id_rsa");
+      final EmbeddedMiniGitServer.Builder b = EmbeddedMiniGitServer.builder()
+          .user(USER, createKey(key));
+      if (http) {
+        b.http();
+      }
+      server = b.start();
+      useKey(key);
+      seed(server.getRepositoryManager());
+
+      final URIish uri = new URIish(http ? server.httpUrl(PROJECT)
+          : server.sshUrl(USER, PROJECT));
+      out.println("# " + clients + " clients against " + uri + " for "
+          + duration + "s after " + warmup + "s warmup");
+
+      final Map<Operation, LatencyStats> stats = drive(uri, work);
+      final Map<Operation, LatencyStats.Summary> result =
+          new EnumMap<Operation, LatencyStats.Summary>(Operation.class);
+      for (final Map.Entry<Operation, LatencyStats> e : stats.entrySet()) {
+        result.put(e.getKey(), e.getValue().summarize(duration * 1000000000L));
+      }
+      print(out, result);
+
+      if (save != null) {
+        store(result, save);
+      }
+      return baseline == null || compare(out, result, load(baseline));
+    } finally {
+      if (server != null) {
+        server.stop();
+      }
+      deleteQuietly(work);
+    }
+  }
+
+  /** Write a new private key to {@code file}; return the public half. */
+  private static String createKey(final File file) throws Exception {
+    final KeyPair kp = KeyPair.genKeyPair(new JSch(), KeyPair.RSA, 2048);
+    try {
+      kp.writePrivateKey(file.getAbsolutePath());
+      final ByteArrayOutputStream pub = new ByteArrayOutputStream();
+      kp.writePublicKey(pub, USER);
+      return pub.toString("US-ASCII").trim();
+    } finally {
+      kp.dispose();
+    }
+  }
+
+  private void seed(final GitRepositoryManager mgr) throws Exception {
+    final Repository db = mgr.createRepository(PROJECT);
+    try {
+      final TestRepository<Repository> util =
+          new TestRepository<Repository>(db);
+      RevCommit tip = null;
+      for (int i = 0; i < commits; i++) {
+        final TestRepository<Repository>.CommitBuilder b = util.commit();
+        if (tip != null) {
+          b.parent(tip);
+        }
+        tip = b.add("src/file" + (i % 50), "revision " + i + "\n")
+            .message("commit " + i).create();
+      }
+      util.update(Constants.MASTER, tip);
+    } finally {
+      db.close();
+    }
+  }
+
+  private Map<Operation, LatencyStats> drive(final URIish uri, final File work)
+      throws Exception {
+    final Map<Operation, LatencyStats> stats =
+        new EnumMap<Operation, LatencyStats>(Operation.class);
+    final List<Operation> choices = new ArrayList<Operation>();
+    for (final Map.Entry<Operation, Integer> e : mix.entrySet()) {
+      stats.put(e.getKey(), new LatencyStats());
+      for (int i = 0; i < e.getValue(); i++) {
+        choices.add(e.getKey());
+      }
+    }
+
+    final List<LoadClient> all = new ArrayList<LoadClient>();
+    for (int i = 0; i < clients; i++) {
+      final LoadClient c = new LoadClient(i, uri, work);
+      c.open();
+      all.add(c);
+    }
+
+    final long start = System.nanoTime();
+    final long measureFrom = start + warmup * 1000000000L;
+    final long end = measureFrom + duration * 1000000000L;
+    final CountDownLatch done = new CountDownLatch(clients);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    for (final LoadClient c : all) {
+      final Random rnd = new Random(all.indexOf(c));
+      final Thread t = new Thread("load-client-" + all.indexOf(c)) {
+        @Override
+        public void run() {
+          try {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+              final Operation op = choices.get(rnd.nextInt(choices.size()));
+              final LatencyStats s = stats.get(op);
+              try {
+                op.run(c);
+                final long t1 = System.nanoTime();
+                if (now >= measureFrom && t1 <= end) {
+                  s.record(t1 - now);
+                }
+              } catch (Exception e) {
+                if (now >= measureFrom) {
+                  s.error();
+                }
+                failure.compareAndSet(null, e);
+              }
+            }
+          } finally {
+            done.countDown();
+          }
+        }
+      };
+      t.setDaemon(true);
+      t.start();
+    }
+    done.await();
+
+    for (final LoadClient c : all) {
+      c.close();
+    }
+    if (failure.get() != null) {
+      System.err.println("warning: first error: " + failure.get());
+    }
+    return stats;
+  }
+
+  private static void print(final PrintStream out,
+      final Map<Operation, LatencyStats.Summary> result) {
+    out.println(String.format("%-10s %8s %6s %9s %9s %9s %9s %9s", "op",
+        "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+    for (final Map.Entry<Operation, LatencyStats.Summary> e : result
+        .entrySet()) {
+      final LatencyStats.Summary s = e.getValue();
+      out.println(String.format("%-10s %8d %6d %9.1f %9.2f %9.2f %9.2f %9.2f",
+          e.getKey().label(), s.count, s.errors, s.opsPerSec, ms(s.p50),
+          ms(s.p99), ms(s.p999), ms(s.max)));
+    }
+  }
+
+  private static double ms(final long nanos) {
+    return nanos / 1e6;
+  }
+
+  private static void store(final Map<Operation, LatencyStats.Summary> result,
+      final File file) throws IOException {
+    final Properties p = new Properties();
+    for (final Map.Entry<Operation, LatencyStats.Summary> e : result
+        .entrySet()) {
+      final String op = e.getKey().label();
+      p.setProperty(op + ".opsPerSec", String.valueOf(e.getValue().opsPerSec));
+      p.setProperty(op + ".p99", String.valueOf(e.getValue().p99));
+    }
+    final OutputStream os = new FileOutputStream(file);
+    try {
+      p.store(os, "LoadGenerator baseline");
+    } finally {
+      os.close();
+    }
+  }
+
+  private static Properties load(final File file) throws IOException {
+    final Properties p = new Properties();
+    final InputStream is = new FileInputStream(file);
+    try {
+      p.load(is);
+    } finally {
+      is.close();
+    }
+    return p;
+  }
+
+  /** @return true if no operation regressed beyond the tolerance. */
+  boolean compare(final PrintStream out,
+      final Map<Operation, LatencyStats.Summary> result,
+      final Properties base) {
+    boolean ok = true;
+    out.println();
+    out.println(String.format("%-10s %10s %10s %10s %10s", "op",
+        "ops/s", "base", "p99 ms", "base"));
+    for (final Map.Entry<Operation, LatencyStats.Summary> e : result
+        .entrySet()) {
+      final String op = e.getKey().label();
+      final String baseOps = base.getProperty(op + ".opsPerSec");
+      final String baseP99 = base.getProperty(op + ".p99");
+      if (baseOps == null || baseP99 == null) {
+        out.println(String.format("%-10s (not in baseline)", op));
+        continue;
+      }
+
+      final LatencyStats.Summary s = e.getValue();
+      final double bOps = Double.parseDouble(baseOps);
+      final long bP99 = Long.parseLong(baseP99);
+      final boolean slower = s.opsPerSec < bOps * (1 - tolerance / 100);
+      final boolean later = s.p99 > bP99 * (1 + tolerance / 100);
+      out.println(String.format("%-10s %10.1f %10.1f %10.2f %10.2f%s", op,
+          s.opsPerSec, bOps, ms(s.p99), ms(bP99),
+          slower || later ? "  REGRESSION" : ""));
+      ok &= !slower && !later;
+    }
+    return ok;
+  }
+
+  /** Authenticate JGit's SSH transport with the generated user key. */
+  private static void useKey(final File privateKey) {
+    SshSessionFactory.setInstance(new SshConfigSessionFactory() {
+      @Override
+      protected void configure(final OpenSshConfig.Host hc, final Session s) {
+        s.setConfig("StrictHostKeyChecking", "no");
+      }
+
+      @Override
+      protected JSch createDefaultJSch(final FS fs) throws JSchException {
+        // Ignore ~/.ssh so only the load test key is offered.
+        final JSch jsch = new JSch();
+        jsch.addIdentity(privateKey.getAbsolutePath());
+        return jsch;
+      }
+    });
+  }
+}
@@ -0,0 +1,67 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.loadtest;
+
+/** Git operations the load generator can mix. */
+enum Operation {
+  CLONE("clone") {
+    @Override
+    void run(final LoadClient c) throws Exception {
+      c.cloneProject();
+    }
+  },
+
+  FETCH("fetch") {
+    @Override
+    void run(final LoadClient c) throws Exception {
+      c.fetchProject();
+    }
+  },
+
+  LS_REMOTE("ls-remote") {
+    @Override
+    void run(final LoadClient c) throws Exception {
+      c.lsRemote();
+    }
+  },
+
+  PUSH("push") {
+    @Override
+    void run(final LoadClient c) throws Exception {
+      c.push();
+    }
+  };
+
+  private final String label;
+
+  private Operation(final String label) {
+    this.label = label;
+  }
+
+  String label() {
+    return label;
+  }
+
+  abstract void run(LoadClient c) throws Exception;
+
+  static Operation forLabel(final String label) {
+    for (final Operation op : values()) {
+      if (op.label.equals(label)) {
+        return op;
+      }
+    }
+    throw new IllegalArgumentException("unknown operation " + label);
+  }
+}
@@ -0,0 +1,160 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.MetricRegistry;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same populated cache on each {@link CacheBackend}, read by several
+ * threads.
+ * <p>
+ * Keys follow a skewed distribution over ten times as many keys as the cache
+ * holds, so both hits and misses that call the {@link EntryCreator} are
+ * measured. The creator burns a little CPU, as a real one would, which makes
+ * ehcache's striped locking around misses visible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheBackendBenchmark {
+  private static final int KEYS = 1 << 16;
+
+  @Param({"EHCACHE", "TINYLFU"})
+  public CacheBackend backend;
+
+  @Param({"4096"})
+  public int size;
+
+  private CacheManager manager;
+  private Cache<Integer, String> cache;
+  private Integer[] keys;
+
+  public static class Creator extends EntryCreator<Integer, String> {
+    @Override
+    public String createEntry(final Integer key) {
+      int h = key;
+      for (int i = 0; i < 200; i++) {
+        h = h * 31 + i;
+      }
+      return Integer.toHexString(h);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      next = new Random().nextInt(KEYS);
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws CloneNotSupportedException {
+    final MetricRegistry metrics = new MetricRegistry();
+    final Creator creator = new Creator();
+    switch (backend) {
+      case EHCACHE: {
+        final CacheConfiguration c = new CacheConfiguration();
+        c.setName("benchmark");
+        c.setMaxElementsInMemory(size);
+        c.setEternal(true);
+        final Configuration mgr = new Configuration();
+        mgr.setDefaultCacheConfiguration(c.clone());
+        mgr.addCache(c);
+        manager = new CacheManager(mgr);
+        final Ehcache e = manager.getEhcache("benchmark");
+        cache = new PopulatingCache<Integer, String>(e, creator,
+            requests(metrics), misses(metrics), null);
+        break;
+      }
+
+      case TINYLFU:
+        cache = new TinyLfuCache<Integer, String>("benchmark",
+            new TinyLfuStore<Integer, String>(size, 0), creator,
+            requests(metrics), misses(metrics), null);
+        break;
+
+      default:
+        throw new IllegalArgumentException("Unsupported " + backend);
+    }
+
+    // Skewed towards small keys: key k is drawn with weight about 1/(k+1).
+    final Random rnd = new Random(42);
+    final int range = size * 10;
+    keys = new Integer[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = (int) Math.pow(range + 1, rnd.nextDouble()) - 1;
+    }
+  }
+
+  private static Counter requests(final MetricRegistry metrics) {
+    return metrics.counter("cache_requests_total", "Cache lookups");
+  }
+
+  private static Counter misses(final MetricRegistry metrics) {
+    return metrics.counter("cache_misses_total", "Cache misses");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (manager != null) {
+      manager.shutdown();
+      manager = null;
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String get(final Cursor c) {
+    final String v = cache.get(keys[c.next]);
+    c.next = (c.next + 1) & (KEYS - 1);
+    return v;
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String getAndPut(final Cursor c) {
+    final Integer k = keys[c.next];
+    c.next = (c.next + 1) & (KEYS - 1);
+    if ((k & 15) == 0) {
+      cache.put(k, "");
+      return null;
+    }
+    return cache.get(k);
+  }
+}
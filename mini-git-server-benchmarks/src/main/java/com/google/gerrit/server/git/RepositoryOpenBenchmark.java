@@ -0,0 +1,105 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.metrics.MetricRegistry;
+
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * {@link LocalDiskRepositoryManager#openRepository(String)} on a synthetic
+ * tree of empty bare repositories, two directories deep.
+ * <p>
+ * Names are opened round robin, so with enough repositories each open
+ * misses the CPU caches as it would on a busy server. JGit's
+ * {@link RepositoryCache} still holds every repository once opened, so this
+ * measures name validation, path resolution and the cache lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryOpenBenchmark {
+  @Param({"100", "1000"})
+  public int repositories;
+
+  private File site;
+  private LocalDiskRepositoryManager manager;
+  private String[] names;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    site = File.createTempFile("repository-open", ".site");
+    if (!site.delete() || !new File(site, "git").mkdirs()) {
+      throw new IOException("Cannot create " + site);
+    }
+    final Config cfg = new Config();
+    cfg.setString("gerrit", null, "basePath", "git");
+    manager = new LocalDiskRepositoryManager(new SitePaths(site), cfg,
+        new MetricRegistry());
+
+    names = new String[repositories];
+    for (int i = 0; i < repositories; i++) {
+      names[i] = "group" + (i % 10) + "/project" + i;
+      manager.createRepository(names[i]).close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    RepositoryCache.clear();
+    deleteQuietly(site);
+  }
+
+  @Benchmark
+  public Repository open() throws RepositoryNotFoundException {
+    final Repository r = manager.openRepository(names[next]);
+    r.close();
+    if (++next == names.length) {
+      next = 0;
+    }
+    return r;
+  }
+
+  @Benchmark
+  public boolean openMissing() {
+    try {
+      manager.openRepository("group0/missing").close();
+      return true;
+    } catch (RepositoryNotFoundException e) {
+      return false;
+    }
+  }
+}
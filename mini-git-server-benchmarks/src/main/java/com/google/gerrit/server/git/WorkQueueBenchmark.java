@@ -0,0 +1,80 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import com.google.inject.Guice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task bookkeeping of {@link WorkQueue.Executor}.
+ * <p>
+ * {@code scheduleAndCancel} never runs the task, isolating the cost of
+ * wrapping it in a {@link WorkQueue.Task}, registering it and removing it
+ * again. {@code submitAndWait} adds the hand-off to a worker thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorkQueueBenchmark {
+  private static final Runnable NOOP = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  @Param({"1", "4"})
+  public int poolSize;
+
+  private WorkQueue.Executor executor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final WorkQueue workQueue =
+        Guice.createInjector().getInstance(WorkQueue.class);
+    executor = workQueue.createQueue(poolSize, "Benchmark");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean scheduleAndCancel() {
+    final ScheduledFuture<?> f = executor.schedule(NOOP, 1, TimeUnit.HOURS);
+    return f.cancel(true);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object submitAndWait() throws Exception {
+    return executor.submit(NOOP).get();
+  }
+}
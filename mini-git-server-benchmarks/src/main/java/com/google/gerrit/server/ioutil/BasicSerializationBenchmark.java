@@ -0,0 +1,131 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.ioutil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Varint and string codecs used by the binary access log.
+ * <p>
+ * Each benchmark writes to, or reads from, an in-memory buffer reset on
+ * every call, so the figures are the cost of the encoding alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BasicSerializationBenchmark {
+  /** Bytes of the encoded varints: 1, 3 or 5. */
+  @Param({"1", "3", "5"})
+  public int width;
+
+  private int int32;
+  private long int64;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+  private ByteArrayInputStream int32In;
+  private ByteArrayInputStream int64In;
+
+  @State(Scope.Thread)
+  public static class Strings {
+    @Param({"8", "64"})
+    public int length;
+
+    private String string;
+    private ByteArrayInputStream in;
+
+    @Setup
+    public void setUp() throws IOException {
+      final StringBuilder s = new StringBuilder();
+      while (s.length() < length) {
+        s.append("project/");
+      }
+      string = s.substring(0, length);
+      in = encoded(0, -1, string);
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    int32 = width == 1 ? 100 : width == 3 ? 1 << 20 : Integer.MAX_VALUE;
+    int64 = width == 1 ? 100L : width == 3 ? 1L << 20 : 1L << 30;
+
+    int32In = encoded(int32, -1, null);
+    int64In = encoded(0, int64, null);
+  }
+
+  private static ByteArrayInputStream encoded(final int i, final long l,
+      final String s) throws IOException {
+    final ByteArrayOutputStream b = new ByteArrayOutputStream();
+    if (s != null) {
+      BasicSerialization.writeString(b, s);
+    } else if (0 <= l) {
+      BasicSerialization.writeVarInt64(b, l);
+    } else {
+      BasicSerialization.writeVarInt32(b, i);
+    }
+    return new ByteArrayInputStream(b.toByteArray());
+  }
+
+  @Benchmark
+  public int writeVarInt32() throws IOException {
+    out.reset();
+    BasicSerialization.writeVarInt32(out, int32);
+    return out.size();
+  }
+
+  @Benchmark
+  public int readVarInt32() throws IOException {
+    int32In.reset();
+    return BasicSerialization.readVarInt32(int32In);
+  }
+
+  @Benchmark
+  public int writeVarInt64() throws IOException {
+    out.reset();
+    BasicSerialization.writeVarInt64(out, int64);
+    return out.size();
+  }
+
+  @Benchmark
+  public long readVarInt64() throws IOException {
+    int64In.reset();
+    return BasicSerialization.readVarInt64(int64In);
+  }
+
+  @Benchmark
+  public int writeString(final Strings s) throws IOException {
+    out.reset();
+    BasicSerialization.writeString(out, s.string);
+    return out.size();
+  }
+
+  @Benchmark
+  public String readString(final Strings s) throws IOException {
+    s.in.reset();
+    return BasicSerialization.readString(s.in);
+  }
+}
@@ -0,0 +1,70 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/** Ids for sessions, tasks and traces; drawn and formatted per request. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IdGeneratorBenchmark {
+  private IdGenerator gen;
+  private int id;
+
+  @State(Scope.Thread)
+  public static class Buffer {
+    final StringBuilder buf = new StringBuilder(16);
+  }
+
+  @Setup
+  public void setUp() {
+    gen = new IdGenerator();
+    id = gen.next();
+  }
+
+  @Benchmark
+  public int next() {
+    return gen.next();
+  }
+
+  /** All threads share one generator, as the server does. */
+  @Benchmark
+  @Threads(4)
+  public int nextContended() {
+    return gen.next();
+  }
+
+  @Benchmark
+  public String format() {
+    return IdGenerator.format(id);
+  }
+
+  @Benchmark
+  public StringBuilder formatInto(final Buffer b) {
+    b.buf.setLength(0);
+    IdGenerator.format(id, b.buf);
+    return b.buf;
+  }
+}
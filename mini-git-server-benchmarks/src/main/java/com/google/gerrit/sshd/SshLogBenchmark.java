@@ -0,0 +1,85 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import com.google.gerrit.server.config.SitePaths;
+
+import org.eclipse.jgit.lib.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting of one {@code sshd_log} line by the log writer thread.
+ * <p>
+ * The writer is created but never started, so nothing touches the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SshLogBenchmark {
+  private SshLog.LogWriter writer;
+  private SshLog.Entry command;
+  private SshLog.Entry login;
+  private final StringBuilder buf = new StringBuilder(256);
+
+  @Setup
+  public void setUp() throws Exception {
+    final File site = new File(System.getProperty("java.io.tmpdir"));
+    final SshLog log = new SshLog(null, null, new SitePaths(site),
+        new Config());
+    writer = log.new LogWriter();
+
+    command = new SshLog.Entry(0x12345678);
+    command.userName = "jdoe";
+    command.message = "git-upload-pack '/platform/frameworks/base.git'";
+    command.command = true;
+    command.traceId = 0x0badf00d;
+    command.project = "platform/frameworks/base";
+    command.wait = 3;
+    command.exec = 1523;
+    command.bytesIn = 4210;
+    command.bytesOut = 58 * 1024 * 1024;
+    command.writeTime = 120;
+    command.bufferWait = 0;
+    command.cpu = 870;
+    command.allocated = 96 * 1024 * 1024;
+
+    login = new SshLog.Entry(0x12345678);
+    login.userName = "jdoe";
+    login.message = "LOGIN FROM 10.0.0.1";
+  }
+
+  @Benchmark
+  public StringBuilder formatCommand() {
+    buf.setLength(0);
+    writer.format(command, buf);
+    return buf;
+  }
+
+  @Benchmark
+  public StringBuilder formatLogin() {
+    buf.setLength(0);
+    writer.format(login, buf);
+    return buf;
+  }
+}
@@ -0,0 +1,4 @@
+package com.google.gerrit.server.cache.jmh_generated;
+public class CacheBackendBenchmark_Cursor_jmhType extends CacheBackendBenchmark_Cursor_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.google.gerrit.server.cache.jmh_generated;
+public class CacheBackendBenchmark_jmhType extends CacheBackendBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.google.gerrit.server.git.jmh_generated;
+public class RepositoryOpenBenchmark_jmhType extends RepositoryOpenBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.google.gerrit.server.git.jmh_generated;
+public class WorkQueueBenchmark_jmhType extends WorkQueueBenchmark_jmhType_B3 {
+}
+
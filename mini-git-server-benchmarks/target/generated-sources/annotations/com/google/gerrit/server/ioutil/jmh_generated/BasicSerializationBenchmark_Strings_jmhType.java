@@ -0,0 +1,4 @@
+package com.google.gerrit.server.ioutil.jmh_generated;
+public class BasicSerializationBenchmark_Strings_jmhType extends BasicSerializationBenchmark_Strings_jmhType_B3 {
+}
+
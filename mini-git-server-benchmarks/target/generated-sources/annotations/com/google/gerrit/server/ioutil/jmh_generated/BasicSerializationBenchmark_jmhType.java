@@ -0,0 +1,4 @@
+package com.google.gerrit.server.ioutil.jmh_generated;
+public class BasicSerializationBenchmark_jmhType extends BasicSerializationBenchmark_jmhType_B3 {
+}
+
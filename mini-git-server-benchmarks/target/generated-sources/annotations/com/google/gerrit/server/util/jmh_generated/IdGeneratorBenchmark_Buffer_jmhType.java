@@ -0,0 +1,4 @@
+package com.google.gerrit.server.util.jmh_generated;
+public class IdGeneratorBenchmark_Buffer_jmhType extends IdGeneratorBenchmark_Buffer_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.google.gerrit.server.util.jmh_generated;
+public class IdGeneratorBenchmark_jmhType extends IdGeneratorBenchmark_jmhType_B3 {
+}
+
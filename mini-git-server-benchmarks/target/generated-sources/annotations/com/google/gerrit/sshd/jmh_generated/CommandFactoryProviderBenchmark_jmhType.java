@@ -0,0 +1,4 @@
+package com.google.gerrit.sshd.jmh_generated;
+public class CommandFactoryProviderBenchmark_jmhType extends CommandFactoryProviderBenchmark_jmhType_B3 {
+}
+
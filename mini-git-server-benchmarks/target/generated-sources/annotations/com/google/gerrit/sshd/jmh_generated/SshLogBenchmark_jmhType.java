@@ -0,0 +1,4 @@
+package com.google.gerrit.sshd.jmh_generated;
+public class SshLogBenchmark_jmhType extends SshLogBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,49 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.embedded;
+
+import org.apache.sshd.common.keyprovider.AbstractKeyPairProvider;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+/**
+ * Host key kept in memory and shared by every embedded server in the JVM.
+ * <p>
+ * Generating an RSA key costs more than the rest of startup, so it is done
+ * once; clients of an embedded server do not check host keys anyway.
+ */
+class EmbeddedHostKeyProvider extends AbstractKeyPairProvider {
+  private static KeyPair key;
+
+  private static synchronized KeyPair key() {
+    if (key == null) {
+      try {
+        final KeyPairGenerator g = KeyPairGenerator.getInstance("RSA");
+        g.initialize(2048);
+        key = g.generateKeyPair();
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("Cannot generate host key", e);
+      }
+    }
+    return key;
+  }
+
+  @Override
+  protected KeyPair[] loadKeys() {
+    return new KeyPair[] {key()};
+  }
+}
@@ -0,0 +1,415 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.embedded;
+
+import com.google.gerrit.httpd.ProjectServlet;
+import com.google.gerrit.lifecycle.LifecycleManager;
+import com.google.gerrit.server.config.CanonicalWebUrlModule;
+import com.google.gerrit.server.config.CanonicalWebUrlProvider;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.config.SitePath;
+import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.config.ToyGerritGlobalModule;
+import com.google.gerrit.server.git.EphemeralRepositoryManager;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.sshd.InMemoryPubKeyAuth;
+import com.google.gerrit.sshd.SshDaemon;
+import com.google.gerrit.sshd.SshUtil;
+import com.google.gerrit.sshd.ToySshModule;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.util.Modules;
+
+import org.apache.sshd.common.KeyPairProvider;
+import org.apache.sshd.server.PublickeyAuthenticator;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.inject.Stage.PRODUCTION;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * A server started from code, for integration tests of Git clients.
+ * <p>
+ * Configuration is held in memory and users authenticate with keys given to
+ * the {@link Builder}, so the site directory holds only repositories and
+ * logs. Unless a site is given a temporary one is used, and deleted again by
+ * {@link #stop()}. Ports default to ephemeral ones on the loopback address:
+ *
+ * <pre>
+ * EmbeddedMiniGitServer server = EmbeddedMiniGitServer.builder()
+ *     .user("alice", alicesKey)
+ *     .http()
+ *     .start();
+ * try {
+ *   server.createRepository("project").close();
+ *   clone(server.sshUrl("alice", "project"));
+ * } finally {
+ *   server.stop();
+ * }
+ * </pre>
+ *
+ * Stopping shuts down every thread the server started, so many servers may
+ * be started and stopped in one JVM, one after another or side by side.
+ */
+public class EmbeddedMiniGitServer {
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private File sitePath;
+    private String host = "127.0.0.1";
+    private int sshPort;
+    private boolean http;
+    private int httpPort;
+    private boolean ephemeral;
+    private final Config cfg = new Config();
+    private final Map<String, List<PublicKey>> users =
+        new LinkedHashMap<String, List<PublicKey>>();
+
+    private Builder() {
+      cfg.setString("gerrit", null, "basePath", "git");
+    }
+
+    /** Use {@code dir} as site, and keep it when stopping. */
+    public Builder sitePath(final File dir) {
+      sitePath = dir;
+      return this;
+    }
+
+    /** Address to listen on, default {@code 127.0.0.1}. */
+    public Builder host(final String name) {
+      host = name;
+      return this;
+    }
+
+    /** SSH port, default 0 for an ephemeral one. */
+    public Builder sshPort(final int port) {
+      sshPort = port;
+      return this;
+    }
+
+    /** Also serve smart HTTP (fetch only) under {@code /p/}. */
+    public Builder http() {
+      http = true;
+      return this;
+    }
+
+    /** Serve smart HTTP on {@code port}, 0 for an ephemeral one. */
+    public Builder httpPort(final int port) {
+      http = true;
+      httpPort = port;
+      return this;
+    }
+
+    /**
+     * Keep repositories in memory-backed scratch space, discarded on stop.
+     * Repositories under the site's {@code basePath} are copied on first
+     * open.
+     *
+     * @see EphemeralRepositoryManager
+     */
+    public Builder ephemeralRepositories() {
+      ephemeral = true;
+      return this;
+    }
+
+    /** Set a {@code gerrit.config} variable. */
+    public Builder set(final String section, final String subsection,
+        final String name, final String value) {
+      cfg.setString(section, subsection, name, value);
+      return this;
+    }
+
+    /** Allow {@code name} to log in over SSH with {@code key}. */
+    public Builder user(final String name, final PublicKey key) {
+      List<PublicKey> keys = users.get(name);
+      if (keys == null) {
+        keys = new ArrayList<PublicKey>();
+        users.put(name, keys);
+      }
+      keys.add(key);
+      return this;
+    }
+
+    /** Allow {@code name} to log in with an OpenSSH format public key. */
+    public Builder user(final String name, final String openSshKey) {
+      try {
+        return user(name, SshUtil.parseOpenSSHKey(openSshKey));
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Invalid key for " + name, e);
+      }
+    }
+
+    public EmbeddedMiniGitServer build() {
+      return new EmbeddedMiniGitServer(this);
+    }
+
+    /** Build and start the server. */
+    public EmbeddedMiniGitServer start() throws IOException {
+      final EmbeddedMiniGitServer s = build();
+      s.start();
+      return s;
+    }
+  }
+
+  private final File site;
+  private final boolean temporarySite;
+  private final String host;
+  private final boolean http;
+  private final int requestedHttpPort;
+  private final boolean ephemeral;
+  private final Config cfg;
+  private final Map<String, List<PublicKey>> users;
+
+  private LifecycleManager manager;
+  private Injector sshInjector;
+  private File sitePath;
+  private Server jetty;
+  private int sshPort;
+  private int httpPort;
+
+  private EmbeddedMiniGitServer(final Builder b) {
+    temporarySite = b.sitePath == null;
+    site = b.sitePath;
+    host = b.host;
+    http = b.http;
+    requestedHttpPort = b.httpPort;
+    ephemeral = b.ephemeral;
+    cfg = new Config();
+    try {
+      cfg.fromText(b.cfg.toText());
+    } catch (ConfigInvalidException e) {
+      throw new IllegalStateException(e);
+    }
+    cfg.setString("sshd", null, "listenAddress", host + ":" + b.sshPort);
+    users = new LinkedHashMap<String, List<PublicKey>>(b.users);
+  }
+
+  /** Start SSH, and HTTP if requested. */
+  public synchronized void start() throws IOException {
+    if (manager != null) {
+      throw new IllegalStateException("Already started");
+    }
+    final File dir = temporarySite ? createTempSite() : site;
+    try {
+      mkdirs(new File(dir, "logs"));
+      final File base = new File(cfg.getString("gerrit", null, "basePath"));
+      mkdirs(base.isAbsolute() ? base : new File(dir, base.getPath()));
+      sshInjector = createInjector(dir);
+      manager = new LifecycleManager();
+      manager.add(sshInjector.getParent());
+      manager.add(sshInjector);
+
+      final InMemoryPubKeyAuth auth =
+          sshInjector.getInstance(InMemoryPubKeyAuth.class);
+      for (final Map.Entry<String, List<PublicKey>> e : users.entrySet()) {
+        for (final PublicKey k : e.getValue()) {
+          auth.addKey(e.getKey(), k);
+        }
+      }
+      manager.start();
+      sshPort = localPort(sshInjector.getInstance(SshDaemon.class));
+
+      if (http) {
+        startHttp();
+      }
+      sitePath = dir;
+    } catch (RuntimeException e) {
+      shutdown(dir);
+      throw e;
+    } catch (IOException e) {
+      shutdown(dir);
+      throw e;
+    }
+  }
+
+  /** Stop the server, waiting for its threads to finish. */
+  public synchronized void stop() {
+    if (manager != null) {
+      shutdown(sitePath);
+    }
+  }
+
+  /** @return the site directory, only valid while started. */
+  public File getSitePath() {
+    return sitePath;
+  }
+
+  public int getSshPort() {
+    return sshPort;
+  }
+
+  /** @return HTTP port; 0 unless HTTP was requested and started. */
+  public int getHttpPort() {
+    return httpPort;
+  }
+
+  /** @return URL to reach {@code project} over SSH as {@code user}. */
+  public String sshUrl(final String user, final String project) {
+    return "ssh://" + user + "@" + host + ":" + sshPort + "/" + project
+        + ".git";
+  }
+
+  /** @return URL to fetch {@code project} over smart HTTP. */
+  public String httpUrl(final String project) {
+    if (httpPort == 0) {
+      throw new IllegalStateException("HTTP not started");
+    }
+    return "http://" + host + ":" + httpPort + "/p/" + project + ".git";
+  }
+
+  public GitRepositoryManager getRepositoryManager() {
+    return sshInjector.getInstance(GitRepositoryManager.class);
+  }
+
+  /**
+   * Create an empty repository.
+   *
+   * @return the repository; caller must close it.
+   */
+  public Repository createRepository(final String name) throws IOException {
+    return getRepositoryManager().createRepository(name);
+  }
+
+  /** Allow {@code name} to log in with {@code key}, while running. */
+  public void addUser(final String name, final PublicKey key) {
+    sshInjector.getInstance(InMemoryPubKeyAuth.class).addKey(name, key);
+  }
+
+  private Injector createInjector(final File dir) {
+    final Injector cfgInjector = Guice.createInjector(PRODUCTION,
+        new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(File.class).annotatedWith(SitePath.class).toInstance(dir);
+            bind(SitePaths.class);
+            bind(Config.class).annotatedWith(GerritServerConfig.class)
+                .toInstance(cfg);
+          }
+        });
+    final Injector sysInjector = cfgInjector.createChildInjector(
+        cfgInjector.getInstance(ToyGerritGlobalModule.class),
+        new CanonicalWebUrlModule() {
+          @Override
+          protected Class<? extends Provider<String>> provider() {
+            return CanonicalWebUrlProvider.class;
+          }
+        });
+    final List<Module> overrides = new ArrayList<Module>();
+    overrides.add(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(PublickeyAuthenticator.class).to(InMemoryPubKeyAuth.class);
+        bind(KeyPairProvider.class).toInstance(new EmbeddedHostKeyProvider());
+      }
+    });
+    if (ephemeral) {
+      overrides.add(EphemeralRepositoryManager.module());
+    }
+    return sysInjector.createChildInjector(Modules.override(
+        new ToySshModule()).with(overrides));
+  }
+
+  private static File createTempSite() throws IOException {
+    final File dir = File.createTempFile("mini-git-server", ".site");
+    if (!dir.delete() || !dir.mkdir()) {
+      throw new IOException("Cannot create " + dir);
+    }
+    return dir;
+  }
+
+  private static void mkdirs(final File dir) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Cannot create " + dir);
+    }
+  }
+
+  private static int localPort(final SshDaemon daemon) {
+    for (final SocketAddress a : daemon.getIoAcceptor().getLocalAddresses()) {
+      if (a instanceof InetSocketAddress) {
+        return ((InetSocketAddress) a).getPort();
+      }
+    }
+    throw new IllegalStateException("SSH daemon is not listening");
+  }
+
+  private void startHttp() throws IOException {
+    final SelectChannelConnector c = new SelectChannelConnector();
+    c.setHost(host);
+    c.setPort(requestedHttpPort);
+
+    final ServletContextHandler ctx = new ServletContextHandler();
+    ctx.setContextPath("/");
+    ctx.addServlet(new ServletHolder(sshInjector
+        .getInstance(ProjectServlet.class)), "/p/*");
+
+    jetty = new Server();
+    jetty.addConnector(c);
+    jetty.setHandler(ctx);
+    try {
+      jetty.start();
+    } catch (Exception e) {
+      throw new IOException("Cannot start HTTP on " + host + ":"
+          + requestedHttpPort + ": " + e);
+    }
+    httpPort = c.getLocalPort();
+  }
+
+  private void shutdown(final File dir) {
+    try {
+      if (jetty != null) {
+        try {
+          jetty.stop();
+          jetty.join();
+        } catch (Exception e) {
+          // Its threads are daemons and the connector is closed either way.
+        }
+      }
+      if (manager != null) {
+        manager.stop();
+      }
+    } finally {
+      jetty = null;
+      manager = null;
+      sshInjector = null;
+      sshPort = 0;
+      httpPort = 0;
+      sitePath = null;
+      if (temporarySite && dir != null) {
+        deleteQuietly(dir);
+      }
+    }
+  }
+}
@@ -0,0 +1,194 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.embedded;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.KeyPair;
+import com.jcraft.jsch.Session;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepository;
+import org.eclipse.jgit.transport.FetchConnection;
+import org.eclipse.jgit.transport.OpenSshConfig;
+import org.eclipse.jgit.transport.SshConfigSessionFactory;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+public class EmbeddedMiniGitServerTest extends TestCase {
+  private static final String USER = "alice";
+  private static final String PROJECT = "project";
+  private static final int RUNS = 3;
+
+  /**
+   * Slowest startup tolerated. Startup is expected well under a second; the
+   * margin absorbs class loading on the first run and slow build machines.
+   */
+  private static final long MAX_STARTUP_MILLIS = 5000;
+
+  /** Name prefixes of the threads a running server owns. */
+  private static final String[] SERVER_THREADS =
+      {"WorkQueue", "SSH-", "NioProcessor", "SshLog-Writer"};
+
+  private File work;
+  private String publicKey;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    work = File.createTempFile("embedded", ".test");
+    assertTrue(work.delete());
+    assertTrue(work.mkdir());
+
+    final File privateKey = new File(work, "id_rsa");
+    final KeyPair kp = KeyPair.genKeyPair(new JSch(), KeyPair.RSA, 1024);
+    try {
+      kp.writePrivateKey(privateKey.getAbsolutePath());
+      final ByteArrayOutputStream pub = new ByteArrayOutputStream();
+      kp.writePublicKey(pub, USER);
+      publicKey = pub.toString("US-ASCII").trim();
+    } finally {
+      kp.dispose();
+    }
+
+    SshSessionFactory.setInstance(new SshConfigSessionFactory() {
+      @Override
+      protected void configure(final OpenSshConfig.Host hc, final Session s) {
+        s.setConfig("StrictHostKeyChecking", "no");
+      }
+
+      @Override
+      protected JSch createDefaultJSch(final FS fs) throws JSchException {
+        final JSch jsch = new JSch();
+        jsch.addIdentity(privateKey.getAbsolutePath());
+        return jsch;
+      }
+    });
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    SshSessionFactory.setInstance(null);
+    deleteQuietly(work);
+    super.tearDown();
+  }
+
+  public void testRepeatedStartAndStop() throws Exception {
+    final Repository local = new FileRepository(new File(work, "local.git"));
+    local.create(true);
+    try {
+      long slowest = 0;
+      for (int i = 0; i < RUNS; i++) {
+        final long start = System.nanoTime();
+        final EmbeddedMiniGitServer server = EmbeddedMiniGitServer.builder()
+            .user(USER, publicKey)
+            .http()
+            .start();
+        final long startup = (System.nanoTime() - start) / 1000000;
+        slowest = Math.max(slowest, startup);
+
+        final File site = server.getSitePath();
+        try {
+          final ObjectId tip = seed(server);
+          assertEquals(tip, lsRemote(local, server.sshUrl(USER, PROJECT)));
+          assertEquals(tip, lsRemote(local, server.httpUrl(PROJECT)));
+        } finally {
+          server.stop();
+        }
+
+        assertFalse(site + " left behind", site.exists());
+        assertNoServerThreads();
+      }
+      assertTrue("slowest startup took " + slowest + " ms",
+          slowest <= MAX_STARTUP_MILLIS);
+    } finally {
+      local.close();
+    }
+  }
+
+  private static ObjectId seed(final EmbeddedMiniGitServer server)
+      throws Exception {
+    final Repository db = server.createRepository(PROJECT);
+    try {
+      final TestRepository<Repository> util =
+          new TestRepository<Repository>(db);
+      final RevCommit c =
+          util.commit().add("README", "hello\n").message("init").create();
+      util.update(Constants.MASTER, c);
+      return c.copy();
+    } finally {
+      db.close();
+    }
+  }
+
+  private static ObjectId lsRemote(final Repository local, final String url)
+      throws Exception {
+    final Transport tn = Transport.open(local, new URIish(url));
+    try {
+      final FetchConnection c = tn.openFetch();
+      try {
+        final Ref master = c.getRef(Constants.R_HEADS + Constants.MASTER);
+        assertNotNull("no master at " + url, master);
+        return master.getObjectId();
+      } finally {
+        c.close();
+      }
+    } finally {
+      tn.close();
+    }
+  }
+
+  /** Some threads finish shortly after stop returns; allow them a moment. */
+  private static void assertNoServerThreads() throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    List<String> left = serverThreads();
+    while (!left.isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+      left = serverThreads();
+    }
+    assertTrue("threads left running: " + left, left.isEmpty());
+  }
+
+  private static List<String> serverThreads() {
+    final List<String> r = new ArrayList<String>();
+    for (final Thread t : Thread.getAllStackTraces().keySet()) {
+      if (!t.isAlive()) {
+        continue;
+      }
+      for (final String prefix : SERVER_THREADS) {
+        if (t.getName().startsWith(prefix)) {
+          r.add(t.getName());
+        }
+      }
+    }
+    return r;
+  }
+}
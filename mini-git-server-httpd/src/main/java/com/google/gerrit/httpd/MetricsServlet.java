@@ -0,0 +1,90 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.httpd;
+
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.metrics.MetricRegistry;
+import com.google.gerrit.server.metrics.TextFormat;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.eclipse.jgit.lib.Config;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Exports the server's metrics in the Prometheus text format.
+ * <p>
+ * The metrics name users, projects and queues, and HTTP requests carry no
+ * identity to check, so by default only clients on the loopback interface
+ * may read them. Set {@code metrics.allowRemote} to serve any client, e.g.
+ * when a scraper on another host is trusted by the network. A reverse proxy
+ * on the same host appears as a loopback client; do not route
+ * {@code /metrics} through one that is exposed to users.
+ */
+@Singleton
+public class MetricsServlet extends HttpServlet {
+  private static final long serialVersionUID = 1L;
+
+  private final MetricRegistry registry;
+  private final boolean allowRemote;
+
+  @Inject
+  MetricsServlet(final MetricRegistry registry,
+      @GerritServerConfig final Config cfg) {
+    this.registry = registry;
+    this.allowRemote = cfg.getBoolean("metrics", "allowRemote", false);
+  }
+
+  @Override
+  protected void doGet(final HttpServletRequest req,
+      final HttpServletResponse rsp) throws IOException {
+    if (!allowRemote && !isLoopback(req.getRemoteAddr())) {
+      rsp.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    rsp.setStatus(HttpServletResponse.SC_OK);
+    rsp.setContentType(TextFormat.CONTENT_TYPE);
+    rsp.setCharacterEncoding("UTF-8");
+    rsp.setHeader("Cache-Control", "no-cache, no-store");
+
+    final Writer out = new OutputStreamWriter(rsp.getOutputStream(), "UTF-8");
+    try {
+      new TextFormat(registry).write(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  private static boolean isLoopback(final String addr) {
+    if (addr == null) {
+      return false;
+    }
+    try {
+      return InetAddress.getByName(addr).isLoopbackAddress();
+    } catch (UnknownHostException e) {
+      return false;
+    }
+  }
+}
@@ -17,6 +17,10 @@ package com.google.gerrit.httpd;
 import com.google.gerrit.server.config.CanonicalWebUrl;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.git.TransferConfig;
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.Histogram;
+import com.google.gerrit.server.metrics.MetricRegistry;
+import com.google.gerrit.server.trace.TransferPhases;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -37,6 +41,10 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
 
 /** Serves Git repositories over HTTP. */
 @Singleton
@@ -45,6 +53,8 @@ public class ProjectServlet extends GitServlet {
       LoggerFactory.getLogger(ProjectServlet.class);
 
   private static final String ATT_CONTROL = "Project";
+  private static final String[] SERVICES =
+      {"info-refs", "upload-pack", "receive-pack", "other"};
 
   static class Module extends AbstractModule {
     @Override
@@ -65,11 +75,22 @@ public class ProjectServlet extends GitServlet {
   }
 
   private final Provider<String> urlProvider;
+  private final Map<String, Histogram> requestTime;
+  private final Counter errors;
 
   @Inject
   ProjectServlet(final Resolver resolver, final Upload upload,
-      @CanonicalWebUrl @Nullable Provider<String> urlProvider) {
+      @CanonicalWebUrl @Nullable Provider<String> urlProvider,
+      final MetricRegistry metrics) {
     this.urlProvider = urlProvider;
+    this.requestTime = new HashMap<String, Histogram>();
+    for (final String s : SERVICES) {
+      requestTime.put(s, metrics.histogram("http_git_request_ms",
+          "Milliseconds taken to serve Git HTTP requests",
+          Histogram.LATENCY_MS, "service", s));
+    }
+    this.errors = metrics.counter("http_git_errors_total",
+        "Git HTTP requests that failed with an exception");
 
     setRepositoryResolver(resolver);
     setAsIsFileService(AsIsFileService.DISABLED);
@@ -98,6 +119,37 @@ public class ProjectServlet extends GitServlet {
     });
   }
 
+  @Override
+  protected void service(final HttpServletRequest req,
+      final HttpServletResponse rsp) throws ServletException, IOException {
+    final String service = service(req);
+    final long start = System.currentTimeMillis();
+    boolean ok = false;
+    try {
+      super.service(req, rsp);
+      ok = true;
+    } finally {
+      requestTime.get(service).record(System.currentTimeMillis() - start);
+      if (!ok) {
+        errors.inc();
+      }
+    }
+  }
+
+  private static String service(final HttpServletRequest req) {
+    final String path = req.getPathInfo();
+    if (path == null) {
+      return "other";
+    } else if (path.endsWith("/info/refs")) {
+      return "info-refs";
+    } else if (path.endsWith("/git-upload-pack")) {
+      return "upload-pack";
+    } else if (path.endsWith("/git-receive-pack")) {
+      return "receive-pack";
+    }
+    return "other";
+  }
+
   static class Resolver implements RepositoryResolver {
     private final GitRepositoryManager manager;
     @Inject
@@ -145,7 +197,21 @@ public class ProjectServlet extends GitServlet {
 
       // The Resolver above already checked READ access for us.
       //
-      UploadPack up = new UploadPack(repo);
+      final String project = getProject(req);
+      final String user = req.getRemoteUser();
+      UploadPack up = new UploadPack(repo) {
+        @Override
+        public void upload(InputStream in, OutputStream out,
+            OutputStream messages) throws IOException {
+          final TransferPhases phases = new TransferPhases(
+              TransferPhases.UPLOAD_PACK, project, user);
+          try {
+            super.upload(phases.wrap(in), phases.wrap(out), messages);
+          } finally {
+            phases.finish();
+          }
+        }
+      };
       up.setPackConfig(packConfig);
       return up;
     }
@@ -15,6 +15,8 @@
 package com.google.gerrit.httpd;
 
 import com.google.gerrit.server.RequestCleanup;
+import com.google.gerrit.server.util.IdGenerator;
+import com.google.gerrit.server.util.TraceId;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -27,15 +29,24 @@ import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
 
-/** Executes any pending {@link RequestCleanup} at the end of a request. */
+/**
+ * Executes any pending {@link RequestCleanup} at the end of a request.
+ * <p>
+ * Also gives the request a {@link TraceId}, returned to the client in the
+ * {@value TraceId#HEADER} response header.
+ */
 @Singleton
 class RequestCleanupFilter implements Filter {
   private final Provider<RequestCleanup> cleanup;
+  private final IdGenerator traceIds;
 
   @Inject
-  RequestCleanupFilter(final Provider<RequestCleanup> r) {
+  RequestCleanupFilter(final Provider<RequestCleanup> r,
+      final IdGenerator ids) {
     cleanup = r;
+    traceIds = ids;
   }
 
   @Override
@@ -50,10 +61,19 @@ class RequestCleanupFilter implements Filter {
   public void doFilter(final ServletRequest request,
       final ServletResponse response, final FilterChain chain)
       throws IOException, ServletException {
+    final String trace = IdGenerator.format(traceIds.next());
+    final String old = TraceId.set(trace);
     try {
+      if (response instanceof HttpServletResponse) {
+        ((HttpServletResponse) response).setHeader(TraceId.HEADER, trace);
+      }
       chain.doFilter(request, response);
     } finally {
-      cleanup.get().run();
+      try {
+        cleanup.get().run();
+      } finally {
+        TraceId.restore(old);
+      }
     }
   }
 }
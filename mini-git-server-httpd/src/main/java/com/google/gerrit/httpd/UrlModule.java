@@ -34,6 +34,8 @@ class UrlModule extends ServletModule {
 
     serve("/p/*").with(ProjectServlet.class);
 
+    serve("/metrics").with(MetricsServlet.class);
+
     serve("/servlet/*").with(notFound());
   }
 
@@ -0,0 +1,37 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.lifecycle;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the listeners a {@link LifecycleListener} needs.
+ * <p>
+ * {@link LifecycleManager} starts the annotated listener only after every
+ * registered listener that is an instance of one of the given types, and
+ * stops it before them. Listeners without a path between them may start
+ * and stop concurrently. Types with no registered instance are ignored.
+ */
+@Inherited
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface DependsOn {
+  Class<? extends LifecycleListener>[] value();
+}
@@ -18,19 +18,73 @@ import com.google.inject.Binding;
 import com.google.inject.Injector;
 import com.google.inject.TypeLiteral;
 
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-/** Tracks and executes registered {@link LifecycleListener}s. */
+/**
+ * Tracks and executes registered {@link LifecycleListener}s.
+ * <p>
+ * Listeners are started in dependency order, as declared by
+ * {@link DependsOn}, and stopped in the reverse order. By default they run
+ * one at a time in the order they were registered, which many listeners
+ * still rely on. Given more threads, listeners that do not depend on each
+ * other run concurrently; only do that once every ordering need is declared.
+ * Each start and stop is timed, and the slowest listeners are logged once
+ * startup completes.
+ */
 public class LifecycleManager {
+  private static final Logger log =
+      LoggerFactory.getLogger(LifecycleManager.class);
+
+  /** Listeners named in the startup report. */
+  private static final int SLOWEST = 5;
+
   private final LinkedHashMap<LifecycleListener, Boolean> listeners =
       new LinkedHashMap<LifecycleListener, Boolean>();
+  private final int threads;
+
+  /** Listeners whose start() returned, in the order they did. */
+  private final List<LifecycleListener> running =
+      Collections.synchronizedList(new ArrayList<LifecycleListener>());
+  private final Map<LifecycleListener, Long> startMillis =
+      Collections.synchronizedMap(new LinkedHashMap<LifecycleListener, Long>());
 
   private boolean started;
 
+  /** Create a manager running listeners one at a time, in order. */
+  public LifecycleManager() {
+    this(1);
+  }
+
+  /**
+   * @param threads listeners started or stopped at once; 1 runs them one
+   *        after another in registration order, dependencies permitting.
+   */
+  public LifecycleManager(final int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    this.threads = threads;
+  }
+
   /** Add a single listener. */
   public void add(final LifecycleListener listener) {
     listeners.put(listener, true);
@@ -53,32 +107,250 @@ public class LifecycleManager {
     }
   }
 
-  /** Start all listeners, in the order they were registered. */
+  /**
+   * Start all listeners, each after the listeners it depends on.
+   * <p>
+   * If a listener fails no further listeners are started; those already
+   * running are left for {@link #stop()}, and the failure is rethrown.
+   */
   public void start() {
     if (!started) {
       started = true;
-      for (LifecycleListener obj : listeners.keySet()) {
-        obj.start();
-      }
+      final List<LifecycleListener> all =
+          new ArrayList<LifecycleListener>(listeners.keySet());
+      final long begin = System.nanoTime();
+      run(all, dependencies(all), true);
+      report(all.size(), (System.nanoTime() - begin) / 1000000L);
     }
   }
 
-  /** Stop all listeners, in the reverse order they were registered. */
+  /** Stop started listeners, each before the listeners it depends on. */
   public void stop() {
     if (started) {
-      final List<LifecycleListener> t =
-          new ArrayList<LifecycleListener>(listeners.keySet());
+      final List<LifecycleListener> t;
+      synchronized (running) {
+        t = new ArrayList<LifecycleListener>(running);
+      }
+      Collections.reverse(t);
+      run(t, dependents(t), false);
+
+      running.clear();
+      startMillis.clear();
+      started = false;
+    }
+  }
+
+  /** @return milliseconds each started listener took to start. */
+  public Map<LifecycleListener, Long> getStartTimes() {
+    synchronized (startMillis) {
+      return new LinkedHashMap<LifecycleListener, Long>(startMillis);
+    }
+  }
+
+  /**
+   * Run start or stop on every listener once those in {@code waitFor} are
+   * done with it. Stop failures are logged and ignored; the first start
+   * failure is rethrown once running tasks finish.
+   */
+  private void run(final List<LifecycleListener> order,
+      final Map<LifecycleListener, Set<LifecycleListener>> waitFor,
+      final boolean starting) {
+    if (order.isEmpty()) {
+      return;
+    }
+
+    final ExecutorService pool = Executors.newFixedThreadPool(
+        Math.min(threads, order.size()), new LifecycleThreadFactory());
+    final CompletionService<LifecycleListener> done =
+        new ExecutorCompletionService<LifecycleListener>(pool);
+    final List<LifecycleListener> waiting =
+        new ArrayList<LifecycleListener>(order);
+    Throwable failure = null;
+    int inFlight = 0;
+    try {
+      for (;;) {
+        if (failure == null) {
+          // Scan in order and keep at most one task per thread queued,
+          // so a single thread runs listeners in registration order.
+          for (final LifecycleListener l : new ArrayList<LifecycleListener>(
+              waiting)) {
+            if (inFlight == threads) {
+              break;
+            }
+            if (waitFor.get(l).isEmpty()) {
+              waiting.remove(l);
+              done.submit(new Task(l, starting));
+              inFlight++;
+            }
+          }
+        }
+        if (inFlight == 0) {
+          break;
+        }
+
+        final Future<LifecycleListener> f;
+        try {
+          f = done.take();
+        } catch (InterruptedException e) {
+          // Leave the running tasks behind, their threads are daemons.
+          Thread.currentThread().interrupt();
+          if (failure == null) {
+            failure = new IllegalStateException("Interrupted", e);
+          }
+          break;
+        }
+        inFlight--;
+        try {
+          final LifecycleListener finished = f.get();
+          for (final Set<LifecycleListener> s : waitFor.values()) {
+            s.remove(finished);
+          }
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        } catch (InterruptedException e) {
+          // Not reached, the future is done.
+          Thread.currentThread().interrupt();
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
 
-      for (int i = t.size() - 1; 0 <= i; i--) {
-        final LifecycleListener obj = t.get(i);
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new IllegalStateException("Cannot start", failure);
+    } else if (!waiting.isEmpty()) {
+      throw new IllegalStateException("Circular dependency among "
+          + names(waiting));
+    }
+  }
+
+  private class Task implements Callable<LifecycleListener> {
+    private final LifecycleListener listener;
+    private final boolean starting;
+
+    Task(final LifecycleListener listener, final boolean starting) {
+      this.listener = listener;
+      this.starting = starting;
+    }
+
+    @Override
+    public LifecycleListener call() {
+      final long begin = System.nanoTime();
+      if (starting) {
+        listener.start();
+        final long ms = (System.nanoTime() - begin) / 1000000L;
+        startMillis.put(listener, ms);
+        running.add(listener);
+        log.info("Started " + name(listener) + " in " + ms + " ms");
+      } else {
         try {
-          obj.stop();
+          listener.stop();
+          log.info("Stopped " + name(listener) + " in "
+              + (System.nanoTime() - begin) / 1000000L + " ms");
         } catch (Throwable err) {
-          LoggerFactory.getLogger(obj.getClass()).warn("Failed to stop", err);
+          LoggerFactory.getLogger(listener.getClass())
+              .warn("Failed to stop", err);
+        }
+      }
+      return listener;
+    }
+  }
+
+  /** For each listener, the listeners it must start after. */
+  static Map<LifecycleListener, Set<LifecycleListener>> dependencies(
+      final List<LifecycleListener> all) {
+    final Map<LifecycleListener, Set<LifecycleListener>> r =
+        new LinkedHashMap<LifecycleListener, Set<LifecycleListener>>();
+    for (final LifecycleListener l : all) {
+      final Set<LifecycleListener> deps = new HashSet<LifecycleListener>();
+      final DependsOn d = l.getClass().getAnnotation(DependsOn.class);
+      if (d != null) {
+        for (final Class<? extends LifecycleListener> type : d.value()) {
+          for (final LifecycleListener m : all) {
+            if (m != l && type.isInstance(m)) {
+              deps.add(m);
+            }
+          }
         }
       }
+      r.put(l, deps);
+    }
+    return r;
+  }
 
-      started = false;
+  /** For each listener, the listeners it must stop after. */
+  static Map<LifecycleListener, Set<LifecycleListener>> dependents(
+      final List<LifecycleListener> all) {
+    final Map<LifecycleListener, Set<LifecycleListener>> r =
+        new LinkedHashMap<LifecycleListener, Set<LifecycleListener>>();
+    for (final LifecycleListener l : all) {
+      r.put(l, new HashSet<LifecycleListener>());
+    }
+    for (final Map.Entry<LifecycleListener, Set<LifecycleListener>> e
+        : dependencies(all).entrySet()) {
+      for (final LifecycleListener dep : e.getValue()) {
+        r.get(dep).add(e.getKey());
+      }
+    }
+    return r;
+  }
+
+  private void report(final int count, final long totalMillis) {
+    final List<Map.Entry<LifecycleListener, Long>> times;
+    synchronized (startMillis) {
+      times = new ArrayList<Map.Entry<LifecycleListener, Long>>(
+          new LinkedHashMap<LifecycleListener, Long>(startMillis).entrySet());
+    }
+    Collections.sort(times,
+        new Comparator<Map.Entry<LifecycleListener, Long>>() {
+      @Override
+      public int compare(final Map.Entry<LifecycleListener, Long> a,
+          final Map.Entry<LifecycleListener, Long> b) {
+        return b.getValue().compareTo(a.getValue());
+      }
+    });
+
+    final StringBuilder r = new StringBuilder();
+    r.append("Started ").append(count).append(" listeners in ")
+        .append(totalMillis).append(" ms on ")
+        .append(Math.min(threads, Math.max(count, 1))).append(" threads");
+    for (int i = 0; i < times.size() && i < SLOWEST; i++) {
+      r.append(i == 0 ? "; slowest: " : ", ");
+      r.append(name(times.get(i).getKey())).append(' ')
+          .append(times.get(i).getValue()).append(" ms");
+    }
+    log.info(r.toString());
+  }
+
+  private static String name(final LifecycleListener l) {
+    final String n = l.getClass().getName();
+    return n.substring(n.lastIndexOf('.') + 1);
+  }
+
+  private static String names(final List<LifecycleListener> list) {
+    final List<String> r = new ArrayList<String>(list.size());
+    for (final LifecycleListener l : list) {
+      r.add(name(l));
+    }
+    return r.toString();
+  }
+
+  private static class LifecycleThreadFactory implements ThreadFactory {
+    private final ThreadFactory parent = Executors.defaultThreadFactory();
+    private final AtomicInteger tid = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(final Runnable task) {
+      final Thread t = parent.newThread(task);
+      t.setName("Lifecycle-" + tid.getAndIncrement());
+      t.setDaemon(true);
+      return t;
     }
   }
 
@@ -0,0 +1,94 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.accesslog;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/** Naming and layout shared by the access log writer and reader. */
+final class AccessLogFiles {
+  /** Bytes taken by each entry of an index file: time and offset. */
+  static final int INDEX_ENTRY_SIZE = 16;
+
+  /** Each data file holds one hour of records, by UTC. */
+  static final long PARTITION = 60 * 60 * 1000L;
+
+  /** Bytes at the start of every data file. */
+  static final byte[] MAGIC = {'G', 'A', 'L', 1};
+
+  /** A data file's records are indexed every this many records. */
+  static final int INDEX_INTERVAL = 64;
+
+  static final String DATA_SUFFIX = ".bin";
+  static final String INDEX_SUFFIX = ".idx";
+
+  static long partitionOf(final long time) {
+    return time - (time % PARTITION);
+  }
+
+  static String name(final long partition) {
+    return format().format(new Date(partition));
+  }
+
+  /** @return start of the partition named by the file; -1 if not a log. */
+  static long parse(final File data) {
+    final String n = data.getName();
+    if (!n.endsWith(DATA_SUFFIX)) {
+      return -1;
+    }
+    try {
+      final String stem = n.substring(0, n.length() - DATA_SUFFIX.length());
+      return format().parse(stem).getTime();
+    } catch (ParseException e) {
+      return -1;
+    }
+  }
+
+  static File data(final File dir, final long partition) {
+    return new File(dir, name(partition) + DATA_SUFFIX);
+  }
+
+  static File index(final File data) {
+    final String n = data.getName();
+    return new File(data.getParentFile(), //
+        n.substring(0, n.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+  }
+
+  static void skipFully(final InputStream in, long n) throws IOException {
+    while (0 < n) {
+      final long r = in.skip(n);
+      if (r <= 0) {
+        throw new EOFException();
+      }
+      n -= r;
+    }
+  }
+
+  private static SimpleDateFormat format() {
+    final SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd-HH");
+    f.setTimeZone(TimeZone.getTimeZone("UTC"));
+    f.setLenient(false);
+    return f;
+  }
+
+  private AccessLogFiles() {
+  }
+}
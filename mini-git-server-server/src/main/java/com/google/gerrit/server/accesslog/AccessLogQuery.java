@@ -0,0 +1,348 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.accesslog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Command line tool aggregating the binary access log.
+ * <p>
+ * Example, the ten projects that sent the most bytes during an afternoon:
+ *
+ * <pre>
+ * java -cp ... com.google.gerrit.server.accesslog.AccessLogQuery \
+ *   --dir site/logs/sshd_access \
+ *   --from '2026-10-19 14:00' --to '2026-10-19 15:00' \
+ *   --group-by project --sort bytes --top 10
+ * </pre>
+ *
+ * Times are interpreted in the local time zone unless {@code --utc} is given.
+ */
+public class AccessLogQuery {
+  public static void main(final String[] argv) {
+    final AccessLogQuery q = new AccessLogQuery();
+    try {
+      q.parse(argv);
+    } catch (IllegalArgumentException e) {
+      System.err.println("fatal: " + e.getMessage());
+      usage(System.err);
+      System.exit(1);
+      return;
+    }
+    if (q.help) {
+      usage(System.out);
+      return;
+    }
+    try {
+      q.run(System.out);
+    } catch (IOException e) {
+      System.err.println("fatal: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static void usage(final PrintStream out) {
+    out.println("usage: AccessLogQuery --dir DIR [options]");
+    out.println();
+    out.println("  --from 'yyyy-MM-dd HH:mm'  start of range (default: -24h)");
+    out.println("  --to   'yyyy-MM-dd HH:mm'  end of range (default: now)");
+    out.println("  --utc                      interpret times as UTC");
+    out.println("  --user NAME                only records of this user");
+    out.println("  --project NAME             only records for this project");
+    out.println("  --command PREFIX           only commands starting with");
+    out.println("  --status STATUS            only records with this status");
+    out.println("  --group-by KEY             user, project, command, status,");
+    out.println("                             minute or hour");
+    out.println("  --sort count|exec|bytes    order of groups");
+    out.println("  --top N                    print only the first N groups");
+  }
+
+  enum GroupBy {
+    NONE, USER, PROJECT, COMMAND, STATUS, MINUTE, HOUR;
+  }
+
+  enum Sort {
+    COUNT, EXEC, BYTES;
+  }
+
+  /** Totals for one group of records. */
+  static class Summary {
+    final String key;
+    long count;
+    long execTotal;
+    long execMax;
+    long waitTotal;
+    long bytesIn;
+    long bytesOut;
+
+    Summary(final String key) {
+      this.key = key;
+    }
+
+    void add(final AccessLogRecord r) {
+      count++;
+      execTotal += r.getExecTime();
+      execMax = Math.max(execMax, r.getExecTime());
+      waitTotal += r.getWaitTime();
+      bytesIn += r.getBytesIn();
+      bytesOut += r.getBytesOut();
+    }
+
+    long sortKey(final Sort s) {
+      switch (s) {
+        case EXEC:
+          return execTotal;
+        case BYTES:
+          return bytesIn + bytesOut;
+        case COUNT:
+        default:
+          return count;
+      }
+    }
+  }
+
+  File dir;
+  long from;
+  long to;
+  boolean utc;
+  String user;
+  String project;
+  String command;
+  String status;
+  GroupBy groupBy = GroupBy.NONE;
+  Sort sort = Sort.COUNT;
+  int top;
+  boolean help;
+
+  private String fromStr;
+  private String toStr;
+
+  void parse(final String[] argv) {
+    for (int i = 0; i < argv.length; i++) {
+      final String a = argv[i];
+      if ("-h".equals(a) || "--help".equals(a)) {
+        help = true;
+      } else if ("--utc".equals(a)) {
+        utc = true;
+      } else if ("--dir".equals(a)) {
+        dir = new File(value(argv, ++i, a));
+      } else if ("--from".equals(a)) {
+        fromStr = value(argv, ++i, a);
+      } else if ("--to".equals(a)) {
+        toStr = value(argv, ++i, a);
+      } else if ("--user".equals(a)) {
+        user = value(argv, ++i, a);
+      } else if ("--project".equals(a)) {
+        project = value(argv, ++i, a);
+      } else if ("--command".equals(a)) {
+        command = value(argv, ++i, a);
+      } else if ("--status".equals(a)) {
+        status = value(argv, ++i, a);
+      } else if ("--group-by".equals(a)) {
+        groupBy = enumValue(GroupBy.class, value(argv, ++i, a), a);
+      } else if ("--sort".equals(a)) {
+        sort = enumValue(Sort.class, value(argv, ++i, a), a);
+      } else if ("--top".equals(a)) {
+        try {
+          top = Integer.parseInt(value(argv, ++i, a));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("--top requires a number");
+        }
+      } else {
+        throw new IllegalArgumentException("unknown option " + a);
+      }
+    }
+    if (help) {
+      return;
+    }
+    if (dir == null) {
+      throw new IllegalArgumentException("--dir is required");
+    }
+
+    final long now = System.currentTimeMillis();
+    to = toStr != null ? time(toStr) : now;
+    from = fromStr != null ? time(fromStr) : to - 24 * 60 * 60 * 1000L;
+    if (to <= from) {
+      throw new IllegalArgumentException("--from must be before --to");
+    }
+  }
+
+  void run(final PrintStream out) throws IOException {
+    final Map<String, Summary> groups = new HashMap<String, Summary>();
+    final SimpleDateFormat keyFormat = keyFormat();
+
+    new AccessLogReader(dir).scan(from, to, new AccessLogReader.Visitor() {
+      @Override
+      public void visit(final AccessLogRecord r) {
+        if (!matches(r)) {
+          return;
+        }
+        final String key = key(r, keyFormat);
+        Summary s = groups.get(key);
+        if (s == null) {
+          s = new Summary(key);
+          groups.put(key, s);
+        }
+        s.add(r);
+      }
+    });
+
+    final List<Summary> list = new ArrayList<Summary>(groups.values());
+    sort(list);
+    print(out, list);
+  }
+
+  boolean matches(final AccessLogRecord r) {
+    return (user == null || user.equals(r.getUser()))
+        && (project == null || project.equals(r.getProject()))
+        && (command == null || (r.getCommand() != null //
+            && r.getCommand().startsWith(command)))
+        && (status == null || status.equals(r.getStatus()));
+  }
+
+  private String key(final AccessLogRecord r, final SimpleDateFormat fmt) {
+    switch (groupBy) {
+      case USER:
+        return str(r.getUser());
+      case PROJECT:
+        return str(r.getProject());
+      case COMMAND:
+        return commandName(r.getCommand());
+      case STATUS:
+        return str(r.getStatus());
+      case MINUTE:
+      case HOUR:
+        return fmt.format(new Date(r.getTime()));
+      case NONE:
+      default:
+        return "total";
+    }
+  }
+
+  void sort(final List<Summary> list) {
+    if (groupBy == GroupBy.MINUTE || groupBy == GroupBy.HOUR) {
+      Collections.sort(list, new Comparator<Summary>() {
+        @Override
+        public int compare(final Summary a, final Summary b) {
+          return a.key.compareTo(b.key);
+        }
+      });
+    } else {
+      Collections.sort(list, new Comparator<Summary>() {
+        @Override
+        public int compare(final Summary a, final Summary b) {
+          final long x = a.sortKey(sort);
+          final long y = b.sortKey(sort);
+          if (x != y) {
+            return x < y ? 1 : -1;
+          }
+          return a.key.compareTo(b.key);
+        }
+      });
+    }
+    if (0 < top && top < list.size()) {
+      list.subList(top, list.size()).clear();
+    }
+  }
+
+  private static void print(final PrintStream out, final List<Summary> list) {
+    out.print(String.format("%-40s %8s %10s %8s %10s %10s %10s\n", //
+        "Group", "Count", "Exec(ms)", "Max(ms)", "Wait(ms)", //
+        "In", "Out"));
+    out.print("--------------------------------------------------------------"
+        + "--------------------------------------------\n");
+    for (final Summary s : list) {
+      out.print(String.format("%-40s %8d %10d %8d %10d %10s %10s\n", //
+          s.key, s.count, s.execTotal, s.execMax, s.waitTotal, //
+          size(s.bytesIn), size(s.bytesOut)));
+    }
+  }
+
+  private static String size(final long bytes) {
+    if (bytes < 1024) {
+      return bytes + "B";
+    } else if (bytes < 1024 * 1024) {
+      return (bytes / 1024) + "KiB";
+    } else if (bytes < 1024 * 1024 * 1024) {
+      return (bytes / (1024 * 1024)) + "MiB";
+    }
+    return (bytes / (1024 * 1024 * 1024)) + "GiB";
+  }
+
+  /** @return the command name without its arguments. */
+  static String commandName(final String commandLine) {
+    if (commandLine == null) {
+      return "-";
+    }
+    final int sp = commandLine.indexOf(' ');
+    return 0 < sp ? commandLine.substring(0, sp) : commandLine;
+  }
+
+  private static String str(final String s) {
+    return s != null ? s : "-";
+  }
+
+  private SimpleDateFormat keyFormat() {
+    final SimpleDateFormat f = new SimpleDateFormat( //
+        groupBy == GroupBy.HOUR ? "yyyy-MM-dd HH:00" : "yyyy-MM-dd HH:mm");
+    if (utc) {
+      f.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+    return f;
+  }
+
+  private long time(final String s) {
+    final SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+    if (utc) {
+      f.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+    f.setLenient(false);
+    try {
+      return f.parse(s).getTime();
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("invalid time " + s
+          + ", expected yyyy-MM-dd HH:mm");
+    }
+  }
+
+  private static String value(final String[] argv, final int i,
+      final String opt) {
+    if (argv.length <= i) {
+      throw new IllegalArgumentException(opt + " requires a value");
+    }
+    return argv[i];
+  }
+
+  private static <T extends Enum<T>> T enumValue(final Class<T> type,
+      final String s, final String opt) {
+    try {
+      return Enum.valueOf(type, s.toUpperCase().replace('-', '_'));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid value " + s + " for " + opt);
+    }
+  }
+}
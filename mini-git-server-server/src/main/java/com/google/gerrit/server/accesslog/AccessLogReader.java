@@ -0,0 +1,166 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.accesslog;
+
+import static com.google.gerrit.server.ioutil.BasicSerialization.readFixInt64;
+import static com.google.gerrit.server.ioutil.BasicSerialization.readVarInt32;
+
+import org.eclipse.jgit.util.IO;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Reads records written by {@link AccessLogWriter} for a time range. */
+public class AccessLogReader {
+  /** Receives each record matching the requested time range. */
+  public interface Visitor {
+    void visit(AccessLogRecord r);
+  }
+
+  /**
+   * Records are appended in the order their commands finished on different
+   * threads, so their times are only roughly ascending. Seek this far before
+   * the requested start to be sure no record is skipped.
+   */
+  private static final long SKEW = 60 * 1000L;
+
+  private final File dir;
+
+  public AccessLogReader(final File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Visit all records whose time is within {@code [from, to)}.
+   *
+   * @param from first millisecond of interest, inclusive.
+   * @param to last millisecond of interest, exclusive.
+   * @param visitor receives the records, in file order.
+   * @throws IOException a log file could not be read.
+   */
+  public void scan(final long from, final long to, final Visitor visitor)
+      throws IOException {
+    for (final File f : files(from, to)) {
+      scan(f, from, to, visitor);
+    }
+  }
+
+  private List<File> files(final long from, final long to) {
+    final List<File> r = new ArrayList<File>();
+    final File[] all = dir.listFiles();
+    if (all == null) {
+      return r;
+    }
+    Arrays.sort(all);
+    for (final File f : all) {
+      final long start = AccessLogFiles.parse(f);
+      if (start < 0) {
+        continue;
+      }
+      final long end = start + AccessLogFiles.PARTITION + SKEW;
+      if (start - SKEW < to && from < end) {
+        r.add(f);
+      }
+    }
+    return r;
+  }
+
+  private void scan(final File data, final long from, final long to,
+      final Visitor visitor) throws IOException {
+    final long seekTo = seek(AccessLogFiles.index(data), from - SKEW);
+    final InputStream in =
+        new BufferedInputStream(new FileInputStream(data), 64 * 1024);
+    try {
+      final byte[] magic = new byte[AccessLogFiles.MAGIC.length];
+      try {
+        IO.readFully(in, magic, 0, magic.length);
+      } catch (EOFException e) {
+        return;
+      }
+      if (!Arrays.equals(magic, AccessLogFiles.MAGIC)) {
+        throw new IOException(data + " is not an access log");
+      }
+      try {
+        AccessLogFiles.skipFully(in, seekTo - magic.length);
+      } catch (EOFException e) {
+        // The index was written ahead of data lost in a crash, and points
+        // past the end of the file. Nothing here can be read.
+        return;
+      }
+
+      byte[] buf = new byte[256];
+      for (;;) {
+        final int len;
+        try {
+          len = readVarInt32(in);
+          if (buf.length < len) {
+            buf = new byte[len];
+          }
+          IO.readFully(in, buf, 0, len);
+        } catch (EOFException e) {
+          // End of the file, or a record cut short by a crash.
+          break;
+        }
+
+        final AccessLogRecord r =
+            AccessLogRecord.readFrom(new ByteArrayInputStream(buf, 0, len));
+        if (from <= r.getTime() && r.getTime() < to) {
+          visitor.visit(r);
+        }
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /** @return offset of the last indexed record before {@code time}. */
+  private static long seek(final File index, final long time)
+      throws IOException {
+    long best = AccessLogFiles.MAGIC.length;
+    if (!index.exists()) {
+      return best;
+    }
+
+    final InputStream in =
+        new BufferedInputStream(new FileInputStream(index), 4 * 1024);
+    try {
+      for (;;) {
+        final long t;
+        final long offset;
+        try {
+          t = readFixInt64(in);
+          offset = readFixInt64(in);
+        } catch (EOFException e) {
+          break;
+        }
+        if (time <= t) {
+          break;
+        }
+        best = offset;
+      }
+    } finally {
+      in.close();
+    }
+    return best;
+  }
+}
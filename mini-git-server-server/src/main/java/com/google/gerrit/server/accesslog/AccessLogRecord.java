@@ -0,0 +1,139 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.accesslog;
+
+import static com.google.gerrit.server.ioutil.BasicSerialization.readFixInt32;
+import static com.google.gerrit.server.ioutil.BasicSerialization.readString;
+import static com.google.gerrit.server.ioutil.BasicSerialization.readVarInt64;
+import static com.google.gerrit.server.ioutil.BasicSerialization.writeFixInt32;
+import static com.google.gerrit.server.ioutil.BasicSerialization.writeString;
+import static com.google.gerrit.server.ioutil.BasicSerialization.writeVarInt64;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * One executed command, as stored in the binary access log.
+ * <p>
+ * Fields are encoded in a fixed order: time, session id, user, command line,
+ * project, wait time, execution time, bytes in, bytes out and status. Times
+ * are in milliseconds. Missing strings are stored as empty and read back as
+ * null.
+ */
+public class AccessLogRecord {
+  private final long time;
+  private final int sessionId;
+  private final String user;
+  private final String command;
+  private final String project;
+  private final long waitTime;
+  private final long execTime;
+  private final long bytesIn;
+  private final long bytesOut;
+  private final String status;
+
+  public AccessLogRecord(final long time, final int sessionId,
+      final String user, final String command, final String project,
+      final long waitTime, final long execTime, final long bytesIn,
+      final long bytesOut, final String status) {
+    this.time = time;
+    this.sessionId = sessionId;
+    this.user = user;
+    this.command = command;
+    this.project = project;
+    this.waitTime = waitTime;
+    this.execTime = execTime;
+    this.bytesIn = bytesIn;
+    this.bytesOut = bytesOut;
+    this.status = status;
+  }
+
+  /** @return time the command finished, in milliseconds since the epoch. */
+  public long getTime() {
+    return time;
+  }
+
+  public int getSessionId() {
+    return sessionId;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  /** @return the complete command line, as sent by the client. */
+  public String getCommand() {
+    return command;
+  }
+
+  public String getProject() {
+    return project;
+  }
+
+  /** @return milliseconds the command waited in the queue. */
+  public long getWaitTime() {
+    return waitTime;
+  }
+
+  /** @return milliseconds the command spent executing. */
+  public long getExecTime() {
+    return execTime;
+  }
+
+  public long getBytesIn() {
+    return bytesIn;
+  }
+
+  public long getBytesOut() {
+    return bytesOut;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  void writeTo(final OutputStream out) throws IOException {
+    writeVarInt64(out, time);
+    writeFixInt32(out, sessionId);
+    writeString(out, user);
+    writeString(out, command);
+    writeString(out, project);
+    writeVarInt64(out, nonNegative(waitTime));
+    writeVarInt64(out, nonNegative(execTime));
+    writeVarInt64(out, nonNegative(bytesIn));
+    writeVarInt64(out, nonNegative(bytesOut));
+    writeString(out, status);
+  }
+
+  static AccessLogRecord readFrom(final InputStream in) throws IOException {
+    final long time = readVarInt64(in);
+    final int sessionId = readFixInt32(in);
+    final String user = readString(in);
+    final String command = readString(in);
+    final String project = readString(in);
+    final long waitTime = readVarInt64(in);
+    final long execTime = readVarInt64(in);
+    final long bytesIn = readVarInt64(in);
+    final long bytesOut = readVarInt64(in);
+    final String status = readString(in);
+    return new AccessLogRecord(time, sessionId, user, command, project,
+        waitTime, execTime, bytesIn, bytesOut, status);
+  }
+
+  private static long nonNegative(final long v) {
+    return 0 < v ? v : 0;
+  }
+}
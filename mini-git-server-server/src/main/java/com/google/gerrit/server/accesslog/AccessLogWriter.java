@@ -0,0 +1,245 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.accesslog;
+
+import static com.google.gerrit.server.ioutil.BasicSerialization.readFixInt64;
+import static com.google.gerrit.server.ioutil.BasicSerialization.readVarInt32;
+import static com.google.gerrit.server.ioutil.BasicSerialization.writeFixInt64;
+import static com.google.gerrit.server.ioutil.BasicSerialization.writeVarInt32;
+
+import org.eclipse.jgit.util.IO;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * Appends {@link AccessLogRecord}s to hourly partitioned files.
+ * <p>
+ * Each data file starts with a short magic header followed by records, each
+ * prefixed by its length as a varint so readers can skip or stop cleanly at a
+ * truncated tail. A companion index file holds the time and file offset of
+ * every {@value AccessLogFiles#INDEX_INTERVAL}th record, letting readers seek
+ * close to a start time without scanning the hour.
+ * <p>
+ * A crash can leave a record half written, or index entries pointing past
+ * the data that reached the disk. Before appending to an existing file the
+ * writer cuts both files back to the last complete record, so later records
+ * are never hidden behind a torn one.
+ * <p>
+ * Instances are not thread-safe; the caller must serialize all access.
+ */
+public class AccessLogWriter {
+  private final File dir;
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+
+  private long partition = -1;
+  private OutputStream data;
+  private OutputStream index;
+  private long offset;
+  private int sinceIndex;
+
+  /** @param dir directory holding the log; created if missing. */
+  public AccessLogWriter(final File dir) {
+    this.dir = dir;
+  }
+
+  public void append(final AccessLogRecord r) throws IOException {
+    final long p = AccessLogFiles.partitionOf(r.getTime());
+    if (data == null || partition < p) {
+      open(p);
+    }
+
+    record.reset();
+    r.writeTo(record);
+
+    if (sinceIndex == 0) {
+      writeFixInt64(index, r.getTime());
+      writeFixInt64(index, offset);
+    }
+    if (++sinceIndex == AccessLogFiles.INDEX_INTERVAL) {
+      sinceIndex = 0;
+    }
+
+    final int len = record.size();
+    writeVarInt32(data, len);
+    record.writeTo(data);
+    offset += varIntSize(len) + len;
+  }
+
+  public void flush() throws IOException {
+    if (data != null) {
+      data.flush();
+      index.flush();
+    }
+  }
+
+  public void close() throws IOException {
+    if (data != null) {
+      try {
+        data.close();
+      } finally {
+        try {
+          index.close();
+        } finally {
+          data = null;
+          index = null;
+        }
+      }
+    }
+  }
+
+  private void open(final long p) throws IOException {
+    close();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Cannot create " + dir);
+    }
+
+    final File dataFile = AccessLogFiles.data(dir, p);
+    offset = recover(dataFile);
+    data = new BufferedOutputStream(new FileOutputStream(dataFile, true),
+        64 * 1024);
+    index = new BufferedOutputStream(new FileOutputStream(
+        AccessLogFiles.index(dataFile), true), 4 * 1024);
+    partition = p;
+
+    if (offset == 0) {
+      data.write(AccessLogFiles.MAGIC);
+      offset = AccessLogFiles.MAGIC.length;
+    }
+
+    // Always index the first record written after opening, so a reader
+    // never has to scan records appended by an earlier process.
+    sinceIndex = 0;
+  }
+
+  /**
+   * Truncate a data file and its index after the last complete record.
+   *
+   * @return length of the data file after recovery.
+   */
+  private static long recover(final File dataFile) throws IOException {
+    final File indexFile = AccessLogFiles.index(dataFile);
+    final long length = dataFile.length();
+    if (length < AccessLogFiles.MAGIC.length) {
+      // Not even the header made it; start the file over.
+      truncate(dataFile, 0);
+      truncate(indexFile, 0);
+      return 0;
+    }
+
+    final long[] indexed = readOffsets(indexFile);
+    long start = AccessLogFiles.MAGIC.length;
+    for (final long o : indexed) {
+      if (o < length) {
+        start = Math.max(start, o);
+      }
+    }
+
+    final long end = endOfRecords(dataFile, start, length);
+    truncate(dataFile, end);
+
+    int keep = 0;
+    while (keep < indexed.length && indexed[keep] < end) {
+      keep++;
+    }
+    truncate(indexFile, keep * (long) AccessLogFiles.INDEX_ENTRY_SIZE);
+    return end;
+  }
+
+  /** @return offset just past the last complete record after {@code pos}. */
+  private static long endOfRecords(final File dataFile, long pos,
+      final long length) throws IOException {
+    final InputStream in =
+        new BufferedInputStream(new FileInputStream(dataFile), 64 * 1024);
+    try {
+      final byte[] magic = new byte[AccessLogFiles.MAGIC.length];
+      IO.readFully(in, magic, 0, magic.length);
+      if (!Arrays.equals(magic, AccessLogFiles.MAGIC)) {
+        throw new IOException(dataFile + " is not an access log");
+      }
+      AccessLogFiles.skipFully(in, pos - magic.length);
+
+      for (;;) {
+        final int len;
+        try {
+          len = readVarInt32(in);
+        } catch (EOFException e) {
+          return pos;
+        }
+        final long next = pos + varIntSize(len) + len;
+        if (len < 0 || length < next) {
+          return pos;
+        }
+        AccessLogFiles.skipFully(in, len);
+        pos = next;
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /** @return offsets of the complete entries in an index file. */
+  private static long[] readOffsets(final File indexFile) throws IOException {
+    final int n =
+        (int) (indexFile.length() / AccessLogFiles.INDEX_ENTRY_SIZE);
+    final long[] offsets = new long[n];
+    if (n == 0) {
+      return offsets;
+    }
+
+    final InputStream in =
+        new BufferedInputStream(new FileInputStream(indexFile), 4 * 1024);
+    try {
+      for (int i = 0; i < n; i++) {
+        readFixInt64(in); // time
+        offsets[i] = readFixInt64(in);
+      }
+    } finally {
+      in.close();
+    }
+    return offsets;
+  }
+
+  private static void truncate(final File f, final long length)
+      throws IOException {
+    if (f.exists() && length < f.length()) {
+      final RandomAccessFile raf = new RandomAccessFile(f, "rw");
+      try {
+        raf.setLength(length);
+      } finally {
+        raf.close();
+      }
+    }
+  }
+
+  private static int varIntSize(int value) {
+    int n = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      n++;
+    }
+    return n;
+  }
+}
@@ -14,6 +14,7 @@
 
 package com.google.gerrit.server.cache;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 
@@ -27,9 +28,23 @@ public interface Cache<K, V> {
   /** Get the element from the cache, or null if not stored in the cache. */
   public V get(K key);
 
+  /**
+   * Get several elements from the cache.
+   * <p>
+   * A cache populated by an {@link EntryCreator} creates the missing elements
+   * in one call to {@link EntryCreator#createEntries(java.util.Set)}.
+   *
+   * @return the elements found, in the order of {@code keys}; a key not found
+   *         is left out.
+   */
+  public Map<K, V> getAll(Iterable<K> keys);
+
   /** Put one element into the cache, replacing any existing value. */
   public void put(K key, V value);
 
+  /** Put several elements into the cache, replacing any existing values. */
+  public void putAll(Map<K, V> entries);
+
   /** Remove any existing value from the cache, no-op if not present. */
   public void remove(K key);
 
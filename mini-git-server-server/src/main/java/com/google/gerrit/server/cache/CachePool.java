@@ -17,15 +17,24 @@ package com.google.gerrit.server.cache;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.google.gerrit.lifecycle.DependsOn;
 import com.google.gerrit.lifecycle.LifecycleListener;
+import com.google.gerrit.server.config.ConfigChange;
+import com.google.gerrit.server.config.ConfigListener;
 import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.ConfigWatcher;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.Gauge;
+import com.google.gerrit.server.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.ProvisionException;
 import com.google.inject.Singleton;
 
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.Configuration;
 import net.sf.ehcache.config.DiskStoreConfiguration;
@@ -37,13 +46,16 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /** Pool of all declared caches created by {@link CacheModule}s. */
 @Singleton
-public class CachePool {
+public class CachePool implements ConfigListener {
   private static final Logger log = LoggerFactory.getLogger(CachePool.class);
 
+  /** Stops after the work queue, whose reload tasks still use the caches. */
+  @DependsOn(WorkQueue.Lifecycle.class)
   public static class Lifecycle implements LifecycleListener {
     private final CachePool cachePool;
 
@@ -65,16 +77,98 @@ public class CachePool {
 
   private final Config config;
   private final SitePaths site;
+  private final MetricRegistry metrics;
+  private final WorkQueue queues;
 
   private final Object lock = new Object();
   private final Map<String, CacheProvider<?, ?>> caches;
+  private final Map<String, TinyLfuStore<?, ?>> stores;
   private CacheManager manager;
+  private WorkQueue.Executor refreshQueue;
 
   @Inject
-  CachePool(@GerritServerConfig final Config cfg, final SitePaths site) {
+  CachePool(@GerritServerConfig final Config cfg, final SitePaths site,
+      final MetricRegistry metrics, final ConfigWatcher watcher,
+      final WorkQueue queues) {
     this.config = cfg;
     this.site = site;
+    this.metrics = metrics;
+    this.queues = queues;
     this.caches = new HashMap<String, CacheProvider<?, ?>>();
+    this.stores = new HashMap<String, TinyLfuStore<?, ?>>();
+    watcher.addListener(this);
+  }
+
+  /**
+   * Apply new {@code memorylimit}, {@code maxage} and {@code disklimit}
+   * values to the running caches. Ehcache reads these from the live
+   * {@link CacheConfiguration}, so existing entries are kept.
+   */
+  @Override
+  public void configChanged(final ConfigChange change) {
+    final List<String> keys = change.getChangedKeys("cache");
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    final Config cfg = change.getNewConfig();
+    synchronized (lock) {
+      for (final String k : keys) {
+        final String n = ConfigChange.subsection(k);
+        final String name = ConfigChange.name(k);
+        final CacheProvider<?, ?> p = n != null ? caches.get(n) : null;
+        if (p == null) {
+          continue;
+        }
+        final TinyLfuStore<?, ?> store = stores.get(n);
+        if (store != null) {
+          if ("memorylimit".equals(name)) {
+            store.setMaximumSize(cfg.getLong("cache", n, "memorylimit",
+                p.memoryLimit()));
+            change.applied(k);
+          } else if ("maxage".equals(name)) {
+            store.setTimeToLive(getSeconds(cfg, n, "maxage", p.maxAge()),
+                SECONDS);
+            change.applied(k);
+          } else if ("disklimit".equals(name)) {
+            change.rejected(k, "backend " + CacheBackend.TINYLFU.name()
+                .toLowerCase() + " does not use the disk");
+          }
+          continue;
+        }
+        if (manager == null) {
+          change.rejected(k, "cache pool is not running");
+          continue;
+        }
+        final CacheConfiguration c =
+            manager.getEhcache(n).getCacheConfiguration();
+
+        if ("memorylimit".equals(name)) {
+          c.setMaxElementsInMemory(cfg.getInt("cache", n, "memorylimit",
+              p.memoryLimit()));
+          change.applied(k);
+
+        } else if ("maxage".equals(name)) {
+          final long ttl = getSeconds(cfg, n, "maxage", p.maxAge());
+          if ((ttl == 0) != c.isEternal()) {
+            change.rejected(k, "cannot switch between 0 and a limited age");
+          } else {
+            c.setTimeToLiveSeconds(ttl);
+            change.applied(k);
+          }
+
+        } else if ("disklimit".equals(name)) {
+          final int limit = cfg.getInt("cache", n, "disklimit",
+              p.diskLimit());
+          if (!c.isOverflowToDisk() || limit <= 0) {
+            change.rejected(k, "cannot switch disk storage on or off");
+          } else {
+            c.setMaxElementsOnDisk(limit);
+            change.applied(k);
+          }
+        }
+      }
+    }
   }
 
   private void start() {
@@ -93,7 +187,36 @@ public class CachePool {
 
       manager = new CacheManager(new Factory().toConfiguration());
       for (CacheProvider<?, ?> p : caches.values()) {
-        p.bind(manager.getEhcache(p.getName()));
+        final TinyLfuStore<?, ?> store = stores.get(p.getName());
+        if (store != null) {
+          metrics.gauge("cache_memory_entries", "Entries held in memory",
+              new Gauge.Source() {
+                @Override
+                public long get() {
+                  return store.size();
+                }
+              }, "cache", p.getName());
+          metrics.gauge("cache_memory_weight",
+              "Total weight of entries held in memory, in bytes for caches"
+                  + " with a weigher and in entries otherwise",
+              new Gauge.Source() {
+                @Override
+                public long get() {
+                  return store.getWeightedSize();
+                }
+              }, "cache", p.getName());
+          continue;
+        }
+
+        final Ehcache c = manager.getEhcache(p.getName());
+        p.bind(c);
+        metrics.gauge("cache_memory_entries", "Entries held in memory",
+            new Gauge.Source() {
+              @Override
+              public long get() {
+                return c.getMemoryStoreSize();
+              }
+            }, "cache", p.getName());
       }
     }
   }
@@ -103,6 +226,9 @@ public class CachePool {
       if (manager != null) {
         manager.shutdown();
       }
+      for (TinyLfuStore<?, ?> store : stores.values()) {
+        store.clear();
+      }
     }
   }
 
@@ -113,6 +239,10 @@ public class CachePool {
     }
   }
 
+  MetricRegistry getMetrics() {
+    return metrics;
+  }
+
   <K, V> ProxyEhcache register(final CacheProvider<K, V> provider) {
     synchronized (lock) {
       if (manager != null) {
@@ -128,6 +258,69 @@ public class CachePool {
     }
   }
 
+  /**
+   * Create the store for a cache configured with {@code backend = tinylfu}.
+   *
+   * @return the new store; null if the cache is held by ehcache.
+   */
+  <K, V> TinyLfuStore<K, V> createStore(final CacheProvider<K, V> provider) {
+    final String n = provider.getName();
+    final CacheBackend backend = ConfigUtil.getEnum(config, "cache", n,
+        "backend", CacheBackend.EHCACHE);
+    if (provider.weighted() && backend != CacheBackend.TINYLFU) {
+      log.warn("Cache \"" + n + "\" weighs its entries, which ehcache"
+          + " cannot; using backend tinylfu");
+    } else if (backend != CacheBackend.TINYLFU) {
+      return null;
+    }
+    if (provider.disk()) {
+      log.info("Cache \"" + n + "\" uses backend tinylfu, not saved to disk");
+    }
+
+    synchronized (lock) {
+      final TinyLfuStore<K, V> store = new TinyLfuStore<K, V>(
+          config.getLong("cache", n, "memorylimit", provider.memoryLimit()),
+          getSeconds(config, n, "maxage", provider.maxAge()));
+      stores.put(n, store);
+      return store;
+    }
+  }
+
+  /**
+   * Create the refresher for a populated cache, if
+   * {@code cache.name.refreshAfterWrite} or the binding asks for one.
+   * Reloads run on the {@code Cache-Refresh} queue, sized by
+   * {@code cache.refreshThreads}.
+   *
+   * @return the refresher; null if entries are not refreshed.
+   */
+  <K, V> Refresher<K, V> newRefresher(final CacheProvider<K, V> provider,
+      final EntryCreator<K, V> creator, final Counter staleHits,
+      final Counter failures) {
+    final String n = provider.getName();
+    final long interval = ConfigUtil.getTimeUnit(config, "cache", n,
+        "refreshAfterWrite", provider.refreshAfterWrite(), SECONDS);
+    if (interval <= 0) {
+      return null;
+    }
+
+    synchronized (lock) {
+      if (refreshQueue == null) {
+        refreshQueue = queues.createQueue(
+            Math.max(1, config.getInt("cache", null, "refreshThreads", 2)),
+            "Cache-Refresh");
+      }
+      return new Refresher<K, V>(n, creator, interval, SECONDS, refreshQueue,
+          staleHits, failures);
+    }
+  }
+
+  private static long getSeconds(Config cfg, String n, String s, long d) {
+    d = MINUTES.convert(d, SECONDS);
+    long m = ConfigUtil.getTimeUnit(cfg, "cache", n, s, d, MINUTES);
+    return SECONDS.convert(m, MINUTES);
+  }
+
   private class Factory {
     private static final int MB = 1024 * 1024;
     private final Configuration mgr = new Configuration();
@@ -138,6 +331,9 @@ public class CachePool {
 
       for (CacheProvider<?, ?> p : caches.values()) {
         final String name = p.getName();
+        if (stores.containsKey(name)) {
+          continue;
+        }
         final CacheConfiguration c = newCache(name);
         c.setMemoryStoreEvictionPolicyFromObject(toPolicy(p.evictionPolicy()));
 
@@ -181,15 +377,13 @@ public class CachePool {
     }
 
     private long getSeconds(String n, String s, long d) {
-      d = MINUTES.convert(d, SECONDS);
-      long m = ConfigUtil.getTimeUnit(config, "cache", n, s, d, MINUTES);
-      return SECONDS.convert(m, MINUTES);
+      return CachePool.getSeconds(config, n, s, d);
     }
 
     private void configureDiskStore() {
       boolean needDisk = false;
       for (CacheProvider<?, ?> p : caches.values()) {
-        if (p.disk()) {
+        if (p.disk() && !stores.containsKey(p.getName())) {
           needDisk = true;
           break;
         }
@@ -18,6 +18,7 @@ import static com.google.gerrit.server.cache.EvictionPolicy.LFU;
 import static java.util.concurrent.TimeUnit.DAYS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.google.gerrit.server.metrics.Counter;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.ProvisionException;
@@ -33,10 +34,18 @@ final class CacheProvider<K, V> implements Provider<Cache<K, V>>,
   private int memoryLimit;
   private int diskLimit;
   private long maxAge;
+  private long refreshAfterWrite;
   private EvictionPolicy evictionPolicy;
   private String cacheName;
+  private CachePool pool;
   private ProxyEhcache cache;
+  private TinyLfuStore<K, V> store;
   private Provider<EntryCreator<K, V>> entryCreator;
+  private Provider<Weigher<K, V>> weigher;
+  private Counter requests;
+  private Counter misses;
+  private Counter staleHits;
+  private Counter refreshFailures;
 
   CacheProvider(final boolean disk, CacheModule module) {
     this.disk = disk;
@@ -53,7 +62,18 @@ final class CacheProvider<K, V> implements Provider<Cache<K, V>>,
 
   @Inject
   void setCachePool(final CachePool pool) {
+    this.pool = pool;
     this.cache = pool.register(this);
+    this.store = pool.createStore(this);
+    this.requests = pool.getMetrics().counter("cache_requests_total",
+        "Cache lookups", "cache", getName());
+    this.misses = pool.getMetrics().counter("cache_misses_total",
+        "Cache lookups that did not find an entry", "cache", getName());
+    this.staleHits = pool.getMetrics().counter("cache_stale_hits_total",
+        "Cache hits returning an entry due for refresh", "cache", getName());
+    this.refreshFailures = pool.getMetrics().counter(
+        "cache_refresh_failures_total",
+        "Background cache reloads that failed", "cache", getName());
   }
 
   void bind(final Ehcache ehcache) {
@@ -83,10 +103,18 @@ final class CacheProvider<K, V> implements Provider<Cache<K, V>>,
     return maxAge;
   }
 
+  long refreshAfterWrite() {
+    return refreshAfterWrite;
+  }
+
   EvictionPolicy evictionPolicy() {
     return evictionPolicy;
   }
 
+  boolean weighted() {
+    return weigher != null;
+  }
+
   public NamedCacheBinding<K, V> name(final String name) {
     if (cacheName != null) {
       throw new IllegalStateException("Cache name already set");
@@ -117,6 +145,13 @@ final class CacheProvider<K, V> implements Provider<Cache<K, V>>,
     return this;
   }
 
+  @Override
+  public NamedCacheBinding<K, V> refreshAfterWrite(final long duration,
+      final TimeUnit unit) {
+    refreshAfterWrite = SECONDS.convert(duration, unit);
+    return this;
+  }
+
   @Override
   public NamedCacheBinding<K, V> evictionPolicy(final EvictionPolicy policy) {
     evictionPolicy = policy;
@@ -129,13 +164,37 @@ final class CacheProvider<K, V> implements Provider<Cache<K, V>>,
     return this;
   }
 
+  public NamedCacheBinding<K, V> weigher(
+      Class<? extends Weigher<K, V>> type) {
+    weigher = module.getWeigher(this, type);
+    return this;
+  }
+
   public Cache<K, V> get() {
     if (cache == null) {
       throw new ProvisionException("Cache \"" + cacheName + "\" not available");
     }
+    final EntryCreator<K, V> creator;
+    final Refresher<K, V> refresher;
     if (entryCreator != null) {
-      return new PopulatingCache<K, V>(cache, entryCreator.get());
+      creator = entryCreator.get();
+      refresher = pool.newRefresher(this, creator, staleHits, refreshFailures);
+    } else {
+      creator = null;
+      refresher = null;
+    }
+
+    if (store != null) {
+      if (weigher != null) {
+        store.setWeigher(weigher.get());
+      }
+      return new TinyLfuCache<K, V>(cacheName, store, creator, requests,
+          misses, refresher);
+    }
+    if (creator != null) {
+      return new PopulatingCache<K, V>(cache, creator, requests, misses,
+          refresher);
     }
-    return new SimpleCache<K, V>(cache);
+    return new SimpleCache<K, V>(cache, requests, misses);
   }
 }
@@ -14,6 +14,13 @@
 
 package com.google.gerrit.server.cache;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Creates a cache entry on demand when its not found.
  *
@@ -21,6 +28,8 @@ package com.google.gerrit.server.cache;
  * @param <V> type of the cache's value element.
  */
 public abstract class EntryCreator<K, V> {
+  private static final Logger log = LoggerFactory.getLogger(EntryCreator.class);
+
   /**
    * Invoked on a cache miss, to compute the cache entry.
    *
@@ -33,6 +42,51 @@ public abstract class EntryCreator<K, V> {
    */
   public abstract V createEntry(K key) throws Exception;
 
+  /**
+   * Invoked by {@link Cache#getAll(Iterable)} to compute several missing
+   * entries at once.
+   * <p>
+   * Override this when one query can fetch many entries more cheaply than
+   * one query each. By default calls {@link #createEntry(Object)} for each
+   * key, leaving out keys it fails for.
+   *
+   * @param keys entries whose content needs to be obtained.
+   * @return new cache content, by key. The caller stores these; keys left
+   *         out are not stored, and {@link #missing(Object)} is used for
+   *         them instead.
+   * @throws Exception none of the content can be computed.
+   */
+  public Map<K, V> createEntries(Set<K> keys) throws Exception {
+    final Map<K, V> r = new HashMap<K, V>();
+    for (final K key : keys) {
+      try {
+        r.put(key, createEntry(key));
+      } catch (Exception e) {
+        log.error("Cannot create cache entry for " + key, e);
+      }
+    }
+    return r;
+  }
+
+  /**
+   * Invoked in the background to recompute an entry that is due for refresh,
+   * if the cache sets {@code refreshAfterWrite}.
+   * <p>
+   * Callers keep getting {@code oldValue} until this returns. Override it to
+   * reuse the old value, for example to check whether it is still current
+   * instead of building it again. By default calls
+   * {@link #createEntry(Object)}.
+   *
+   * @param key entry whose content needs to be obtained.
+   * @param oldValue value currently cached.
+   * @return new cache content; null to drop the entry.
+   * @throws Exception the new content cannot be computed. The old value is
+   *         kept, and the refresh is retried on a later hit.
+   */
+  public V reloadEntry(K key, V oldValue) throws Exception {
+    return createEntry(key);
+  }
+
   /** Invoked when {@link #createEntry(Object)} fails, by default return null. */
   public V missing(K key) {
     return null;
@@ -0,0 +1,110 @@
+// Copyright (C) 2026 The Android Open Source Project
+// Copyright 2015 Ben Manes. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+/**
+ * Approximate access frequency of recently seen keys, for TinyLFU admission.
+ * <p>
+ * A count-min sketch of four 4-bit counters per key, packed sixteen to a
+ * long. Once the number of increments reaches ten times the cache size every
+ * counter is halved, so old popularity fades. Not thread safe; callers hold
+ * the cache's eviction lock.
+ * <p>
+ * Adapted from {@code com.github.benmanes.caffeine.cache.FrequencySketch} in
+ * Caffeine (https://github.com/ben-manes/caffeine), Apache License 2.0; the
+ * hash seeds, counter layout and reset are Caffeine's.
+ */
+final class FrequencySketch {
+  private static final long[] SEED = {0xc3a5c85c97cb3127L,
+      0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  private long[] table;
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  FrequencySketch(final long maximumSize) {
+    resize(maximumSize);
+  }
+
+  /** Discard all counts and size the table for {@code maximumSize} keys. */
+  void resize(final long maximumSize) {
+    final int max = (int) Math.min(Math.max(maximumSize, 16), 1 << 30);
+    int n = Integer.highestOneBit(max - 1) << 1;
+    table = new long[n];
+    tableMask = n - 1;
+    sampleSize = (int) Math.min(10L * max, Integer.MAX_VALUE);
+    size = 0;
+  }
+
+  /** @return estimated number of times {@code key} was seen, at most 15. */
+  int frequency(final Object key) {
+    final int hash = spread(key.hashCode());
+    final int start = (hash & 3) << 2;
+    int f = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      final long word = table[indexOf(hash, i)];
+      f = Math.min(f, (int) ((word >>> ((start + i) << 2)) & 0xfL));
+    }
+    return f;
+  }
+
+  /** Count one more access to {@code key}. */
+  void increment(final Object key) {
+    final int hash = spread(key.hashCode());
+    final int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(final int i, final int j) {
+    final int offset = j << 2;
+    final long mask = 0xfL << offset;
+    if ((table[i] & mask) != mask) {
+      table[i] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  private int indexOf(final int hash, final int i) {
+    long h = (hash + SEED[i]) * SEED[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
@@ -0,0 +1,232 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Loads in progress for a cache, so concurrent misses on a key share one
+ * load.
+ * <p>
+ * A caller registers every key it is missing. It loads the ones nobody else
+ * is loading, in one batch, and publishes them before it waits for keys other
+ * callers claimed first. Each caller therefore finishes its own loads before
+ * waiting, so callers with overlapping batches cannot deadlock.
+ *
+ * @param <K> type of the cache's key.
+ * @param <V> type of the cache's value element.
+ */
+final class LoadingTable<K, V> {
+  /** The cache being loaded into. */
+  interface Target<K, V> {
+    /** @return the cached value, or null if it needs loading. */
+    V getIfPresent(K key);
+
+    void put(K key, V value);
+  }
+
+  /** Loads several missing keys at once. */
+  interface BulkLoader<K, V> {
+    /**
+     * @return values of the keys that could be loaded; absent or null values
+     *         are not stored.
+     */
+    Map<K, V> loadAll(Set<K> keys) throws Exception;
+  }
+
+  private static final class Batch<K, V> {
+    Map<K, V> values = Collections.emptyMap();
+    Exception error;
+  }
+
+  private final ConcurrentHashMap<K, FutureTask<V>> loading =
+      new ConcurrentHashMap<K, FutureTask<V>>();
+
+  /**
+   * Get {@code key}, calling {@code loader} if it is missing and no one else
+   * is loading it. A null result is returned but not stored.
+   *
+   * @throws ExecutionException the loader threw; nothing was stored.
+   */
+  V get(final Target<K, V> target, final K key, final Callable<V> loader)
+      throws ExecutionException {
+    final V v = target.getIfPresent(key);
+    if (v != null) {
+      return v;
+    }
+
+    final FutureTask<V> task = new FutureTask<V>(loader);
+    final FutureTask<V> running = loading.putIfAbsent(key, task);
+    if (running != null) {
+      return waitFor(running);
+    }
+    try {
+      task.run();
+      final V r = waitFor(task);
+      if (r != null) {
+        target.put(key, r);
+      }
+      return r;
+    } finally {
+      loading.remove(key, task);
+    }
+  }
+
+  /**
+   * Get several keys, loading the missing ones with a single call to
+   * {@code loader}.
+   *
+   * @param errors if not null, receives the reason each failed key could not
+   *        be loaded.
+   * @return keys found or loaded, in the order first requested; keys that
+   *         failed or loaded as null are left out.
+   * @throws RuntimeException {@code target} failed. Keys this call had
+   *         claimed are released as failed first.
+   */
+  Map<K, V> getAll(final Target<K, V> target, final Iterable<? extends K> keys,
+      final BulkLoader<K, V> loader, final Map<K, Throwable> errors) {
+    final List<K> order = new ArrayList<K>();
+    final Map<K, V> result = new HashMap<K, V>();
+    final Map<K, FutureTask<V>> owned = new LinkedHashMap<K, FutureTask<V>>();
+    final Map<K, FutureTask<V>> others =
+        new LinkedHashMap<K, FutureTask<V>>();
+    final Batch<K, V> batch = new Batch<K, V>();
+
+    RuntimeException failure = null;
+    try {
+      for (final K key : keys) {
+        if (key == null || result.containsKey(key) || owned.containsKey(key)
+            || others.containsKey(key)) {
+          continue;
+        }
+        order.add(key);
+        final V v = target.getIfPresent(key);
+        if (v != null) {
+          result.put(key, v);
+          continue;
+        }
+
+        final FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+          @Override
+          public V call() throws Exception {
+            if (batch.error != null) {
+              throw batch.error;
+            }
+            return batch.values.get(key);
+          }
+        });
+        final FutureTask<V> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+          owned.put(key, task);
+        } else {
+          others.put(key, running);
+        }
+      }
+    } catch (RuntimeException e) {
+      // Still settle the keys already claimed, or their waiters would hang.
+      failure = e;
+      batch.error = e;
+    }
+
+    if (!owned.isEmpty()) {
+      try {
+        try {
+          if (batch.error == null) {
+            final Map<K, V> loaded =
+                loader.loadAll(Collections.unmodifiableSet(owned.keySet()));
+            if (loaded != null) {
+              batch.values = loaded;
+            }
+          }
+        } catch (Exception e) {
+          batch.error = e;
+        } finally {
+          for (final FutureTask<V> task : owned.values()) {
+            task.run();
+          }
+        }
+        for (final Map.Entry<K, FutureTask<V>> e : owned.entrySet()) {
+          collect(target, e.getKey(), e.getValue(), true, result, errors);
+        }
+      } finally {
+        for (final Map.Entry<K, FutureTask<V>> e : owned.entrySet()) {
+          loading.remove(e.getKey(), e.getValue());
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+    for (final Map.Entry<K, FutureTask<V>> e : others.entrySet()) {
+      collect(target, e.getKey(), e.getValue(), false, result, errors);
+    }
+
+    final Map<K, V> r = new LinkedHashMap<K, V>();
+    for (final K key : order) {
+      final V v = result.get(key);
+      if (v != null) {
+        r.put(key, v);
+      }
+    }
+    return r;
+  }
+
+  private void collect(final Target<K, V> target, final K key,
+      final FutureTask<V> task, final boolean store, final Map<K, V> result,
+      final Map<K, Throwable> errors) {
+    try {
+      final V v = waitFor(task);
+      if (v != null) {
+        if (store) {
+          target.put(key, v);
+        }
+        result.put(key, v);
+      }
+    } catch (ExecutionException err) {
+      if (errors != null) {
+        errors.put(key, err.getCause());
+      }
+    }
+  }
+
+  private static <V> V waitFor(final FutureTask<V> task)
+      throws ExecutionException {
+    boolean interrupted = false;
+    try {
+      for (;;) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
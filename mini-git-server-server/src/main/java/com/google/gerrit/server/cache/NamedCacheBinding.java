@@ -18,7 +18,10 @@ import java.util.concurrent.TimeUnit;
 
 /** Configure a cache declared within a {@link CacheModule} instance. */
 public interface NamedCacheBinding<K, V> {
-  /** Set the number of objects to cache in memory. */
+  /**
+   * Set the number of objects to cache in memory, or their total weight if
+   * the cache has a {@link #weigher(Class)}.
+   */
   public NamedCacheBinding<K, V> memoryLimit(int objects);
 
   /** Set the number of objects to cache in memory. */
@@ -27,9 +30,27 @@ public interface NamedCacheBinding<K, V> {
   /** Set the time an element lives before being expired. */
   public NamedCacheBinding<K, V> maxAge(long duration, TimeUnit durationUnits);
 
+  /**
+   * Reload entries in the background once they are this old, returning the
+   * cached value meanwhile. Only used with {@link #populateWith(Class)}, and
+   * should be shorter than {@link #maxAge(long, TimeUnit)}.
+   */
+  public NamedCacheBinding<K, V> refreshAfterWrite(long duration,
+      TimeUnit durationUnits);
+
   /** Set the eviction policy for elements when the cache is full. */
   public NamedCacheBinding<K, V> evictionPolicy(EvictionPolicy policy);
 
   /** Populate the cache with items from the EntryCreator. */
   public NamedCacheBinding<K, V> populateWith(Class<? extends EntryCreator<K, V>> creator);
+
+  /**
+   * Weigh entries, so {@code memoryLimit} bounds their total weight.
+   * <p>
+   * Ehcache can only count entries, so a weighted cache always uses the
+   * {@link CacheBackend#TINYLFU} backend. {@code cache.name.memoryLimit} then
+   * takes a size such as {@code 256m}.
+   */
+  public NamedCacheBinding<K, V> weigher(
+      Class<? extends Weigher<K, V>> weigher);
 }
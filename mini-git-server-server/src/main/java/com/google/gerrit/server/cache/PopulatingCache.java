@@ -16,6 +16,8 @@ package com.google.gerrit.server.cache;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.google.gerrit.server.metrics.Counter;
+
 import net.sf.ehcache.CacheException;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
@@ -24,6 +26,10 @@ import net.sf.ehcache.constructs.blocking.CacheEntryFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,6 +41,15 @@ import java.util.concurrent.TimeUnit;
  * ensuring that at most one thread performs the creation work, and other
  * threads wait for the result. Concurrent creations are possible if two
  * different keys miss and hash to different locks in the internal lock table.
+ * <p>
+ * With a {@link Refresher} an entry older than {@code refreshAfterWrite} is
+ * still returned, while {@link EntryCreator#reloadEntry(Object, Object)}
+ * runs in the background to replace it.
+ * <p>
+ * {@link #getAll(Iterable)} creates all the keys it misses with one call to
+ * {@link EntryCreator#createEntries(Set)}. Concurrent {@code getAll} calls
+ * missing the same key share its creation; a {@link #get(Object)} racing
+ * with them may still create it separately.
  *
  * @param <K> type of key used to name cache entries.
  * @param <V> type of value stored within a cache entry.
@@ -43,15 +58,27 @@ class PopulatingCache<K, V> implements Cache<K, V> {
   private static final Logger log =
       LoggerFactory.getLogger(PopulatingCache.class);
 
+  private final Ehcache cache;
   private final net.sf.ehcache.constructs.blocking.SelfPopulatingCache self;
   private final EntryCreator<K, V> creator;
+  private final Counter requests;
+  private final Counter misses;
+  private final Refresher<K, V> refresher;
+  private final LoadingTable<K, V> loads = new LoadingTable<K, V>();
 
-  PopulatingCache(Ehcache s, EntryCreator<K, V> entryCreator) {
+  PopulatingCache(Ehcache s, EntryCreator<K, V> entryCreator,
+      final Counter requests, final Counter misses,
+      final Refresher<K, V> refresher) {
+    cache = s;
     creator = entryCreator;
+    this.requests = requests;
+    this.misses = misses;
+    this.refresher = refresher;
     final CacheEntryFactory f = new CacheEntryFactory() {
       @SuppressWarnings("unchecked")
       @Override
       public Object createEntry(Object key) throws Exception {
+        misses.inc();
         return creator.createEntry((K) key);
       }
     };
@@ -80,6 +107,7 @@ class PopulatingCache<K, V> implements Cache<K, V> {
       return creator.missing(key);
     }
 
+    requests.inc();
     final Element m;
     try {
       m = self.get(key);
@@ -90,24 +118,112 @@ class PopulatingCache<K, V> implements Cache<K, V> {
       log.error("Cannot lookup " + key + " in \"" + self.getName() + "\"", err);
       return creator.missing(key);
     }
-    return m != null ? (V) m.getObjectValue() : creator.missing(key);
+    if (m == null) {
+      return creator.missing(key);
+    }
+    final V v = (V) m.getObjectValue();
+    if (refresher != null) {
+      refresher.hit(this, key, v, System.currentTimeMillis()
+          - m.getLatestOfCreationAndUpdateTime());
+    }
+    return v;
   }
 
   public void remove(final K key) {
     if (key != null) {
+      if (refresher != null) {
+        refresher.invalidate(key);
+      }
       self.remove(key);
     }
   }
 
   /** Remove all cached items, forcing them to be created again on demand. */
   public void removeAll() {
+    if (refresher != null) {
+      refresher.invalidateAll();
+    }
     self.removeAll();
   }
 
+  /**
+   * Get several elements, using {@link EntryCreator#missing(Object)} for any
+   * that cannot be created, as {@link #get(Object)} does. Keys whose value
+   * is still null are left out.
+   */
+  public Map<K, V> getAll(final Iterable<K> keys) {
+    final Map<K, Throwable> errors = new HashMap<K, Throwable>();
+    final Map<K, V> found;
+    try {
+      found = loads.getAll(new LoadingTable.Target<K, V>() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public V getIfPresent(final K key) {
+          requests.inc();
+          final Element m = cache.get(key);
+          if (m == null || m.getObjectValue() == null) {
+            return null;
+          }
+          final V v = (V) m.getObjectValue();
+          if (refresher != null) {
+            refresher.hit(PopulatingCache.this, key, v,
+                System.currentTimeMillis()
+                    - m.getLatestOfCreationAndUpdateTime());
+          }
+          return v;
+        }
+
+        @Override
+        public void put(final K key, final V value) {
+          PopulatingCache.this.put(key, value);
+        }
+      }, keys, new LoadingTable.BulkLoader<K, V>() {
+        @Override
+        public Map<K, V> loadAll(final Set<K> missing) throws Exception {
+          misses.add(missing.size());
+          return creator.createEntries(missing);
+        }
+      }, errors);
+    } catch (IllegalStateException err) {
+      log.error("Cannot lookup keys in \"" + self.getName() + "\"", err);
+      return withMissing(keys, new HashMap<K, V>());
+    } catch (CacheException err) {
+      log.error("Cannot lookup keys in \"" + self.getName() + "\"", err);
+      return withMissing(keys, new HashMap<K, V>());
+    }
+
+    for (final Map.Entry<K, Throwable> e : errors.entrySet()) {
+      log.error("Cannot lookup " + e.getKey() + " in \"" + self.getName()
+          + "\"", e.getValue());
+    }
+    return withMissing(keys, found);
+  }
+
+  /** @return {@code found}, plus {@code missing(key)} for the other keys. */
+  private Map<K, V> withMissing(final Iterable<K> keys, final Map<K, V> found) {
+    final Map<K, V> r = new LinkedHashMap<K, V>();
+    for (final K key : keys) {
+      if (key != null && !r.containsKey(key)) {
+        final V v = found.containsKey(key) ? found.get(key)
+            : creator.missing(key);
+        if (v != null) {
+          r.put(key, v);
+        }
+      }
+    }
+    return r;
+  }
+
   public void put(K key, V value) {
     self.put(new Element(key, value));
   }
 
+  public void putAll(final Map<K, V> entries) {
+    for (final Map.Entry<K, V> e : entries.entrySet()) {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
   @Override
   public long getTimeToLive(final TimeUnit unit) {
     final long maxAge = self.getCacheConfiguration().getTimeToLiveSeconds();
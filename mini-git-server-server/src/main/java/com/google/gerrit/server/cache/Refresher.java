@@ -0,0 +1,141 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import com.google.gerrit.server.metrics.Counter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads entries older than a cache's {@code refreshAfterWrite} in the
+ * background, while callers keep getting the value already cached.
+ * <p>
+ * At most one reload per key is in flight. A failed reload leaves the old
+ * value in place; it is retried on the next stale hit, and the entry still
+ * expires at {@code maxAge} as usual.
+ * <p>
+ * The cache calls {@link #invalidate(Object)} or {@link #invalidateAll()}
+ * before it removes entries, so a reload still running when its key is
+ * removed is dropped instead of putting the old data back.
+ *
+ * @param <K> type of the cache's key.
+ * @param <V> type of the cache's value element.
+ */
+final class Refresher<K, V> {
+  private static final Logger log = LoggerFactory.getLogger(Refresher.class);
+
+  private final String name;
+  private final EntryCreator<K, V> creator;
+  private final long intervalMillis;
+  private final Executor executor;
+  private final Counter staleHits;
+  private final Counter failures;
+  private final ConcurrentHashMap<K, Reload> running;
+
+  /** One reload in flight; cancelled if its key is removed meanwhile. */
+  private static final class Reload {
+    // Guarded by this.
+    boolean cancelled;
+
+    synchronized void cancel() {
+      cancelled = true;
+    }
+  }
+
+  Refresher(final String name, final EntryCreator<K, V> creator,
+      final long interval, final TimeUnit unit, final Executor executor,
+      final Counter staleHits, final Counter failures) {
+    this.name = name;
+    this.creator = creator;
+    this.intervalMillis = unit.toMillis(interval);
+    this.executor = executor;
+    this.staleHits = staleHits;
+    this.failures = failures;
+    this.running = new ConcurrentHashMap<K, Reload>();
+  }
+
+  /**
+   * Note a hit on an entry written {@code ageMillis} ago, starting its
+   * reload if it is due.
+   *
+   * @param cache cache to store the reloaded value into.
+   */
+  void hit(final Cache<K, V> cache, final K key, final V oldValue,
+      final long ageMillis) {
+    if (ageMillis < intervalMillis) {
+      return;
+    }
+    staleHits.inc();
+    final Reload reload = new Reload();
+    if (running.putIfAbsent(key, reload) != null) {
+      return;
+    }
+
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            final V v = creator.reloadEntry(key, oldValue);
+            synchronized (reload) {
+              if (reload.cancelled) {
+                return;
+              }
+              if (v != null) {
+                cache.put(key, v);
+              } else {
+                cache.remove(key);
+              }
+            }
+          } catch (Throwable e) {
+            failures.inc();
+            log.warn("Cannot refresh " + key + " in \"" + name + "\"", e);
+          } finally {
+            running.remove(key, reload);
+          }
+        }
+
+        @Override
+        public String toString() {
+          return "refresh " + key + " in cache " + name;
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // Shutting down; the old value is served until it expires.
+      running.remove(key, reload);
+    }
+  }
+
+  /** Drop the result of any reload of {@code key} still in flight. */
+  void invalidate(final K key) {
+    final Reload reload = running.get(key);
+    if (reload != null) {
+      reload.cancel();
+    }
+  }
+
+  /** Drop the results of all reloads still in flight. */
+  void invalidateAll() {
+    for (final Reload reload : running.values()) {
+      reload.cancel();
+    }
+  }
+}
@@ -16,6 +16,8 @@ package com.google.gerrit.server.cache;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.google.gerrit.server.metrics.Counter;
+
 import net.sf.ehcache.CacheException;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
@@ -23,6 +25,8 @@ import net.sf.ehcache.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,9 +39,14 @@ final class SimpleCache<K, V> implements Cache<K, V> {
   private static final Logger log = LoggerFactory.getLogger(SimpleCache.class);
 
   private final Ehcache self;
+  private final Counter requests;
+  private final Counter misses;
 
-  SimpleCache(final Ehcache self) {
+  SimpleCache(final Ehcache self, final Counter requests,
+      final Counter misses) {
     this.self = self;
+    this.requests = requests;
+    this.misses = misses;
   }
 
   Ehcache getEhcache() {
@@ -49,6 +58,7 @@ final class SimpleCache<K, V> implements Cache<K, V> {
     if (key == null) {
       return null;
     }
+    requests.inc();
     final Element m;
     try {
       m = self.get(key);
@@ -59,13 +69,34 @@ final class SimpleCache<K, V> implements Cache<K, V> {
       log.error("Cannot lookup " + key + " in \"" + self.getName() + "\"", err);
       return null;
     }
-    return m != null ? (V) m.getObjectValue() : null;
+    if (m == null) {
+      misses.inc();
+      return null;
+    }
+    return (V) m.getObjectValue();
+  }
+
+  public Map<K, V> getAll(final Iterable<K> keys) {
+    final Map<K, V> r = new LinkedHashMap<K, V>();
+    for (final K key : keys) {
+      final V v = get(key);
+      if (v != null) {
+        r.put(key, v);
+      }
+    }
+    return r;
   }
 
   public void put(final K key, final V value) {
     self.put(new Element(key, value));
   }
 
+  public void putAll(final Map<K, V> entries) {
+    for (final Map.Entry<K, V> e : entries.entrySet()) {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
   public void remove(final K key) {
     if (key != null) {
       self.remove(key);
@@ -0,0 +1,191 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import com.google.gerrit.server.metrics.Counter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Cache} backed by a {@link TinyLfuStore}, optionally populated by an
+ * {@link EntryCreator}.
+ * <p>
+ * Unlike {@link PopulatingCache} a miss only waits for a load of the same
+ * key; misses on other keys are never serialized behind it. Entries due for
+ * refresh are reloaded as in {@link PopulatingCache}.
+ *
+ * @param <K> type of key used to lookup entries in the cache.
+ * @param <V> type of value stored within each cache entry.
+ */
+final class TinyLfuCache<K, V> implements Cache<K, V> {
+  private static final Logger log =
+      LoggerFactory.getLogger(TinyLfuCache.class);
+
+  private final String name;
+  private final TinyLfuStore<K, V> store;
+  private final EntryCreator<K, V> creator;
+  private final Counter requests;
+  private final Counter misses;
+  private final Refresher<K, V> refresher;
+
+  TinyLfuCache(final String name, final TinyLfuStore<K, V> store,
+      final EntryCreator<K, V> creator, final Counter requests,
+      final Counter misses, final Refresher<K, V> refresher) {
+    this.name = name;
+    this.store = store;
+    this.creator = creator;
+    this.requests = requests;
+    this.misses = misses;
+    this.refresher = refresher;
+  }
+
+  /**
+   * Get the element from the cache.
+   * <p>
+   * With an {@link EntryCreator} a missing entry is created, and
+   * {@link EntryCreator#missing(Object)} is returned under the same
+   * conditions as {@link PopulatingCache#get(Object)}. Without one, null is
+   * returned if the entry is not stored.
+   */
+  public V get(final K key) {
+    if (key == null) {
+      return creator != null ? creator.missing(key) : null;
+    }
+    requests.inc();
+    if (creator == null) {
+      final V v = store.getIfPresent(key);
+      if (v == null) {
+        misses.inc();
+      }
+      return v;
+    }
+
+    final V v;
+    try {
+      v = store.get(key, new Callable<V>() {
+        @Override
+        public V call() throws Exception {
+          misses.inc();
+          return creator.createEntry(key);
+        }
+      });
+    } catch (ExecutionException err) {
+      log.error("Cannot lookup " + key + " in \"" + name + "\"",
+          err.getCause());
+      return creator.missing(key);
+    }
+    if (v == null) {
+      return creator.missing(key);
+    }
+    if (refresher != null) {
+      refresher.hit(this, key, v, store.getAgeMillis(key));
+    }
+    return v;
+  }
+
+  /**
+   * Get several elements. With an {@link EntryCreator} the missing ones are
+   * created in one call to {@link EntryCreator#createEntries(Set)}, and
+   * {@link EntryCreator#missing(Object)} stands in for any that fail.
+   */
+  public Map<K, V> getAll(final Iterable<K> keys) {
+    final Map<K, V> r = new LinkedHashMap<K, V>();
+    if (creator == null) {
+      for (final K key : keys) {
+        final V v = get(key);
+        if (v != null) {
+          r.put(key, v);
+        }
+      }
+      return r;
+    }
+
+    final Map<K, Throwable> errors = new HashMap<K, Throwable>();
+    final Map<K, V> found = store.getAll(keys,
+        new LoadingTable.BulkLoader<K, V>() {
+          @Override
+          public Map<K, V> loadAll(final Set<K> missing) throws Exception {
+            misses.add(missing.size());
+            return creator.createEntries(missing);
+          }
+        }, errors);
+    for (final Map.Entry<K, Throwable> e : errors.entrySet()) {
+      log.error("Cannot lookup " + e.getKey() + " in \"" + name + "\"",
+          e.getValue());
+    }
+
+    for (final K key : keys) {
+      if (key == null || r.containsKey(key)) {
+        continue;
+      }
+      requests.inc();
+      V v = found.get(key);
+      if (v == null) {
+        v = creator.missing(key);
+      } else if (refresher != null) {
+        refresher.hit(this, key, v, store.getAgeMillis(key));
+      }
+      if (v != null) {
+        r.put(key, v);
+      }
+    }
+    return r;
+  }
+
+  public void put(final K key, final V value) {
+    store.put(key, value);
+  }
+
+  public void putAll(final Map<K, V> entries) {
+    for (final Map.Entry<K, V> e : entries.entrySet()) {
+      store.put(e.getKey(), e.getValue());
+    }
+  }
+
+  public void remove(final K key) {
+    if (key != null) {
+      if (refresher != null) {
+        refresher.invalidate(key);
+      }
+      store.remove(key);
+    }
+  }
+
+  public void removeAll() {
+    if (refresher != null) {
+      refresher.invalidateAll();
+    }
+    store.clear();
+  }
+
+  @Override
+  public long getTimeToLive(final TimeUnit unit) {
+    return store.getTimeToLive(unit);
+  }
+
+  @Override
+  public String toString() {
+    return "Cache[" + name + "]";
+  }
+}
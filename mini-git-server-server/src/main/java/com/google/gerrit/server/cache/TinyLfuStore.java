@@ -0,0 +1,542 @@
+// Copyright (C) 2026 The Android Open Source Project
+// Copyright 2015 Ben Manes. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded concurrent map behind the {@link CacheBackend#TINYLFU} backend.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}, so a read takes no lock. Reads
+ * are noted in small lossy per-thread buffers and writes in a queue; both are
+ * replayed against the eviction policy by whichever thread next holds the
+ * eviction lock.
+ * <p>
+ * The policy is W-TinyLFU. New entries enter an LRU window of 1% of the
+ * capacity. An entry pushed out of the window only displaces the main
+ * region's next victim if the {@link FrequencySketch} has seen it more often,
+ * so a burst of one-off keys cannot flush the popular ones. The main region
+ * is a segmented LRU: an entry read again while on probation moves to the
+ * protected segment, which holds up to 80% of the main region.
+ * <p>
+ * Sizes are counted in entries, or in the units of a {@link Weigher} if one
+ * is set; entries then weigh what the weigher says, and the limit is on the
+ * total weight.
+ * <p>
+ * {@link #get(Object, Callable)} runs at most one load per key at a time;
+ * loads of other keys go ahead in parallel. See {@link LoadingTable}.
+ * <p>
+ * The read and write buffers and the W-TinyLFU policy follow the design of
+ * {@code BoundedLocalCache} in Caffeine
+ * (https://github.com/ben-manes/caffeine), Apache License 2.0.
+ *
+ * @param <K> type of key used to find entries.
+ * @param <V> type of value stored in each entry.
+ */
+final class TinyLfuStore<K, V> {
+  private static final int NEW = -1;
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int DEAD = 3;
+
+  /** Slots per read buffer stripe; a full stripe triggers a drain. */
+  private static final int READ_BUFFER_SIZE = 32;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  /** Largest table the frequency sketch is given, in keys. */
+  private static final long MAX_SKETCH = 1 << 20;
+
+  /** Initial sketch size when the number of entries is not known. */
+  private static final long MIN_SKETCH = 64;
+
+  static final class Node<K, V> {
+    final K key;
+    final V value;
+    final int weight;
+    final long writeTime;
+
+    // Guarded by evictionLock.
+    Node<K, V> prev;
+    Node<K, V> next;
+    int queue = NEW;
+
+    Node(final K key, final V value, final int weight, final long writeTime) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.writeTime = writeTime;
+    }
+  }
+
+  private static final class Write<K, V> {
+    final Node<K, V> node;
+    final boolean add;
+
+    Write(final Node<K, V> node, final boolean add) {
+      this.node = node;
+      this.add = add;
+    }
+  }
+
+  private final ConcurrentHashMap<K, Node<K, V>> data;
+  private final LoadingTable<K, V> loads = new LoadingTable<K, V>();
+  private final LoadingTable.Target<K, V> target =
+      new LoadingTable.Target<K, V>() {
+        @Override
+        public V getIfPresent(final K key) {
+          return TinyLfuStore.this.getIfPresent(key);
+        }
+
+        @Override
+        public void put(final K key, final V value) {
+          TinyLfuStore.this.put(key, value);
+        }
+      };
+  private final ConcurrentLinkedQueue<Write<K, V>> writeBuffer;
+  private final AtomicReferenceArray<Node<K, V>> readBuffer;
+  private final AtomicIntegerArray readCounts;
+  private final int stripeMask;
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private volatile long timeToLiveNanos;
+  private volatile Weigher<? super K, ? super V> weigher;
+
+  // Guarded by evictionLock.
+  private final FrequencySketch sketch;
+  private final Node<K, V> window = sentinel();
+  private final Node<K, V> probation = sentinel();
+  private final Node<K, V> protect = sentinel();
+  private long windowSize;
+  private long probationSize;
+  private long protectedSize;
+  private long sketchSize;
+  private long maximum;
+  private long windowMax;
+  private long protectedMax;
+  private long evictions;
+
+  /**
+   * @param maximumSize entries to hold, or their total weight once a
+   *        {@link Weigher} is set; 0 or less for no limit.
+   * @param timeToLiveSeconds seconds an entry lives after being written; 0
+   *        for no limit.
+   */
+  TinyLfuStore(final long maximumSize, final long timeToLiveSeconds) {
+    data = new ConcurrentHashMap<K, Node<K, V>>();
+    writeBuffer = new ConcurrentLinkedQueue<Write<K, V>>();
+
+    final int cpus = Runtime.getRuntime().availableProcessors();
+    final int stripes = Integer.highestOneBit(Math.min(cpus, 64) * 2 - 1);
+    stripeMask = stripes - 1;
+    readBuffer = new AtomicReferenceArray<Node<K, V>>(
+        stripes * READ_BUFFER_SIZE);
+    readCounts = new AtomicIntegerArray(stripes);
+
+    sketch = new FrequencySketch(16);
+    setMaximumSize(maximumSize);
+    setTimeToLive(timeToLiveSeconds, TimeUnit.SECONDS);
+  }
+
+  /** @return the value of {@code key}, or null if absent or expired. */
+  V getIfPresent(final Object key) {
+    final Node<K, V> n = data.get(key);
+    if (n == null) {
+      return null;
+    }
+    if (isExpired(n, System.nanoTime())) {
+      if (data.remove(key, n)) {
+        afterWrite(new Write<K, V>(n, false));
+      }
+      return null;
+    }
+    afterRead(n);
+    return n.value;
+  }
+
+  /**
+   * Get the value of {@code key}, calling {@code loader} if it is missing.
+   * <p>
+   * Concurrent callers asking for the same missing key wait for the first
+   * one's load instead of starting their own. A null result is returned but
+   * not stored.
+   *
+   * @throws ExecutionException the loader threw; nothing was stored.
+   */
+  V get(final K key, final Callable<V> loader) throws ExecutionException {
+    return loads.get(target, key, loader);
+  }
+
+  /**
+   * Get several keys, loading all the missing ones with one call to
+   * {@code loader}. Keys another caller is already loading are waited for
+   * rather than loaded again.
+   *
+   * @see LoadingTable#getAll(LoadingTable.Target, Iterable,
+   *      LoadingTable.BulkLoader, Map)
+   */
+  Map<K, V> getAll(final Iterable<? extends K> keys,
+      final LoadingTable.BulkLoader<K, V> loader,
+      final Map<K, Throwable> errors) {
+    return loads.getAll(target, keys, loader, errors);
+  }
+
+  /** @return milliseconds since {@code key} was written; -1 if absent. */
+  long getAgeMillis(final Object key) {
+    final Node<K, V> n = data.get(key);
+    if (n == null) {
+      return -1;
+    }
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - n.writeTime);
+  }
+
+  void put(final K key, final V value) {
+    final Weigher<? super K, ? super V> w = weigher;
+    final int weight = w != null ? w.weigh(key, value) : 1;
+    if (weight < 0) {
+      throw new IllegalArgumentException("Negative weight " + weight
+          + " for " + key);
+    }
+    final Node<K, V> n = new Node<K, V>(key, value, weight, System.nanoTime());
+    final Node<K, V> old = data.put(key, n);
+    if (old != null) {
+      writeBuffer.add(new Write<K, V>(old, false));
+    }
+    afterWrite(new Write<K, V>(n, true));
+  }
+
+  void remove(final Object key) {
+    final Node<K, V> n = data.remove(key);
+    if (n != null) {
+      afterWrite(new Write<K, V>(n, false));
+    }
+  }
+
+  void clear() {
+    evictionLock.lock();
+    try {
+      drainBuffers();
+      data.clear();
+      for (final Node<K, V> s : sentinels()) {
+        for (Node<K, V> n = s.next; n != s; n = n.next) {
+          n.queue = DEAD;
+        }
+        s.prev = s;
+        s.next = s;
+      }
+      windowSize = 0;
+      probationSize = 0;
+      protectedSize = 0;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /** @return number of entries, including any not yet expired on read. */
+  long size() {
+    return data.size();
+  }
+
+  /** @return total weight of the entries, or their number if unweighted. */
+  long getWeightedSize() {
+    evictionLock.lock();
+    try {
+      drainBuffers();
+      return windowSize + probationSize + protectedSize;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  boolean isWeighted() {
+    return weigher != null;
+  }
+
+  /**
+   * Weigh entries with {@code w} from now on. Set this before the first entry
+   * is added, as existing entries keep the weight they were given.
+   */
+  void setWeigher(final Weigher<? super K, ? super V> w) {
+    evictionLock.lock();
+    try {
+      weigher = w;
+      resizeSketch();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /** @return entries evicted to stay within the maximum size. */
+  long getEvictionCount() {
+    evictionLock.lock();
+    try {
+      return evictions;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  long getMaximumSize() {
+    evictionLock.lock();
+    try {
+      return maximum == Long.MAX_VALUE ? 0 : maximum;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /** Change the capacity, evicting at once if the store is now too big. */
+  void setMaximumSize(final long maximumSize) {
+    evictionLock.lock();
+    try {
+      maximum = maximumSize <= 0 ? Long.MAX_VALUE : maximumSize;
+      windowMax = Math.max(1, maximum / 100);
+      protectedMax = (maximum - windowMax) / 5 * 4;
+      resizeSketch();
+      drainBuffers();
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Size the sketch for the expected number of entries. With a weigher that
+   * is unknown, so it starts small and grows with the store.
+   */
+  private void resizeSketch() {
+    final long n;
+    if (maximum == Long.MAX_VALUE) {
+      n = MIN_SKETCH;
+    } else if (weigher != null) {
+      n = Math.max(MIN_SKETCH, Math.min(2L * data.size(), maximum));
+    } else {
+      n = maximum;
+    }
+    sketchSize = Math.min(n, MAX_SKETCH);
+    sketch.resize(sketchSize);
+  }
+
+  long getTimeToLive(final TimeUnit unit) {
+    return unit.convert(timeToLiveNanos, TimeUnit.NANOSECONDS);
+  }
+
+  void setTimeToLive(final long duration, final TimeUnit unit) {
+    timeToLiveNanos = unit.toNanos(duration);
+  }
+
+  private boolean isExpired(final Node<K, V> n, final long now) {
+    final long ttl = timeToLiveNanos;
+    return 0 < ttl && ttl <= now - n.writeTime;
+  }
+
+  private void afterRead(final Node<K, V> n) {
+    final int stripe = (int) Thread.currentThread().getId() & stripeMask;
+    final int c = readCounts.getAndIncrement(stripe) & READ_BUFFER_MASK;
+    readBuffer.lazySet(stripe * READ_BUFFER_SIZE + c, n);
+    if (c == READ_BUFFER_MASK && evictionLock.tryLock()) {
+      try {
+        drainBuffers();
+        evict();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void afterWrite(final Write<K, V> w) {
+    writeBuffer.add(w);
+    evictionLock.lock();
+    try {
+      drainBuffers();
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void drainBuffers() {
+    for (int i = 0; i < readBuffer.length(); i++) {
+      if (readBuffer.get(i) != null) {
+        final Node<K, V> n = readBuffer.getAndSet(i, null);
+        if (n != null) {
+          onAccess(n);
+        }
+      }
+    }
+    Write<K, V> w;
+    while ((w = writeBuffer.poll()) != null) {
+      if (w.add) {
+        onAdd(w.node);
+      } else {
+        onRemove(w.node);
+      }
+    }
+  }
+
+  private void onAdd(final Node<K, V> n) {
+    if (weigher != null && sketchSize < MAX_SKETCH
+        && sketchSize < data.size() && maximum != Long.MAX_VALUE) {
+      resizeSketch();
+    }
+    sketch.increment(n.key);
+    if (n.queue == NEW) {
+      attach(n, WINDOW);
+    }
+  }
+
+  private void onAccess(final Node<K, V> n) {
+    sketch.increment(n.key);
+    switch (n.queue) {
+      case WINDOW:
+      case PROTECTED:
+        detach(n);
+        attach(n, n.queue);
+        break;
+
+      case PROBATION:
+        detach(n);
+        attach(n, PROTECTED);
+        while (protectedSize > protectedMax && protect.next != n) {
+          final Node<K, V> demoted = protect.next;
+          detach(demoted);
+          attach(demoted, PROBATION);
+        }
+        break;
+
+      default:
+        // Not yet added, or already gone.
+        break;
+    }
+  }
+
+  private void onRemove(final Node<K, V> n) {
+    if (n.queue != NEW && n.queue != DEAD) {
+      detach(n);
+    }
+    n.queue = DEAD;
+  }
+
+  private void evict() {
+    final long mainMax = maximum - windowMax;
+    while (windowSize > windowMax) {
+      final Node<K, V> candidate = window.next;
+      detach(candidate);
+      if (probationSize + protectedSize + candidate.weight <= mainMax) {
+        attach(candidate, PROBATION);
+        continue;
+      }
+
+      Node<K, V> victim = first(probation);
+      if (victim == null) {
+        victim = first(protect);
+      }
+      if (victim == null
+          || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+        if (victim != null) {
+          detach(victim);
+          evict(victim);
+        }
+        attach(candidate, PROBATION);
+      } else {
+        evict(candidate);
+      }
+    }
+
+    // Still too big if the maximum was lowered or a heavy entry got in.
+    while (windowSize + probationSize + protectedSize > maximum) {
+      Node<K, V> victim = first(probation);
+      if (victim == null) {
+        victim = first(protect);
+      }
+      if (victim == null) {
+        victim = first(window);
+      }
+      detach(victim);
+      evict(victim);
+    }
+  }
+
+  private void evict(final Node<K, V> n) {
+    n.queue = DEAD;
+    data.remove(n.key, n);
+    evictions++;
+  }
+
+  private void attach(final Node<K, V> n, final int queue) {
+    final Node<K, V> s;
+    switch (queue) {
+      case WINDOW:
+        s = window;
+        windowSize += n.weight;
+        break;
+      case PROBATION:
+        s = probation;
+        probationSize += n.weight;
+        break;
+      default:
+        s = protect;
+        protectedSize += n.weight;
+        break;
+    }
+    n.queue = queue;
+    n.prev = s.prev;
+    n.next = s;
+    s.prev.next = n;
+    s.prev = n;
+  }
+
+  private void detach(final Node<K, V> n) {
+    switch (n.queue) {
+      case WINDOW:
+        windowSize -= n.weight;
+        break;
+      case PROBATION:
+        probationSize -= n.weight;
+        break;
+      default:
+        protectedSize -= n.weight;
+        break;
+    }
+    n.prev.next = n.next;
+    n.next.prev = n.prev;
+    n.prev = null;
+    n.next = null;
+  }
+
+  private static <K, V> Node<K, V> first(final Node<K, V> sentinel) {
+    return sentinel.next != sentinel ? sentinel.next : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Node<K, V>[] sentinels() {
+    return new Node[] {window, probation, protect};
+  }
+
+  private static <K, V> Node<K, V> sentinel() {
+    final Node<K, V> s = new Node<K, V>(null, null, 0, 0);
+    s.prev = s;
+    s.next = s;
+    return s;
+  }
+}
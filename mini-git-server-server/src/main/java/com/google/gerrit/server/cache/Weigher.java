@@ -0,0 +1,32 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+/**
+ * Computes the weight of a cache entry, usually its approximate size in bytes.
+ * <p>
+ * A cache with a weigher limits the total weight of its entries instead of
+ * their number; see {@link NamedCacheBinding#weigher(Class)}.
+ *
+ * @param <K> type of the cache's key.
+ * @param <V> type of the cache's value element.
+ */
+public interface Weigher<K, V> {
+  /**
+   * @return weight of the entry, never negative. Called once, when the entry
+   *         is stored.
+   */
+  public int weigh(K key, V value);
+}
@@ -0,0 +1,195 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.config;
+
+import org.eclipse.jgit.lib.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Difference between two versions of {@code gerrit.config}, and what the
+ * {@link ConfigListener}s did about it.
+ * <p>
+ * Keys are written as git writes them: {@code section.name}, or
+ * {@code section.subsection.name}, with section and name in lower case.
+ */
+public class ConfigChange {
+  private final Config oldConfig;
+  private final Config newConfig;
+  private final Set<String> changed;
+  private final Set<String> applied = new TreeSet<String>();
+  private final Map<String, String> rejected =
+      new LinkedHashMap<String, String>();
+
+  public ConfigChange(final Config oldConfig, final Config newConfig) {
+    this.oldConfig = oldConfig;
+    this.newConfig = newConfig;
+    this.changed = Collections.unmodifiableSet(diff(oldConfig, newConfig));
+  }
+
+  public Config getOldConfig() {
+    return oldConfig;
+  }
+
+  public Config getNewConfig() {
+    return newConfig;
+  }
+
+  /** @return every key whose value differs, sorted. */
+  public Set<String> getChangedKeys() {
+    return changed;
+  }
+
+  /** @return true if anything differs. */
+  public boolean isEmpty() {
+    return changed.isEmpty();
+  }
+
+  /** @return true if {@code section.subsection.name} differs. */
+  public boolean isChanged(final String section, final String subsection,
+      final String name) {
+    return changed.contains(key(section, subsection, name));
+  }
+
+  /** @return changed keys in {@code section}, any subsection. */
+  public List<String> getChangedKeys(final String section) {
+    final String prefix = section.toLowerCase() + ".";
+    final List<String> r = new ArrayList<String>();
+    for (final String k : changed) {
+      if (k.startsWith(prefix)) {
+        r.add(k);
+      }
+    }
+    return r;
+  }
+
+  /** Record that the new value of {@code key} is now in effect. */
+  public synchronized void applied(final String key) {
+    rejected.remove(key);
+    applied.add(key);
+  }
+
+  /** Record that {@code key} needs a restart to change. */
+  public synchronized void rejected(final String key, final String reason) {
+    if (!applied.contains(key)) {
+      rejected.put(key, reason);
+    }
+  }
+
+  public synchronized Set<String> getApplied() {
+    return new TreeSet<String>(applied);
+  }
+
+  /** @return rejected keys, with the reason given for each. */
+  public synchronized Map<String, String> getRejected() {
+    return new LinkedHashMap<String, String>(rejected);
+  }
+
+  /** @return changed keys nobody applied or rejected. */
+  public synchronized Set<String> getUnhandled() {
+    final Set<String> r = new TreeSet<String>(changed);
+    r.removeAll(applied);
+    r.removeAll(rejected.keySet());
+    return r;
+  }
+
+  /** @return the key naming {@code section.subsection.name}. */
+  public static String key(final String section, final String subsection,
+      final String name) {
+    final StringBuilder r = new StringBuilder();
+    r.append(section.toLowerCase()).append('.');
+    if (subsection != null) {
+      r.append(subsection).append('.');
+    }
+    r.append(name.toLowerCase());
+    return r.toString();
+  }
+
+  /** @return the subsection of {@code key}; null if it has none. */
+  public static String subsection(final String key) {
+    final int first = key.indexOf('.');
+    final int last = key.lastIndexOf('.');
+    return first < last ? key.substring(first + 1, last) : null;
+  }
+
+  /** @return the variable name of {@code key}. */
+  public static String name(final String key) {
+    return key.substring(key.lastIndexOf('.') + 1);
+  }
+
+  static Set<String> diff(final Config a, final Config b) {
+    final Set<String> keys = keys(a);
+    keys.addAll(keys(b));
+
+    final Set<String> r = new TreeSet<String>();
+    for (final String k : keys) {
+      final String section = k.substring(0, k.indexOf('.'));
+      final String sub = subsection(k);
+      final String name = name(k);
+      final String[] x = a.getStringList(section, sub, name);
+      final String[] y = b.getStringList(section, sub, name);
+      if (!Arrays.equals(x, y)) {
+        r.add(k);
+      }
+    }
+    return r;
+  }
+
+  /** Every key set in {@code cfg}, read back from its text form. */
+  static Set<String> keys(final Config cfg) {
+    final Set<String> r = new TreeSet<String>();
+    String section = null;
+    String sub = null;
+    for (final String line : cfg.toText().split("\n")) {
+      if (line.startsWith("[")) {
+        final int sp = line.indexOf(' ');
+        if (sp < 0) {
+          section = line.substring(1, line.lastIndexOf(']'));
+          sub = null;
+        } else {
+          section = line.substring(1, sp);
+          sub = unquote(line.substring(sp + 1, line.lastIndexOf(']')));
+        }
+      } else if (section != null && line.trim().length() > 0
+          && !line.trim().startsWith("#") && !line.trim().startsWith(";")) {
+        final String t = line.trim();
+        final int eq = t.indexOf('=');
+        final String name = (eq < 0 ? t : t.substring(0, eq)).trim();
+        r.add(key(section, sub, name));
+      }
+    }
+    return r;
+  }
+
+  private static String unquote(final String s) {
+    final StringBuilder r = new StringBuilder();
+    for (int i = 1; i < s.length() - 1; i++) {
+      final char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length() - 1) {
+        r.append(s.charAt(++i));
+      } else {
+        r.append(c);
+      }
+    }
+    return r.toString();
+  }
+}
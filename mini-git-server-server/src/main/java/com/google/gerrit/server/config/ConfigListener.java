@@ -0,0 +1,32 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.config;
+
+/**
+ * Component able to apply some {@code gerrit.config} changes while running.
+ * <p>
+ * Register with {@link ConfigWatcher#addListener(ConfigListener)}.
+ */
+public interface ConfigListener {
+  /**
+   * Apply the changes this component supports.
+   * <p>
+   * Mark each handled key with {@link ConfigChange#applied(String)}, or with
+   * {@link ConfigChange#rejected(String, String)} if the new value cannot
+   * take effect without a restart. Keys no listener marks are reported as
+   * needing a restart.
+   */
+  void configChanged(ConfigChange change);
+}
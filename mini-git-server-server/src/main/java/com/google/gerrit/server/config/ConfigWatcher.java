@@ -0,0 +1,226 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.config;
+
+import com.google.gerrit.lifecycle.DependsOn;
+import com.google.gerrit.lifecycle.LifecycleListener;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rereads {@code gerrit.config} and {@code secure.config} when they change,
+ * and hands the differences to the registered {@link ConfigListener}s.
+ * <p>
+ * The files are checked every {@code gerrit.configCheckInterval} (default
+ * 10 seconds, 0 to disable). The {@link GerritServerConfig} instance is
+ * never modified; listeners apply new values to the components they own
+ * and everything else keeps its value until a restart, which is logged.
+ */
+@Singleton
+@DependsOn(WorkQueue.Lifecycle.class)
+public class ConfigWatcher implements LifecycleListener {
+  private static final Logger log =
+      LoggerFactory.getLogger(ConfigWatcher.class);
+
+  private final SitePaths site;
+  private final WorkQueue queues;
+  private final long interval;
+  private final CopyOnWriteArrayList<ConfigListener> listeners =
+      new CopyOnWriteArrayList<ConfigListener>();
+
+  private Config current;
+  private Set<String> secureKeys = Collections.emptySet();
+  private long[] stamp;
+  private ScheduledFuture<?> task;
+
+  @Inject
+  ConfigWatcher(final SitePaths site, @GerritServerConfig final Config cfg,
+      final WorkQueue queues) {
+    this.site = site;
+    this.queues = queues;
+    this.interval = ConfigUtil.getTimeUnit(cfg, "gerrit", null,
+        "configCheckInterval", 10, TimeUnit.SECONDS);
+  }
+
+  public void addListener(final ConfigListener l) {
+    listeners.add(l);
+  }
+
+  public void removeListener(final ConfigListener l) {
+    listeners.remove(l);
+  }
+
+  @Override
+  public synchronized void start() {
+    if (!site.gerrit_config.exists()) {
+      log.info("No " + site.gerrit_config + " to watch");
+      return;
+    }
+    try {
+      current = read();
+      stamp = stamp();
+    } catch (Exception e) {
+      log.warn("Cannot read " + site.gerrit_config + ", not watching it", e);
+      return;
+    }
+    if (0 < interval) {
+      task = queues.getDefaultQueue().scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          check();
+        }
+
+        @Override
+        public String toString() {
+          return "watch " + site.gerrit_config;
+        }
+      }, interval, interval, TimeUnit.SECONDS);
+    }
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (task != null) {
+      task.cancel(false);
+      task = null;
+    }
+  }
+
+  /** Reload if either file was touched since the last look. */
+  synchronized void check() {
+    final long[] now = stamp();
+    if (!Arrays.equals(now, stamp)) {
+      stamp = now;
+      reload();
+    }
+  }
+
+  /**
+   * Read the files now and apply whatever changed.
+   *
+   * @return the change applied; null if the files could not be read.
+   */
+  public synchronized ConfigChange reload() {
+    final Config next;
+    try {
+      next = read();
+    } catch (IOException e) {
+      log.error("Cannot reload " + site.gerrit_config, e);
+      return null;
+    } catch (ConfigInvalidException e) {
+      log.error("Invalid " + site.gerrit_config + ", keeping the old one", e);
+      return null;
+    }
+
+    final ConfigChange change =
+        new ConfigChange(current != null ? current : new Config(), next);
+    if (change.isEmpty()) {
+      return change;
+    }
+    for (final ConfigListener l : listeners) {
+      try {
+        l.configChanged(change);
+      } catch (RuntimeException e) {
+        log.error("Cannot apply configuration to " + l, e);
+      }
+    }
+    current = next;
+    report(change);
+    return change;
+  }
+
+  private void report(final ConfigChange change) {
+    final Config a = change.getOldConfig();
+    final Config b = change.getNewConfig();
+    for (final String k : change.getApplied()) {
+      if (secureKeys.contains(k)) {
+        log.info("Reloaded " + k);
+      } else {
+        log.info("Reloaded " + k + ": " + value(a, k) + " -> " + value(b, k));
+      }
+    }
+    for (final Map.Entry<String, String> e : change.getRejected().entrySet()) {
+      log.warn("Not reloaded " + e.getKey() + ": " + e.getValue());
+    }
+    final Set<String> restart = change.getUnhandled();
+    if (!restart.isEmpty()) {
+      log.warn("Restart required to change " + restart);
+    }
+  }
+
+  private static String value(final Config cfg, final String key) {
+    final String section = key.substring(0, key.indexOf('.'));
+    final String[] v = cfg.getStringList(section,
+        ConfigChange.subsection(key), ConfigChange.name(key));
+    if (v.length == 0) {
+      return "(unset)";
+    }
+    return v.length == 1 ? v[0] : Arrays.toString(v);
+  }
+
+  /**
+   * Read both files into one plain {@link Config}, so that every key can be
+   * listed for comparison (a layered config only lists its own).
+   */
+  private Config read() throws IOException, ConfigInvalidException {
+    final Config r = new Config();
+    r.fromText(load(site.gerrit_config).toText());
+    secureKeys = Collections.emptySet();
+    if (site.secure_config.exists()) {
+      final Config secure = load(site.secure_config);
+      secureKeys = ConfigChange.keys(secure);
+      for (final String k : secureKeys) {
+        final String section = k.substring(0, k.indexOf('.'));
+        final String sub = ConfigChange.subsection(k);
+        final String name = ConfigChange.name(k);
+        r.setStringList(section, sub, name,
+            Arrays.asList(secure.getStringList(section, sub, name)));
+      }
+    }
+    return r;
+  }
+
+  private static FileBasedConfig load(final File file) throws IOException,
+      ConfigInvalidException {
+    final FileBasedConfig cfg = new FileBasedConfig(file, FS.DETECTED);
+    cfg.load();
+    return cfg;
+  }
+
+  private long[] stamp() {
+    final File a = site.gerrit_config;
+    final File b = site.secure_config;
+    return new long[] {a.lastModified(), a.length(), b.lastModified(),
+        b.length()};
+  }
+}
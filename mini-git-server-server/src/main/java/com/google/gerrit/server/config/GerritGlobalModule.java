@@ -25,6 +25,8 @@ import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.git.LocalDiskRepositoryManager;
 import com.google.gerrit.server.git.TransferConfig;
 import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.metrics.MetricRegistry;
+import com.google.gerrit.server.metrics.MetricsMBean;
 import com.google.gerrit.server.util.IdGenerator;
 import com.google.inject.Inject;
 import org.apache.velocity.app.Velocity;
@@ -87,6 +89,7 @@ public class GerritGlobalModule extends FactoryModule {
         GerritPersonIdentProvider.class);
 
     bind(IdGenerator.class);
+    bind(MetricRegistry.class);
     bind(CachePool.class);
     // install(ProjectCacheImpl.module());
 
@@ -103,6 +106,8 @@ public class GerritGlobalModule extends FactoryModule {
         listener().to(CachePool.Lifecycle.class);
         listener().to(WorkQueue.Lifecycle.class);
         listener().to(VelocityLifecycle.class);
+        listener().to(MetricsMBean.Lifecycle.class);
+        listener().to(ConfigWatcher.class);
       }
     });
   }
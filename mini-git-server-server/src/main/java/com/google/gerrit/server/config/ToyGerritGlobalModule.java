@@ -22,6 +22,8 @@ import com.google.gerrit.server.GerritPersonIdentProvider;
 import com.google.gerrit.server.cache.CachePool;
 import com.google.gerrit.server.git.LocalDiskRepositoryManager;
 import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.metrics.MetricRegistry;
+import com.google.gerrit.server.metrics.MetricsMBean;
 import com.google.gerrit.server.util.IdGenerator;
 import com.google.inject.Inject;
 import org.apache.velocity.app.Velocity;
@@ -101,6 +103,7 @@ public class ToyGerritGlobalModule extends FactoryModule {
         GerritPersonIdentProvider.class);
 
     bind(IdGenerator.class);
+    bind(MetricRegistry.class);
     bind(CachePool.class);
 //    install(ProjectCacheImpl.module());
 
@@ -135,6 +138,8 @@ public class ToyGerritGlobalModule extends FactoryModule {
         listener().to(CachePool.Lifecycle.class);
         listener().to(WorkQueue.Lifecycle.class);
         listener().to(VelocityLifecycle.class);
+        listener().to(MetricsMBean.Lifecycle.class);
+        listener().to(ConfigWatcher.class);
       }
     });
   }
@@ -0,0 +1,338 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import com.google.gerrit.lifecycle.LifecycleListener;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.lib.RepositoryCache.FileKey;
+import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static com.madgag.compress.CompressUtil.unzip;
+import static org.apache.commons.io.FileUtils.copyDirectory;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.openInputStream;
+
+/**
+ * Keeps repositories in a scratch directory on a memory-backed filesystem,
+ * and throws them away when the server stops.
+ * <p>
+ * Intended for test servers that create and discard many repositories. The
+ * repositories are ordinary ones so every transport works, but they live
+ * under {@code ephemeral.directory}, by default {@code /dev/shm} where that
+ * exists. A repository not yet created is copied on first open from
+ * {@code ephemeral.seedPath}, by default {@code gerrit.basePath}, if a
+ * {@code name.git} directory or {@code name.git.zip} archive exists there.
+ * <p>
+ * Install {@link #module()} over the standard modules to use it in place of
+ * {@link LocalDiskRepositoryManager}.
+ */
+@Singleton
+public class EphemeralRepositoryManager implements GitRepositoryManager {
+  private static final Logger log =
+      LoggerFactory.getLogger(EphemeralRepositoryManager.class);
+
+  /** Bind this manager and its {@link Lifecycle}. */
+  public static AbstractModule module() {
+    return new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(GitRepositoryManager.class).to(EphemeralRepositoryManager.class);
+        install(new LifecycleModule() {
+          @Override
+          protected void configure() {
+            listener().to(Lifecycle.class);
+          }
+        });
+      }
+    };
+  }
+
+  public static class Lifecycle implements LifecycleListener {
+    private final EphemeralRepositoryManager manager;
+
+    @Inject
+    Lifecycle(final EphemeralRepositoryManager manager) {
+      this.manager = manager;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+      manager.clear();
+    }
+  }
+
+  private final File root;
+  private final File seedPath;
+  private final ConcurrentMap<String, File> repositories;
+  private final ConcurrentMap<String, FutureTask<File>> pending;
+  private final Counter opened;
+  private final Counter notFound;
+  private final Counter created;
+  private final Counter seeded;
+
+  @Inject
+  EphemeralRepositoryManager(final SitePaths site,
+      @GerritServerConfig final Config cfg, final MetricRegistry metrics)
+      throws IOException {
+    opened = metrics.counter("repository_open_total",
+        "Repositories opened by name");
+    notFound = metrics.counter("repository_not_found_total",
+        "Requests for repositories that do not exist");
+    created = metrics.counter("repository_create_total",
+        "Repositories opened for creation");
+    seeded = metrics.counter("repository_seed_total",
+        "Ephemeral repositories copied from the seed path");
+
+    String seed = cfg.getString("ephemeral", null, "seedPath");
+    if (seed == null) {
+      seed = cfg.getString("gerrit", null, "basePath");
+    }
+    seedPath = site.resolve(seed);
+
+    final File parent = scratchDirectory(site, cfg);
+    root = File.createTempFile("repositories", ".ephemeral", parent);
+    if (!root.delete() || !root.mkdir()) {
+      throw new IOException("Cannot create " + root);
+    }
+    repositories = new ConcurrentHashMap<String, File>();
+    pending = new ConcurrentHashMap<String, FutureTask<File>>();
+    log.info("Ephemeral repositories in " + root + ", seeded from "
+        + seedPath);
+  }
+
+  private static File scratchDirectory(final SitePaths site, final Config cfg) {
+    final File dir =
+        site.resolve(cfg.getString("ephemeral", null, "directory"));
+    if (dir != null) {
+      return dir;
+    }
+    final File shm = new File("/dev/shm");
+    if (shm.isDirectory() && shm.canWrite()) {
+      return shm;
+    }
+    return new File(System.getProperty("java.io.tmpdir"));
+  }
+
+  /** @return directory the repositories are currently kept in. */
+  public File getRoot() {
+    return root;
+  }
+
+  public Repository openRepository(final String name)
+      throws RepositoryNotFoundException {
+    final String key = key(name);
+    try {
+      File dir = repositories.get(key);
+      if (dir == null) {
+        dir = seed(key);
+      }
+      if (dir == null) {
+        throw new RepositoryNotFoundException(name);
+      }
+      final Repository db =
+          RepositoryCache.open(FileKey.exact(dir, FS.DETECTED));
+      opened.inc();
+      return db;
+    } catch (RepositoryNotFoundException e) {
+      notFound.inc();
+      throw e;
+    } catch (IOException e) {
+      notFound.inc();
+      final RepositoryNotFoundException e2;
+      e2 = new RepositoryNotFoundException("Cannot open repository " + name);
+      e2.initCause(e);
+      throw e2;
+    }
+  }
+
+  public Repository createRepository(final String name)
+      throws RepositoryNotFoundException {
+    final String key = key(name);
+    try {
+      File dir = repositories.get(key);
+      if (dir == null) {
+        dir = claim(key, new Callable<File>() {
+          @Override
+          public File call() throws IOException {
+            return createEmpty(key);
+          }
+        });
+      }
+      created.inc();
+      return RepositoryCache.open(FileKey.exact(dir, FS.DETECTED), false);
+    } catch (IOException e) {
+      final RepositoryNotFoundException e2;
+      e2 = new RepositoryNotFoundException("Cannot open repository " + name);
+      e2.initCause(e);
+      throw e2;
+    }
+  }
+
+  /** Copy {@code key} from the seed path, if it is there. */
+  private File seed(final String key) throws IOException {
+    if (seedPath == null) {
+      return null;
+    }
+    return claim(key, new Callable<File>() {
+      @Override
+      public File call() throws IOException {
+        return copySeed(key);
+      }
+    });
+  }
+
+  /**
+   * Run {@code make} to bring {@code key} into {@link #repositories}.
+   * <p>
+   * Only one seed or create of a given name runs at a time; other callers
+   * for that name wait for it and get its result, while other names proceed
+   * in parallel. {@code make} must return the directory already recorded
+   * for the name, if there is one.
+   */
+  private File claim(final String key, final Callable<File> make)
+      throws IOException {
+    FutureTask<File> task = pending.get(key);
+    if (task == null) {
+      final FutureTask<File> t = new FutureTask<File>(make);
+      task = pending.putIfAbsent(key, t);
+      if (task == null) {
+        task = t;
+        try {
+          t.run();
+        } finally {
+          pending.remove(key, t);
+        }
+      }
+    }
+
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted opening " + key);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Cannot open " + key, e.getCause());
+    }
+  }
+
+  private File createEmpty(final String key) throws IOException {
+    File dir = repositories.get(key);
+    if (dir != null) {
+      return dir;
+    }
+
+    dir = new File(root, key + Constants.DOT_GIT_EXT);
+    final Repository db =
+        RepositoryCache.open(FileKey.exact(dir, FS.DETECTED), false);
+    try {
+      LocalDiskRepositoryManager.createBare(db);
+    } finally {
+      db.close();
+    }
+    repositories.put(key, dir);
+    return dir;
+  }
+
+  private File copySeed(final String key) throws IOException {
+    File dir = repositories.get(key);
+    if (dir != null) {
+      return dir;
+    }
+
+    final String gitName = key + Constants.DOT_GIT_EXT;
+    final File srcDir = new File(seedPath, gitName);
+    final File srcZip = new File(seedPath, gitName + ".zip");
+    dir = new File(root, gitName);
+    if (srcDir.isDirectory()) {
+      copyDirectory(srcDir, dir);
+    } else if (srcZip.isFile()) {
+      final InputStream in = openInputStream(srcZip);
+      try {
+        unzip(in, dir);
+      } catch (Exception e) {
+        deleteQuietly(dir);
+        throw new IOException("Cannot unzip " + srcZip + ": " + e);
+      } finally {
+        in.close();
+      }
+    } else {
+      return null;
+    }
+    seeded.inc();
+    repositories.put(key, dir);
+    return dir;
+  }
+
+  /** Forget every repository and delete the scratch directory. */
+  synchronized void clear() {
+    for (final File dir : repositories.values()) {
+      try {
+        // Drop the cached instance so a later open cannot find it.
+        final Repository db =
+            RepositoryCache.open(FileKey.exact(dir, FS.DETECTED), false);
+        RepositoryCache.close(db);
+        db.close();
+      } catch (IOException e) {
+        log.warn("Cannot close " + dir, e);
+      }
+    }
+    repositories.clear();
+    deleteQuietly(root);
+  }
+
+  private static String key(final String name)
+      throws RepositoryNotFoundException {
+    if (LocalDiskRepositoryManager.isUnreasonableName(name)) {
+      throw new RepositoryNotFoundException("Invalid name: " + name);
+    }
+    String key = name;
+    if (key.endsWith(Constants.DOT_GIT_EXT)) {
+      key = key.substring(0, key.length() - Constants.DOT_GIT_EXT.length());
+    }
+    return key;
+  }
+}
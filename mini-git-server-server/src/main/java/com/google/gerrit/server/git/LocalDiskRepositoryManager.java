@@ -15,8 +15,15 @@
 package com.google.gerrit.server.git;
 
 import com.google.gerrit.lifecycle.LifecycleListener;
+import com.google.gerrit.server.config.ConfigChange;
+import com.google.gerrit.server.config.ConfigListener;
+import com.google.gerrit.server.config.ConfigWatcher;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.Histogram;
+import com.google.gerrit.server.metrics.MetricRegistry;
+import com.google.gerrit.server.trace.GitTrace;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -41,6 +48,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.madgag.compress.CompressUtil.unzip;
 import static org.apache.commons.io.FileUtils.deleteQuietly;
@@ -57,16 +66,53 @@ public class LocalDiskRepositoryManager implements GitRepositoryManager {
   private static final String UNNAMED =
       "Unnamed repository; edit this file to name it for gitweb.";
 
-  public static class Lifecycle implements LifecycleListener {
+  public static class Lifecycle implements LifecycleListener, ConfigListener {
+    /** Keys read by {@link WindowCacheConfig#fromConfig(Config)}. */
+    private static final String[] WINDOW_KEYS = {"packedGitOpenFiles",
+        "packedGitLimit", "packedGitWindowSize", "packedGitMMAP",
+        "deltaBaseCacheLimit", "streamFileThreshold"};
+
     private final Config cfg;
+    private final ConfigWatcher watcher;
 
     @Inject
-    Lifecycle(@GerritServerConfig final Config cfg) {
+    Lifecycle(@GerritServerConfig final Config cfg,
+        final ConfigWatcher watcher) {
       this.cfg = cfg;
+      this.watcher = watcher;
     }
 
     @Override
     public void start() {
+      configure(cfg);
+      watcher.addListener(this);
+    }
+
+    @Override
+    public void configChanged(final ConfigChange change) {
+      final List<String> keys = new ArrayList<String>();
+      for (final String name : WINDOW_KEYS) {
+        if (change.isChanged("core", null, name)) {
+          keys.add(ConfigChange.key("core", null, name));
+        }
+      }
+      if (keys.isEmpty()) {
+        return;
+      }
+      try {
+        configure(change.getNewConfig());
+      } catch (IllegalArgumentException e) {
+        for (final String k : keys) {
+          change.rejected(k, e.getMessage());
+        }
+        return;
+      }
+      for (final String k : keys) {
+        change.applied(k);
+      }
+    }
+
+    private static void configure(final Config cfg) {
       final WindowCacheConfig c = new WindowCacheConfig();
       c.fromConfig(cfg);
       WindowCache.reconfigure(c);
@@ -74,14 +120,29 @@ public class LocalDiskRepositoryManager implements GitRepositoryManager {
 
     @Override
     public void stop() {
+      watcher.removeListener(this);
     }
   }
 
   private final File basePath;
+  private final Counter opened;
+  private final Counter notFound;
+  private final Counter created;
+  private final Histogram openTime;
+  private final GitTrace trace = GitTrace.get();
 
   @Inject
   LocalDiskRepositoryManager(final SitePaths site,
-      @GerritServerConfig final Config cfg) {
+      @GerritServerConfig final Config cfg, final MetricRegistry metrics) {
+    opened = metrics.counter("repository_open_total",
+        "Repositories opened by name");
+    notFound = metrics.counter("repository_not_found_total",
+        "Requests for repositories that do not exist");
+    created = metrics.counter("repository_create_total",
+        "Repositories opened for creation");
+    openTime = metrics.histogram("repository_open_ms",
+        "Milliseconds taken to open a repository", Histogram.LATENCY_MS);
+
     basePath = site.resolve(cfg.getString("gerrit", null, "basePath"));
     log.info("basePath="+basePath);
     if (basePath == null) {
@@ -110,13 +171,22 @@ public class LocalDiskRepositoryManager implements GitRepositoryManager {
   public Repository openRepository(String name)
       throws RepositoryNotFoundException {
     if (isUnreasonableName(name)) {
+      notFound.inc();
       throw new RepositoryNotFoundException("Invalid name: " + name);
     }
 
+    final long start = System.currentTimeMillis();
+    final GitTrace.RepositoryOpen span = trace.beginRepositoryOpen();
     try {
       final FileKey loc = FileKey.lenient(gitDirOf(name), FS.DETECTED);
-      return RepositoryCache.open(loc);
+      final Repository db = RepositoryCache.open(loc);
+      opened.inc();
+      openTime.record(System.currentTimeMillis() - start);
+      span.commit(name, true);
+      return db;
     } catch (IOException e1) {
+      notFound.inc();
+      span.commit(name, false);
       final RepositoryNotFoundException e2;
       e2 = new RepositoryNotFoundException("Cannot open repository " + name);
       e2.initCause(e1);
@@ -146,7 +216,17 @@ public class LocalDiskRepositoryManager implements GitRepositoryManager {
         }
         loc = FileKey.exact(new File(basePath, name), FS.DETECTED);
       }
-      return RepositoryCache.open(loc, false);
+      created.inc();
+      final Repository db = RepositoryCache.open(loc, false);
+      if (dir == null) {
+        try {
+          createBare(db);
+        } catch (IOException e) {
+          db.close();
+          throw e;
+        }
+      }
+      return db;
     } catch (IOException e1) {
       final RepositoryNotFoundException e2;
       e2 = new RepositoryNotFoundException("Cannot open repository " + name);
@@ -155,7 +235,26 @@ public class LocalDiskRepositoryManager implements GitRepositoryManager {
     }
   }
 
-  private boolean isUnreasonableName(String name) {
+  /**
+   * Create {@code db} as a bare repository, unless it already exists.
+   * <p>
+   * {@link RepositoryCache} hands every caller the same instance for a
+   * directory, so locking it makes concurrent creates of one name wait for
+   * each other instead of failing in {@link Repository#create(boolean)}.
+   */
+  static void createBare(final Repository db) throws IOException {
+    synchronized (db) {
+      if (!FileKey.isGitRepository(db.getDirectory(), FS.DETECTED)) {
+        try {
+          db.create(true /* bare */);
+        } catch (IllegalStateException e) {
+          throw new IOException(e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  static boolean isUnreasonableName(String name) {
     if (name.length() == 0) return true; // no empty paths
 
     if (name.indexOf('\\') >= 0) return true; // no windows/dos stlye paths
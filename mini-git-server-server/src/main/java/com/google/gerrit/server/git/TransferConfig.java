@@ -14,7 +14,10 @@
 
 package com.google.gerrit.server.git;
 
+import com.google.gerrit.server.config.ConfigChange;
+import com.google.gerrit.server.config.ConfigListener;
 import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.ConfigWatcher;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -22,22 +25,47 @@ import com.google.inject.Singleton;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.storage.pack.PackConfig;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 @Singleton
-public class TransferConfig {
-  private final int timeout;
-  private final PackConfig packConfig;
+public class TransferConfig implements ConfigListener {
+  private volatile int timeout;
+  private volatile PackConfig packConfig;
 
   @Inject
-  TransferConfig(@GerritServerConfig final Config cfg) {
+  TransferConfig(@GerritServerConfig final Config cfg,
+      final ConfigWatcher watcher) {
+    load(cfg);
+    watcher.addListener(this);
+  }
+
+  private void load(final Config cfg) {
     timeout = (int) ConfigUtil.getTimeUnit(cfg, "transfer", null, "timeout", //
         0, TimeUnit.SECONDS);
 
-    packConfig = new PackConfig();
-    packConfig.setDeltaCompress(false);
-    packConfig.setThreads(1);
-    packConfig.fromConfig(cfg);
+    final PackConfig pc = new PackConfig();
+    pc.setDeltaCompress(false);
+    pc.setThreads(1);
+    pc.fromConfig(cfg);
+    packConfig = pc;
+  }
+
+  @Override
+  public void configChanged(final ConfigChange change) {
+    final Set<String> keys = new HashSet<String>();
+    if (change.isChanged("transfer", null, "timeout")) {
+      keys.add(ConfigChange.key("transfer", null, "timeout"));
+    }
+    keys.addAll(change.getChangedKeys("pack"));
+    if (keys.isEmpty()) {
+      return;
+    }
+    load(change.getNewConfig());
+    for (final String k : keys) {
+      change.applied(k);
+    }
   }
 
   /** @return configured timeout, in seconds. 0 if the timeout is infinite. */
@@ -15,6 +15,10 @@
 package com.google.gerrit.server.git;
 
 import com.google.gerrit.lifecycle.LifecycleListener;
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.Gauge;
+import com.google.gerrit.server.metrics.Histogram;
+import com.google.gerrit.server.metrics.MetricRegistry;
 import com.google.gerrit.server.util.IdGenerator;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -23,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -60,11 +65,13 @@ public class WorkQueue {
 
   private Executor defaultQueue;
   private final IdGenerator idGenerator;
+  private final MetricRegistry metrics;
   private final CopyOnWriteArrayList<Executor> queues;
 
   @Inject
-  WorkQueue(final IdGenerator idGenerator) {
+  WorkQueue(final IdGenerator idGenerator, final MetricRegistry metrics) {
     this.idGenerator = idGenerator;
+    this.metrics = metrics;
     this.queues = new CopyOnWriteArrayList<Executor>();
   }
 
@@ -85,6 +92,11 @@ public class WorkQueue {
     return r;
   }
 
+  /** Get all of the executors created by this work queue. */
+  public List<Executor> getQueues() {
+    return Collections.unmodifiableList(queues);
+  }
+
   /** Get all of the tasks currently scheduled in any work queue. */
   public List<Task<?>> getTasks() {
     final List<Task<?>> r = new ArrayList<Task<?>>();
@@ -129,6 +141,11 @@ public class WorkQueue {
   /** An isolated queue. */
   public class Executor extends ScheduledThreadPoolExecutor {
     private final ConcurrentHashMap<Integer, Task<?>> all;
+    private final String name;
+    private final Counter completed;
+    private final Histogram waitTime;
+    private final Histogram runTime;
+    private final List<Gauge> gauges = new ArrayList<Gauge>(3);
 
     Executor(final int corePoolSize, final String prefix) {
       super(corePoolSize, new ThreadFactory() {
@@ -149,6 +166,77 @@ public class WorkQueue {
           0.75f, // load factor
           corePoolSize + 4 // concurrency level
           );
+      name = prefix;
+
+      completed = metrics.counter("workqueue_tasks_completed_total",
+          "Tasks that finished running", "queue", prefix);
+      waitTime = metrics.histogram("workqueue_task_wait_ms",
+          "Milliseconds tasks waited for a thread once due", //
+          Histogram.LATENCY_MS, "queue", prefix);
+      runTime = metrics.histogram("workqueue_task_run_ms",
+          "Milliseconds tasks spent running", //
+          Histogram.LATENCY_MS, "queue", prefix);
+      gauges.add(metrics.gauge("workqueue_queue_depth",
+          "Tasks queued, including delayed", //
+          new Gauge.Source() {
+            @Override
+            public long get() {
+              return getQueueDepth();
+            }
+          }, "queue", prefix));
+      gauges.add(metrics.gauge("workqueue_active_threads",
+          "Threads running a task", //
+          new Gauge.Source() {
+            @Override
+            public long get() {
+              return getActiveCount();
+            }
+          }, "queue", prefix));
+      gauges.add(metrics.gauge("workqueue_pool_size", "Threads in the pool",
+          new Gauge.Source() {
+            @Override
+            public long get() {
+              return getPoolSize();
+            }
+          }, "queue", prefix));
+    }
+
+    @Override
+    protected void terminated() {
+      super.terminated();
+
+      // The gauges hold this executor; drop them so a stopped queue is
+      // neither reported nor kept reachable through the registry.
+      //
+      for (final Gauge g : gauges) {
+        metrics.remove(g);
+      }
+    }
+
+    /** @return the prefix of this executor's thread names. */
+    public String getName() {
+      return name;
+    }
+
+    /** @return number of tasks queued, including delayed and periodic ones. */
+    public int getQueueDepth() {
+      return getQueue().size();
+    }
+
+    /**
+     * @return the task that became eligible to run the longest time ago but
+     *         has not started yet; null if no task is waiting for a thread.
+     *         Does not walk the queue, only its head is examined.
+     */
+    public Task<?> getOldestWaitingTask() {
+      final Runnable head = getQueue().peek();
+      if (head instanceof Task<?>) {
+        final Task<?> task = (Task<?>) head;
+        if (task.getDelay(TimeUnit.MILLISECONDS) <= 0) {
+          return task;
+        }
+      }
+      return null;
     }
 
     @Override
@@ -178,6 +266,15 @@ public class WorkQueue {
       throw new UnsupportedOperationException("Callable not implemented");
     }
 
+    void onStart(final Task<?> task) {
+      waitTime.record(Math.max(0, -task.getDelay(TimeUnit.MILLISECONDS)));
+    }
+
+    void onFinish(final long runMillis) {
+      runTime.record(runMillis);
+      completed.inc();
+    }
+
     void remove(final Task<?> task) {
       all.remove(task.getTaskId(), task);
     }
@@ -308,9 +405,12 @@ public class WorkQueue {
 
     public void run() {
       if (running.compareAndSet(false, true)) {
+        executor.onStart(this);
+        final long start = System.currentTimeMillis();
         try {
           task.run();
         } finally {
+          executor.onFinish(System.currentTimeMillis() - start);
           if (isPeriodic()) {
             running.set(false);
           } else {
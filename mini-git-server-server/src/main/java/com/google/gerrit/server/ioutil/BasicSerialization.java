@@ -107,6 +107,33 @@ public class BasicSerialization {
     }
   }
 
+  /** Read a 64 bit varint from the input, one byte at a time. */
+  public static long readVarInt64(final InputStream input) throws IOException {
+    long result = 0;
+    for (int offset = 0; offset < 64; offset += 7) {
+      final int b = safeRead(input);
+      result |= ((long) (b & 0x7f)) << offset;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new EOFException();
+  }
+
+  /** Write a 64 bit varint; value is treated as an unsigned value. */
+  public static void writeVarInt64(final OutputStream output, long value)
+      throws IOException {
+    while (true) {
+      if ((value & ~0x7FL) == 0) {
+        output.write((int) value);
+        return;
+      } else {
+        output.write((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+    }
+  }
+
   /** Read a fixed length byte array whose length is specified as a varint. */
   public static byte[] readBytes(final InputStream input) throws IOException {
     final int len = readVarInt32(input);
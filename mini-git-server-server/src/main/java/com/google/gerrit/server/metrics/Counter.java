@@ -0,0 +1,49 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A monotonically increasing count, updated without taking a lock. */
+public final class Counter extends Metric {
+  private final AtomicLongArray cells =
+      new AtomicLongArray(Stripes.COUNT * Stripes.PAD);
+
+  Counter(final String name, final String labels, final String help) {
+    super(name, labels, help);
+  }
+
+  public void inc() {
+    cells.incrementAndGet(Stripes.index() * Stripes.PAD);
+  }
+
+  public void add(final long n) {
+    cells.addAndGet(Stripes.index() * Stripes.PAD, n);
+  }
+
+  /** @return current total; concurrent updates may or may not be seen. */
+  public long get() {
+    long sum = 0;
+    for (int i = 0; i < Stripes.COUNT; i++) {
+      sum += cells.get(i * Stripes.PAD);
+    }
+    return sum;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.COUNTER;
+  }
+}
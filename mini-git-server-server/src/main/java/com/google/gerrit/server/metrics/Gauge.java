@@ -0,0 +1,40 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+/** A value sampled from elsewhere each time the metrics are read. */
+public final class Gauge extends Metric {
+  /** Supplies the current value of a gauge. */
+  public interface Source {
+    long get();
+  }
+
+  private final Source source;
+
+  Gauge(final String name, final String labels, final String help,
+      final Source source) {
+    super(name, labels, help);
+    this.source = source;
+  }
+
+  public long get() {
+    return source.get();
+  }
+
+  @Override
+  public Type getType() {
+    return Type.GAUGE;
+  }
+}
@@ -0,0 +1,107 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of observed values over fixed buckets.
+ * <p>
+ * Each stripe holds one count per bucket plus a running sum, so recording a
+ * value costs a binary search and two uncontended atomic adds.
+ */
+public final class Histogram extends Metric {
+  /** Bucket bounds suitable for latencies measured in milliseconds. */
+  public static final long[] LATENCY_MS =
+      {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000,
+          60000, 300000};
+
+  /** Bucket bounds suitable for sizes measured in bytes. */
+  public static final long[] SIZE_BYTES =
+      {1 << 10, 16 << 10, 128 << 10, 1 << 20, 16 << 20, 128 << 20,
+          1 << 30};
+
+  private final long[] bounds;
+  private final int stride;
+  private final AtomicLongArray cells;
+
+  Histogram(final String name, final String labels, final String help,
+      final long[] bounds) {
+    super(name, labels, help);
+    for (int i = 1; i < bounds.length; i++) {
+      if (bounds[i] <= bounds[i - 1]) {
+        throw new IllegalArgumentException("Bucket bounds of " + name
+            + " must be ascending");
+      }
+    }
+    this.bounds = bounds.clone();
+
+    // One cell per bucket, one for the overflow bucket and one for the sum.
+    this.stride = Stripes.padded(bounds.length + 2);
+    this.cells = new AtomicLongArray(Stripes.COUNT * stride);
+  }
+
+  public void record(final long value) {
+    int b = Arrays.binarySearch(bounds, value);
+    if (b < 0) {
+      b = -(b + 1);
+    }
+    final int base = Stripes.index() * stride;
+    cells.incrementAndGet(base + b);
+    cells.addAndGet(base + bounds.length + 1, value);
+  }
+
+  /** @return upper bound (inclusive) of each bucket but the last. */
+  public long[] getBounds() {
+    return bounds.clone();
+  }
+
+  /**
+   * @return number of values in each bucket; the array has one more element
+   *         than {@link #getBounds()}, for values above the last bound.
+   */
+  public long[] getBucketCounts() {
+    final long[] r = new long[bounds.length + 1];
+    for (int s = 0; s < Stripes.COUNT; s++) {
+      final int base = s * stride;
+      for (int b = 0; b < r.length; b++) {
+        r[b] += cells.get(base + b);
+      }
+    }
+    return r;
+  }
+
+  public long getCount() {
+    long n = 0;
+    for (final long c : getBucketCounts()) {
+      n += c;
+    }
+    return n;
+  }
+
+  public long getSum() {
+    long sum = 0;
+    for (int s = 0; s < Stripes.COUNT; s++) {
+      sum += cells.get(s * stride + bounds.length + 1);
+    }
+    return sum;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.HISTOGRAM;
+  }
+}
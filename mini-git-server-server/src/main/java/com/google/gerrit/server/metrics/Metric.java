@@ -0,0 +1,57 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+/** A named value exported by a {@link MetricRegistry}. */
+public abstract class Metric {
+  public static enum Type {
+    COUNTER, GAUGE, HISTOGRAM;
+  }
+
+  private final String name;
+  private final String labels;
+  private final String help;
+
+  Metric(final String name, final String labels, final String help) {
+    this.name = name;
+    this.labels = labels;
+    this.help = help;
+  }
+
+  /** @return name of the metric family, e.g. {@code cache_requests_total}. */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return labels distinguishing this metric within its family, formatted
+   *         as {@code key="value",...}; empty if the metric has none.
+   */
+  public String getLabels() {
+    return labels;
+  }
+
+  /** @return one line description of the metric family. */
+  public String getHelp() {
+    return help;
+  }
+
+  public abstract Type getType();
+
+  @Override
+  public String toString() {
+    return labels.isEmpty() ? name : name + "{" + labels + "}";
+  }
+}
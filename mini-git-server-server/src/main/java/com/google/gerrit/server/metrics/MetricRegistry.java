@@ -0,0 +1,173 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * All metrics exported by the server.
+ * <p>
+ * Components ask the registry for their metrics once, typically when they are
+ * constructed, and keep the returned objects to update on hot paths. Asking
+ * twice for the same name and labels returns the same counter or histogram,
+ * so components created more than once share their metrics.
+ * <p>
+ * Labels are passed as alternating names and values:
+ *
+ * <pre>
+ * registry.counter(&quot;cache_requests_total&quot;, &quot;Cache lookups&quot;,
+ *     &quot;cache&quot;, name);
+ * </pre>
+ */
+@Singleton
+public class MetricRegistry {
+  private static final Pattern NAME =
+      Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+  private static final Pattern LABEL =
+      Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+  private final ConcurrentMap<String, Metric> metrics =
+      new ConcurrentHashMap<String, Metric>();
+
+  @Inject
+  public MetricRegistry() {
+  }
+
+  public Counter counter(final String name, final String help,
+      final String... labels) {
+    final String l = labels(labels);
+    final Metric m = metrics.get(key(name, l));
+    if (m != null) {
+      return cast(m, Counter.class);
+    }
+    return cast(register(new Counter(name, l, help)), Counter.class);
+  }
+
+  public Histogram histogram(final String name, final String help,
+      final long[] bounds, final String... labels) {
+    final String l = labels(labels);
+    final Metric m = metrics.get(key(name, l));
+    if (m != null) {
+      return cast(m, Histogram.class);
+    }
+    return cast(register(new Histogram(name, l, help, bounds)),
+        Histogram.class);
+  }
+
+  /**
+   * Register a gauge, replacing any gauge already registered under the same
+   * name and labels.
+   */
+  public Gauge gauge(final String name, final String help,
+      final Gauge.Source source, final String... labels) {
+    checkName(name);
+    final String l = labels(labels);
+    final Gauge g = new Gauge(name, l, help, source);
+    final Metric old = metrics.put(key(name, l), g);
+    if (old != null && !(old instanceof Gauge)) {
+      metrics.put(key(name, l), old);
+      throw new IllegalArgumentException(old + " is a "
+          + old.getType().name().toLowerCase());
+    }
+    return g;
+  }
+
+  /** Remove a metric, if it is still registered. */
+  public void remove(final Metric m) {
+    metrics.remove(key(m.getName(), m.getLabels()), m);
+  }
+
+  /** @return all metrics, ordered by name and then labels. */
+  public List<Metric> getMetrics() {
+    final List<Metric> r = new ArrayList<Metric>(metrics.values());
+    Collections.sort(r, new Comparator<Metric>() {
+      @Override
+      public int compare(final Metric a, final Metric b) {
+        final int c = a.getName().compareTo(b.getName());
+        return c != 0 ? c : a.getLabels().compareTo(b.getLabels());
+      }
+    });
+    return r;
+  }
+
+  private Metric register(final Metric m) {
+    checkName(m.getName());
+    final Metric old = metrics.putIfAbsent(key(m.getName(), m.getLabels()), m);
+    return old != null ? old : m;
+  }
+
+  private static void checkName(final String name) {
+    if (!NAME.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid metric name " + name);
+    }
+  }
+
+  private static <T extends Metric> T cast(final Metric m,
+      final Class<T> type) {
+    if (!type.isInstance(m)) {
+      throw new IllegalArgumentException(m + " is a "
+          + m.getType().name().toLowerCase());
+    }
+    return type.cast(m);
+  }
+
+  private static String key(final String name, final String labels) {
+    return name + "{" + labels + "}";
+  }
+
+  static String labels(final String... pairs) {
+    if (pairs.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be name, value pairs");
+    }
+    final StringBuilder r = new StringBuilder();
+    for (int i = 0; i < pairs.length; i += 2) {
+      if (!LABEL.matcher(pairs[i]).matches()) {
+        throw new IllegalArgumentException("Invalid label name " + pairs[i]);
+      }
+      if (0 < r.length()) {
+        r.append(',');
+      }
+      r.append(pairs[i]).append("=\"");
+      final String v = pairs[i + 1] != null ? pairs[i + 1] : "";
+      for (int c = 0; c < v.length(); c++) {
+        final char ch = v.charAt(c);
+        switch (ch) {
+          case '\\':
+            r.append("\\\\");
+            break;
+          case '"':
+            r.append("\\\"");
+            break;
+          case '\n':
+            r.append("\\n");
+            break;
+          default:
+            r.append(ch);
+        }
+      }
+      r.append('"');
+    }
+    return r.toString();
+  }
+}
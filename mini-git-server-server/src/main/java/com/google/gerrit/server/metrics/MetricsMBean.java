@@ -0,0 +1,185 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+import com.google.gerrit.lifecycle.LifecycleListener;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the {@link MetricRegistry} as a read-only JMX MBean.
+ * <p>
+ * Each counter and gauge becomes one attribute named like its text format
+ * sample, e.g. {@code cache_requests_total{cache="sshkeys"}}. Histograms are
+ * summarized by their {@code _count} and {@code _sum} attributes. The set of
+ * attributes is recomputed on every request, so metrics registered after the
+ * MBean still show up.
+ */
+public class MetricsMBean implements DynamicMBean {
+  private static final Logger log = LoggerFactory.getLogger(MetricsMBean.class);
+
+  static final String OBJECT_NAME = "com.google.gerrit:type=Metrics";
+
+  /** Registers the MBean with the platform MBean server while running. */
+  @Singleton
+  public static class Lifecycle implements LifecycleListener {
+    private final MetricRegistry registry;
+    private ObjectName name;
+
+    @Inject
+    Lifecycle(final MetricRegistry registry) {
+      this.registry = registry;
+    }
+
+    @Override
+    public synchronized void start() {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      try {
+        final ObjectName n = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(n)) {
+          // Another server instance in this JVM already exports its metrics.
+          return;
+        }
+        server.registerMBean(new MetricsMBean(registry), n);
+        name = n;
+      } catch (JMException e) {
+        log.warn("Cannot register metrics MBean", e);
+      }
+    }
+
+    @Override
+    public synchronized void stop() {
+      if (name != null) {
+        try {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+          log.warn("Cannot unregister metrics MBean", e);
+        }
+        name = null;
+      }
+    }
+  }
+
+  private final MetricRegistry registry;
+
+  MetricsMBean(final MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Object getAttribute(final String attribute)
+      throws AttributeNotFoundException {
+    final Long v = values().get(attribute);
+    if (v == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return v;
+  }
+
+  @Override
+  public AttributeList getAttributes(final String[] attributes) {
+    final Map<String, Long> values = values();
+    final AttributeList r = new AttributeList();
+    for (final String a : attributes) {
+      final Long v = values.get(a);
+      if (v != null) {
+        r.add(new Attribute(a, v));
+      }
+    }
+    return r;
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    final List<MBeanAttributeInfo> attrs = new ArrayList<MBeanAttributeInfo>();
+    for (final Metric m : registry.getMetrics()) {
+      if (m.getType() == Metric.Type.HISTOGRAM) {
+        attrs.add(attribute(m, "_count"));
+        attrs.add(attribute(m, "_sum"));
+      } else {
+        attrs.add(attribute(m, ""));
+      }
+    }
+    return new MBeanInfo(getClass().getName(), "Server metrics", //
+        attrs.toArray(new MBeanAttributeInfo[attrs.size()]), //
+        null, null, null);
+  }
+
+  @Override
+  public void setAttribute(final Attribute attribute)
+      throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only");
+  }
+
+  @Override
+  public AttributeList setAttributes(final AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(final String actionName, final Object[] params,
+      final String[] signature) {
+    throw new UnsupportedOperationException(actionName);
+  }
+
+  private Map<String, Long> values() {
+    final Map<String, Long> r = new LinkedHashMap<String, Long>();
+    for (final Metric m : registry.getMetrics()) {
+      switch (m.getType()) {
+        case COUNTER:
+          r.put(name(m, ""), ((Counter) m).get());
+          break;
+        case GAUGE:
+          r.put(name(m, ""), ((Gauge) m).get());
+          break;
+        case HISTOGRAM:
+          r.put(name(m, "_count"), ((Histogram) m).getCount());
+          r.put(name(m, "_sum"), ((Histogram) m).getSum());
+          break;
+      }
+    }
+    return r;
+  }
+
+  private static MBeanAttributeInfo attribute(final Metric m,
+      final String suffix) {
+    return new MBeanAttributeInfo(name(m, suffix), Long.class.getName(),
+        m.getHelp(), true, false, false);
+  }
+
+  private static String name(final Metric m, final String suffix) {
+    final String n = m.getName() + suffix;
+    return m.getLabels().isEmpty() ? n : n + "{" + m.getLabels() + "}";
+  }
+}
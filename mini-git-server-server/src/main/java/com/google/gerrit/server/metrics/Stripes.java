@@ -0,0 +1,54 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+/**
+ * Spreads updates from different threads over separate cache lines.
+ * <p>
+ * A single {@code AtomicLong} updated by every worker thread becomes a point
+ * of contention as each increment has to own the cache line holding it.
+ * Metrics instead keep one slot per stripe, pick the stripe from the
+ * updating thread's id and only add the stripes together when read.
+ */
+final class Stripes {
+  /** Number of longs in a 64 byte cache line. */
+  static final int PAD = 8;
+
+  /** Number of stripes; a power of two. */
+  static final int COUNT;
+
+  static {
+    final int cpus = Runtime.getRuntime().availableProcessors();
+    int n = 1;
+    while (n < 2 * cpus && n < 64) {
+      n <<= 1;
+    }
+    COUNT = n;
+  }
+
+  /** @return stripe the calling thread should update. */
+  static int index() {
+    final long id = Thread.currentThread().getId();
+    return (int) (id ^ (id >>> 16)) & (COUNT - 1);
+  }
+
+  /** @return {@code n} rounded up to a whole number of cache lines. */
+  static int padded(final int n) {
+    return (n + PAD - 1) / PAD * PAD;
+  }
+
+  private Stripes() {
+  }
+}
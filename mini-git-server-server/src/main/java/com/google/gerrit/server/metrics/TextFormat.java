@@ -0,0 +1,98 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4.
+ *
+ * @see <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">
+ *      Exposition formats</a>
+ */
+public class TextFormat {
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+  private final MetricRegistry registry;
+
+  public TextFormat(final MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  public void write(final Writer out) throws IOException {
+    String family = null;
+    for (final Metric m : registry.getMetrics()) {
+      if (!m.getName().equals(family)) {
+        family = m.getName();
+        out.write("# HELP " + family + " " + escapeHelp(m.getHelp()) + "\n");
+        out.write("# TYPE " + family + " "
+            + m.getType().name().toLowerCase() + "\n");
+      }
+
+      switch (m.getType()) {
+        case COUNTER:
+          sample(out, m.getName(), m.getLabels(), ((Counter) m).get());
+          break;
+
+        case GAUGE:
+          sample(out, m.getName(), m.getLabels(), ((Gauge) m).get());
+          break;
+
+        case HISTOGRAM:
+          histogram(out, (Histogram) m);
+          break;
+      }
+    }
+  }
+
+  private static void histogram(final Writer out, final Histogram h)
+      throws IOException {
+    final long[] bounds = h.getBounds();
+    final long[] counts = h.getBucketCounts();
+    final String sep = h.getLabels().isEmpty() ? "" : h.getLabels() + ",";
+
+    long cumulative = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      cumulative += counts[i];
+      sample(out, h.getName() + "_bucket", //
+          sep + "le=\"" + bounds[i] + "\"", cumulative);
+    }
+    cumulative += counts[bounds.length];
+    sample(out, h.getName() + "_bucket", sep + "le=\"+Inf\"", cumulative);
+    sample(out, h.getName() + "_sum", h.getLabels(), h.getSum());
+    sample(out, h.getName() + "_count", h.getLabels(), cumulative);
+  }
+
+  private static void sample(final Writer out, final String name,
+      final String labels, final long value) throws IOException {
+    out.write(name);
+    if (!labels.isEmpty()) {
+      out.write('{');
+      out.write(labels);
+      out.write('}');
+    }
+    out.write(' ');
+    out.write(Long.toString(value));
+    out.write('\n');
+  }
+
+  private static String escapeHelp(final String help) {
+    if (help == null) {
+      return "";
+    }
+    return help.replace("\\", "\\\\").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,134 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.trace;
+
+/**
+ * Records low overhead events describing Git operations.
+ * <p>
+ * The server is built for Java 6, but on Java 11 and later the {@code jfr}
+ * build profile adds an implementation emitting Java Flight Recorder events.
+ * It is looked up reflectively, so the same jar runs everywhere; without it
+ * every method does nothing and {@link #isEnabled()} is false.
+ */
+public abstract class GitTrace {
+  private static final String JFR_IMPL =
+      "com.google.gerrit.server.trace.JfrGitTrace";
+
+  private static final GitTrace INSTANCE = load();
+
+  /** @return the tracer for this JVM. */
+  public static GitTrace get() {
+    return INSTANCE;
+  }
+
+  private static GitTrace load() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return (GitTrace) Class.forName(JFR_IMPL).newInstance();
+    } catch (Throwable e) {
+      // Either the JVM has no flight recorder, or this build left it out.
+      return new GitTrace() {
+        @Override
+        public boolean isEnabled() {
+          return false;
+        }
+
+        @Override
+        public TransferPhase beginTransferPhase() {
+          return NOOP;
+        }
+
+        @Override
+        public RepositoryOpen beginRepositoryOpen() {
+          return NOOP;
+        }
+      };
+    }
+  }
+
+  /**
+   * An event timed by the recorder itself.
+   * <p>
+   * The recorder reads its own clock in {@link #begin()} and {@link #end()},
+   * so the event is shown with its real start and duration. Either may be
+   * called again to move that boundary to the current time, for phases whose
+   * end is only known in hindsight. Committing a span that was never ended
+   * ends it at the current time.
+   */
+  public interface Span {
+    void begin();
+
+    void end();
+  }
+
+  /** One phase of a fetch or push; see {@link TransferPhases}. */
+  public interface TransferPhase extends Span {
+    /**
+     * Record the phase.
+     *
+     * @param service {@code upload-pack} or {@code receive-pack}.
+     * @param project name of the repository.
+     * @param user user name of the client; null if anonymous.
+     * @param phase name of the phase, see {@link TransferPhases}.
+     * @param bytesIn bytes read from the client during the phase.
+     * @param bytesOut bytes written to the client during the phase.
+     * @param objects objects in the pack sent or received; -1 if unknown.
+     */
+    void commit(String service, String project, String user, String phase,
+        long bytesIn, long bytesOut, long objects);
+  }
+
+  /** Opening a repository by name. */
+  public interface RepositoryOpen extends Span {
+    void commit(String project, boolean found);
+  }
+
+  /** Span that records nothing. */
+  static final Noop NOOP = new Noop();
+
+  static final class Noop implements TransferPhase, RepositoryOpen {
+    @Override
+    public void begin() {
+    }
+
+    @Override
+    public void end() {
+    }
+
+    @Override
+    public void commit(String service, String project, String user,
+        String phase, long bytesIn, long bytesOut, long objects) {
+    }
+
+    @Override
+    public void commit(String project, boolean found) {
+    }
+
+    private Noop() {
+    }
+  }
+
+  /**
+   * @return true if a recording is currently interested in the events;
+   *         callers can skip gathering the details when false.
+   */
+  public abstract boolean isEnabled();
+
+  /** @return a phase of a fetch or push, begun now. */
+  public abstract TransferPhase beginTransferPhase();
+
+  /** @return the opening of a repository, begun now. */
+  public abstract RepositoryOpen beginRepositoryOpen();
+}
@@ -0,0 +1,410 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.trace;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a fetch or push into phases by watching its streams.
+ * <p>
+ * JGit's {@code UploadPack} and {@code ReceivePack} offer no callbacks, so
+ * the phases are inferred from the order of reads and writes:
+ * <dl>
+ * <dt>upload-pack</dt>
+ * <dd>{@code advertise} until the client first speaks; {@code negotiate}
+ * until its last read; {@code prepare}, counting and compressing objects,
+ * until the pack header is written; {@code send} until the end.</dd>
+ * <dt>receive-pack</dt>
+ * <dd>{@code advertise} until the client first speaks; {@code commands}
+ * until the pack header arrives; {@code receive} until the last read;
+ * {@code process}, indexing the pack and updating refs, until the end.</dd>
+ * </dl>
+ * The pack is found by following the pkt-line framing of the stream: it
+ * starts either with a raw {@code PACK} where the next pkt-line length would
+ * be, or at the start of side-band channel 1. Text that merely contains
+ * {@code PACK}, such as a ref name, is never taken for it. The object count
+ * is read from the pack header, across side-band packets if it is split.
+ * <p>
+ * Phases are recorded as spans timed by the tracer's own clock. A phase
+ * ending at the last read is ended again on every read, and the phase after
+ * it begun again, so both boundaries land on the read that turned out to be
+ * the last.
+ * <p>
+ * When no recording is interested and the caller did not ask for
+ * {@link #getPhaseTimings()}, the streams are returned unwrapped and nothing
+ * is measured.
+ */
+public class TransferPhases {
+  public static final String UPLOAD_PACK = "upload-pack";
+  public static final String RECEIVE_PACK = "receive-pack";
+
+  private static final int ADVERTISE = 0;
+  private static final int NEGOTIATE = 1;
+  private static final int DATA = 2;
+
+  private static final byte[] PACK = {'P', 'A', 'C', 'K'};
+  private static final int HEADER = 8; // version and object count
+  private static final int PKT_HEADER = 4; // length, as hex digits
+  private static final int BAND_PACK = 1;
+
+  private final GitTrace trace;
+  private final String service;
+  private final String project;
+  private final String user;
+  private final boolean upload;
+  private final boolean enabled;
+  private final StringBuilder timings;
+
+  private int state = ADVERTISE;
+  private long phaseStart;
+  private long phaseIn;
+  private long phaseOut;
+  private long lastRead;
+  private long lastReadIn;
+  private long lastReadOut;
+
+  private long bytesIn;
+  private long bytesOut;
+
+  private GitTrace.TransferPhase span;
+  private GitTrace.TransferPhase next;
+
+  private final byte[] pktHeader = new byte[PKT_HEADER];
+  private int pktHeaderLen;
+  private int payloadLeft;
+  private int payloadPos;
+  private int band;
+  private boolean rawPack;
+  private boolean lost;
+
+  private int headerLeft = -1;
+  private long header;
+  private long objects = -1;
+
+  public TransferPhases(final String service, final String project,
+      final String user) {
+    this(service, project, user, false);
+  }
+
+  /**
+   * @param record measure the phases even if no recording wants them, so
+   *        they can be read back from {@link #getPhaseTimings()}.
+   */
+  public TransferPhases(final String service, final String project,
+      final String user, final boolean record) {
+    this(GitTrace.get(), service, project, user, record);
+  }
+
+  TransferPhases(final GitTrace trace, final String service,
+      final String project, final String user, final boolean record) {
+    this.trace = trace;
+    this.service = service;
+    this.project = project;
+    this.user = user;
+    this.upload = UPLOAD_PACK.equals(service);
+    this.enabled = record || trace.isEnabled();
+    this.timings = record ? new StringBuilder() : null;
+    this.phaseStart = System.nanoTime();
+    if (enabled) {
+      this.span = trace.beginTransferPhase();
+    }
+  }
+
+  /**
+   * @return phases ended so far with their elapsed times, for example
+   *         {@code "advertise 2ms, negotiate 40ms"}; null if not recording.
+   */
+  public synchronized String getPhaseTimings() {
+    return timings != null ? timings.toString() : null;
+  }
+
+  public InputStream wrap(final InputStream in) {
+    if (!enabled) {
+      return in;
+    }
+    return new FilterInputStream(in) {
+      @Override
+      public int read() throws IOException {
+        final int b = super.read();
+        if (0 <= b) {
+          onRead(b);
+        }
+        return b;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len)
+          throws IOException {
+        final int n = super.read(b, off, len);
+        if (0 < n) {
+          onRead(b, off, n);
+        }
+        return n;
+      }
+    };
+  }
+
+  public OutputStream wrap(final OutputStream out) {
+    if (!enabled) {
+      return out;
+    }
+    return new FilterOutputStream(out) {
+      @Override
+      public void write(final int b) throws IOException {
+        out.write(b);
+        onWrite(b);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len)
+          throws IOException {
+        out.write(b, off, len);
+        onWrite(b, off, len);
+      }
+    };
+  }
+
+  /** Record the final phase; call once the transfer has ended. */
+  public synchronized void finish() {
+    if (!enabled || state < 0) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (state == DATA && !upload && phaseStart < lastRead) {
+      emitAtLastRead("receive");
+      emit("process", now, bytesIn, bytesOut);
+    } else {
+      emit(phaseName(), now, bytesIn, bytesOut);
+    }
+    state = -1;
+  }
+
+  synchronized void onRead(final byte[] b, final int off, final int len) {
+    startRead(len);
+    if (!upload) {
+      scan(b, off, len);
+    }
+    endRead();
+  }
+
+  synchronized void onRead(final int b) {
+    startRead(1);
+    if (!upload) {
+      scan((byte) b);
+    }
+    endRead();
+  }
+
+  private void startRead(final int len) {
+    if (state == ADVERTISE) {
+      emit("advertise", System.nanoTime(), bytesIn, bytesOut);
+      state = NEGOTIATE;
+    }
+    bytesIn += len;
+  }
+
+  private void endRead() {
+    lastRead = System.nanoTime();
+    lastReadIn = bytesIn;
+    lastReadOut = bytesOut;
+
+    if (upload ? state == NEGOTIATE : state == DATA) {
+      // This read may be the last of the phase; if so, the next phase
+      // starts here.
+      span.end();
+      if (next == null) {
+        next = trace.beginTransferPhase();
+      } else {
+        next.begin();
+      }
+    }
+  }
+
+  synchronized void onWrite(final byte[] b, final int off, final int len) {
+    bytesOut += len;
+    if (upload) {
+      scan(b, off, len);
+    }
+  }
+
+  synchronized void onWrite(final int b) {
+    bytesOut++;
+    if (upload) {
+      scan((byte) b);
+    }
+  }
+
+  /**
+   * Follow the pkt-line framing to the pack header, and read the object
+   * count that follows it.
+   */
+  private void scan(final byte[] b, final int off, final int len) {
+    final int end = off + len;
+    for (int i = off; i < end; i++) {
+      if (!scan(b[i])) {
+        return;
+      }
+    }
+  }
+
+  /** @return false once nothing further in the stream is of interest. */
+  private boolean scan(final byte c) {
+    if (lost || (state == DATA && headerLeft < 0)) {
+      return false;
+    }
+    if (rawPack) {
+      readHeader(c);
+    } else if (0 < payloadLeft) {
+      payload(c);
+    } else {
+      pktHeader[pktHeaderLen++] = c;
+      if (pktHeaderLen == PKT_HEADER) {
+        pktHeaderLen = 0;
+        startPacket();
+      }
+    }
+    return true;
+  }
+
+  private void startPacket() {
+    if (state == NEGOTIATE && Arrays.equals(pktHeader, PACK)) {
+      // The pack follows the last pkt-line without side-band framing.
+      rawPack = true;
+      startData();
+      return;
+    }
+
+    final int len = parseHex(pktHeader);
+    if (len < 0) {
+      // Not a protocol this class understands; stop looking.
+      lost = true;
+    } else if (PKT_HEADER < len) {
+      payloadLeft = len - PKT_HEADER;
+      payloadPos = 0;
+      band = -1;
+    }
+    // Shorter lengths are flush, delimiter and end packets, without payload.
+  }
+
+  private void payload(final byte c) {
+    if (payloadPos == 0) {
+      band = c & 0xff;
+    } else if (state == DATA) {
+      if (band == BAND_PACK) {
+        readHeader(c);
+      }
+    } else if (state == NEGOTIATE && band == BAND_PACK
+        && payloadPos <= PACK.length) {
+      if (c != PACK[payloadPos - 1]) {
+        band = -1;
+      } else if (payloadPos == PACK.length) {
+        startData();
+      }
+    }
+    payloadPos++;
+    payloadLeft--;
+  }
+
+  private static int parseHex(final byte[] b) {
+    int r = 0;
+    for (final byte c : b) {
+      final int d = Character.digit(c, 16);
+      if (d < 0) {
+        return -1;
+      }
+      r = (r << 4) | d;
+    }
+    return r;
+  }
+
+  private void readHeader(final byte c) {
+    if (headerLeft <= 0) {
+      return;
+    }
+    header = (header << 8) | (c & 0xff);
+    if (--headerLeft == 0) {
+      final long version = header >>> 32;
+      if (version == 2 || version == 3) {
+        objects = header & 0xffffffffL;
+      }
+      headerLeft = -1;
+    }
+  }
+
+  private void startData() {
+    if (upload) {
+      // Negotiation ended with the client's last message; the time since
+      // then went into counting and compressing objects.
+      emitAtLastRead("negotiate");
+      emit("prepare", System.nanoTime(), bytesIn, bytesOut);
+    } else {
+      emit("commands", System.nanoTime(), bytesIn, bytesOut);
+    }
+    state = DATA;
+    headerLeft = HEADER;
+  }
+
+  private String phaseName() {
+    switch (state) {
+      case ADVERTISE:
+        return "advertise";
+      case NEGOTIATE:
+        return upload ? "negotiate" : "commands";
+      default:
+        return upload ? "send" : "receive";
+    }
+  }
+
+  /**
+   * End the current phase at the last read; the span begun there takes
+   * over as the next phase.
+   */
+  private void emitAtLastRead(final String phase) {
+    final GitTrace.TransferPhase n = next;
+    next = null;
+    commit(phase, lastRead, lastReadIn, lastReadOut);
+    span = n != null ? n : trace.beginTransferPhase();
+  }
+
+  /** End the current phase now, and begin the next one. */
+  private void emit(final String phase, final long end, final long in,
+      final long out) {
+    span.end();
+    next = null;
+    commit(phase, end, in, out);
+    span = trace.beginTransferPhase();
+  }
+
+  private void commit(final String phase, final long end, final long in,
+      final long out) {
+    span.commit(service, project, user, phase, in - phaseIn, out - phaseOut,
+        state == DATA ? objects : -1);
+    if (timings != null) {
+      if (timings.length() > 0) {
+        timings.append(", ");
+      }
+      timings.append(phase).append(' ');
+      timings.append((end - phaseStart) / 1000000).append("ms");
+    }
+    phaseStart = end;
+    phaseIn = in;
+    phaseOut = out;
+  }
+}
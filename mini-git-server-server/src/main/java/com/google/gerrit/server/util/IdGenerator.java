@@ -28,12 +28,23 @@ public class IdGenerator {
     final char[] r = new char[8];
     for (int p = 7; 0 <= p; p--) {
       final int h = id & 0xf;
-      r[p] = h < 10 ? (char) ('0' + h) : (char) ('a' + (h - 10));
+      r[p] = hex(h);
       id >>= 4;
     }
     return new String(r);
   }
 
+  /** Append the same hex string as {@link #format(int)}, without copying. */
+  public static void format(final int id, final StringBuilder dst) {
+    for (int shift = 28; 0 <= shift; shift -= 4) {
+      dst.append(hex((id >>> shift) & 0xf));
+    }
+  }
+
+  private static char hex(final int h) {
+    return h < 10 ? (char) ('0' + h) : (char) ('a' + (h - 10));
+  }
+
   private final AtomicInteger gen;
 
   @Inject
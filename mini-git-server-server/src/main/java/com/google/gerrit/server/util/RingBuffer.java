@@ -0,0 +1,101 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded queue for many producers and a single consumer.
+ * <p>
+ * Producers never block and never take a lock: if the buffer is full the
+ * element is rejected and counted as dropped. Only one thread may call
+ * {@link #poll()}.
+ *
+ * @param <T> type of element held in the buffer.
+ */
+public class RingBuffer<T> {
+  private final AtomicReferenceArray<T> slots;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  /** @param capacity minimum capacity, rounded up to a power of two. */
+  public RingBuffer(final int capacity) {
+    int size = 1;
+    while (size < capacity) {
+      size <<= 1;
+    }
+    slots = new AtomicReferenceArray<T>(size);
+    mask = size - 1;
+  }
+
+  /** @return number of elements the buffer can hold. */
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Add an element, unless the buffer is full.
+   *
+   * @param e element to add; must not be null.
+   * @return true if the element was added; false if it was dropped.
+   */
+  public boolean offer(final T e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+    for (;;) {
+      final long t = tail.get();
+      if (mask < t - head.get()) {
+        dropped.incrementAndGet();
+        return false;
+      }
+      if (tail.compareAndSet(t, t + 1)) {
+        slots.lazySet((int) (t & mask), e);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Remove the oldest element. Must only be called by the consumer thread.
+   *
+   * @return the oldest element; null if the buffer is empty, or if the next
+   *         element has been claimed but not yet published by its producer.
+   */
+  public T poll() {
+    final long h = head.get();
+    final int i = (int) (h & mask);
+    final T e = slots.get(i);
+    if (e == null) {
+      return null;
+    }
+    slots.lazySet(i, null);
+    head.lazySet(h + 1);
+    return e;
+  }
+
+  /** @return true if no elements are waiting. */
+  public boolean isEmpty() {
+    return head.get() == tail.get();
+  }
+
+  /** @return number of elements rejected because the buffer was full. */
+  public long getDropped() {
+    return dropped.get();
+  }
+}
@@ -0,0 +1,62 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.util;
+
+import org.slf4j.MDC;
+
+/**
+ * Correlates the log lines written while serving one request.
+ * <p>
+ * The id is an {@link IdGenerator} value, kept in the slf4j MDC under
+ * {@link #MDC_KEY} for as long as the request runs on a thread, so a layout
+ * pattern containing {@code %X{trace}} adds it to every line. The same id is
+ * written to {@code sshd_log} and returned to the client, letting a failure
+ * reported by a user be matched with the server's logs.
+ */
+public final class TraceId {
+  /** Key of the id in the slf4j MDC. */
+  public static final String MDC_KEY = "trace";
+
+  /** HTTP response header carrying the id. */
+  public static final String HEADER = "X-Gerrit-Trace";
+
+  /**
+   * Make {@code id} the current thread's trace id.
+   *
+   * @return the previous id, to be passed to {@link #restore(String)}.
+   */
+  public static String set(final String id) {
+    final String old = MDC.get(MDC_KEY);
+    MDC.put(MDC_KEY, id);
+    return old;
+  }
+
+  /** Put back the id returned by {@link #set(String)}. */
+  public static void restore(final String old) {
+    if (old != null) {
+      MDC.put(MDC_KEY, old);
+    } else {
+      MDC.remove(MDC_KEY);
+    }
+  }
+
+  /** @return the current thread's trace id; null outside of a request. */
+  public static String current() {
+    return MDC.get(MDC_KEY);
+  }
+
+  private TraceId() {
+  }
+}
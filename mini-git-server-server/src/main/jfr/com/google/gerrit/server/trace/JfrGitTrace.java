@@ -0,0 +1,96 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.trace;
+
+/**
+ * Emits {@link GitTrace} events to the Java Flight Recorder.
+ * <p>
+ * Only compiled by the {@code jfr} profile; loaded by {@link GitTrace#get()}.
+ */
+class JfrGitTrace extends GitTrace {
+  private static final TransferPhaseEvent PHASE_PROBE =
+      new TransferPhaseEvent();
+  private static final RepositoryOpenEvent OPEN_PROBE =
+      new RepositoryOpenEvent();
+
+  @Override
+  public boolean isEnabled() {
+    return PHASE_PROBE.isEnabled();
+  }
+
+  @Override
+  public TransferPhase beginTransferPhase() {
+    if (!PHASE_PROBE.isEnabled()) {
+      return NOOP;
+    }
+    final TransferPhaseEvent e = new TransferPhaseEvent();
+    e.begin();
+    return new TransferPhase() {
+      @Override
+      public void begin() {
+        e.begin();
+      }
+
+      @Override
+      public void end() {
+        e.end();
+      }
+
+      @Override
+      public void commit(String service, String project, String user,
+          String phase, long bytesIn, long bytesOut, long objects) {
+        if (e.shouldCommit()) {
+          e.service = service;
+          e.project = project;
+          e.user = user;
+          e.phase = phase;
+          e.bytesIn = bytesIn;
+          e.bytesOut = bytesOut;
+          e.objects = objects;
+          e.commit();
+        }
+      }
+    };
+  }
+
+  @Override
+  public RepositoryOpen beginRepositoryOpen() {
+    if (!OPEN_PROBE.isEnabled()) {
+      return NOOP;
+    }
+    final RepositoryOpenEvent e = new RepositoryOpenEvent();
+    e.begin();
+    return new RepositoryOpen() {
+      @Override
+      public void begin() {
+        e.begin();
+      }
+
+      @Override
+      public void end() {
+        e.end();
+      }
+
+      @Override
+      public void commit(String project, boolean found) {
+        if (e.shouldCommit()) {
+          e.project = project;
+          e.found = found;
+          e.commit();
+        }
+      }
+    };
+  }
+}
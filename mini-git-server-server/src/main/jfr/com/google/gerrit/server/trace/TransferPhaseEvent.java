@@ -0,0 +1,61 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of a fetch or push.
+ * <p>
+ * Phases are timed with {@link #begin()} and {@link #end()} as
+ * {@link TransferPhases} sees them start and end, so the event's start time
+ * and duration are those of the phase.
+ */
+@Name("gerrit.GitTransferPhase")
+@Label("Git Transfer Phase")
+@Category({"Gerrit", "Git"})
+@Description("One phase of an upload-pack or receive-pack")
+@StackTrace(false)
+class TransferPhaseEvent extends Event {
+  @Label("Service")
+  String service;
+
+  @Label("Project")
+  String project;
+
+  @Label("User")
+  String user;
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Bytes In")
+  @DataAmount
+  long bytesIn;
+
+  @Label("Bytes Out")
+  @DataAmount
+  long bytesOut;
+
+  @Label("Objects")
+  @Description("Objects in the pack; -1 if unknown or no pack")
+  long objects;
+}
@@ -0,0 +1,165 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.lifecycle;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+public class LifecycleManagerTest extends TestCase {
+  private List<String> events;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    events = Collections.synchronizedList(new ArrayList<String>());
+  }
+
+  class Recorder implements LifecycleListener {
+    final String name;
+
+    Recorder(final String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void start() {
+      events.add("start " + name);
+    }
+
+    @Override
+    public void stop() {
+      events.add("stop " + name);
+    }
+  }
+
+  class Base extends Recorder {
+    Base() {
+      super("base");
+    }
+  }
+
+  @DependsOn(Base.class)
+  class Middle extends Recorder {
+    Middle() {
+      super("middle");
+    }
+  }
+
+  @DependsOn({Middle.class, Base.class})
+  class Top extends Recorder {
+    Top() {
+      super("top");
+    }
+  }
+
+  @DependsOn(Loop.class)
+  class Loop extends Recorder {
+    Loop() {
+      super("loop");
+    }
+  }
+
+  public void testDependenciesStartFirstAndStopLast() {
+    final LifecycleManager m = new LifecycleManager(4);
+    m.add(new Top());
+    m.add(new Middle());
+    m.add(new Base());
+
+    m.start();
+    assertEquals(Arrays.asList("start base", "start middle", "start top"),
+        events);
+    assertEquals(3, m.getStartTimes().size());
+
+    events.clear();
+    m.stop();
+    assertEquals(Arrays.asList("stop top", "stop middle", "stop base"),
+        events);
+  }
+
+  public void testSingleThreadKeepsRegistrationOrder() {
+    final LifecycleManager m = new LifecycleManager(1);
+    m.add(new Recorder("a"));
+    m.add(new Recorder("b"));
+    m.add(new Recorder("c"));
+
+    m.start();
+    m.stop();
+    assertEquals(Arrays.asList("start a", "start b", "start c", "stop c",
+        "stop b", "stop a"), events);
+  }
+
+  public void testIndependentListenersStartConcurrently() {
+    final CyclicBarrier both = new CyclicBarrier(2);
+    final LifecycleManager m = new LifecycleManager(2);
+    for (final String n : new String[] {"x", "y"}) {
+      m.add(new Recorder(n) {
+        @Override
+        public void start() {
+          try {
+            // Times out unless the other listener is starting too.
+            both.await(10, TimeUnit.SECONDS);
+          } catch (Exception e) {
+            throw new IllegalStateException(name + " started alone", e);
+          }
+          super.start();
+        }
+      });
+    }
+
+    m.start();
+    assertEquals(2, events.size());
+    m.stop();
+  }
+
+  public void testFailureStopsStartup() {
+    final LifecycleManager m = new LifecycleManager(4);
+    m.add(new Middle());
+    m.add(new Base() {
+      @Override
+      public void start() {
+        throw new IllegalStateException("broken");
+      }
+    });
+
+    try {
+      m.start();
+      fail("start did not fail");
+    } catch (IllegalStateException e) {
+      assertEquals("broken", e.getMessage());
+    }
+    assertTrue(events.isEmpty());
+
+    m.stop();
+    assertTrue(events.isEmpty());
+  }
+
+  public void testCircularDependency() {
+    final LifecycleManager m = new LifecycleManager(2);
+    m.add(new Loop());
+    m.add(new Loop());
+    try {
+      m.start();
+      fail("started a dependency loop");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("Circular dependency"));
+    }
+  }
+}
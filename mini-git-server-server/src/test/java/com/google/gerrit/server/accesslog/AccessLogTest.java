@@ -0,0 +1,241 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.accesslog;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AccessLogTest extends TestCase {
+  private static final long HOUR = AccessLogFiles.PARTITION;
+  private static final long T0 = 1792000000000L - (1792000000000L % HOUR);
+
+  private File dir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    dir = File.createTempFile("accesslog", "");
+    assertTrue(dir.delete());
+    assertTrue(dir.mkdir());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    final File[] files = dir.listFiles();
+    if (files != null) {
+      for (final File f : files) {
+        f.delete();
+      }
+    }
+    dir.delete();
+    super.tearDown();
+  }
+
+  public void testPartitionNames() {
+    final File f = AccessLogFiles.data(dir, AccessLogFiles.partitionOf(T0 + 5));
+    assertEquals(T0, AccessLogFiles.parse(f));
+    assertTrue(f.getName().endsWith(".bin"));
+    assertEquals(-1, AccessLogFiles.parse(AccessLogFiles.index(f)));
+    assertEquals(-1, AccessLogFiles.parse(new File(dir, "junk.bin")));
+  }
+
+  public void testRoundTrip() throws IOException {
+    final AccessLogWriter w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 1, "alice", "git-upload-pack 'a.git'", "a", 10, 500));
+    w.append(rec(T0 + 2, null, "gerrit version", null, 0, 3));
+    w.close();
+
+    final List<AccessLogRecord> r = scan(T0, T0 + HOUR);
+    assertEquals(2, r.size());
+    assertEquals(T0 + 1, r.get(0).getTime());
+    assertEquals("alice", r.get(0).getUser());
+    assertEquals("git-upload-pack 'a.git'", r.get(0).getCommand());
+    assertEquals("a", r.get(0).getProject());
+    assertEquals(10, r.get(0).getExecTime());
+    assertEquals(500, r.get(0).getBytesOut());
+    assertEquals("0", r.get(0).getStatus());
+    assertNull(r.get(1).getUser());
+    assertNull(r.get(1).getProject());
+  }
+
+  public void testRangeAcrossPartitions() throws IOException {
+    final AccessLogWriter w = new AccessLogWriter(dir);
+    for (int i = 0; i < 1000; i++) {
+      w.append(rec(T0 + i * 10000L, "u", "c", "p", i, i));
+    }
+    w.close();
+
+    assertEquals(6, dir.list().length);
+    assertEquals(1000, scan(T0, T0 + 3 * HOUR).size());
+
+    final long from = T0 + 250 * 10000L;
+    final long to = T0 + 500 * 10000L;
+    final List<AccessLogRecord> r = scan(from, to);
+    assertEquals(250, r.size());
+    assertEquals(from, r.get(0).getTime());
+    assertEquals(to - 10000L, r.get(r.size() - 1).getTime());
+  }
+
+  public void testAppendAfterReopen() throws IOException {
+    AccessLogWriter w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 1, "u", "c", "p", 0, 0));
+    w.close();
+
+    w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 2, "u", "c", "p", 0, 0));
+    w.close();
+
+    assertEquals(2, scan(T0, T0 + HOUR).size());
+    assertEquals(1, scan(T0 + 2, T0 + HOUR).size());
+  }
+
+  public void testTruncatedTail() throws IOException {
+    final AccessLogWriter w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 1, "u", "c", "p", 0, 0));
+    w.append(rec(T0 + 2, "u", "c", "p", 0, 0));
+    w.close();
+
+    final File f = AccessLogFiles.data(dir, T0);
+    final RandomAccessFile raf = new RandomAccessFile(f, "rw");
+    try {
+      raf.setLength(raf.length() - 3);
+    } finally {
+      raf.close();
+    }
+    assertEquals(1, scan(T0, T0 + HOUR).size());
+  }
+
+  public void testIndexAheadOfData() throws IOException {
+    final AccessLogWriter w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 1, "u", "c", "p", 0, 0));
+    w.close();
+
+    // A crash flushed the index, but not the record it points to.
+    final File f = AccessLogFiles.index(AccessLogFiles.data(dir, T0));
+    final RandomAccessFile raf = new RandomAccessFile(f, "rw");
+    try {
+      raf.seek(raf.length());
+      raf.writeLong(T0 + 2);
+      raf.writeLong(1 << 20);
+    } finally {
+      raf.close();
+    }
+    assertEquals(0, scan(T0 + 3, T0 + HOUR).size());
+  }
+
+  public void testAppendAfterTornRecord() throws IOException {
+    AccessLogWriter w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 1, "u", "c", "p", 0, 0));
+    w.append(rec(T0 + 2, "u", "c", "p", 0, 0));
+    w.close();
+
+    final File data = AccessLogFiles.data(dir, T0);
+    final File index = AccessLogFiles.index(data);
+    final long dataLength = data.length();
+    final long indexLength = index.length();
+
+    // A crash left half a record, and an index entry pointing at it.
+    RandomAccessFile raf = new RandomAccessFile(data, "rw");
+    try {
+      raf.seek(dataLength);
+      raf.write(new byte[] {40, 1, 2, 3});
+    } finally {
+      raf.close();
+    }
+    raf = new RandomAccessFile(index, "rw");
+    try {
+      raf.seek(indexLength);
+      raf.writeLong(T0 + 3);
+      raf.writeLong(dataLength);
+      raf.write(new byte[] {0, 0, 0});
+    } finally {
+      raf.close();
+    }
+
+    w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 4, "u", "c", "p", 0, 0));
+    w.close();
+
+    final List<AccessLogRecord> r = scan(T0, T0 + HOUR);
+    assertEquals(3, r.size());
+    assertEquals(T0 + 4, r.get(2).getTime());
+    assertEquals(1, scan(T0 + 3, T0 + HOUR).size());
+    assertEquals(2 * indexLength, index.length());
+  }
+
+  public void testQueryGroupBy() throws IOException {
+    final AccessLogWriter w = new AccessLogWriter(dir);
+    w.append(rec(T0 + 1, "alice", "git-upload-pack 'a.git'", "a", 10, 100));
+    w.append(rec(T0 + 2, "bob", "git-upload-pack 'b.git'", "b", 20, 900));
+    w.append(rec(T0 + 3, "bob", "git-receive-pack 'b.git'", "b", 5, 0));
+    w.close();
+
+    final AccessLogQuery q = new AccessLogQuery();
+    q.parse(new String[] {"--dir", dir.getPath(), "--utc", //
+        "--from", "1970-01-01 00:00", "--group-by", "project", //
+        "--sort", "bytes", "--top", "1"});
+    final List<AccessLogQuery.Summary> groups =
+        new ArrayList<AccessLogQuery.Summary>();
+    final AccessLogQuery.Summary b = new AccessLogQuery.Summary("b");
+    final AccessLogQuery.Summary a = new AccessLogQuery.Summary("a");
+    for (final AccessLogRecord r : scan(T0, T0 + HOUR)) {
+      if (q.matches(r)) {
+        ("a".equals(r.getProject()) ? a : b).add(r);
+      }
+    }
+    groups.add(a);
+    groups.add(b);
+    q.sort(groups);
+    assertEquals(1, groups.size());
+    assertEquals("b", groups.get(0).key);
+    assertEquals(2, groups.get(0).count);
+    assertEquals(25, groups.get(0).execTotal);
+    assertEquals(20, groups.get(0).execMax);
+
+    q.parse(new String[] {"--dir", dir.getPath(), "--utc", //
+        "--from", "1970-01-01 00:00", "--command", "git-receive-pack"});
+    int n = 0;
+    for (final AccessLogRecord r : scan(T0, T0 + HOUR)) {
+      if (q.matches(r)) {
+        n++;
+      }
+    }
+    assertEquals(1, n);
+  }
+
+  private List<AccessLogRecord> scan(final long from, final long to)
+      throws IOException {
+    final List<AccessLogRecord> r = new ArrayList<AccessLogRecord>();
+    new AccessLogReader(dir).scan(from, to, new AccessLogReader.Visitor() {
+      @Override
+      public void visit(final AccessLogRecord e) {
+        r.add(e);
+      }
+    });
+    return r;
+  }
+
+  private static AccessLogRecord rec(final long time, final String user,
+      final String cmd, final String project, final long exec,
+      final long bytesOut) {
+    return new AccessLogRecord(time, 1, user, cmd, project, 0, exec, 0,
+        bytesOut, "0");
+  }
+}
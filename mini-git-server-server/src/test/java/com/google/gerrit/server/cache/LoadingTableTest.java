@@ -0,0 +1,194 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+public class LoadingTableTest extends TestCase {
+  private LoadingTable<String, String> table;
+  private Map<String, String> cache;
+  private LoadingTable.Target<String, String> target;
+  private List<Set<String>> batches;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    table = new LoadingTable<String, String>();
+    cache = new ConcurrentHashMap<String, String>();
+    target = new LoadingTable.Target<String, String>() {
+      @Override
+      public String getIfPresent(final String key) {
+        return cache.get(key);
+      }
+
+      @Override
+      public void put(final String key, final String value) {
+        cache.put(key, value);
+      }
+    };
+    batches = new ArrayList<Set<String>>();
+  }
+
+  private LoadingTable.BulkLoader<String, String> upperCase() {
+    return new LoadingTable.BulkLoader<String, String>() {
+      @Override
+      public Map<String, String> loadAll(final Set<String> keys) {
+        synchronized (batches) {
+          batches.add(new TreeSet<String>(keys));
+        }
+        final Map<String, String> r = new HashMap<String, String>();
+        for (final String k : keys) {
+          if (!k.startsWith("none")) {
+            r.put(k, k.toUpperCase());
+          }
+        }
+        return r;
+      }
+    };
+  }
+
+  public void testMissingKeysLoadedInOneBatch() {
+    cache.put("b", "cached");
+    final Map<String, String> r = table.getAll(target,
+        Arrays.asList("c", "b", "a", "c", "none"), upperCase(), null);
+
+    assertEquals(Arrays.asList("c", "b", "a"),
+        new ArrayList<String>(r.keySet()));
+    assertEquals("C", r.get("c"));
+    assertEquals("cached", r.get("b"));
+    assertEquals(1, batches.size());
+    assertEquals(new TreeSet<String>(Arrays.asList("a", "c", "none")),
+        batches.get(0));
+    assertEquals("A", cache.get("a"));
+    assertFalse(cache.containsKey("none"));
+
+    table.getAll(target, Arrays.asList("a", "c"), upperCase(), null);
+    assertEquals(1, batches.size());
+  }
+
+  public void testFailedBatchReportsEachKey() {
+    final Map<String, Throwable> errors = new HashMap<String, Throwable>();
+    final Map<String, String> r = table.getAll(target, Arrays.asList("a", "b"),
+        new LoadingTable.BulkLoader<String, String>() {
+          @Override
+          public Map<String, String> loadAll(final Set<String> keys)
+              throws Exception {
+            throw new Exception("down");
+          }
+        }, errors);
+
+    assertTrue(r.isEmpty());
+    assertEquals("down", errors.get("a").getMessage());
+    assertEquals("down", errors.get("b").getMessage());
+    assertTrue(cache.isEmpty());
+
+    table.getAll(target, Arrays.asList("a"), upperCase(), null);
+    assertEquals("A", cache.get("a"));
+  }
+
+  public void testConcurrentCallersShareLoads() throws Exception {
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Map<String, String>[] first = newResults();
+    final Thread t = new Thread() {
+      @Override
+      public void run() {
+        first[0] = table.getAll(target, Arrays.asList("a", "b"),
+            new LoadingTable.BulkLoader<String, String>() {
+              @Override
+              public Map<String, String> loadAll(final Set<String> keys)
+                  throws Exception {
+                loading.countDown();
+                release.await();
+                return upperCase().loadAll(keys);
+              }
+            }, null);
+      }
+    };
+    t.start();
+    loading.await();
+
+    final Map<String, String>[] second = newResults();
+    final Thread u = new Thread() {
+      @Override
+      public void run() {
+        second[0] = table.getAll(target, Arrays.asList("b", "c"), upperCase(),
+            null);
+      }
+    };
+    u.start();
+    // u loads "c" itself, then waits for t's "b".
+    while (!cache.containsKey("c")) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    t.join();
+    u.join();
+
+    assertEquals("A", first[0].get("a"));
+    assertEquals("B", first[0].get("b"));
+    assertEquals("B", second[0].get("b"));
+    assertEquals("C", second[0].get("c"));
+    assertEquals(2, batches.size());
+    final Set<String> loaded = new TreeSet<String>();
+    for (final Set<String> b : batches) {
+      loaded.addAll(b);
+    }
+    assertEquals(new TreeSet<String>(Arrays.asList("a", "b", "c")), loaded);
+  }
+
+  public void testTargetFailureReleasesClaimedKeys() throws Exception {
+    final LoadingTable.Target<String, String> broken =
+        new LoadingTable.Target<String, String>() {
+          @Override
+          public String getIfPresent(final String key) {
+            if ("bad".equals(key)) {
+              throw new IllegalStateException("shut down");
+            }
+            return null;
+          }
+
+          @Override
+          public void put(final String key, final String value) {
+          }
+        };
+    try {
+      table.getAll(broken, Arrays.asList("a", "bad"), upperCase(), null);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("shut down", e.getMessage());
+    }
+    assertTrue(batches.isEmpty());
+
+    // "a" is not left claimed by the failed call.
+    assertEquals("A", table.getAll(target, Arrays.asList("a"), upperCase(),
+        null).get("a"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, String>[] newResults() {
+    return new Map[1];
+  }
+}
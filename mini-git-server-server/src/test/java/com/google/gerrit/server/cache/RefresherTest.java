@@ -0,0 +1,145 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.MetricRegistry;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class RefresherTest extends TestCase {
+  private final List<Runnable> pending = new ArrayList<Runnable>();
+  private final Executor executor = new Executor() {
+    @Override
+    public void execute(final Runnable task) {
+      pending.add(task);
+    }
+  };
+
+  private MetricRegistry metrics;
+  private Counter staleHits;
+  private Counter failures;
+  private int version;
+  private boolean fail;
+
+  private class Creator extends EntryCreator<String, String> {
+    @Override
+    public String createEntry(final String key) throws Exception {
+      if (fail) {
+        throw new Exception("cannot load " + key);
+      }
+      return key + (++version);
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    metrics = new MetricRegistry();
+    staleHits = metrics.counter("stale_total", "Stale hits");
+    failures = metrics.counter("failures_total", "Failures");
+  }
+
+  private Cache<String, String> newCache(final long refreshMillis) {
+    final Creator creator = new Creator();
+    final Refresher<String, String> refresher = new Refresher<String, String>(
+        "test", creator, refreshMillis, TimeUnit.MILLISECONDS, executor,
+        staleHits, failures);
+    return new TinyLfuCache<String, String>("test",
+        new TinyLfuStore<String, String>(10, 0), creator,
+        metrics.counter("requests_total", "Requests"),
+        metrics.counter("misses_total", "Misses"), refresher);
+  }
+
+  private void runPending() {
+    final List<Runnable> tasks = new ArrayList<Runnable>(pending);
+    pending.clear();
+    for (final Runnable r : tasks) {
+      r.run();
+    }
+  }
+
+  public void testFreshEntryIsNotReloaded() {
+    final Cache<String, String> c = newCache(60 * 1000);
+    assertEquals("a1", c.get("a"));
+    assertEquals("a1", c.get("a"));
+    assertTrue(pending.isEmpty());
+    assertEquals(0, staleHits.get());
+  }
+
+  public void testStaleEntryServedWhileOneReloadRuns() throws Exception {
+    final Cache<String, String> c = newCache(1);
+    assertEquals("a1", c.get("a"));
+    Thread.sleep(5);
+
+    assertEquals("a1", c.get("a"));
+    assertEquals("a1", c.get("a"));
+    assertEquals(2, staleHits.get());
+    assertEquals(1, pending.size());
+
+    runPending();
+    assertEquals("a2", c.get("a"));
+  }
+
+  public void testRemoveDropsPendingReload() throws Exception {
+    final Cache<String, String> c = newCache(1);
+    c.put("a", "old");
+    Thread.sleep(5);
+    assertEquals("old", c.get("a"));
+    assertEquals(1, pending.size());
+
+    c.remove("a");
+    assertEquals("a1", c.get("a"));
+    runPending();
+    assertEquals(0, failures.get());
+    assertEquals("a1", c.get("a"));
+  }
+
+  public void testRemoveAllDropsPendingReload() throws Exception {
+    final Cache<String, String> c = newCache(1);
+    c.put("a", "old");
+    c.put("b", "old");
+    Thread.sleep(5);
+    assertEquals("old", c.get("a"));
+    assertEquals("old", c.get("b"));
+    assertEquals(2, pending.size());
+
+    c.removeAll();
+    runPending();
+    assertEquals(0, failures.get());
+    assertEquals("a3", c.get("a"));
+  }
+
+  public void testFailedReloadKeepsOldValue() throws Exception {
+    final Cache<String, String> c = newCache(1);
+    assertEquals("a1", c.get("a"));
+    Thread.sleep(5);
+
+    fail = true;
+    assertEquals("a1", c.get("a"));
+    runPending();
+    assertEquals(1, failures.get());
+    assertEquals("a1", c.get("a"));
+
+    fail = false;
+    runPending();
+    assertEquals("a2", c.get("a"));
+  }
+}
@@ -0,0 +1,217 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TinyLfuStoreTest extends TestCase {
+  private static Callable<String> value(final String v) {
+    return new Callable<String>() {
+      @Override
+      public String call() {
+        return v;
+      }
+    };
+  }
+
+  public void testPutGetRemove() {
+    final TinyLfuStore<String, String> s =
+        new TinyLfuStore<String, String>(10, 0);
+    assertNull(s.getIfPresent("a"));
+    s.put("a", "1");
+    s.put("a", "2");
+    assertEquals("2", s.getIfPresent("a"));
+    assertEquals(1, s.size());
+    s.remove("a");
+    assertNull(s.getIfPresent("a"));
+
+    s.put("b", "1");
+    s.clear();
+    assertEquals(0, s.size());
+    s.put("b", "2");
+    assertEquals("2", s.getIfPresent("b"));
+  }
+
+  public void testStaysWithinMaximum() {
+    final TinyLfuStore<Integer, Integer> s =
+        new TinyLfuStore<Integer, Integer>(100, 0);
+    for (int i = 0; i < 10000; i++) {
+      s.put(i, i);
+    }
+    assertEquals(100, s.size());
+    assertEquals(9900, s.getEvictionCount());
+
+    s.setMaximumSize(10);
+    assertEquals(10, s.size());
+  }
+
+  public void testWeightedLimit() {
+    final TinyLfuStore<Integer, String> s =
+        new TinyLfuStore<Integer, String>(1000, 0);
+    s.setWeigher(new Weigher<Integer, String>() {
+      @Override
+      public int weigh(final Integer key, final String value) {
+        return value.length();
+      }
+    });
+    assertTrue(s.isWeighted());
+
+    final StringBuilder big = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      big.append('x');
+    }
+    for (int i = 0; i < 100; i++) {
+      s.put(i, big.toString());
+    }
+    assertTrue(s.getWeightedSize() <= 1000);
+    assertEquals(s.size() * 100, s.getWeightedSize());
+
+    s.put(1000, "");
+    s.put(1001, "a");
+    assertTrue(s.getWeightedSize() <= 1000);
+
+    s.setMaximumSize(250);
+    assertTrue(s.getWeightedSize() <= 250);
+  }
+
+  public void testUnweightedSizeCountsEntries() {
+    final TinyLfuStore<Integer, Integer> s =
+        new TinyLfuStore<Integer, Integer>(10, 0);
+    assertFalse(s.isWeighted());
+    s.put(1, 1);
+    s.put(2, 2);
+    assertEquals(2, s.getWeightedSize());
+  }
+
+  public void testFrequentKeysSurviveScan() {
+    final TinyLfuStore<Integer, Integer> s =
+        new TinyLfuStore<Integer, Integer>(100, 0);
+    for (int i = 0; i < 50; i++) {
+      s.put(i, i);
+    }
+    for (int n = 0; n < 20; n++) {
+      for (int i = 0; i < 50; i++) {
+        s.getIfPresent(i);
+      }
+    }
+    for (int i = 1000; i < 11000; i++) {
+      s.put(i, i);
+    }
+    int hot = 0;
+    for (int i = 0; i < 50; i++) {
+      if (s.getIfPresent(i) != null) {
+        hot++;
+      }
+    }
+    assertTrue("only " + hot + " hot keys survived", 45 <= hot);
+  }
+
+  public void testExpiry() throws Exception {
+    final TinyLfuStore<String, String> s =
+        new TinyLfuStore<String, String>(10, 0);
+    s.put("a", "1");
+    s.setTimeToLive(1, TimeUnit.MILLISECONDS);
+    Thread.sleep(5);
+    assertNull(s.getIfPresent("a"));
+    assertEquals(0, s.size());
+    assertEquals(1, s.getTimeToLive(TimeUnit.MILLISECONDS));
+  }
+
+  public void testLoadStoresResult() throws Exception {
+    final TinyLfuStore<String, String> s =
+        new TinyLfuStore<String, String>(10, 0);
+    assertEquals("1", s.get("a", value("1")));
+    assertEquals("1", s.get("a", value("2")));
+    assertNull(s.get("b", value(null)));
+    assertNull(s.getIfPresent("b"));
+  }
+
+  public void testFailedLoadIsNotStored() throws Exception {
+    final TinyLfuStore<String, String> s =
+        new TinyLfuStore<String, String>(10, 0);
+    try {
+      s.get("a", new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          throw new Exception("boom");
+        }
+      });
+      fail("expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertEquals("boom", e.getCause().getMessage());
+    }
+    assertEquals("2", s.get("a", value("2")));
+  }
+
+  public void testConcurrentLoadsOfOneKeyShareResult() throws Exception {
+    final TinyLfuStore<String, String> s =
+        new TinyLfuStore<String, String>(10, 0);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<String> slow = new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        loads.incrementAndGet();
+        started.countDown();
+        release.await();
+        return "slow";
+      }
+    };
+
+    final String[] other = new String[1];
+    final Thread t = new Thread() {
+      @Override
+      public void run() {
+        try {
+          other[0] = s.get("a", slow);
+        } catch (ExecutionException e) {
+          other[0] = e.toString();
+        }
+      }
+    };
+    t.start();
+    started.await();
+
+    // A different key is not held up by the load in progress.
+    assertEquals("fast", s.get("b", value("fast")));
+
+    final String[] second = new String[1];
+    final Thread u = new Thread() {
+      @Override
+      public void run() {
+        try {
+          second[0] = s.get("a", slow);
+        } catch (ExecutionException e) {
+          second[0] = e.toString();
+        }
+      }
+    };
+    u.start();
+    release.countDown();
+    t.join();
+    u.join();
+
+    assertEquals("slow", other[0]);
+    assertEquals("slow", second[0]);
+    assertEquals(1, loads.get());
+  }
+}
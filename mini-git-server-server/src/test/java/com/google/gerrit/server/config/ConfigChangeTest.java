@@ -0,0 +1,85 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.config;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jgit.lib.Config;
+
+import java.util.Arrays;
+import java.util.Set;
+
+public class ConfigChangeTest extends TestCase {
+  private static Config parse(final String text) throws Exception {
+    final Config cfg = new Config();
+    cfg.fromText(text);
+    return cfg;
+  }
+
+  public void testKeys() throws Exception {
+    final Config cfg = parse("[gerrit]\n  basePath = git\n" //
+        + "# a comment\n" //
+        + "[cache \"web.sessions\"]\n  maxAge = 12h\n" //
+        + "[sshd]\n  listenAddress = *:29418\n  listenAddress = *:29419\n");
+    assertEquals(Arrays.asList("cache.web.sessions.maxage", "gerrit.basepath",
+        "sshd.listenaddress"), Arrays.asList(ConfigChange.keys(cfg).toArray()));
+  }
+
+  public void testDiff() throws Exception {
+    final Config a = parse("[transfer]\n  timeout = 10s\n" //
+        + "[sshd]\n  threads = 4\n  listenAddress = *:1\n");
+    final Config b = parse("[transfer]\n  timeout = 20s\n" //
+        + "[sshd]\n  listenAddress = *:1\n  listenAddress = *:2\n" //
+        + "[cache \"projects\"]\n  memoryLimit = 10\n");
+
+    final ConfigChange c = new ConfigChange(a, b);
+    assertFalse(c.isEmpty());
+    assertEquals(Arrays.asList("cache.projects.memorylimit",
+        "sshd.listenaddress", "sshd.threads", "transfer.timeout"),
+        Arrays.asList(c.getChangedKeys().toArray()));
+    assertTrue(c.isChanged("transfer", null, "timeout"));
+    assertTrue(c.isChanged("cache", "projects", "memoryLimit"));
+    assertFalse(c.isChanged("gerrit", null, "basePath"));
+    assertEquals(Arrays.asList("sshd.listenaddress", "sshd.threads"),
+        c.getChangedKeys("sshd"));
+
+    assertTrue(new ConfigChange(a, parse(a.toText())).isEmpty());
+  }
+
+  public void testKeyParts() {
+    final String k = ConfigChange.key("Cache", "web.sessions", "maxAge");
+    assertEquals("cache.web.sessions.maxage", k);
+    assertEquals("web.sessions", ConfigChange.subsection(k));
+    assertEquals("maxage", ConfigChange.name(k));
+    assertNull(ConfigChange.subsection("sshd.threads"));
+    assertEquals("threads", ConfigChange.name("sshd.threads"));
+  }
+
+  public void testBookkeeping() throws Exception {
+    final ConfigChange c = new ConfigChange(
+        parse("[a]\n  x = 1\n  y = 1\n  z = 1\n"),
+        parse("[a]\n  x = 2\n  y = 2\n  z = 2\n"));
+    c.applied("a.x");
+    c.rejected("a.y", "needs a restart");
+    c.rejected("a.x", "ignored, already applied");
+
+    assertEquals(Arrays.asList("a.x"), Arrays.asList(c.getApplied().toArray()));
+    assertEquals("needs a restart", c.getRejected().get("a.y"));
+    assertEquals(1, c.getRejected().size());
+
+    final Set<String> unhandled = c.getUnhandled();
+    assertEquals(Arrays.asList("a.z"), Arrays.asList(unhandled.toArray()));
+  }
+}
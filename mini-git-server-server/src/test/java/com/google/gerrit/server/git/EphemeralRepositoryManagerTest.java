@@ -0,0 +1,217 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.metrics.MetricRegistry;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+public class EphemeralRepositoryManagerTest extends TestCase {
+  private File site;
+  private EphemeralRepositoryManager manager;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    site = File.createTempFile("ephemeral", ".site");
+    assertTrue(site.delete());
+    assertTrue(new File(site, "git").mkdirs());
+
+    final Config cfg = new Config();
+    cfg.setString("gerrit", null, "basePath", "git");
+    cfg.setString("ephemeral", null, "directory", "scratch");
+    assertTrue(new File(site, "scratch").mkdir());
+    manager = new EphemeralRepositoryManager(new SitePaths(site), cfg,
+        new MetricRegistry());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    manager.clear();
+    deleteQuietly(site);
+    super.tearDown();
+  }
+
+  public void testCreateThenOpen() throws IOException {
+    final Repository created = manager.createRepository("a/project");
+    try {
+      assertTrue(new File(created.getDirectory(), "objects").isDirectory());
+      assertEquals(manager.getRoot(), created.getDirectory().getParentFile()
+          .getParentFile());
+    } finally {
+      created.close();
+    }
+
+    final Repository opened = manager.openRepository("a/project.git");
+    try {
+      assertEquals(created.getDirectory(), opened.getDirectory());
+    } finally {
+      opened.close();
+    }
+  }
+
+  public void testOpenMissing() {
+    try {
+      manager.openRepository("missing");
+      fail("opened a repository never created");
+    } catch (RepositoryNotFoundException e) {
+      // expected
+    }
+  }
+
+  public void testUnreasonableName() {
+    try {
+      manager.createRepository("../escape");
+      fail("created a repository outside of the root");
+    } catch (RepositoryNotFoundException e) {
+      // expected
+    }
+  }
+
+  public void testSeedFromBasePath() throws IOException {
+    final File seed = new File(new File(site, "git"), "seeded.git");
+    final Repository src = new FileRepository(seed);
+    src.create(true);
+    src.close();
+
+    final Repository db = manager.openRepository("seeded");
+    try {
+      assertFalse(seed.equals(db.getDirectory()));
+      assertEquals(manager.getRoot(), db.getDirectory().getParentFile());
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testConcurrentCreate() throws InterruptedException {
+    final List<File> dirs = race(new Opener() {
+      public Repository open() throws IOException {
+        return manager.createRepository("racy");
+      }
+    });
+    for (final File dir : dirs) {
+      assertEquals(dirs.get(0), dir);
+    }
+  }
+
+  public void testConcurrentSeed() throws IOException, InterruptedException {
+    final File seed = new File(new File(site, "git"), "shared.git");
+    final Repository src = new FileRepository(seed);
+    src.create(true);
+    src.close();
+
+    final List<File> dirs = race(new Opener() {
+      public Repository open() throws IOException {
+        return manager.openRepository("shared");
+      }
+    });
+    for (final File dir : dirs) {
+      assertEquals(dirs.get(0), dir);
+    }
+    assertEquals(manager.getRoot(), dirs.get(0).getParentFile());
+  }
+
+  public void testCreateWhileSeeding() throws IOException,
+      InterruptedException {
+    final File seed = new File(new File(site, "git"), "mixed.git");
+    final Repository src = new FileRepository(seed);
+    src.create(true);
+    src.close();
+
+    final AtomicInteger n = new AtomicInteger();
+    final List<File> dirs = race(new Opener() {
+      public Repository open() throws IOException {
+        if (n.getAndIncrement() % 2 == 0) {
+          return manager.createRepository("mixed");
+        }
+        return manager.openRepository("mixed");
+      }
+    });
+    for (final File dir : dirs) {
+      assertEquals(dirs.get(0), dir);
+    }
+    assertTrue(new File(dirs.get(0), "objects").isDirectory());
+  }
+
+  private interface Opener {
+    Repository open() throws IOException;
+  }
+
+  /** Run {@code opener} on several threads at once; fail on any error. */
+  private static List<File> race(final Opener opener)
+      throws InterruptedException {
+    final int n = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<File> dirs = Collections.synchronizedList(new ArrayList<File>());
+    final List<Throwable> errors =
+        Collections.synchronizedList(new ArrayList<Throwable>());
+    final Thread[] threads = new Thread[n];
+    for (int i = 0; i < n; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            final Repository db = opener.open();
+            try {
+              dirs.add(db.getDirectory());
+            } finally {
+              db.close();
+            }
+          } catch (Throwable e) {
+            errors.add(e);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (final Thread t : threads) {
+      t.join();
+    }
+    if (!errors.isEmpty()) {
+      final AssertionError e = new AssertionError("" + errors);
+      e.initCause(errors.get(0));
+      throw e;
+    }
+    assertEquals(n, dirs.size());
+    return dirs;
+  }
+
+  public void testClearDeletesRoot() throws IOException {
+    manager.createRepository("gone").close();
+    final File root = manager.getRoot();
+    assertTrue(root.isDirectory());
+
+    manager.clear();
+    assertFalse(root.exists());
+  }
+}
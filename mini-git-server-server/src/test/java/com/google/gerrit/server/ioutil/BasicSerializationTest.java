@@ -17,9 +17,11 @@ package com.google.gerrit.server.ioutil;
 import static com.google.gerrit.server.ioutil.BasicSerialization.readFixInt64;
 import static com.google.gerrit.server.ioutil.BasicSerialization.readString;
 import static com.google.gerrit.server.ioutil.BasicSerialization.readVarInt32;
+import static com.google.gerrit.server.ioutil.BasicSerialization.readVarInt64;
 import static com.google.gerrit.server.ioutil.BasicSerialization.writeFixInt64;
 import static com.google.gerrit.server.ioutil.BasicSerialization.writeString;
 import static com.google.gerrit.server.ioutil.BasicSerialization.writeVarInt32;
+import static com.google.gerrit.server.ioutil.BasicSerialization.writeVarInt64;
 
 import junit.framework.TestCase;
 
@@ -51,6 +53,33 @@ public class BasicSerializationTest extends TestCase {
     assertOutput(b(0x80 | 0x7f, 0x01), out);
   }
 
+  public void testReadVarInt64() throws IOException {
+    assertEquals(0L, readVarInt64(r(b(0))));
+    assertEquals(3L, readVarInt64(r(b(3))));
+    assertEquals(0xffL, readVarInt64(r(b(0x80 | 0x7f, 0x01))));
+    assertEquals(1L << 35, readVarInt64(r(b(0x80, 0x80, 0x80, 0x80, 0x80,
+        0x01))));
+  }
+
+  public void testWriteVarInt64() throws IOException {
+    ByteArrayOutputStream out;
+
+    out = new ByteArrayOutputStream();
+    writeVarInt64(out, 0xffL);
+    assertOutput(b(0x80 | 0x7f, 0x01), out);
+
+    out = new ByteArrayOutputStream();
+    writeVarInt64(out, 1L << 35);
+    assertOutput(b(0x80, 0x80, 0x80, 0x80, 0x80, 0x01), out);
+
+    final long[] values = {0L, 1L, 1234567890123L, Long.MAX_VALUE, -1L};
+    for (final long v : values) {
+      out = new ByteArrayOutputStream();
+      writeVarInt64(out, v);
+      assertEquals(v, readVarInt64(r(out.toByteArray())));
+    }
+  }
+
   public void testReadFixInt64() throws IOException {
     assertEquals(0L, readFixInt64(r(b(0, 0, 0, 0, 0, 0, 0, 0))));
     assertEquals(3L, readFixInt64(r(b(0, 0, 0, 0, 0, 0, 0, 3))));
@@ -145,6 +174,11 @@ public class BasicSerializationTest extends TestCase {
     return new byte[] {(byte) a, (byte) b};
   }
 
+  private static byte[] b(int a, int b, int c, int d, int e, int f) {
+    return new byte[] {(byte) a, (byte) b, (byte) c, (byte) d, //
+        (byte) e, (byte) f};
+  }
+
   private static byte[] b(int a, int b, int c, int d, int e, int f, int g, int h) {
     return new byte[] {(byte) a, (byte) b, (byte) c, (byte) d, //
         (byte) e, (byte) f, (byte) g, (byte) h};
@@ -0,0 +1,163 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.metrics;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class MetricRegistryTest extends TestCase {
+  private MetricRegistry registry;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    registry = new MetricRegistry();
+  }
+
+  public void testCounterIsShared() {
+    final Counter a = registry.counter("requests_total", "Requests", "k", "v");
+    final Counter b = registry.counter("requests_total", "Requests", "k", "v");
+    assertSame(a, b);
+    assertNotSame(a, registry.counter("requests_total", "Requests", "k", "w"));
+
+    a.inc();
+    b.add(4);
+    assertEquals(5, a.get());
+  }
+
+  public void testCounterFromManyThreads() throws InterruptedException {
+    final Counter c = registry.counter("c_total", "C");
+    final int threads = 8;
+    final int perThread = 10000;
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perThread; i++) {
+            c.inc();
+          }
+          done.countDown();
+        }
+      }.start();
+    }
+    done.await();
+    assertEquals(threads * perThread, c.get());
+  }
+
+  public void testTypeConflict() {
+    registry.counter("x", "X");
+    try {
+      registry.histogram("x", "X", Histogram.LATENCY_MS);
+      fail("histogram replaced counter");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      registry.gauge("x", "X", constant(1));
+      fail("gauge replaced counter");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertEquals(Metric.Type.COUNTER, registry.getMetrics().get(0).getType());
+  }
+
+  public void testInvalidNames() {
+    try {
+      registry.counter("1bad", "X");
+      fail("accepted invalid name");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      registry.counter("ok", "X", "bad-label", "v");
+      fail("accepted invalid label");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      registry.counter("ok", "X", "odd");
+      fail("accepted unpaired label");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testLabelEscaping() {
+    assertEquals("a=\"x\\\\y\\\"z\\n\"",
+        MetricRegistry.labels("a", "x\\y\"z\n"));
+    assertEquals("a=\"1\",b=\"\"", MetricRegistry.labels("a", "1", "b", null));
+  }
+
+  public void testHistogram() {
+    final Histogram h = registry.histogram("h", "H", new long[] {10, 100});
+    h.record(0);
+    h.record(10);
+    h.record(11);
+    h.record(1000);
+
+    final long[] counts = h.getBucketCounts();
+    assertEquals(3, counts.length);
+    assertEquals(2, counts[0]);
+    assertEquals(1, counts[1]);
+    assertEquals(1, counts[2]);
+    assertEquals(4, h.getCount());
+    assertEquals(1021, h.getSum());
+  }
+
+  public void testGaugeReplaced() {
+    registry.gauge("g", "G", constant(1));
+    registry.gauge("g", "G", constant(2));
+    final List<Metric> all = registry.getMetrics();
+    assertEquals(1, all.size());
+    assertEquals(2, ((Gauge) all.get(0)).get());
+  }
+
+  public void testTextFormat() throws IOException {
+    registry.counter("b_total", "B things", "q", "x").add(3);
+    registry.counter("b_total", "B things", "q", "a").add(1);
+    registry.gauge("a", "An A", constant(7));
+    registry.histogram("c_ms", "C", new long[] {5}).record(2);
+
+    final StringWriter w = new StringWriter();
+    new TextFormat(registry).write(w);
+    assertEquals("# HELP a An A\n" //
+        + "# TYPE a gauge\n" //
+        + "a 7\n" //
+        + "# HELP b_total B things\n" //
+        + "# TYPE b_total counter\n" //
+        + "b_total{q=\"a\"} 1\n" //
+        + "b_total{q=\"x\"} 3\n" //
+        + "# HELP c_ms C\n" //
+        + "# TYPE c_ms histogram\n" //
+        + "c_ms_bucket{le=\"5\"} 1\n" //
+        + "c_ms_bucket{le=\"+Inf\"} 1\n" //
+        + "c_ms_sum 2\n" //
+        + "c_ms_count 1\n", w.toString());
+  }
+
+  private static Gauge.Source constant(final long v) {
+    return new Gauge.Source() {
+      @Override
+      public long get() {
+        return v;
+      }
+    };
+  }
+}
@@ -0,0 +1,310 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.trace;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TransferPhasesTest extends TestCase {
+  private static final byte[] PACK_HEADER =
+      {'P', 'A', 'C', 'K', 0, 0, 0, 2, 0, 0, 1, 2};
+  private static final byte[] FLUSH = {'0', '0', '0', '0'};
+  private static final String ZERO_ID =
+      "0000000000000000000000000000000000000000";
+
+  private Recorder trace;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    trace = new Recorder(true);
+  }
+
+  public void testUploadPhases() throws IOException {
+    final TransferPhases p = new TransferPhases(trace,
+        TransferPhases.UPLOAD_PACK, "p", "u", false);
+    final InputStream in = p.wrap(input(10));
+    final OutputStream out = p.wrap(new ByteArrayOutputStream());
+
+    final byte[] adv = pkt(96);
+    out.write(adv, 0, 50); // advertisement, split across writes
+    out.write(adv, 50, adv.length - 50);
+    out.write(FLUSH);
+    in.read(new byte[5]);
+    out.write(pkt("NAK\n"));
+    in.read(new byte[5]);
+    out.write(PACK_HEADER, 0, 6); // header split across writes
+    out.write(PACK_HEADER, 6, 6);
+    out.write(new byte[50]);
+    p.finish();
+
+    assertEquals("advertise negotiate prepare send", trace.phases());
+    assertEquals(100, trace.get(0).bytesOut);
+    assertEquals(10, trace.get(1).bytesIn);
+    assertEquals(8, trace.get(1).bytesOut);
+    assertEquals(-1, trace.get(1).objects);
+    assertEquals(62, trace.get(2).bytesOut + trace.get(3).bytesOut);
+    assertEquals(258, trace.get(3).objects);
+  }
+
+  public void testUploadSingleBytes() throws IOException {
+    final TransferPhases p = new TransferPhases(trace,
+        TransferPhases.UPLOAD_PACK, "p", "u", false);
+    final InputStream in = p.wrap(input(10));
+    final OutputStream out = p.wrap(new ByteArrayOutputStream());
+
+    out.write(pkt(96));
+    out.write(FLUSH);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, in.read());
+    }
+    final byte[] nak = pkt("NAK\n");
+    for (final byte b : nak) {
+      out.write(b);
+    }
+    for (final byte b : PACK_HEADER) {
+      out.write(b);
+    }
+    p.finish();
+
+    assertEquals("advertise negotiate prepare send", trace.phases());
+    assertEquals(10, trace.get(1).bytesIn);
+    assertEquals(nak.length + PACK_HEADER.length,
+        trace.get(2).bytesOut + trace.get(3).bytesOut);
+    assertEquals(258, trace.get(3).objects);
+  }
+
+  public void testUploadSideBand() throws IOException {
+    final TransferPhases p = new TransferPhases(trace,
+        TransferPhases.UPLOAD_PACK, "p", "u", false);
+    final InputStream in = p.wrap(input(10));
+    final OutputStream out = p.wrap(new ByteArrayOutputStream());
+
+    out.write(pkt(40));
+    out.write(FLUSH);
+    in.read(new byte[10]);
+    out.write(pkt("NAK\n"));
+    out.write(band(2, "Counting objects: PACK\r".getBytes("UTF-8")));
+    final byte[] h1 = new byte[6];
+    final byte[] h2 = new byte[6];
+    System.arraycopy(PACK_HEADER, 0, h1, 0, 6);
+    System.arraycopy(PACK_HEADER, 6, h2, 0, 6);
+    out.write(band(1, h1)); // header split across packets
+    out.write(band(2, "Compressing objects\r".getBytes("UTF-8")));
+    out.write(band(1, h2));
+    out.write(band(1, new byte[50]));
+    out.write(FLUSH);
+    p.finish();
+
+    assertEquals("advertise negotiate prepare send", trace.phases());
+    assertEquals(258, trace.get(3).objects);
+  }
+
+  public void testPackInRefNameIsNotData() throws IOException {
+    final ByteArrayOutputStream cmds = new ByteArrayOutputStream();
+    cmds.write(pkt(ZERO_ID + " " + ZERO_ID + " refs/heads/PACK\n"));
+    cmds.write(FLUSH);
+    final TransferPhases p = new TransferPhases(trace,
+        TransferPhases.RECEIVE_PACK, "p", "u", false);
+    final InputStream in =
+        p.wrap(new ByteArrayInputStream(cmds.toByteArray()));
+    p.wrap(new ByteArrayOutputStream()).write(pkt(60));
+
+    in.read(new byte[1000]);
+    p.finish();
+
+    assertEquals("advertise commands", trace.phases());
+    assertEquals(-1, trace.get(1).objects);
+  }
+
+  public void testUnknownFramingStopsScan() throws IOException {
+    final TransferPhases p = new TransferPhases(trace,
+        TransferPhases.RECEIVE_PACK, "p", "u", false);
+    final InputStream in = p.wrap(new ByteArrayInputStream(
+        "zzzzPACK\0\0\0\2\0\0\1\2".getBytes("UTF-8")));
+    in.read(new byte[100]);
+    p.finish();
+    assertEquals("advertise commands", trace.phases());
+  }
+
+  public void testUploadWithoutPack() throws IOException {
+    final TransferPhases p = new TransferPhases(trace,
+        TransferPhases.UPLOAD_PACK, "p", "u", false);
+    p.wrap(new ByteArrayOutputStream()).write(new byte[10]);
+    p.finish();
+    p.finish();
+    assertEquals("advertise", trace.phases());
+  }
+
+  public void testReceivePhases() throws IOException {
+    final byte[] data = new byte[20 + PACK_HEADER.length + 30];
+    final byte[] cmd = pkt(16);
+    System.arraycopy(cmd, 0, data, 0, cmd.length);
+    System.arraycopy(FLUSH, 0, data, cmd.length, FLUSH.length);
+    System.arraycopy(PACK_HEADER, 0, data, 20, PACK_HEADER.length);
+    final TransferPhases p = new TransferPhases(trace,
+        TransferPhases.RECEIVE_PACK, "p", "u", false);
+    final InputStream in = p.wrap(new ByteArrayInputStream(data));
+    final OutputStream out = p.wrap(new ByteArrayOutputStream());
+
+    out.write(new byte[70]); // advertisement
+    in.read(new byte[20]);
+    in.read(new byte[15]);
+    in.read(new byte[100]);
+    out.write(new byte[9]); // report status
+    p.finish();
+
+    assertEquals("advertise commands receive process", trace.phases());
+    assertEquals(70, trace.get(0).bytesOut);
+    assertEquals(258, trace.get(2).objects);
+    assertEquals(data.length, trace.get(1).bytesIn + trace.get(2).bytesIn);
+    assertEquals(0, trace.get(3).bytesIn);
+    assertEquals(9, trace.get(3).bytesOut);
+  }
+
+  public void testDisabledLeavesStreams() {
+    final TransferPhases p = new TransferPhases(new Recorder(false),
+        TransferPhases.UPLOAD_PACK, "p", "u", false);
+    final InputStream in = input(1);
+    assertSame(in, p.wrap(in));
+    p.finish();
+    assertNull(p.getPhaseTimings());
+  }
+
+  public void testRecordWithoutTrace() throws IOException {
+    final Recorder off = new Recorder(false);
+    final TransferPhases p = new TransferPhases(off,
+        TransferPhases.RECEIVE_PACK, "p", "u", true);
+    final InputStream in = input(1);
+    assertNotSame(in, p.wrap(in));
+    p.wrap(in).read();
+    p.finish();
+    final String t = p.getPhaseTimings();
+    assertTrue(t, t.startsWith("advertise "));
+    assertTrue(t, t.contains(", commands "));
+    assertTrue(t, t.endsWith("ms"));
+  }
+
+  /** @return a pkt-line of {@code len} bytes, length prefix included. */
+  private static byte[] pkt(final int len) {
+    final byte[] b = new byte[len];
+    Arrays.fill(b, (byte) 'a');
+    b[len - 1] = '\n';
+    System.arraycopy(String.format("%04x", len).getBytes(), 0, b, 0, 4);
+    return b;
+  }
+
+  private static byte[] pkt(final String text) throws IOException {
+    return pkt(text.getBytes("UTF-8"));
+  }
+
+  private static byte[] pkt(final byte[] payload) throws IOException {
+    final ByteArrayOutputStream b = new ByteArrayOutputStream();
+    b.write(String.format("%04x", payload.length + 4).getBytes("UTF-8"));
+    b.write(payload);
+    return b.toByteArray();
+  }
+
+  private static byte[] band(final int band, final byte[] data)
+      throws IOException {
+    final byte[] payload = new byte[data.length + 1];
+    payload[0] = (byte) band;
+    System.arraycopy(data, 0, payload, 1, data.length);
+    return pkt(payload);
+  }
+
+  private static InputStream input(final int len) {
+    return new ByteArrayInputStream(new byte[len]);
+  }
+
+  private static class Phase {
+    String name;
+    long bytesIn;
+    long bytesOut;
+    long objects;
+  }
+
+  private static class Recorder extends GitTrace {
+    private final boolean enabled;
+    private final List<Phase> phases = new ArrayList<Phase>();
+
+    Recorder(final boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    Phase get(final int i) {
+      return phases.get(i);
+    }
+
+    String phases() {
+      final StringBuilder r = new StringBuilder();
+      for (final Phase p : phases) {
+        if (r.length() > 0) {
+          r.append(' ');
+        }
+        r.append(p.name);
+      }
+      return r.toString();
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    @Override
+    public TransferPhase beginTransferPhase() {
+      return new TransferPhase() {
+        private long start = System.nanoTime();
+        private long end = -1;
+
+        @Override
+        public void begin() {
+          start = System.nanoTime();
+        }
+
+        @Override
+        public void end() {
+          end = System.nanoTime();
+        }
+
+        @Override
+        public void commit(String service, String project, String user,
+            String phase, long bytesIn, long bytesOut, long objects) {
+          assertTrue(phase, 0 <= end && start <= end);
+          final Phase p = new Phase();
+          p.name = phase;
+          p.bytesIn = bytesIn;
+          p.bytesOut = bytesOut;
+          p.objects = objects;
+          phases.add(p);
+        }
+      };
+    }
+
+    @Override
+    public RepositoryOpen beginRepositoryOpen() {
+      return NOOP;
+    }
+  }
+}
@@ -37,4 +37,14 @@ public class IdGeneratorTest extends TestCase {
     assertEquals("801234ab", IdGenerator.format(0x801234ab));
     assertEquals("deadbeef", IdGenerator.format(0xdeadbeef));
   }
+
+  public void testFormatInto() {
+    final StringBuilder r = new StringBuilder("id=");
+    IdGenerator.format(0x801234ab, r);
+    assertEquals("id=801234ab", r.toString());
+
+    r.setLength(0);
+    IdGenerator.format(0xf, r);
+    assertEquals("0000000f", r.toString());
+  }
 }
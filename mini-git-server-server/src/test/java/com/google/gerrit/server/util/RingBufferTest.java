@@ -0,0 +1,113 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.util;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class RingBufferTest extends TestCase {
+  public void testCapacityRoundsUp() {
+    assertEquals(1, new RingBuffer<String>(1).capacity());
+    assertEquals(8, new RingBuffer<String>(5).capacity());
+    assertEquals(64, new RingBuffer<String>(64).capacity());
+  }
+
+  public void testFifo() {
+    final RingBuffer<Integer> b = new RingBuffer<Integer>(4);
+    assertTrue(b.isEmpty());
+    assertNull(b.poll());
+
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(b.offer(i));
+      }
+      for (int i = 0; i < 4; i++) {
+        assertEquals(Integer.valueOf(i), b.poll());
+      }
+      assertNull(b.poll());
+      assertTrue(b.isEmpty());
+    }
+    assertEquals(0, b.getDropped());
+  }
+
+  public void testDropsWhenFull() {
+    final RingBuffer<String> b = new RingBuffer<String>(2);
+    assertTrue(b.offer("a"));
+    assertTrue(b.offer("b"));
+    assertFalse(b.offer("c"));
+    assertFalse(b.offer("d"));
+    assertEquals(2, b.getDropped());
+
+    assertEquals("a", b.poll());
+    assertTrue(b.offer("e"));
+    assertEquals("b", b.poll());
+    assertEquals("e", b.poll());
+    assertNull(b.poll());
+  }
+
+  public void testRejectsNull() {
+    try {
+      new RingBuffer<String>(2).offer(null);
+      fail("accepted null");
+    } catch (NullPointerException e) {
+      // expected
+    }
+  }
+
+  public void testConcurrentProducers() throws InterruptedException {
+    final int producers = 4;
+    final int perProducer = 10000;
+    final RingBuffer<Integer> b = new RingBuffer<Integer>(1024);
+    final CountDownLatch go = new CountDownLatch(1);
+    final Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final int base = p * perProducer;
+      threads[p] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            go.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < perProducer; i++) {
+            while (!b.offer(base + i)) {
+              Thread.yield();
+            }
+          }
+        }
+      };
+      threads[p].start();
+    }
+
+    go.countDown();
+    final Set<Integer> seen = new HashSet<Integer>();
+    while (seen.size() < producers * perProducer) {
+      final Integer e = b.poll();
+      if (e != null) {
+        assertTrue("no duplicates", seen.add(e));
+      } else {
+        Thread.yield();
+      }
+    }
+    for (final Thread t : threads) {
+      t.join();
+    }
+    assertTrue(b.isEmpty());
+  }
+}
@@ -16,6 +16,7 @@ package com.google.gerrit.sshd;
 
 import com.google.gerrit.server.IdentifiedUser;
 import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.trace.TransferPhases;
 import com.google.gerrit.sshd.SshScope.Context;
 import com.google.inject.Inject;
 import org.apache.sshd.server.Environment;
@@ -66,6 +67,9 @@ public abstract class AbstractGitCommand extends BaseCommand {
   @Inject
   private IdentifiedUser.GenericFactory userFactory;
 
+  @Inject
+  private SlowLog slowLog;
+
   protected Repository repo;
 
   @Override
@@ -114,5 +118,18 @@ public abstract class AbstractGitCommand extends BaseCommand {
     }
   }
 
+  /**
+   * Start tracking the phases of this command's fetch or push.
+   *
+   * @param service {@link TransferPhases#UPLOAD_PACK} or
+   *        {@link TransferPhases#RECEIVE_PACK}.
+   */
+  protected TransferPhases newTransferPhases(final String service) {
+    final TransferPhases phases = new TransferPhases(service, projectName(),
+        user.getUserName(), slowLog.isEnabled());
+    context.getStats().setTransferPhases(phases);
+    return phases;
+  }
+
   protected abstract void runImpl() throws IOException, Failure;
 }
@@ -21,6 +21,8 @@ import com.google.gerrit.server.git.ProjectRunnable;
 import com.google.gerrit.server.git.WorkQueue;
 import com.google.gerrit.server.git.WorkQueue.CancelableRunnable;
 import com.google.gerrit.server.project.NoSuchProjectException;
+import com.google.gerrit.server.util.IdGenerator;
+import com.google.gerrit.server.util.TraceId;
 import com.google.gerrit.sshd.SshScope.Context;
 import com.google.gerrit.util.cli.CmdLineParser;
 import com.google.gerrit.util.cli.EndOfOptionsHandler;
@@ -77,6 +79,9 @@ public abstract class BaseCommand implements Command {
   @Inject
   private Provider<SshScope.Context> contextProvider;
 
+  @Inject
+  private SlowLog slowLog;
+
   /** The task, as scheduled on a worker thread. */
   private Future<?> task;
 
@@ -307,10 +312,17 @@ public abstract class BaseCommand implements Command {
       log.error(m.toString(), e);
     }
 
+    final String trace = TraceId.current();
+
     if (e instanceof Failure) {
       final Failure f = (Failure) e;
       try {
-        err.write((f.getMessage() + "\n").getBytes(ENC));
+        final StringBuilder m = new StringBuilder(f.getMessage());
+        if (!(e instanceof UnloggedFailure) && trace != null) {
+          m.append(" (trace ").append(trace).append(')');
+        }
+        m.append('\n');
+        err.write(m.toString().getBytes(ENC));
         err.flush();
       } catch (IOException e2) {
       } catch (Throwable e2) {
@@ -320,7 +332,13 @@ public abstract class BaseCommand implements Command {
 
     } else {
       try {
-        err.write("fatal: internal server error\n".getBytes(ENC));
+        final StringBuilder m = new StringBuilder();
+        m.append("fatal: internal server error");
+        if (trace != null) {
+          m.append(" (trace ").append(trace).append(')');
+        }
+        m.append('\n');
+        err.write(m.toString().getBytes(ENC));
         err.flush();
       } catch (IOException e2) {
       } catch (Throwable e2) {
@@ -356,9 +374,11 @@ public abstract class BaseCommand implements Command {
     @Override
     public void cancel() {
       final Context old = SshScope.set(context);
+      final String oldTrace = TraceId.set(IdGenerator.format(context.traceId));
       try {
         onExit(STATUS_CANCEL);
       } finally {
+        TraceId.restore(oldTrace);
         SshScope.set(old);
       }
     }
@@ -369,13 +389,18 @@ public abstract class BaseCommand implements Command {
       final String thisName = thisThread.getName();
       int rc = 0;
       final Context old = SshScope.set(context);
+      final String oldTrace = TraceId.set(IdGenerator.format(context.traceId));
+      context.getStats().workerStarted();
+      SlowLog.Watch watch = null;
       try {
         context.started = System.currentTimeMillis();
         thisThread.setName("SSH " + taskName);
+        watch = slowLog.start(context, userProvider.get());
 
         if (thunk instanceof ProjectCommandRunnable) {
           ((ProjectCommandRunnable) thunk).executeParseCommand();
           projectName = ((ProjectCommandRunnable) thunk).getProjectName();
+          context.getStats().setProjectName(projectName);
         }
 
         try {
@@ -397,9 +422,14 @@ public abstract class BaseCommand implements Command {
         }
         rc = handleError(e);
       } finally {
+        context.getStats().workerFinished();
+        if (watch != null) {
+          watch.finish();
+        }
         try {
           onExit(rc);
         } finally {
+          TraceId.restore(oldTrace);
           SshScope.set(old);
           thisThread.setName(thisName);
         }
@@ -0,0 +1,239 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.IdentifiedUser;
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.Histogram;
+import com.google.gerrit.server.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of the resources consumed by SSH commands.
+ * <p>
+ * Besides server wide counters, usage is kept per user and per project for
+ * the last {@value RollingUsage#MINUTES} minutes, at one minute resolution.
+ */
+@Singleton
+public class CommandAccounting {
+  /** Resources used by one user or project over some recent minutes. */
+  public static class Usage {
+    private final String name;
+    private final long[] values;
+
+    Usage(final String name, final long[] values) {
+      this.name = name;
+      this.values = values;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getCommands() {
+      return values[RollingUsage.COMMANDS];
+    }
+
+    /** @return milliseconds spent executing commands. */
+    public long getExecMillis() {
+      return values[RollingUsage.EXEC];
+    }
+
+    /** @return CPU milliseconds, as far as the JVM could measure it. */
+    public long getCpuMillis() {
+      return values[RollingUsage.CPU];
+    }
+
+    /** @return bytes allocated, as far as the JVM could measure it. */
+    public long getAllocatedBytes() {
+      return values[RollingUsage.ALLOCATED];
+    }
+
+    public long getBytesIn() {
+      return values[RollingUsage.BYTES_IN];
+    }
+
+    public long getBytesOut() {
+      return values[RollingUsage.BYTES_OUT];
+    }
+  }
+
+  private static final long PRUNE_INTERVAL = 60 * 1000L;
+
+  private final Counter commands;
+  private final Counter abandoned;
+  private final Counter abandonedCpuMillis;
+  private final Counter cpuMillis;
+  private final Counter bytesIn;
+  private final Counter bytesOut;
+  private final Histogram execTime;
+
+  private final ConcurrentMap<String, RollingUsage> users =
+      new ConcurrentHashMap<String, RollingUsage>();
+  private final ConcurrentMap<String, RollingUsage> projects =
+      new ConcurrentHashMap<String, RollingUsage>();
+  private final AtomicLong nextPrune = new AtomicLong();
+
+  private final Set<SshSession> sessions =
+      Collections.newSetFromMap(new ConcurrentHashMap<SshSession, Boolean>());
+
+  @Inject
+  CommandAccounting(final MetricRegistry metrics) {
+    commands = metrics.counter("sshd_commands_total",
+        "SSH commands finished");
+    abandoned = metrics.counter("sshd_commands_abandoned_total",
+        "SSH commands whose client disconnected before they finished");
+    abandonedCpuMillis = metrics.counter("sshd_abandoned_cpu_ms_total",
+        "CPU milliseconds spent on commands after their client left");
+    cpuMillis = metrics.counter("sshd_command_cpu_ms_total",
+        "CPU milliseconds used by SSH commands");
+    bytesIn = metrics.counter("sshd_command_bytes_in_total",
+        "Bytes read from SSH clients by commands");
+    bytesOut = metrics.counter("sshd_command_bytes_out_total",
+        "Bytes sent to SSH clients by commands");
+    execTime = metrics.histogram("sshd_command_exec_ms",
+        "Milliseconds SSH commands spent executing", Histogram.LATENCY_MS);
+  }
+
+  void sessionOpened(final SshSession session) {
+    sessions.add(session);
+  }
+
+  void sessionClosed(final SshSession session) {
+    sessions.remove(session);
+  }
+
+  /** @return sessions currently connected to the daemon. */
+  public Collection<SshSession> getSessions() {
+    return Collections.unmodifiableSet(sessions);
+  }
+
+  void onFinished(final SshSession session, final CommandStats stats) {
+    if (stats.isAbandoned()) {
+      abandoned.inc();
+      final long cpu = stats.getAbandonedCpuMillis();
+      if (0 < cpu) {
+        abandonedCpuMillis.add(cpu);
+      }
+    }
+    commands.inc();
+    execTime.record(stats.getExecMillis());
+    if (0 < stats.getCpuMillis()) {
+      cpuMillis.add(stats.getCpuMillis());
+    }
+    bytesIn.add(stats.getBytesIn());
+    bytesOut.add(stats.getBytesOut());
+
+    final long now = System.currentTimeMillis();
+    final long[] v = new long[RollingUsage.FIELDS];
+    v[RollingUsage.COMMANDS] = 1;
+    v[RollingUsage.EXEC] = stats.getExecMillis();
+    v[RollingUsage.CPU] = stats.getCpuMillis();
+    v[RollingUsage.ALLOCATED] = stats.getAllocatedBytes();
+    v[RollingUsage.BYTES_IN] = stats.getBytesIn();
+    v[RollingUsage.BYTES_OUT] = stats.getBytesOut();
+
+    final String user = userName(session);
+    if (user != null) {
+      get(users, user).add(now, v);
+    }
+    final String project = stats.getProjectName();
+    if (project != null) {
+      get(projects, project).add(now, v);
+    }
+
+    final long prune = nextPrune.get();
+    if (prune <= now && nextPrune.compareAndSet(prune, now + PRUNE_INTERVAL)) {
+      prune(users, now);
+      prune(projects, now);
+    }
+  }
+
+  /** @return number of commands whose client disconnected before the end. */
+  public long getAbandonedCommands() {
+    return abandoned.get();
+  }
+
+  /** @return CPU milliseconds spent on commands after their client left. */
+  public long getAbandonedCpuMillis() {
+    return abandonedCpuMillis.get();
+  }
+
+  /** @return usage of each user active in the last {@code minutes}. */
+  public List<Usage> getUserUsage(final int minutes) {
+    return usage(users, minutes);
+  }
+
+  /** @return usage of each project accessed in the last {@code minutes}. */
+  public List<Usage> getProjectUsage(final int minutes) {
+    return usage(projects, minutes);
+  }
+
+  private static List<Usage> usage(final Map<String, RollingUsage> map,
+      final int minutes) {
+    final long now = System.currentTimeMillis();
+    final List<Usage> r = new ArrayList<Usage>(map.size());
+    for (final Map.Entry<String, RollingUsage> e : map.entrySet()) {
+      final long[] sum = new long[RollingUsage.FIELDS];
+      e.getValue().sum(now, minutes, sum);
+      if (0 < sum[RollingUsage.COMMANDS]) {
+        r.add(new Usage(e.getKey(), sum));
+      }
+    }
+    return Collections.unmodifiableList(r);
+  }
+
+  private static RollingUsage get(final ConcurrentMap<String, RollingUsage> m,
+      final String key) {
+    RollingUsage u = m.get(key);
+    if (u == null) {
+      u = new RollingUsage();
+      final RollingUsage old = m.putIfAbsent(key, u);
+      if (old != null) {
+        u = old;
+      }
+    }
+    return u;
+  }
+
+  private static void prune(final Map<String, RollingUsage> m, final long now) {
+    for (final Iterator<RollingUsage> i = m.values().iterator(); i.hasNext();) {
+      if (i.next().isExpired(now)) {
+        i.remove();
+      }
+    }
+  }
+
+  private static String userName(final SshSession session) {
+    final CurrentUser user = session.getCurrentUser();
+    if (user instanceof IdentifiedUser) {
+      return ((IdentifiedUser) user).getUserName();
+    }
+    return null;
+  }
+}
@@ -14,24 +14,30 @@
 
 package com.google.gerrit.sshd;
 
+import com.google.gerrit.server.config.ConfigChange;
+import com.google.gerrit.server.config.ConfigListener;
+import com.google.gerrit.server.config.ConfigWatcher;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.git.WorkQueue;
 import com.google.inject.Inject;
 
 import org.eclipse.jgit.lib.Config;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 
-public class CommandExecutorQueueProvider implements QueueProvider {
+public class CommandExecutorQueueProvider implements QueueProvider,
+    ConfigListener {
 
   private int poolSize;
-  private final int batchThreads;
+  private int batchThreads;
   private final WorkQueue.Executor interactiveExecutor;
   private final WorkQueue.Executor batchExecutor;
 
   @Inject
   public CommandExecutorQueueProvider(@GerritServerConfig final Config config,
-      final WorkQueue queues) {
+      final WorkQueue queues, final ConfigWatcher watcher) {
     final int cores = Runtime.getRuntime().availableProcessors();
     poolSize = config.getInt("sshd", "threads", 3 * cores / 2);
     batchThreads = config.getInt("sshd", "batchThreads", 0);
@@ -48,7 +54,47 @@ public class CommandExecutorQueueProvider implements QueueProvider {
       batchExecutor = interactiveExecutor;
     }
     setThreadFactory(interactiveExecutor);
+    watcher.addListener(this);
+  }
 
+  @Override
+  public synchronized void configChanged(final ConfigChange change) {
+    final List<String> keys = new ArrayList<String>();
+    for (final String name : new String[] {"threads", "batchThreads"}) {
+      if (change.isChanged("sshd", null, name)) {
+        keys.add(ConfigChange.key("sshd", null, name));
+      }
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    final Config config = change.getNewConfig();
+    final int cores = Runtime.getRuntime().availableProcessors();
+    int newPoolSize = config.getInt("sshd", "threads", 3 * cores / 2);
+    final int newBatchThreads = config.getInt("sshd", "batchThreads", 0);
+    if ((batchThreads == 0) != (newBatchThreads == 0)) {
+      // The batch queue is either shared or separate; that can't flip live.
+      for (final String k : keys) {
+        change.rejected(k, "sshd.batchThreads cannot switch between zero"
+            + " and non-zero");
+      }
+      return;
+    }
+    if (newBatchThreads > newPoolSize) {
+      newPoolSize += newBatchThreads;
+    }
+
+    interactiveExecutor.setCorePoolSize(Math.max(1,
+        newPoolSize - newBatchThreads));
+    if (newBatchThreads != 0) {
+      batchExecutor.setCorePoolSize(newBatchThreads);
+    }
+    poolSize = newPoolSize;
+    batchThreads = newBatchThreads;
+    for (final String k : keys) {
+      change.applied(k);
+    }
   }
 
   private void setThreadFactory(WorkQueue.Executor executor) {
@@ -14,10 +14,12 @@
 
 package com.google.gerrit.sshd;
 
+import com.google.gerrit.server.util.IdGenerator;
 import com.google.gerrit.sshd.SshScope.Context;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+import org.apache.mina.core.session.IoSession;
 import org.apache.sshd.server.Command;
 import org.apache.sshd.server.CommandFactory;
 import org.apache.sshd.server.Environment;
@@ -37,13 +39,20 @@ import java.util.List;
 class CommandFactoryProvider implements Provider<CommandFactory> {
   private final DispatchCommandProvider dispatcher;
   private final SshLog log;
+  private final OutboundBufferLimit bufferLimit;
+  private final CommandAccounting accounting;
+  private final IdGenerator traceIds;
 
   @Inject
   CommandFactoryProvider(
       @CommandName(Commands.ROOT) final DispatchCommandProvider d,
-      final SshLog l) {
+      final SshLog l, final OutboundBufferLimit bl,
+      final CommandAccounting a, final IdGenerator ids) {
     dispatcher = d;
     log = l;
+    bufferLimit = bl;
+    accounting = a;
+    traceIds = ids;
   }
 
   @Override
@@ -62,6 +71,9 @@ class CommandFactoryProvider implements Provider<CommandFactory> {
     private OutputStream out;
     private OutputStream err;
     private ExitCallback exit;
+    private IoSession io;
+    private SshSession session;
+    private CommandStats stats;
     private Context ctx;
     private DispatchCommand cmd;
     private boolean logged;
@@ -89,29 +101,47 @@ class CommandFactoryProvider implements Provider<CommandFactory> {
 
     public void setSession(final ServerSession session) {
       final SshSession s = session.getAttribute(SshSession.KEY);
-      this.ctx = new Context(s, commandLine);
+      this.session = s;
+      this.ctx = new Context(s, commandLine, traceIds.next());
+      this.stats = ctx.getStats();
+      this.io = session.getIoSession();
     }
 
     public void start(final Environment env) throws IOException {
       synchronized (this) {
         final Context old = SshScope.set(ctx);
         try {
+          session.commandStarted(stats);
           cmd = dispatcher.get();
           cmd.setArguments(argv);
-          cmd.setInputStream(in);
-          cmd.setOutputStream(out);
+
+          final MeteredInputStream min = new MeteredInputStream(in);
+          final MeteredOutputStream mout =
+              new MeteredOutputStream(out, bufferLimit, io);
+          stats.setStreams(min, mout);
+
+          cmd.setInputStream(min);
+          cmd.setOutputStream(mout);
           cmd.setErrorStream(err);
           cmd.setExitCallback(new ExitCallback() {
             @Override
             public void onExit(int rc, String exitMessage) {
-              exit.onExit(translateExit(rc), exitMessage);
-              log(rc);
+              stats.exited();
+              try {
+                exit.onExit(translateExit(rc), exitMessage);
+              } finally {
+                log(rc);
+              }
             }
 
             @Override
             public void onExit(int rc) {
-              exit.onExit(translateExit(rc));
-              log(rc);
+              stats.exited();
+              try {
+                exit.onExit(translateExit(rc));
+              } finally {
+                log(rc);
+              }
             }
           });
           cmd.start(env);
@@ -142,6 +172,8 @@ class CommandFactoryProvider implements Provider<CommandFactory> {
         if (!logged) {
           log.onExecute(rc);
           logged = true;
+          session.commandFinished(stats);
+          accounting.onFinished(session, stats);
         }
       }
     }
@@ -152,8 +184,19 @@ class CommandFactoryProvider implements Provider<CommandFactory> {
         if (cmd != null) {
           final Context old = SshScope.set(ctx);
           try {
+            // Sending the exit status closes the channel, which lands here
+            // before the command has logged itself. That is a normal end.
+            //
+            final boolean exited = stats.hasExited();
+            if (!exited) {
+              stats.abandon();
+            }
             cmd.destroy();
-            log(BaseCommand.STATUS_CANCEL);
+            if (!exited && !stats.isRunning()) {
+              // A running command logs itself once its worker returns,
+              // which is when the CPU wasted after abandoning it is known.
+              log(BaseCommand.STATUS_CANCEL);
+            }
           } finally {
             ctx = null;
             cmd = null;
@@ -0,0 +1,290 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import com.google.gerrit.server.trace.TransferPhases;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Resource usage of a single SSH command.
+ * <p>
+ * One instance is shared by a command's {@link SshScope.Context} and any
+ * sub-contexts created from it, so the figures are complete no matter which
+ * context logs the command.
+ */
+class CommandStats {
+  private static final ThreadMXBean threads =
+      ManagementFactory.getThreadMXBean();
+
+  /**
+   * {@code com.sun.management.ThreadMXBean} methods, if this JVM has them.
+   * Looked up by name so the vendor class is never linked into this one.
+   */
+  private static final Method allocationEnabled;
+  private static final Method threadAllocatedBytes;
+
+  static {
+    Method enabled = null;
+    Method bytes = null;
+    try {
+      final Class<?> sun = Class.forName("com.sun.management.ThreadMXBean");
+      if (sun.isInstance(threads)) {
+        final Method supported =
+            sun.getMethod("isThreadAllocatedMemorySupported");
+        if ((Boolean) supported.invoke(threads)) {
+          enabled = sun.getMethod("isThreadAllocatedMemoryEnabled");
+          bytes = sun.getMethod("getThreadAllocatedBytes", long.class);
+        }
+      }
+    } catch (ClassNotFoundException e) {
+      // Not a Sun derived JVM; allocation is reported as unavailable.
+    } catch (LinkageError e) {
+      // The class exists but cannot be loaded here; treat it as absent.
+    } catch (Exception e) {
+      // Older than 6u25, or the bean refused; allocation is unavailable.
+    }
+    allocationEnabled = bytes != null ? enabled : null;
+    threadAllocatedBytes = bytes;
+  }
+
+  private volatile MeteredInputStream in;
+  private volatile MeteredOutputStream out;
+  private volatile String projectName;
+  private volatile TransferPhases transferPhases;
+
+  private Thread worker;
+  private long wallStart;
+  private long cpuStart = -1;
+  private long allocStart = -1;
+  private long execTime;
+  private long cpu = -1;
+  private long allocated = -1;
+
+  private boolean exited;
+  private boolean abandoned;
+  private long cpuAtAbandon = -1;
+  private long abandonedCpu = -1;
+
+  void setStreams(final MeteredInputStream in, final MeteredOutputStream out) {
+    this.in = in;
+    this.out = out;
+  }
+
+  /** @return project the command operated on; null if none. */
+  String getProjectName() {
+    return projectName;
+  }
+
+  void setProjectName(final String name) {
+    projectName = name;
+  }
+
+  /** @return phases of the Git transfer; null if the command is not one. */
+  TransferPhases getTransferPhases() {
+    return transferPhases;
+  }
+
+  void setTransferPhases(final TransferPhases phases) {
+    transferPhases = phases;
+  }
+
+  /** @return bytes read from the client. */
+  long getBytesIn() {
+    final MeteredInputStream s = in;
+    return s != null ? s.getCount() : 0;
+  }
+
+  /** @return bytes written to the client on the standard output channel. */
+  long getBytesOut() {
+    final MeteredOutputStream s = out;
+    return s != null ? s.getCount() : 0;
+  }
+
+  /**
+   * @return milliseconds spent writing to the client, including any wait for
+   *         its window.
+   */
+  long getWriteMillis() {
+    final MeteredOutputStream s = out;
+    return s != null ? s.getWriteMillis() : 0;
+  }
+
+  /** @return milliseconds held back because too much output was queued. */
+  long getBufferWaitMillis() {
+    final MeteredOutputStream s = out;
+    return s != null ? s.getBufferWaitMillis() : 0;
+  }
+
+  /** Note the calling thread has started executing the command. */
+  synchronized void workerStarted() {
+    worker = Thread.currentThread();
+    wallStart = System.nanoTime();
+    cpuStart = cpuTime(worker);
+    allocStart = allocatedBytes(worker);
+    if (abandoned) {
+      cpuAtAbandon = cpuTime(worker);
+    }
+  }
+
+  /** Note the calling thread is done with the command. */
+  synchronized void workerFinished() {
+    if (worker != null) {
+      execTime += System.nanoTime() - wallStart;
+      if (0 <= cpuStart) {
+        final long now = cpuTime(worker);
+        if (0 <= now) {
+          cpu = Math.max(cpu, 0) + (now - cpuStart);
+        }
+      }
+      if (0 <= allocStart) {
+        final long now = allocatedBytes(worker);
+        if (0 <= now) {
+          allocated = Math.max(allocated, 0) + (now - allocStart);
+        }
+      }
+    }
+    if (abandoned && worker != null && 0 <= cpuAtAbandon) {
+      final long now = cpuTime(worker);
+      if (0 <= now) {
+        abandonedCpu = now - cpuAtAbandon;
+      }
+    }
+    worker = null;
+  }
+
+  /** @return milliseconds a worker thread spent executing the command. */
+  synchronized long getExecMillis() {
+    return execTime / 1000000L;
+  }
+
+  /**
+   * @return CPU milliseconds the worker thread used for the command; -1 if
+   *         thread CPU time is not available.
+   */
+  synchronized long getCpuMillis() {
+    return 0 <= cpu ? cpu / 1000000L : -1;
+  }
+
+  /**
+   * @return bytes allocated on the heap by the worker thread while running
+   *         the command; -1 if the JVM does not track thread allocation.
+   */
+  synchronized long getAllocatedBytes() {
+    return allocated;
+  }
+
+  /**
+   * @return CPU milliseconds used so far, including the part of a run that
+   *         is still in progress; -1 if thread CPU time is not available.
+   */
+  synchronized long getCpuMillisSoFar() {
+    if (worker != null && 0 <= cpuStart) {
+      final long now = cpuTime(worker);
+      if (0 <= now) {
+        return (Math.max(cpu, 0) + (now - cpuStart)) / 1000000L;
+      }
+    }
+    return getCpuMillis();
+  }
+
+  /** @return true while a worker thread is executing the command. */
+  synchronized boolean isRunning() {
+    return worker != null;
+  }
+
+  /**
+   * Note the command has reported its exit status.
+   * <p>
+   * Sending the status closes the channel, so the close that follows is the
+   * normal end of the command and must not count as the client leaving.
+   */
+  synchronized void exited() {
+    exited = true;
+  }
+
+  /** @return true once the command has reported its exit status. */
+  synchronized boolean hasExited() {
+    return exited;
+  }
+
+  /**
+   * Note the client went away before the command finished.
+   * <p>
+   * The command's streams start failing immediately, so the next time the
+   * command touches the client it stops, instead of finishing work whose
+   * result nobody will read. Does nothing once the command has exited.
+   */
+  void abandon() {
+    synchronized (this) {
+      if (abandoned || exited) {
+        return;
+      }
+      abandoned = true;
+      if (worker != null) {
+        cpuAtAbandon = cpuTime(worker);
+      }
+    }
+
+    final MeteredInputStream i = in;
+    if (i != null) {
+      i.abort();
+    }
+    final MeteredOutputStream o = out;
+    if (o != null) {
+      o.abort();
+    }
+  }
+
+  synchronized boolean isAbandoned() {
+    return abandoned;
+  }
+
+  /**
+   * @return CPU time in milliseconds the worker spent on the command after
+   *         it was abandoned; -1 if not abandoned while running, or if thread
+   *         CPU time is not available.
+   */
+  synchronized long getAbandonedCpuMillis() {
+    return 0 <= abandonedCpu ? abandonedCpu / 1000000L : -1;
+  }
+
+  private static long cpuTime(final Thread t) {
+    try {
+      if (threads.isThreadCpuTimeSupported()
+          && threads.isThreadCpuTimeEnabled()) {
+        return threads.getThreadCpuTime(t.getId());
+      }
+    } catch (UnsupportedOperationException e) {
+      // Fall through, CPU time is unavailable on this JVM.
+    }
+    return -1;
+  }
+
+  private static long allocatedBytes(final Thread t) {
+    if (threadAllocatedBytes != null) {
+      try {
+        if ((Boolean) allocationEnabled.invoke(threads)) {
+          return (Long) threadAllocatedBytes.invoke(threads, t.getId());
+        }
+      } catch (Exception e) {
+        // Fall through, allocation tracking is unavailable on this JVM.
+      }
+    }
+    return -1;
+  }
+}
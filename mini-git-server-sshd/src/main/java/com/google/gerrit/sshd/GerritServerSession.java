@@ -0,0 +1,90 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import org.apache.mina.core.session.IoSession;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.util.Buffer;
+import org.apache.sshd.server.session.ServerSession;
+
+import java.io.IOException;
+
+/** Server session that can probe an idle client with SSH keepalives. */
+class GerritServerSession extends ServerSession {
+  private static final String KEEPALIVE = "keepalive@openssh.com";
+
+  private volatile long lastProbe;
+  private volatile int unanswered;
+
+  GerritServerSession(final FactoryManager server, final IoSession io)
+      throws Exception {
+    super(server, io);
+  }
+
+  /**
+   * Probe the client if it has been silent for too long.
+   *
+   * @param interval milliseconds of silence before a probe is sent, and
+   *        between consecutive probes.
+   * @param countMax number of probes that may go unanswered.
+   * @return false if the client failed to answer {@code countMax} probes and
+   *         should be disconnected.
+   * @throws IOException the probe could not be queued.
+   */
+  boolean keepAlive(final long interval, final int countMax)
+      throws IOException {
+    final long now = System.currentTimeMillis();
+    final long lastRead = getIoSession().getLastReadTime();
+    if (lastProbe <= lastRead) {
+      unanswered = 0;
+    }
+    if (now - lastRead < interval || now - lastProbe < interval) {
+      return true;
+    }
+    if (countMax <= unanswered) {
+      return false;
+    }
+
+    // OpenSSH clients do not recognize the request and answer it with a
+    // failure, which is all we need: any reply proves the peer is there.
+    //
+    final Buffer buf =
+        createBuffer(SshConstants.Message.SSH_MSG_GLOBAL_REQUEST, 0);
+    buf.putString(KEEPALIVE);
+    buf.putBoolean(true);
+    writePacket(buf);
+
+    lastProbe = now;
+    unanswered++;
+    return true;
+  }
+
+  @Override
+  protected void handleMessage(final Buffer buffer) throws Exception {
+    final int rpos = buffer.rpos();
+    final byte cmd = buffer.getByte();
+    buffer.rpos(rpos);
+
+    if (cmd == SshConstants.Message.SSH_MSG_REQUEST_SUCCESS.toByte()
+        || cmd == SshConstants.Message.SSH_MSG_REQUEST_FAILURE.toByte()) {
+      // Reply to a keepalive probe. Reading the packet already reset the
+      // idle clock, so there is nothing left to do with it.
+      //
+      return;
+    }
+    super.handleMessage(buffer);
+  }
+}
@@ -0,0 +1,84 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import com.google.gerrit.server.IdentifiedUser;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.apache.sshd.server.PublickeyAuthenticator;
+import org.apache.sshd.server.session.ServerSession;
+
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Authenticates against keys registered at runtime rather than read from
+ * {@code etc/users}, for servers embedded in tests.
+ */
+@Singleton
+public class InMemoryPubKeyAuth implements PublickeyAuthenticator {
+  private final IdentifiedUser.GenericFactory userFactory;
+  private final ConcurrentMap<String, Set<PublicKey>> keys =
+      new ConcurrentHashMap<String, Set<PublicKey>>();
+
+  @Inject
+  InMemoryPubKeyAuth(final IdentifiedUser.GenericFactory uf) {
+    userFactory = uf;
+  }
+
+  /** Allow {@code username} to log in with {@code key}. */
+  public void addKey(final String username, final PublicKey key) {
+    Set<PublicKey> s = keys.get(username);
+    if (s == null) {
+      s = new CopyOnWriteArraySet<PublicKey>();
+      final Set<PublicKey> old = keys.putIfAbsent(username, s);
+      if (old != null) {
+        s = old;
+      }
+    }
+    s.add(key);
+  }
+
+  /** Forget every key of {@code username}. */
+  public void removeUser(final String username) {
+    keys.remove(username);
+  }
+
+  @Override
+  public boolean authenticate(final String username,
+      final PublicKey suppliedKey, final ServerSession session) {
+    final SshSession sd = session.getAttribute(SshSession.KEY);
+    final Set<PublicKey> s = keys.get(username);
+    if (s == null) {
+      sd.authenticationError(username, "unknown user");
+      return false;
+    }
+    // Compare encodings, the keys may come from different providers.
+    final byte[] supplied = suppliedKey.getEncoded();
+    for (final PublicKey k : s) {
+      if (Arrays.equals(supplied, k.getEncoded())) {
+        sd.authenticationSuccess(username, userFactory.create(username));
+        return true;
+      }
+    }
+    sd.authenticationError(username, "no matching key");
+    return false;
+  }
+}
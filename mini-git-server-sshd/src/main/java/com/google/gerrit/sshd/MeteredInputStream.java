@@ -0,0 +1,86 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Counts bytes read from an SSH channel, and fails reads once aborted. */
+class MeteredInputStream extends InputStream {
+  private final InputStream in;
+  private volatile long count;
+  private volatile boolean aborted;
+
+  MeteredInputStream(final InputStream in) {
+    this.in = in;
+  }
+
+  /** @return number of bytes read so far. */
+  long getCount() {
+    return count;
+  }
+
+  /** Fail all further reads, the client is no longer sending. */
+  void abort() {
+    aborted = true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    checkAborted();
+    final int b = in.read();
+    if (0 <= b) {
+      count++;
+    }
+    return b;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len)
+      throws IOException {
+    checkAborted();
+    final int n = in.read(b, off, len);
+    if (0 < n) {
+      count += n;
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    checkAborted();
+    final long r = in.skip(n);
+    if (0 < r) {
+      count += r;
+    }
+    return r;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return in.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void checkAborted() throws IOException {
+    if (aborted) {
+      throw new IOException("Pipe closed");
+    }
+  }
+}
@@ -0,0 +1,132 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import org.apache.mina.core.session.IoSession;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts bytes written to an SSH channel and the time spent writing them.
+ * <p>
+ * Two times are kept apart. The buffer wait is time held back by an
+ * {@link OutboundBufferLimit} because too much output is already queued for
+ * the network. The write time is everything spent inside the channel
+ * stream's write and flush: waiting for the client's window, but also
+ * packet encoding and copying. sshd-core 0.5 does not expose its window
+ * wait on its own, so a long write time suggests, but does not prove, that
+ * the client's window is too small. Each instance is written by only one
+ * thread; other threads may read the counters and {@link #abort()} it at
+ * any time.
+ */
+class MeteredOutputStream extends OutputStream {
+  private final OutputStream out;
+  private final OutboundBufferLimit limit;
+  private final IoSession io;
+  private volatile long count;
+  private volatile long writeNanos;
+  private volatile long bufferWaitNanos;
+  private volatile boolean aborted;
+
+  MeteredOutputStream(final OutputStream out, final OutboundBufferLimit limit,
+      final IoSession io) {
+    this.out = out;
+    this.limit = limit;
+    this.io = io;
+  }
+
+  /** @return number of bytes written so far. */
+  long getCount() {
+    return count;
+  }
+
+  /** @return milliseconds spent inside the channel's write and flush. */
+  long getWriteMillis() {
+    return writeNanos / 1000000L;
+  }
+
+  /** @return milliseconds held back by the outbound buffer limit. */
+  long getBufferWaitMillis() {
+    return bufferWaitNanos / 1000000L;
+  }
+
+  /** Fail all further writes, the client is no longer listening. */
+  void abort() {
+    aborted = true;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    checkAborted();
+    awaitCapacity();
+    final long start = System.nanoTime();
+    try {
+      out.write(b);
+      count++;
+    } finally {
+      writeNanos += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len)
+      throws IOException {
+    checkAborted();
+    awaitCapacity();
+    final long start = System.nanoTime();
+    try {
+      out.write(b, off, len);
+      count += len;
+    } finally {
+      writeNanos += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    checkAborted();
+    final long start = System.nanoTime();
+    try {
+      out.flush();
+    } finally {
+      writeNanos += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  private void checkAborted() throws IOException {
+    if (aborted) {
+      // Same message sshd uses once the channel is gone, so that
+      // BaseCommand treats it as a client disconnect.
+      throw new IOException("Pipe closed");
+    }
+  }
+
+  private void awaitCapacity() throws IOException {
+    if (limit != null && io != null) {
+      final long start = System.nanoTime();
+      try {
+        limit.await(io);
+      } finally {
+        bufferWaitNanos += System.nanoTime() - start;
+      }
+    }
+  }
+}
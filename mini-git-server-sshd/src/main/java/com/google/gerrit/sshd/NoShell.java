@@ -85,7 +85,7 @@ class NoShell implements Factory<Command> {
     }
 
     public void setSession(final ServerSession session) {
-      this.context = new Context(session.getAttribute(SshSession.KEY), "");
+      this.context = new Context(session.getAttribute(SshSession.KEY), "", 0);
     }
 
     public void start(final Environment env) throws IOException {
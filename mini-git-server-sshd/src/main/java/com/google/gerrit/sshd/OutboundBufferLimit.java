@@ -0,0 +1,144 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.eclipse.jgit.lib.Config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds command output back while too much of it is queued for the network.
+ * <p>
+ * MINA accepts writes without limit and queues them until the socket drains.
+ * A client that reads slowly, or not at all, lets that queue grow on the
+ * heap. Before writing, commands wait here until both their own session's
+ * queue and the queue of the whole daemon are under the configured caps.
+ * <p>
+ * The limit is also installed as a filter on the daemon's acceptor, so
+ * waiting commands are woken as soon as MINA reports a write as sent or a
+ * session as closed, rather than polling the queue sizes.
+ */
+@Singleton
+class OutboundBufferLimit extends IoFilterAdapter {
+  static final String FILTER_NAME = "outboundBufferLimit";
+
+  /** Upper bound on a single wait, in case a wakeup is ever missed. */
+  private static final long MAX_WAIT_MILLIS = 1000;
+
+  private final long perSession;
+  private final long total;
+
+  private final Lock lock = new ReentrantLock();
+  private final Condition drained = lock.newCondition();
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  @Inject
+  OutboundBufferLimit(@GerritServerConfig final Config cfg) {
+    perSession = cfg.getLong("sshd", null, "maxBufferedBytesPerSession", //
+        4 * 1024 * 1024);
+    total = cfg.getLong("sshd", null, "maxBufferedBytes", //
+        256 * 1024 * 1024);
+  }
+
+  /**
+   * Block until the session may queue more output.
+   *
+   * @param io network session the caller is about to write to.
+   * @throws InterruptedIOException the caller was interrupted while waiting.
+   * @throws IOException the session was closed while waiting.
+   */
+  void await(final IoSession io) throws IOException {
+    if (!isFull(io)) {
+      return;
+    }
+
+    // Announce ourselves before checking again, so a write completing
+    // between the check and the wait is certain to signal us.
+    //
+    waiting.incrementAndGet();
+    lock.lock();
+    try {
+      while (isFull(io)) {
+        if (io.isClosing()) {
+          throw new IOException("Pipe closed");
+        }
+        try {
+          drained.await(MAX_WAIT_MILLIS, MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          final InterruptedIOException err =
+              new InterruptedIOException("Interrupted waiting for "
+                  + io.getRemoteAddress() + " to read output");
+          err.initCause(e);
+          throw err;
+        }
+      }
+    } finally {
+      lock.unlock();
+      waiting.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void messageSent(final NextFilter nextFilter,
+      final IoSession session, final WriteRequest writeRequest)
+      throws Exception {
+    wakeUp();
+    nextFilter.messageSent(session, writeRequest);
+  }
+
+  @Override
+  public void sessionClosed(final NextFilter nextFilter,
+      final IoSession session) throws Exception {
+    wakeUp();
+    nextFilter.sessionClosed(session);
+  }
+
+  private void wakeUp() {
+    if (0 < waiting.get()) {
+      lock.lock();
+      try {
+        drained.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private boolean isFull(final IoSession io) {
+    if (0 < perSession && perSession < io.getScheduledWriteBytes()) {
+      return true;
+    }
+    if (0 < total && io.getService() != null
+        && total < io.getService().getStatistics().getScheduledWriteBytes()) {
+      return true;
+    }
+    return false;
+  }
+}
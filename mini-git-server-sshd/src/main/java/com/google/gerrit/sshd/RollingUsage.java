@@ -0,0 +1,79 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import java.util.Arrays;
+
+/**
+ * Resource totals for one user or project, kept per minute for an hour.
+ * <p>
+ * Each minute owns a slot in a fixed ring; a slot is cleared the first time
+ * it is touched in a new minute, so old data ages out without any timer.
+ */
+final class RollingUsage {
+  static final int MINUTES = 60;
+
+  static final int COMMANDS = 0;
+  static final int EXEC = 1;
+  static final int CPU = 2;
+  static final int ALLOCATED = 3;
+  static final int BYTES_IN = 4;
+  static final int BYTES_OUT = 5;
+  static final int FIELDS = 6;
+
+  private static final long MINUTE = 60 * 1000L;
+
+  private final long[] minute = new long[MINUTES];
+  private final long[][] slots = new long[MINUTES][FIELDS];
+  private long lastUpdate;
+
+  RollingUsage() {
+    Arrays.fill(minute, -1);
+  }
+
+  synchronized void add(final long now, final long[] values) {
+    final long m = now / MINUTE;
+    final int i = (int) (m % MINUTES);
+    final long[] slot = slots[i];
+    if (minute[i] != m) {
+      minute[i] = m;
+      Arrays.fill(slot, 0);
+    }
+    for (int f = 0; f < FIELDS; f++) {
+      if (0 < values[f]) {
+        slot[f] += values[f];
+      }
+    }
+    lastUpdate = now;
+  }
+
+  /** Add the totals of the last {@code minutes} minutes into {@code sum}. */
+  synchronized void sum(final long now, final int minutes, final long[] sum) {
+    final long m = now / MINUTE;
+    final long oldest = m - Math.min(minutes, MINUTES) + 1;
+    for (int i = 0; i < MINUTES; i++) {
+      if (oldest <= minute[i] && minute[i] <= m) {
+        for (int f = 0; f < FIELDS; f++) {
+          sum[f] += slots[i][f];
+        }
+      }
+    }
+  }
+
+  /** @return true if nothing was recorded within the window. */
+  synchronized boolean isExpired(final long now) {
+    return MINUTES * MINUTE <= now - lastUpdate;
+  }
+}
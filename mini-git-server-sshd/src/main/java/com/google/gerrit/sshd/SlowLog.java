@@ -0,0 +1,387 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.IdentifiedUser;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.trace.TransferPhases;
+import com.google.gerrit.server.util.IdGenerator;
+import com.google.gerrit.sshd.SshScope.Context;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a report to {@code slow_log} for each command that runs too long.
+ * <p>
+ * Once a command has run for its threshold, the worker thread's stack is
+ * sampled at a fixed interval until the command ends. The report then lists
+ * the distinct stacks seen, most frequent first, with the command's timings,
+ * the phases of its Git transfer and the pack and ref counts of its
+ * repository. Thresholds are set in {@code gerrit.config}:
+ *
+ * <pre>
+ * [slowLog]
+ *   threshold = 30s
+ *   sampleInterval = 500ms
+ *   maxSamples = 120
+ * [slowLog "git-upload-pack"]
+ *   threshold = 10s
+ * </pre>
+ *
+ * A subsection applies to command lines starting with its name, the longest
+ * match winning. A threshold of 0, the default, disables the log. The file
+ * is renamed with a date suffix at midnight, like {@code sshd_log}.
+ */
+@Singleton
+class SlowLog {
+  private static final Logger log = LoggerFactory.getLogger(SlowLog.class);
+  private static final String LOG_NAME = "slow_log";
+  private static final String SECTION = "slowLog";
+  private static final int MAX_DEPTH = 64;
+
+  private final GitRepositoryManager repoManager;
+  private final File file;
+  private final long threshold;
+  private final Map<String, Long> commandThresholds;
+  private final long sampleInterval;
+  private final int maxSamples;
+  private final WorkQueue.Executor executor;
+  private long rollOverAt;
+
+  @Inject
+  SlowLog(final WorkQueue queues, final GitRepositoryManager repoManager,
+      final SitePaths site, @GerritServerConfig final Config cfg) {
+    this.repoManager = repoManager;
+    this.file = new File(site.logs_dir, LOG_NAME);
+    this.threshold = thresholdOf(cfg, null, 0);
+    this.commandThresholds = new HashMap<String, Long>();
+    for (final String name : cfg.getSubsections(SECTION)) {
+      commandThresholds.put(name, thresholdOf(cfg, name, threshold));
+    }
+    this.sampleInterval = Math.max(1, ConfigUtil.getTimeUnit(cfg, SECTION,
+        null, "sampleInterval", 500, TimeUnit.MILLISECONDS));
+    this.maxSamples = cfg.getInt(SECTION, "maxSamples", 120);
+
+    boolean enabled = 0 < threshold;
+    for (final long t : commandThresholds.values()) {
+      enabled |= 0 < t;
+    }
+    this.executor = enabled ? queues.createQueue(1, "SlowLog") : null;
+  }
+
+  private static long thresholdOf(final Config cfg, final String name,
+      final long defaultValue) {
+    return ConfigUtil.getTimeUnit(cfg, SECTION, name, "threshold",
+        defaultValue, TimeUnit.MILLISECONDS);
+  }
+
+  /** @return true if any command may be reported. */
+  boolean isEnabled() {
+    return executor != null;
+  }
+
+  /**
+   * Begin watching a command on the current thread.
+   *
+   * @return handle to finish when the command ends; null if the command is
+   *         never reported.
+   */
+  Watch start(final Context ctx, final CurrentUser user) {
+    if (executor == null) {
+      return null;
+    }
+    final long limit = thresholdFor(ctx.getCommandLine());
+    if (limit <= 0) {
+      return null;
+    }
+    final Watch w = new Watch(ctx, user, Thread.currentThread(), limit);
+    w.sampler = executor.scheduleAtFixedRate(w, limit, sampleInterval,
+        TimeUnit.MILLISECONDS);
+    return w;
+  }
+
+  private long thresholdFor(final String commandLine) {
+    long t = threshold;
+    int best = -1;
+    for (final Map.Entry<String, Long> e : commandThresholds.entrySet()) {
+      final String name = e.getKey();
+      if (best < name.length()
+          && commandLine.startsWith(name)
+          && (commandLine.length() == name.length() //
+          || commandLine.charAt(name.length()) == ' ')) {
+        t = e.getValue();
+        best = name.length();
+      }
+    }
+    return t;
+  }
+
+  /** Samples one command's worker thread; reports it if it ran too long. */
+  final class Watch implements Runnable {
+    private final Context ctx;
+    private final CurrentUser user;
+    private final Thread worker;
+    private final long limit;
+    private final long started = System.currentTimeMillis();
+    private final Map<List<StackTraceElement>, int[]> stacks =
+        new HashMap<List<StackTraceElement>, int[]>();
+    private int samples;
+    private boolean finished;
+    volatile ScheduledFuture<?> sampler;
+
+    Watch(final Context ctx, final CurrentUser user, final Thread worker,
+        final long limit) {
+      this.ctx = ctx;
+      this.user = user;
+      this.worker = worker;
+      this.limit = limit;
+    }
+
+    @Override
+    public void run() {
+      synchronized (this) {
+        if (finished || maxSamples <= samples) {
+          return;
+        }
+      }
+
+      // Sample outside of the lock, so the worker never waits on it.
+      final StackTraceElement[] trace = worker.getStackTrace();
+      final List<StackTraceElement> key = Arrays.asList(trace.length
+          <= MAX_DEPTH ? trace : Arrays.copyOf(trace, MAX_DEPTH));
+      synchronized (this) {
+        if (finished) {
+          // The command ended while the stack was taken; it may show
+          // whatever the worker went on to run next.
+          return;
+        }
+        samples++;
+        int[] n = stacks.get(key);
+        if (n == null) {
+          n = new int[1];
+          stacks.put(key, n);
+        }
+        n[0]++;
+      }
+    }
+
+    /** Stop sampling; call from the worker once the command has ended. */
+    void finish() {
+      final ScheduledFuture<?> s = sampler;
+      if (s != null) {
+        s.cancel(false);
+      }
+      synchronized (this) {
+        finished = true;
+      }
+      final long exec = System.currentTimeMillis() - started;
+      if (limit <= exec) {
+        executor.execute(new Report(this, exec));
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "slow log sampler for " + ctx.getCommandLine();
+    }
+  }
+
+  /** Rename the log at midnight, like {@code sshd_log}; hold the lock. */
+  private void rollOver(final long now) {
+    if (rollOverAt == 0) {
+      rollOverAt = nextMidnight(file.exists() ? file.lastModified() : now);
+    }
+    if (rollOverAt <= now) {
+      final SimpleDateFormat suffix = new SimpleDateFormat("'.'yyyy-MM-dd");
+      final File dst =
+          new File(file.getPath() + suffix.format(new Date(rollOverAt - 1)));
+      if (dst.exists() && !dst.delete()) {
+        log.error("Cannot delete " + dst);
+      }
+      if (file.exists() && !file.renameTo(dst)) {
+        log.error("Cannot rename " + file + " to " + dst);
+      }
+      rollOverAt = nextMidnight(now);
+    }
+  }
+
+  private static long nextMidnight(final long now) {
+    final Calendar c = Calendar.getInstance();
+    c.setTimeInMillis(now);
+    c.set(Calendar.HOUR_OF_DAY, 0);
+    c.set(Calendar.MINUTE, 0);
+    c.set(Calendar.SECOND, 0);
+    c.set(Calendar.MILLISECOND, 0);
+    c.add(Calendar.DATE, 1);
+    return c.getTimeInMillis();
+  }
+
+  private final class Report implements Runnable {
+    private final Watch w;
+    private final long exec;
+    private final long when = System.currentTimeMillis();
+
+    Report(final Watch w, final long exec) {
+      this.w = w;
+      this.exec = exec;
+    }
+
+    @Override
+    public void run() {
+      final StringBuilder r = new StringBuilder();
+      format(r);
+      synchronized (SlowLog.this) {
+        try {
+          rollOver(when);
+          final Writer out = new OutputStreamWriter(
+              new FileOutputStream(file, true), "UTF-8");
+          try {
+            out.write(r.toString());
+          } finally {
+            out.close();
+          }
+        } catch (IOException e) {
+          log.error("Cannot write to " + file, e);
+        }
+      }
+    }
+
+    private void format(final StringBuilder r) {
+      final Context ctx = w.ctx;
+      final CommandStats stats = ctx.getStats();
+
+      r.append('[');
+      r.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS Z")
+          .format(new Date(when)));
+      r.append("] ");
+      IdGenerator.format(ctx.traceId, r);
+      r.append(' ');
+      IdGenerator.format(ctx.getSession().getSessionId(), r);
+      r.append(' ');
+      if (w.user instanceof IdentifiedUser) {
+        r.append(((IdentifiedUser) w.user).getUserName());
+      } else {
+        r.append('-');
+      }
+      r.append(' ').append(ctx.getCommandLine()).append('\n');
+
+      r.append("  time: wait ").append(ctx.started - ctx.created);
+      r.append("ms, exec ").append(exec).append("ms");
+      final long cpu = stats.getCpuMillis();
+      if (0 <= cpu) {
+        r.append(", cpu ").append(cpu).append("ms");
+      }
+      r.append(", threshold ").append(w.limit).append("ms\n");
+
+      r.append("  bytes: in ").append(stats.getBytesIn());
+      r.append(", out ").append(stats.getBytesOut());
+      r.append(", write ").append(stats.getWriteMillis());
+      r.append("ms, buffer wait ").append(stats.getBufferWaitMillis());
+      r.append("ms\n");
+
+      final TransferPhases phases = stats.getTransferPhases();
+      if (phases != null && phases.getPhaseTimings() != null) {
+        r.append("  phases: ").append(phases.getPhaseTimings()).append('\n');
+      }
+
+      final String project = stats.getProjectName();
+      if (project != null) {
+        r.append("  repository: ").append(project);
+        repository(project, r);
+        r.append('\n');
+      }
+
+      final List<Map.Entry<List<StackTraceElement>, int[]>> sorted;
+      final int samples;
+      synchronized (w) {
+        samples = w.samples;
+        sorted = new ArrayList<Map.Entry<List<StackTraceElement>, int[]>>(
+            w.stacks.entrySet());
+      }
+      Collections.sort(sorted,
+          new Comparator<Map.Entry<List<StackTraceElement>, int[]>>() {
+            @Override
+            public int compare(Map.Entry<List<StackTraceElement>, int[]> a,
+                Map.Entry<List<StackTraceElement>, int[]> b) {
+              return b.getValue()[0] - a.getValue()[0];
+            }
+          });
+      r.append("  samples: ").append(samples);
+      r.append(" every ").append(sampleInterval).append("ms\n");
+      for (final Map.Entry<List<StackTraceElement>, int[]> e : sorted) {
+        r.append("    ").append(e.getValue()[0]).append("x\n");
+        for (final StackTraceElement f : e.getKey()) {
+          r.append("      at ").append(f).append('\n');
+        }
+      }
+      r.append('\n');
+    }
+
+    private void repository(final String project, final StringBuilder r) {
+      try {
+        final Repository repo = repoManager.openRepository(project);
+        try {
+          int packs = 0;
+          long packBytes = 0;
+          final File[] files =
+              new File(repo.getDirectory(), "objects/pack").listFiles();
+          if (files != null) {
+            for (final File f : files) {
+              if (f.getName().endsWith(".pack")) {
+                packs++;
+                packBytes += f.length();
+              }
+            }
+          }
+          r.append(", ").append(packs).append(" packs (");
+          r.append(packBytes).append(" bytes), ");
+          r.append(repo.getAllRefs().size()).append(" refs");
+        } finally {
+          repo.close();
+        }
+      } catch (Exception e) {
+        r.append(", not available: ").append(e.getMessage());
+      }
+    }
+  }
+}
@@ -15,9 +15,16 @@
 package com.google.gerrit.sshd;
 
 import com.google.gerrit.common.Version;
+import com.google.gerrit.lifecycle.DependsOn;
 import com.google.gerrit.lifecycle.LifecycleListener;
 import com.google.gerrit.server.config.ConfigUtil;
 import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.git.EphemeralRepositoryManager;
+import com.google.gerrit.server.git.LocalDiskRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.metrics.Counter;
+import com.google.gerrit.server.metrics.Gauge;
+import com.google.gerrit.server.metrics.MetricRegistry;
 import com.google.gerrit.server.ssh.SshInfo;
 import com.google.gerrit.server.util.IdGenerator;
 import com.google.gerrit.server.util.SocketUtil;
@@ -65,6 +72,7 @@ import java.security.InvalidKeyException;
 import java.security.KeyPair;
 import java.security.PublicKey;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 
 import static java.lang.Thread.sleep;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -86,8 +94,14 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  *  Hostname gerrit.com
  *  Port 8010
  * </pre>
+ * <p>
+ * Starts once logging, work queues and the repository cache are ready, and
+ * stops before any of them.
  */
 @Singleton
+@DependsOn({SshLog.class, WorkQueue.Lifecycle.class,
+    LocalDiskRepositoryManager.Lifecycle.class,
+    EphemeralRepositoryManager.Lifecycle.class})
 public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
   private static final int IANA_SSH_PORT = 22;
   public static final int DEFAULT_PORT = 29418;
@@ -97,7 +111,17 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
   private final List<SocketAddress> listen;
   private final boolean keepAlive;
   private final List<HostKey> hostKeys;
+  private final WorkQueue workQueue;
+  private final CommandAccounting accounting;
+  private final OutboundBufferLimit bufferLimit;
+  private final Counter sessionsOpened;
+  private final Counter sessionsReaped;
+  private final Counter authFailures;
+  private final long idleTimeout;
+  private final long keepAliveInterval;
+  private final int keepAliveCountMax;
   private volatile IoAcceptor acceptor;
+  private ScheduledFuture<?> reaper;
 
 	public static void main(String[] args) {
 		SshDaemon sshDaemon = Guice.createInjector(new ToySshModule()).getInstance(SshDaemon.class);
@@ -112,8 +136,27 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
   SshDaemon(final CommandFactory commandFactory, final NoShell noShell,
       final PublickeyAuthenticator userAuth,
       final KeyPairProvider hostKeyProvider, final IdGenerator idGenerator,
-      @GerritServerConfig final Config cfg, final SshLog sshLog) {
+      @GerritServerConfig final Config cfg, final SshLog sshLog,
+      final WorkQueue workQueue, final CommandAccounting accounting,
+      final OutboundBufferLimit bufferLimit, final MetricRegistry metrics) {
     setPort(IANA_SSH_PORT /* never used */);
+    this.workQueue = workQueue;
+    this.accounting = accounting;
+    this.bufferLimit = bufferLimit;
+
+    sessionsOpened = metrics.counter("sshd_sessions_opened_total",
+        "SSH connections accepted");
+    sessionsReaped = metrics.counter("sshd_sessions_reaped_total",
+        "SSH connections closed for being idle or unresponsive");
+    authFailures = metrics.counter("sshd_auth_failures_total",
+        "SSH connections closed without authenticating");
+    metrics.gauge("sshd_sessions", "SSH connections currently open",
+        new Gauge.Source() {
+          @Override
+          public long get() {
+            return accounting.getSessions().size();
+          }
+        });
 
     listen = parseListen(cfg);
     reuseAddress = cfg.getBoolean("sshd", "reuseaddress", true);
@@ -131,6 +174,21 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
         String.valueOf(MILLISECONDS.convert(ConfigUtil.getTimeUnit(cfg, "sshd",
             null, "loginGraceTime", 120, SECONDS), SECONDS)));
 
+    // Git transfers are dominated by a single bulk stream per channel. On
+    // high bandwidth-delay links the channel window, not TCP, ends up being
+    // the limit, so allow it to be sized for the expected round trip time.
+    //
+    getProperties().put(WINDOW_SIZE,
+        String.valueOf(cfg.getInt("sshd", "windowSize", 2 * 1024 * 1024)));
+    getProperties().put(MAX_PACKET_SIZE,
+        String.valueOf(cfg.getInt("sshd", "packetSize", 32 * 1024)));
+
+    idleTimeout = MILLISECONDS.convert(ConfigUtil.getTimeUnit(cfg, "sshd",
+        null, "idleTimeout", 0, SECONDS), SECONDS);
+    keepAliveInterval = MILLISECONDS.convert(ConfigUtil.getTimeUnit(cfg,
+        "sshd", null, "keepAliveInterval", 0, SECONDS), SECONDS);
+    keepAliveCountMax = cfg.getInt("sshd", "keepAliveCountMax", 3);
+
     final int maxConnectionsPerUser =
         cfg.getInt("sshd", "maxConnectionsPerUser", 64);
     if (0 < maxConnectionsPerUser) {
@@ -164,18 +222,24 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
           c.setKeepAlive(keepAlive);
         }
 
-        final ServerSession s = (ServerSession) super.createSession(io);
+        final ServerSession s = new GerritServerSession(SshDaemon.this, io);
         final int id = idGenerator.next();
         final SocketAddress peer = io.getRemoteAddress();
         final SshSession sd = new SshSession(id, peer);
         s.setAttribute(SshSession.KEY, sd);
+        accounting.sessionOpened(sd);
+        sessionsOpened.inc();
 
-        // Log a session close without authentication as a failure.
+        // Stop any command still working for the client, and log a
+        // session close without authentication as a failure.
         //
         io.getCloseFuture().addListener(new IoFutureListener<IoFuture>() {
           @Override
           public void operationComplete(IoFuture future) {
+            accounting.sessionClosed(sd);
+            sd.abandonCommands();
             if (sd.isAuthenticationError()) {
+              authFailures.inc();
               sshLog.onAuthFail(sd);
             }
           }
@@ -203,6 +267,8 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
 
       acceptor = createAcceptor();
       configure(acceptor);
+      acceptor.getFilterChain().addLast(OutboundBufferLimit.FILTER_NAME,
+          bufferLimit);
 
       final SessionFactory handler = getSessionFactory();
       handler.setServer(this);
@@ -215,6 +281,12 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
       }
 
       log.info("Started Gerrit SSHD on " + addressList());
+
+      final long period = reaperPeriod();
+      if (0 < period) {
+        reaper = workQueue.getDefaultQueue().scheduleAtFixedRate(
+            new SessionReaper(), period, period, MILLISECONDS);
+      }
     }
   }
 
@@ -222,6 +294,10 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
   public synchronized void stop() {
     if (acceptor != null) {
       try {
+        if (reaper != null) {
+          reaper.cancel(false);
+          reaper = null;
+        }
         acceptor.dispose();
         log.info("Stopped Gerrit SSHD");
       } finally {
@@ -230,6 +306,70 @@ public class SshDaemon extends SshServer implements SshInfo, LifecycleListener {
     }
   }
 
+  private long reaperPeriod() {
+    long period = 0;
+    if (0 < idleTimeout) {
+      period = idleTimeout;
+    }
+    if (0 < keepAliveInterval && (period == 0 || keepAliveInterval < period)) {
+      period = keepAliveInterval;
+    }
+    return 0 < period ? Math.max(1000, period / 2) : 0;
+  }
+
+  /** Closes sessions that are idle, or whose peer stopped answering. */
+  private class SessionReaper implements Runnable {
+    @Override
+    public void run() {
+      final IoAcceptor a = acceptor;
+      if (a == null) {
+        return;
+      }
+
+      final long now = System.currentTimeMillis();
+      for (final IoSession io : a.getManagedSessions().values()) {
+        final ServerSession s =
+            (ServerSession) ServerSession.getSession(io, true);
+        final SshSession sd =
+            s != null ? s.getAttribute(SshSession.KEY) : null;
+        if (sd == null || sd.getCurrentUser() == null) {
+          // Not yet authenticated; loginGraceTime takes care of these.
+          continue;
+        }
+
+        try {
+          if (0 < idleTimeout && idleTimeout <= sd.getIdleTime(now)) {
+            close(io, sd, "idle for " + (sd.getIdleTime(now) / 1000) + "s");
+          } else if (0 < keepAliveInterval
+              && s instanceof GerritServerSession
+              && !((GerritServerSession) s).keepAlive(keepAliveInterval,
+                  keepAliveCountMax)) {
+            close(io, sd, keepAliveCountMax + " keepalives unanswered");
+          }
+        } catch (IOException e) {
+          close(io, sd, "keepalive failed: " + e.getMessage());
+        }
+      }
+    }
+
+    private void close(final IoSession io, final SshSession sd,
+        final String why) {
+      log.info("Closing SSH session " + IdGenerator.format(sd.getSessionId())
+          + " from " + sd.getRemoteAddressAsString() + ": " + why);
+
+      // Closing the session closes its channels, which in turn destroy
+      // any command still running and cancel its task on the WorkQueue.
+      //
+      sessionsReaped.inc();
+      io.close(true);
+    }
+
+    @Override
+    public String toString() {
+      return "SSH session reaper";
+    }
+  }
+
   @Override
   protected void checkConfig() {
     super.checkConfig();
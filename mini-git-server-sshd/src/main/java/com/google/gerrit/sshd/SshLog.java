@@ -15,187 +15,187 @@
 package com.google.gerrit.sshd;
 
 import com.google.gerrit.lifecycle.LifecycleListener;
+import com.google.gerrit.server.accesslog.AccessLogRecord;
+import com.google.gerrit.server.accesslog.AccessLogWriter;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.IdentifiedUser;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.config.SitePaths;
 import com.google.gerrit.server.util.IdGenerator;
+import com.google.gerrit.server.util.RingBuffer;
 import com.google.gerrit.sshd.SshScope.Context;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 
-import org.apache.log4j.Appender;
-import org.apache.log4j.AsyncAppender;
-import org.apache.log4j.DailyRollingFileAppender;
-import org.apache.log4j.Layout;
-import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
-import org.apache.log4j.spi.ErrorHandler;
-import org.apache.log4j.spi.LoggingEvent;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.util.QuotedString;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the {@code sshd_log} access log.
+ * <p>
+ * Callers only fill in an {@link Entry} and hand it to a {@link RingBuffer};
+ * they never wait on the disk. A single background thread formats the
+ * entries, writes them in batches and flushes the file on a timer. If the
+ * thread falls behind far enough to fill the buffer, new entries are dropped
+ * and the number lost is reported in the server log.
+ * <p>
+ * When {@code sshd.binaryLog} is enabled the same thread also appends each
+ * command to the compact, hourly partitioned log in {@code logs/sshd_access},
+ * which can be aggregated with
+ * {@link com.google.gerrit.server.accesslog.AccessLogQuery}.
+ */
 @Singleton
 class SshLog implements LifecycleListener {
   private static final Logger log = Logger.getLogger(SshLog.class);
   private static final String LOG_NAME = "sshd_log";
-  private static final String P_SESSION = "session";
-  private static final String P_USER_NAME = "userName";
-  private static final String P_ACCOUNT_ID = "accountId";
-  private static final String P_WAIT = "queueWaitTime";
-  private static final String P_EXEC = "executionTime";
-  private static final String P_STATUS = "status";
+  private static final String ACCESS_LOG_DIR = "sshd_access";
+  private static final int BATCH_SIZE = 256;
+  private static final long MAX_IDLE_PARK_MILLIS = 1000;
 
   private final Provider<SshSession> session;
   private final Provider<Context> context;
-  private final AsyncAppender async;
+  private final File file;
+  private final File accessLogDir;
+  private final RingBuffer<Entry> queue;
+  private final long flushInterval;
+  private volatile LogWriter writer;
 
   @Inject
   SshLog(final Provider<SshSession> session, final Provider<Context> context,
-      final SitePaths site) {
+      final SitePaths site, @GerritServerConfig final Config cfg) {
     this.session = session;
     this.context = context;
-
-    final DailyRollingFileAppender dst = new DailyRollingFileAppender();
-    dst.setName(LOG_NAME);
-    dst.setLayout(new MyLayout());
-    dst.setEncoding("UTF-8");
-    dst.setFile(new File(resolve(site.logs_dir), LOG_NAME).getPath());
-    dst.setImmediateFlush(true);
-    dst.setAppend(true);
-    dst.setThreshold(Level.INFO);
-    dst.setErrorHandler(new DieErrorHandler());
-    dst.activateOptions();
-    dst.setErrorHandler(new LogLogHandler());
-
-    async = new AsyncAppender();
-    async.setBlocking(true);
-    async.setBufferSize(64);
-    async.setLocationInfo(false);
-    async.addAppender(dst);
-    async.activateOptions();
+    this.file = new File(resolve(site.logs_dir), LOG_NAME);
+    this.accessLogDir = cfg.getBoolean("sshd", "binaryLog", false) //
+        ? new File(resolve(site.logs_dir), ACCESS_LOG_DIR)
+        : null;
+    this.queue =
+        new RingBuffer<Entry>(cfg.getInt("sshd", "logBufferSize", 4096));
+    this.flushInterval = ConfigUtil.getTimeUnit(cfg, "sshd", null,
+        "logFlushInterval", 1000, TimeUnit.MILLISECONDS);
   }
 
   @Override
-  public void start() {
+  public synchronized void start() {
+    if (writer == null) {
+      final LogWriter w = new LogWriter();
+      try {
+        w.open();
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot open log file: " + e.getMessage(),
+            e);
+      }
+      w.start();
+      writer = w;
+    }
   }
 
   @Override
-  public void stop() {
-    async.close();
+  public synchronized void stop() {
+    final LogWriter w = writer;
+    if (w != null) {
+      writer = null;
+      w.shutdown();
+    }
   }
 
   void onLogin() {
-    async.append(log("LOGIN FROM " + session.get().getRemoteAddressAsString()));
+    final Entry e = entry(session.get());
+    e.message = "LOGIN FROM " + session.get().getRemoteAddressAsString();
+    enqueue(e);
   }
 
   void onAuthFail(final SshSession sd) {
-    final LoggingEvent event = new LoggingEvent( //
-        Logger.class.getName(), // fqnOfCategoryClass
-        null, // logger (optional)
-        System.currentTimeMillis(), // when
-        Level.INFO, // level
-        "AUTH FAILURE FROM " + sd.getRemoteAddressAsString(), // message text
-        "SSHD", // thread name
-        null, // exception information
-        null, // current NDC string
-        null, // caller location
-        null // MDC properties
-        );
-
-    event.setProperty(P_SESSION, id(sd.getSessionId()));
-    event.setProperty(P_USER_NAME, sd.getUsername());
-
-    final String error = sd.getAuthenticationError();
-    if (error != null) {
-      event.setProperty(P_STATUS, error);
-    }
-
-    async.append(event);
+    final Entry e = new Entry(sd.getSessionId());
+    e.userName = sd.getUsername();
+    e.message = "AUTH FAILURE FROM " + sd.getRemoteAddressAsString();
+    e.status = sd.getAuthenticationError();
+    enqueue(e);
   }
 
   void onExecute(int exitValue) {
     final Context ctx = context.get();
     ctx.finished = System.currentTimeMillis();
 
-    final String commandLine = ctx.getCommandLine();
-    String cmd = QuotedString.BOURNE.quote(commandLine);
-    if (cmd == commandLine) {
-      cmd = "'" + commandLine + "'";
-    }
+    final Entry e = entry(session.get());
+    e.message = ctx.getCommandLine();
+    e.command = true;
+    e.wait = ctx.started - ctx.created;
+    e.exec = ctx.finished - ctx.started;
+    e.exitValue = exitValue;
+    e.traceId = ctx.traceId;
 
-    final LoggingEvent event = log(cmd);
-    event.setProperty(P_WAIT, (ctx.started - ctx.created) + "ms");
-    event.setProperty(P_EXEC, (ctx.finished - ctx.started) + "ms");
-
-    final String status;
     switch (exitValue) {
       case BaseCommand.STATUS_CANCEL:
-        status = "killed";
+        e.status = "killed";
         break;
 
       case BaseCommand.STATUS_NOT_FOUND:
-        status = "not-found";
+        e.status = "not-found";
         break;
 
       case BaseCommand.STATUS_NOT_ADMIN:
-        status = "not-admin";
+        e.status = "not-admin";
         break;
 
       default:
-        status = String.valueOf(exitValue);
+        if (ctx.getStats().isAbandoned()) {
+          e.status = "abandoned";
+        }
         break;
     }
-    event.setProperty(P_STATUS, status);
 
-    async.append(event);
+    final CommandStats stats = ctx.getStats();
+    e.project = stats.getProjectName();
+    e.bytesIn = stats.getBytesIn();
+    e.bytesOut = stats.getBytesOut();
+    e.writeTime = stats.getWriteMillis();
+    e.bufferWait = stats.getBufferWaitMillis();
+    e.cpu = stats.getCpuMillis();
+    e.allocated = stats.getAllocatedBytes();
+    e.abandonedCpu = stats.getAbandonedCpuMillis();
+
+    enqueue(e);
   }
 
   void onLogout() {
-    async.append(log("LOGOUT"));
+    final Entry e = entry(session.get());
+    e.message = "LOGOUT";
+    enqueue(e);
   }
 
-  private LoggingEvent log(final String msg) {
-    final SshSession sd = session.get();
-    final CurrentUser user = sd.getCurrentUser();
-
-    final LoggingEvent event = new LoggingEvent( //
-        Logger.class.getName(), // fqnOfCategoryClass
-        null, // logger (optional)
-        System.currentTimeMillis(), // when
-        Level.INFO, // level
-        msg, // message text
-        "SSHD", // thread name
-        null, // exception information
-        null, // current NDC string
-        null, // caller location
-        null // MDC properties
-        );
-
-    event.setProperty(P_SESSION, id(sd.getSessionId()));
-
-    String userName = "-", accountId = "-";
-
-    if (user instanceof IdentifiedUser) {
-      IdentifiedUser u = (IdentifiedUser) user;
-      userName = u.getUserName();
-
+  private void enqueue(final Entry e) {
+    if (queue.offer(e)) {
+      final LogWriter w = writer;
+      if (w != null && w.idle) {
+        LockSupport.unpark(w);
+      }
     }
-
-    event.setProperty(P_USER_NAME, userName);
-    event.setProperty(P_ACCOUNT_ID, accountId);
-
-    return event;
   }
 
-  private static String id(final int id) {
-    return IdGenerator.format(id);
+  private static Entry entry(final SshSession sd) {
+    final Entry e = new Entry(sd.getSessionId());
+    final CurrentUser user = sd.getCurrentUser();
+    if (user instanceof IdentifiedUser) {
+      e.userName = ((IdentifiedUser) user).getUserName();
+    }
+    return e;
   }
 
   private static File resolve(final File logs_dir) {
@@ -206,191 +206,375 @@ class SshLog implements LifecycleListener {
     }
   }
 
-  private static final class MyLayout extends Layout {
+  /** One line of the log, as captured by the thread reporting it. */
+  static final class Entry {
+    final long when = System.currentTimeMillis();
+    final int sessionId;
+    String userName;
+    String message;
+    String status;
+
+    boolean command;
+    int traceId;
+    String project;
+    int exitValue;
+    long wait;
+    long exec;
+    long bytesIn;
+    long bytesOut;
+    long writeTime;
+    long bufferWait;
+    long cpu = -1;
+    long allocated = -1;
+    long abandonedCpu = -1;
+
+    Entry(final int sessionId) {
+      this.sessionId = sessionId;
+    }
+  }
+
+  /** Drains the queue into the file; the only thread touching the file. */
+  final class LogWriter extends Thread {
+    private final StringBuilder buf = new StringBuilder(256);
+    private char[] chars = new char[256];
+
     private final Calendar calendar;
-    private long lastTimeMillis;
-    private final char[] lastTimeString = new char[20];
     private final char[] timeZone;
+    private final SimpleDateFormat rollSuffix;
+    private long lastTimeMillis = -1;
+    private final char[] lastTimeString = new char[20];
+    private int lastTimeLength;
+
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    private Writer out;
+    private AccessLogWriter binary;
+    private long rollOverAt;
+    private boolean dirty;
+    private long lastFlush;
+    private long reportedDrops;
+
+    LogWriter() {
+      super("SshLog-Writer");
+      setDaemon(true);
 
-    MyLayout() {
       final TimeZone tz = TimeZone.getDefault();
       calendar = Calendar.getInstance(tz);
 
       final SimpleDateFormat sdf = new SimpleDateFormat("Z");
       sdf.setTimeZone(tz);
       timeZone = sdf.format(new Date()).toCharArray();
-    }
-
-    @Override
-    public String format(LoggingEvent event) {
-      final StringBuffer buf = new StringBuffer(128);
-
-      buf.append('[');
-      formatDate(event.getTimeStamp(), buf);
-      buf.append(' ');
-      buf.append(timeZone);
-      buf.append(']');
-
-      req(P_SESSION, buf, event);
-      req(P_USER_NAME, buf, event);
-      req(P_ACCOUNT_ID, buf, event);
 
-      buf.append(' ');
-      buf.append(event.getMessage());
+      rollSuffix = new SimpleDateFormat("'.'yyyy-MM-dd");
+      rollSuffix.setTimeZone(tz);
+    }
 
-      opt(P_WAIT, buf, event);
-      opt(P_EXEC, buf, event);
-      opt(P_STATUS, buf, event);
+    void open() throws IOException {
+      out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+          file, true), "UTF-8"), 64 * 1024);
+      rollOverAt = nextMidnight(System.currentTimeMillis());
+      lastFlush = System.currentTimeMillis();
+      if (accessLogDir != null && binary == null) {
+        binary = new AccessLogWriter(accessLogDir);
+      }
+    }
 
-      buf.append('\n');
-      return buf.toString();
+    void shutdown() {
+      running = false;
+      LockSupport.unpark(this);
+      try {
+        join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
     }
 
-    private void formatDate(final long now, final StringBuffer sbuf) {
-      final int millis = (int) (now % 1000);
-      final long rounded = now - millis;
-      if (rounded != lastTimeMillis) {
-        synchronized (calendar) {
-          final int start = sbuf.length();
-
-          calendar.setTimeInMillis(rounded);
-          sbuf.append(calendar.get(Calendar.YEAR));
-          sbuf.append('-');
-          final int month = calendar.get(Calendar.MONTH) + 1;
-          if (month < 10) sbuf.append('0');
-          sbuf.append(month);
-          sbuf.append('-');
-          final int day = calendar.get(Calendar.DAY_OF_MONTH);
-          if (day < 10) sbuf.append('0');
-          sbuf.append(day);
-
-          sbuf.append(' ');
-          final int hour = calendar.get(Calendar.HOUR_OF_DAY);
-          if (hour < 10) sbuf.append('0');
-          sbuf.append(hour);
-          sbuf.append(':');
-          final int mins = calendar.get(Calendar.MINUTE);
-          if (mins < 10) sbuf.append('0');
-          sbuf.append(mins);
-          sbuf.append(':');
-          final int secs = calendar.get(Calendar.SECOND);
-          if (secs < 10) sbuf.append('0');
-          sbuf.append(secs);
-
-          sbuf.append(',');
-          sbuf.getChars(start, sbuf.length(), lastTimeString, 0);
-          lastTimeMillis = rounded;
+    @Override
+    public void run() {
+      try {
+        for (;;) {
+          int n = 0;
+          Entry e;
+          while (n < BATCH_SIZE && (e = queue.poll()) != null) {
+            write(e);
+            n++;
+          }
+
+          final long now = System.currentTimeMillis();
+          if (dirty && (flushInterval <= now - lastFlush || !running)) {
+            flush(now);
+          }
+          reportDrops();
+
+          if (n == 0) {
+            if (!running && queue.isEmpty()) {
+              break;
+            }
+            park(now);
+          }
         }
-      } else {
-        sbuf.append(lastTimeString);
-      }
-      if (millis < 100) {
-        sbuf.append('0');
-      }
-      if (millis < 10) {
-        sbuf.append('0');
+      } finally {
+        close();
       }
-      sbuf.append(millis);
     }
 
-    private void req(String key, StringBuffer buf, LoggingEvent event) {
-      Object val = event.getMDC(key);
-      buf.append(' ');
-      if (val != null) {
-        String s = val.toString();
-        if (0 <= s.indexOf(' ')) {
-          buf.append(QuotedString.BOURNE.quote(s));
-        } else {
-          buf.append(val);
+    /**
+     * Sleep until a producer adds an entry, or until the pending output is
+     * due to be flushed.
+     */
+    private void park(final long now) {
+      long millis = MAX_IDLE_PARK_MILLIS;
+      if (dirty) {
+        millis = Math.min(millis, lastFlush + flushInterval - now);
+      }
+
+      // Producers only unpark an idle writer, so announce it before the
+      // final check for entries offered in the meantime.
+      //
+      idle = true;
+      try {
+        if (running && queue.isEmpty() && 0 < millis) {
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
         }
-      } else {
-        buf.append('-');
+      } finally {
+        idle = false;
       }
     }
 
-    private void opt(String key, StringBuffer buf, LoggingEvent event) {
-      Object val = event.getMDC(key);
-      if (val != null) {
-        buf.append(' ');
-        buf.append(val);
+    private void write(final Entry e) {
+      try {
+        if (rollOverAt <= e.when) {
+          rollOver(e.when);
+        }
+        if (out == null) {
+          open();
+        }
+
+        buf.setLength(0);
+        format(e, buf);
+        final int len = buf.length();
+        if (chars.length < len) {
+          chars = new char[Math.max(len, chars.length * 2)];
+        }
+        buf.getChars(0, len, chars, 0);
+        out.write(chars, 0, len);
+        dirty = true;
+      } catch (IOException err) {
+        log.error("Cannot write to " + file, err);
+        close();
       }
-    }
 
-    @Override
-    public boolean ignoresThrowable() {
-      return true;
+      if (e.command && binary != null) {
+        try {
+          binary.append(new AccessLogRecord(e.when, e.sessionId, e.userName,
+              e.message, e.project, e.wait, e.exec, e.bytesIn, e.bytesOut,
+              e.status != null ? e.status : String.valueOf(e.exitValue)));
+          dirty = true;
+        } catch (IOException err) {
+          log.error("Cannot write to " + accessLogDir, err);
+          closeBinary();
+        }
+      }
     }
 
-    @Override
-    public void activateOptions() {
+    private void flush(final long now) {
+      try {
+        if (out != null) {
+          out.flush();
+        }
+      } catch (IOException err) {
+        log.error("Cannot flush " + file, err);
+        close();
+      }
+      try {
+        if (binary != null) {
+          binary.flush();
+        }
+      } catch (IOException err) {
+        log.error("Cannot flush " + accessLogDir, err);
+        closeBinary();
+      }
+      dirty = false;
+      lastFlush = now;
     }
-  }
 
-  private static final class DieErrorHandler implements ErrorHandler {
-    @Override
-    public void error(String message, Exception e, int errorCode,
-        LoggingEvent event) {
-      error(e != null ? e.getMessage() : message);
+    private void close() {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException err) {
+          log.error("Cannot close " + file, err);
+        }
+        out = null;
+        dirty = false;
+      }
+      closeBinary();
     }
 
-    @Override
-    public void error(String message, Exception e, int errorCode) {
-      error(e != null ? e.getMessage() : message);
+    private void closeBinary() {
+      if (binary != null) {
+        try {
+          binary.close();
+        } catch (IOException err) {
+          log.error("Cannot close " + accessLogDir, err);
+        }
+        binary = null;
+      }
     }
 
-    @Override
-    public void error(String message) {
-      throw new RuntimeException("Cannot open log file: " + message);
+    private void rollOver(final long now) throws IOException {
+      close();
+      final File dst = new File(file.getPath()
+          + rollSuffix.format(new Date(rollOverAt - 1)));
+      if (dst.exists() && !dst.delete()) {
+        log.error("Cannot delete " + dst);
+      }
+      if (file.exists() && !file.renameTo(dst)) {
+        log.error("Cannot rename " + file + " to " + dst);
+      }
+      rollOverAt = nextMidnight(now);
     }
 
-    @Override
-    public void activateOptions() {
+    private long nextMidnight(final long now) {
+      calendar.setTimeInMillis(now);
+      calendar.set(Calendar.HOUR_OF_DAY, 0);
+      calendar.set(Calendar.MINUTE, 0);
+      calendar.set(Calendar.SECOND, 0);
+      calendar.set(Calendar.MILLISECOND, 0);
+      calendar.add(Calendar.DATE, 1);
+      lastTimeMillis = -1;
+      return calendar.getTimeInMillis();
     }
 
-    @Override
-    public void setAppender(Appender appender) {
+    private void reportDrops() {
+      final long dropped = queue.getDropped();
+      if (dropped != reportedDrops) {
+        log.warn("sshd_log buffer full; dropped " + (dropped - reportedDrops)
+            + " entries");
+        reportedDrops = dropped;
+      }
     }
 
-    @Override
-    public void setBackupAppender(Appender appender) {
-    }
+    void format(final Entry e, final StringBuilder buf) {
+      buf.append('[');
+      formatDate(e.when, buf);
+      buf.append(' ');
+      buf.append(timeZone);
+      buf.append(']');
 
-    @Override
-    public void setLogger(Logger logger) {
-    }
-  }
+      buf.append(' ');
+      IdGenerator.format(e.sessionId, buf);
+      req(e.userName, buf);
+      req(null, buf); // account id, not tracked by this server
 
-  private static final class LogLogHandler implements ErrorHandler {
-    @Override
-    public void error(String message, Exception e, int errorCode,
-        LoggingEvent event) {
-      log.error(message, e);
-    }
+      buf.append(' ');
+      if (e.command) {
+        final String cmd = QuotedString.BOURNE.quote(e.message);
+        if (cmd == e.message) {
+          buf.append('\'').append(cmd).append('\'');
+        } else {
+          buf.append(cmd);
+        }
+        buf.append(' ').append(e.wait).append("ms");
+        buf.append(' ').append(e.exec).append("ms");
+      } else {
+        buf.append(e.message);
+      }
 
-    @Override
-    public void error(String message, Exception e, int errorCode) {
-      log.error(message, e);
-    }
+      if (e.status != null) {
+        buf.append(' ').append(e.status);
+      } else if (e.command) {
+        buf.append(' ').append(e.exitValue);
+      }
 
-    @Override
-    public void error(String message) {
-      log.error(message);
-    }
+      if (e.command) {
+        buf.append(' ').append(e.bytesIn);
+        buf.append(' ').append(e.bytesOut);
+        buf.append(' ').append(e.writeTime).append("ms");
+        buf.append(' ').append(e.bufferWait).append("ms");
+        buf.append(' ');
+        if (0 < e.exec) {
+          buf.append(e.bytesOut * 1000 / 1024 / e.exec).append("KiB/s");
+        } else {
+          buf.append('-');
+        }
+        buf.append(' ');
+        if (0 <= e.cpu) {
+          buf.append(e.cpu).append("ms");
+        } else {
+          buf.append('-');
+        }
+        buf.append(' ');
+        if (0 <= e.allocated) {
+          buf.append(e.allocated);
+        } else {
+          buf.append('-');
+        }
+        buf.append(' ');
+        if (0 <= e.abandonedCpu) {
+          buf.append(e.abandonedCpu).append("ms");
+        } else {
+          buf.append('-');
+        }
+        buf.append(' ');
+        IdGenerator.format(e.traceId, buf);
+      }
 
-    @Override
-    public void activateOptions() {
+      buf.append('\n');
     }
 
-    @Override
-    public void setAppender(Appender appender) {
+    private void req(final String val, final StringBuilder buf) {
+      buf.append(' ');
+      if (val == null) {
+        buf.append('-');
+      } else if (0 <= val.indexOf(' ')) {
+        buf.append(QuotedString.BOURNE.quote(val));
+      } else {
+        buf.append(val);
+      }
     }
 
-    @Override
-    public void setBackupAppender(Appender appender) {
+    private void formatDate(final long now, final StringBuilder sbuf) {
+      final int millis = (int) (now % 1000);
+      final long rounded = now - millis;
+      if (rounded != lastTimeMillis) {
+        final int start = sbuf.length();
+
+        calendar.setTimeInMillis(rounded);
+        sbuf.append(calendar.get(Calendar.YEAR));
+        sbuf.append('-');
+        pad2(calendar.get(Calendar.MONTH) + 1, sbuf);
+        sbuf.append('-');
+        pad2(calendar.get(Calendar.DAY_OF_MONTH), sbuf);
+
+        sbuf.append(' ');
+        pad2(calendar.get(Calendar.HOUR_OF_DAY), sbuf);
+        sbuf.append(':');
+        pad2(calendar.get(Calendar.MINUTE), sbuf);
+        sbuf.append(':');
+        pad2(calendar.get(Calendar.SECOND), sbuf);
+
+        sbuf.append(',');
+        lastTimeLength = sbuf.length() - start;
+        sbuf.getChars(start, sbuf.length(), lastTimeString, 0);
+        lastTimeMillis = rounded;
+      } else {
+        sbuf.append(lastTimeString, 0, lastTimeLength);
+      }
+      if (millis < 100) {
+        sbuf.append('0');
+      }
+      if (millis < 10) {
+        sbuf.append('0');
+      }
+      sbuf.append(millis);
     }
 
-    @Override
-    public void setLogger(Logger logger) {
+    private void pad2(final int v, final StringBuilder sbuf) {
+      if (v < 10) {
+        sbuf.append('0');
+      }
+      sbuf.append(v);
     }
   }
 }
@@ -33,15 +33,19 @@ class SshScope {
     private final SshSession session;
     private final String commandLine;
     private final Map<Key<?>, Object> map;
+    private final CommandStats stats;
 
+    final int traceId;
     final long created;
     volatile long started;
     volatile long finished;
 
-    Context(final SshSession s, final String c) {
+    Context(final SshSession s, final String c, final int t) {
       cleanup = new RequestCleanup();
       session = s;
       commandLine = c;
+      stats = new CommandStats();
+      traceId = t;
 
       map = new HashMap<Key<?>, Object>();
       map.put(RC_KEY, cleanup);
@@ -56,6 +60,8 @@ class SshScope {
       cleanup = new RequestCleanup();
       session = s;
       commandLine = c;
+      stats = p.stats;
+      traceId = p.traceId;
 
       map = new HashMap<Key<?>, Object>();
       map.put(RC_KEY, cleanup);
@@ -67,10 +73,18 @@ class SshScope {
       p.cleanup.add(cleanup);
     }
 
+    SshSession getSession() {
+      return session;
+    }
+
     String getCommandLine() {
       return commandLine;
     }
 
+    CommandStats getStats() {
+      return stats;
+    }
+
     synchronized <T> T get(Key<T> key, Provider<T> creator) {
       @SuppressWarnings("unchecked")
       T t = (T) map.get(key);
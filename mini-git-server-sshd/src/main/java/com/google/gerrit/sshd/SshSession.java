@@ -21,6 +21,10 @@ import org.apache.sshd.common.Session.AttributeKey;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Global data related to an active SSH connection. */
 public class SshSession {
@@ -36,6 +40,16 @@ public class SshSession {
   private volatile String username;
   private volatile String authError;
 
+  private final Set<CommandStats> activeCommands =
+      Collections.newSetFromMap(new ConcurrentHashMap<CommandStats, Boolean>());
+  private volatile long lastActivity = System.currentTimeMillis();
+
+  // Totals of the commands that already finished; running commands are
+  // added on top when read, so readers never walk finished commands.
+  private final AtomicLong finishedBytesIn = new AtomicLong();
+  private final AtomicLong finishedBytesOut = new AtomicLong();
+  private final AtomicLong finishedCpuMillis = new AtomicLong();
+
   SshSession(final int sessionId, SocketAddress peer) {
     this.sessionId = sessionId;
     this.remoteAddress = peer;
@@ -83,6 +97,74 @@ public class SshSession {
     authError = error;
   }
 
+  void commandStarted(final CommandStats cmd) {
+    activeCommands.add(cmd);
+    lastActivity = System.currentTimeMillis();
+  }
+
+  void commandFinished(final CommandStats cmd) {
+    if (activeCommands.remove(cmd)) {
+      finishedBytesIn.addAndGet(cmd.getBytesIn());
+      finishedBytesOut.addAndGet(cmd.getBytesOut());
+      final long cpu = cmd.getCpuMillis();
+      if (0 < cpu) {
+        finishedCpuMillis.addAndGet(cpu);
+      }
+    }
+    lastActivity = System.currentTimeMillis();
+  }
+
+  /** @return bytes read from the client by all commands so far. */
+  public long getBytesIn() {
+    long n = finishedBytesIn.get();
+    for (final CommandStats cmd : activeCommands) {
+      n += cmd.getBytesIn();
+    }
+    return n;
+  }
+
+  /** @return bytes sent to the client by all commands so far. */
+  public long getBytesOut() {
+    long n = finishedBytesOut.get();
+    for (final CommandStats cmd : activeCommands) {
+      n += cmd.getBytesOut();
+    }
+    return n;
+  }
+
+  /** @return CPU milliseconds used by all commands so far, if measurable. */
+  public long getCpuMillis() {
+    long n = finishedCpuMillis.get();
+    for (final CommandStats cmd : activeCommands) {
+      n += Math.max(0, cmd.getCpuMillisSoFar());
+    }
+    return n;
+  }
+
+  /** @return number of commands currently running on this session. */
+  public int getActiveCommands() {
+    return activeCommands.size();
+  }
+
+  /** Abandon every command still running, the connection is gone. */
+  void abandonCommands() {
+    for (final CommandStats cmd : activeCommands) {
+      cmd.abandon();
+    }
+  }
+
+  /**
+   * @param now current time, in milliseconds.
+   * @return milliseconds since the last command on this session started or
+   *         finished; 0 while a command is still running.
+   */
+  long getIdleTime(final long now) {
+    if (!activeCommands.isEmpty()) {
+      return 0;
+    }
+    return now - lastActivity;
+  }
+
   /** @return {@code true} if the authentication did not succeed. */
   boolean isAuthenticationError() {
     return authError != null;
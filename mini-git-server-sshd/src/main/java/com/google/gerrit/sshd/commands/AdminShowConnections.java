@@ -85,9 +85,10 @@ final class AdminShowConnections extends BaseCommand {
     });
 
     final long now = System.currentTimeMillis();
-    p.print(String.format("%-8s %8s %8s   %-15s %s\n", //
-        "Session", "Start", "Idle", "User", "Remote Host"));
-    p.print("--------------------------------------------------------------\n");
+    p.print(String.format("%-8s %8s %8s %8s   %-15s %s\n", //
+        "Session", "Start", "Idle", "Buffered", "User", "Remote Host"));
+    p.print("----------------------------------------------"
+        + "-------------------------\n");
     for (final IoSession io : list) {
       ServerSession s = (ServerSession) ServerSession.getSession(io, true);
       SshSession sd = s != null ? s.getAttribute(SshSession.KEY) : null;
@@ -96,10 +97,11 @@ final class AdminShowConnections extends BaseCommand {
       final long start = io.getCreationTime();
       final long idle = now - io.getLastIoTime();
 
-      p.print(String.format("%8s %8s %8s  %-15.15s %.30s\n", //
+      p.print(String.format("%8s %8s %8s %8s  %-15.15s %.30s\n", //
           id(sd), //
           time(now, start), //
           age(idle), //
+          size(io.getScheduledWriteBytes()), //
           username(sd), //
           hostname(remoteAddress)));
     }
@@ -132,6 +134,15 @@ final class AdminShowConnections extends BaseCommand {
     return String.format("%02d:%02d:%02d", hr, min, sec);
   }
 
+  private static String size(final long bytes) {
+    if (bytes < 1024) {
+      return String.valueOf(bytes);
+    } else if (bytes < 1024 * 1024) {
+      return (bytes / 1024) + "k";
+    }
+    return (bytes / (1024 * 1024)) + "m";
+  }
+
   private String username(final SshSession sd) {
     if (sd == null) {
       return "";
@@ -16,6 +16,7 @@ package com.google.gerrit.sshd.commands;
 
 import com.google.gerrit.server.IdentifiedUser;
 import com.google.gerrit.server.git.TransferConfig;
+import com.google.gerrit.server.trace.TransferPhases;
 import com.google.gerrit.sshd.AbstractGitCommand;
 import com.google.inject.Inject;
 import org.eclipse.jgit.errors.UnpackException;
@@ -43,8 +44,10 @@ final class Receive extends AbstractGitCommand {
     final ReceivePack rp = new ReceivePack(repo);
     rp.setRefLogIdent(currentUser.newRefLogIdent());
     rp.setTimeout(config.getTimeout());
+    final TransferPhases phases =
+        newTransferPhases(TransferPhases.RECEIVE_PACK);
     try {
-      rp.receive(in, out, err);
+      rp.receive(phases.wrap(in), phases.wrap(out), err);
     } catch (InterruptedIOException err) {
       throw new Failure(128, "fatal: client IO read/write timeout", err);
 
@@ -60,6 +63,8 @@ final class Receive extends AbstractGitCommand {
 
       IOException detail = new IOException(msg.toString(), badStream);
       throw new Failure(128, "fatal: Unpack error, check server log", detail);
+    } finally {
+      phases.finish();
     }
   }
 
@@ -0,0 +1,354 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd.commands;
+
+import com.google.gerrit.sshd.AdminCommand;
+import com.google.gerrit.sshd.BaseCommand;
+
+import org.apache.sshd.server.Environment;
+import org.kohsuke.args4j.Option;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Show which server threads use the most CPU or wait the longest on locks.
+ * <p>
+ * CPU and blocked times are read from {@link ThreadMXBean} at the start and
+ * end of a short window. During the window the threads are also sampled to
+ * find the locks they are blocked on, so the most contended monitors can be
+ * listed together with the thread last seen holding them.
+ */
+@AdminCommand
+final class ShowThreads extends BaseCommand {
+  /** Threads serving clients, unless {@code --all} is given. */
+  private static final String[] SERVER_THREADS =
+      {"SSH", "WorkQueue", "NioProcessor", "NioSocketAcceptor"};
+
+  private static final long SAMPLE_INTERVAL = 100;
+
+  /** Windows now open in this JVM; guarded by ShowThreads.class. */
+  private static int openWindows;
+
+  /** True if the first open window switched contention monitoring on. */
+  private static boolean switchedOn;
+
+  @Option(name = "--seconds", aliases = {"-t"}, metaVar = "SEC", //
+      usage = "length of the window, at most 60")
+  private int seconds = 5;
+
+  @Option(name = "--limit", aliases = {"-n"}, metaVar = "N", //
+      usage = "threads and monitors shown")
+  private int limit = 10;
+
+  @Option(name = "--depth", aliases = {"-d"}, metaVar = "N", //
+      usage = "stack frames shown per thread, 0 for none")
+  private int depth = 8;
+
+  @Option(name = "--all", aliases = {"-a"}, //
+      usage = "include every thread, not just those serving clients")
+  private boolean all;
+
+  private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+  private PrintWriter p;
+
+  @Override
+  public void start(final Environment env) {
+    startThread(new CommandRunnable() {
+      @Override
+      public void run() throws Exception {
+        parseCommandLine();
+        ShowThreads.this.display();
+      }
+    });
+  }
+
+  /** What was seen of one thread over the window. */
+  private static class Row {
+    final long id;
+    final long cpu0;
+    final long blocked0;
+    final long blockedCount0;
+    final long waited0;
+    long cpu = -1;
+    long blocked = -1;
+    long blockedCount;
+    long waited = -1;
+    ThreadInfo info;
+
+    Row(final long id, final long cpu0, final ThreadInfo i) {
+      this.id = id;
+      this.cpu0 = cpu0;
+      this.blocked0 = i.getBlockedTime();
+      this.blockedCount0 = i.getBlockedCount();
+      this.waited0 = i.getWaitedTime();
+    }
+  }
+
+  /** Samples of threads waiting on one lock. */
+  private static class Monitor {
+    final String name;
+    final Set<Long> waiters = new HashSet<Long>();
+    int samples;
+    String owner;
+
+    Monitor(final String name) {
+      this.name = name;
+    }
+  }
+
+  private void display() throws UnloggedFailure {
+    if (seconds < 1 || 60 < seconds) {
+      throw new UnloggedFailure(1, "fatal: --seconds must be 1..60");
+    }
+    if (limit < 0) {
+      throw new UnloggedFailure(1, "fatal: --limit must not be negative");
+    }
+    p = toPrintWriter(out);
+
+    final boolean cpuTime =
+        mx.isThreadCpuTimeSupported() && mx.isThreadCpuTimeEnabled();
+    final boolean contention = openWindow(mx);
+
+    final Map<String, Monitor> monitors = new HashMap<String, Monitor>();
+    final Map<Long, Row> rows = new HashMap<Long, Row>();
+    final long start = System.nanoTime();
+    try {
+      final long[] ids = mx.getAllThreadIds();
+      final ThreadInfo[] before = mx.getThreadInfo(ids, 0);
+      for (int i = 0; i < ids.length; i++) {
+        if (before[i] != null && include(before[i])) {
+          final long cpu = cpuTime ? mx.getThreadCpuTime(ids[i]) : -1;
+          rows.put(ids[i], new Row(ids[i], cpu, before[i]));
+        }
+      }
+
+      final long end = start + seconds * 1000000000L;
+      while (System.nanoTime() < end) {
+        Thread.sleep(SAMPLE_INTERVAL);
+        sampleLocks(monitors);
+      }
+
+      final long[] seen = new long[rows.size()];
+      int n = 0;
+      for (final Long id : rows.keySet()) {
+        seen[n++] = id;
+      }
+      final ThreadInfo[] after = mx.getThreadInfo(seen, Math.max(depth, 1));
+      for (int i = 0; i < seen.length; i++) {
+        final Row r = rows.get(seen[i]);
+        final ThreadInfo t = after[i];
+        if (t == null) {
+          rows.remove(seen[i]); // ended during the window
+          continue;
+        }
+        r.info = t;
+        if (cpuTime && 0 <= r.cpu0) {
+          final long cpu = mx.getThreadCpuTime(r.id);
+          r.cpu = 0 <= cpu ? (cpu - r.cpu0) / 1000000 : -1;
+        }
+        if (contention && 0 <= t.getBlockedTime() && 0 <= r.blocked0) {
+          r.blocked = t.getBlockedTime() - r.blocked0;
+          r.waited = t.getWaitedTime() - r.waited0;
+        }
+        r.blockedCount = t.getBlockedCount() - r.blockedCount0;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } finally {
+      if (contention) {
+        closeWindow(mx);
+      }
+    }
+
+    final long window = Math.max(1, (System.nanoTime() - start) / 1000000);
+    p.print("Threads over " + window + " ms");
+    if (!cpuTime) {
+      p.print(", CPU time not available");
+    }
+    if (!contention) {
+      p.print(", contention monitoring not supported");
+    }
+    p.print("\n\n");
+    threads(new ArrayList<Row>(rows.values()), window);
+    p.print("\n");
+    monitors(new ArrayList<Monitor>(monitors.values()));
+    p.flush();
+  }
+
+  /**
+   * Make sure contention monitoring is on for a new window.
+   * <p>
+   * Blocked and waited times are only kept while monitoring is on. It costs
+   * a little on every lock, so it is only left on while a window is open;
+   * windows of concurrent invocations share it.
+   *
+   * @return false if this JVM cannot monitor contention.
+   */
+  private static synchronized boolean openWindow(final ThreadMXBean mx) {
+    if (!mx.isThreadContentionMonitoringSupported()) {
+      return false;
+    }
+    if (openWindows++ == 0 && !mx.isThreadContentionMonitoringEnabled()) {
+      mx.setThreadContentionMonitoringEnabled(true);
+      switchedOn = true;
+    }
+    return true;
+  }
+
+  /** Switch monitoring back off once the last window has closed. */
+  private static synchronized void closeWindow(final ThreadMXBean mx) {
+    if (--openWindows == 0 && switchedOn) {
+      mx.setThreadContentionMonitoringEnabled(false);
+      switchedOn = false;
+    }
+  }
+
+  private boolean include(final ThreadInfo t) {
+    if (all) {
+      return true;
+    }
+    for (final String prefix : SERVER_THREADS) {
+      if (t.getThreadName().startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void sampleLocks(final Map<String, Monitor> monitors) {
+    for (final ThreadInfo t : mx.getThreadInfo(mx.getAllThreadIds(), 0)) {
+      if (t == null || t.getLockName() == null) {
+        continue;
+      }
+      // Monitors show as BLOCKED; owned java.util.concurrent locks show as
+      // parked with an owner. Waiting on a condition has neither.
+      final boolean blocked = t.getThreadState() == Thread.State.BLOCKED
+          || 0 <= t.getLockOwnerId();
+      if (!blocked || !include(t)) {
+        continue;
+      }
+      Monitor m = monitors.get(t.getLockName());
+      if (m == null) {
+        m = new Monitor(t.getLockName());
+        monitors.put(m.name, m);
+      }
+      m.samples++;
+      m.waiters.add(t.getThreadId());
+      if (t.getLockOwnerName() != null) {
+        m.owner = t.getLockOwnerName();
+      }
+    }
+  }
+
+  private void threads(final List<Row> rows, final long window) {
+    Collections.sort(rows, new Comparator<Row>() {
+      @Override
+      public int compare(final Row a, final Row b) {
+        if (a.cpu != b.cpu) {
+          return a.cpu < b.cpu ? 1 : -1;
+        }
+        if (a.blocked != b.blocked) {
+          return a.blocked < b.blocked ? 1 : -1;
+        }
+        return a.info.getThreadName().compareTo(b.info.getThreadName());
+      }
+    });
+
+    p.print(String.format("%5s %8s %9s %7s %9s %-13s %s\n", //
+        "CPU%", "CPU", "Blocked", "Times", "Waited", "State", "Thread"));
+    p.print("----------------------------------------------"
+        + "--------------------------------\n");
+    for (final Row r : rows.subList(0, Math.min(limit, rows.size()))) {
+      final ThreadInfo t = r.info;
+      p.print(String.format("%5s %8s %9s %7d %9s %-13s %s\n", //
+          0 <= r.cpu ? String.valueOf(r.cpu * 100 / window) : "-", //
+          millis(r.cpu), //
+          millis(r.blocked), //
+          r.blockedCount, //
+          millis(r.waited), //
+          t.getThreadState(), //
+          t.getThreadName()));
+      if (0 < depth) {
+        stack(t);
+      }
+    }
+    if (limit < rows.size()) {
+      p.print("  ... " + (rows.size() - limit) + " more\n");
+    }
+  }
+
+  private void stack(final ThreadInfo t) {
+    if (t.getLockName() != null) {
+      p.print("        - waiting on " + t.getLockName());
+      if (t.getLockOwnerName() != null) {
+        p.print(" held by " + t.getLockOwnerName());
+      }
+      p.print("\n");
+    }
+    final StackTraceElement[] trace = t.getStackTrace();
+    for (int i = 0; i < trace.length && i < depth; i++) {
+      p.print("        at " + trace[i] + "\n");
+    }
+    p.print("\n");
+  }
+
+  private void monitors(final List<Monitor> list) {
+    Collections.sort(list, new Comparator<Monitor>() {
+      @Override
+      public int compare(final Monitor a, final Monitor b) {
+        if (a.samples != b.samples) {
+          return b.samples - a.samples;
+        }
+        return a.name.compareTo(b.name);
+      }
+    });
+
+    p.print(String.format("%-40s %7s %7s %s\n", //
+        "Contended lock", "Samples", "Threads", "Last owner"));
+    p.print("----------------------------------------------"
+        + "--------------------------------\n");
+    if (list.isEmpty()) {
+      p.print("  none seen\n");
+    }
+    for (final Monitor m : list.subList(0, Math.min(limit, list.size()))) {
+      p.print(String.format("%-40.40s %7d %7d %s\n", //
+          m.name, //
+          m.samples, //
+          m.waiters.size(), //
+          m.owner != null ? m.owner : ""));
+    }
+  }
+
+  private static String millis(final long ms) {
+    if (ms < 0) {
+      return "-";
+    } else if (ms < 10 * 1000) {
+      return ms + "ms";
+    }
+    return (ms / 1000) + "s";
+  }
+}
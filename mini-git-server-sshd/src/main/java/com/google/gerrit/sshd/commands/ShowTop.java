@@ -0,0 +1,314 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd.commands;
+
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.IdentifiedUser;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.git.WorkQueue.Task;
+import com.google.gerrit.server.util.IdGenerator;
+import com.google.gerrit.sshd.AdminCommand;
+import com.google.gerrit.sshd.BaseCommand;
+import com.google.gerrit.sshd.CommandAccounting;
+import com.google.gerrit.sshd.CommandAccounting.Usage;
+import com.google.gerrit.sshd.SshSession;
+import com.google.inject.Inject;
+
+import org.apache.sshd.server.Environment;
+import org.kohsuke.args4j.Option;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Show the sessions, users and projects using the most resources.
+ * <p>
+ * With {@code --refresh} the display is redrawn every few seconds until the
+ * client disconnects. Every figure comes from counters maintained as commands
+ * run, so a refresh costs the same no matter how many tasks are queued.
+ */
+@AdminCommand
+final class ShowTop extends BaseCommand {
+  enum SortKey {
+    CPU, BYTES, EXEC, COMMANDS, ALLOC;
+
+    long of(final Usage u) {
+      switch (this) {
+        case BYTES:
+          return u.getBytesIn() + u.getBytesOut();
+        case EXEC:
+          return u.getExecMillis();
+        case COMMANDS:
+          return u.getCommands();
+        case ALLOC:
+          return u.getAllocatedBytes();
+        case CPU:
+        default:
+          return u.getCpuMillis();
+      }
+    }
+  }
+
+  @Option(name = "--minutes", aliases = {"-m"}, metaVar = "MIN", //
+      usage = "length of the window, at most 60")
+  private int minutes = 5;
+
+  @Option(name = "--limit", aliases = {"-n"}, metaVar = "N", //
+      usage = "rows shown per table")
+  private int limit = 10;
+
+  @Option(name = "--sort", aliases = {"-s"}, usage = "order of the rows")
+  private SortKey sort = SortKey.CPU;
+
+  @Option(name = "--refresh", aliases = {"-r"}, metaVar = "SEC", //
+      usage = "redraw every SEC seconds until disconnected")
+  private int refresh;
+
+  @Inject
+  private CommandAccounting accounting;
+
+  @Inject
+  private WorkQueue workQueue;
+
+  private PrintWriter p;
+
+  /** Per session byte and CPU counters, as of the previous frame. */
+  private Map<SshSession, long[]> lastSample =
+      new HashMap<SshSession, long[]>();
+  private long lastSampleTime;
+
+  @Override
+  public void start(final Environment env) {
+    startThread(new CommandRunnable() {
+      @Override
+      public void run() throws Exception {
+        parseCommandLine();
+        ShowTop.this.display();
+      }
+    });
+  }
+
+  private void display() throws UnloggedFailure {
+    if (minutes < 1 || 60 < minutes) {
+      throw new UnloggedFailure(1, "fatal: --minutes must be 1..60");
+    }
+    if (refresh < 0) {
+      throw new UnloggedFailure(1, "fatal: --refresh must be positive");
+    }
+    p = toPrintWriter(out);
+
+    // Session rates need two samples; take the first one now.
+    sampleSessions();
+    try {
+      if (refresh == 0) {
+        Thread.sleep(1000);
+        frame();
+        return;
+      }
+
+      for (;;) {
+        Thread.sleep(refresh * 1000L);
+        p.print("\033[H\033[2J");
+        frame();
+        if (p.checkError()) {
+          // The client went away; the stream no longer accepts output.
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void frame() {
+    p.print("Last " + minutes + " minutes, by " //
+        + sort.name().toLowerCase() + "\n\n");
+    sessions();
+    p.print("\n");
+    table("User", accounting.getUserUsage(minutes));
+    p.print("\n");
+    table("Project", accounting.getProjectUsage(minutes));
+    p.print("\n");
+    queues();
+    p.print("\n");
+    p.print("  " + accounting.getAbandonedCommands()
+        + " commands abandoned by their client, "
+        + accounting.getAbandonedCpuMillis() + " ms CPU wasted\n");
+    p.flush();
+  }
+
+  /** One row of the session table, with rates since the previous frame. */
+  private static class SessionRow {
+    final SshSession session;
+    final long bytesPerSec;
+    final long cpuPerSec;
+
+    SessionRow(final SshSession s, final long bytesPerSec,
+        final long cpuPerSec) {
+      this.session = s;
+      this.bytesPerSec = bytesPerSec;
+      this.cpuPerSec = cpuPerSec;
+    }
+  }
+
+  private void sessions() {
+    final long before = lastSampleTime;
+    final Map<SshSession, long[]> prior = lastSample;
+    sampleSessions();
+    final long elapsed = Math.max(1, lastSampleTime - before);
+
+    final List<SessionRow> rows = new ArrayList<SessionRow>();
+    for (final Map.Entry<SshSession, long[]> e : lastSample.entrySet()) {
+      final long[] now = e.getValue();
+      final long[] old = prior.get(e.getKey());
+      final long bytes = old != null ? now[0] - old[0] : 0;
+      final long cpu = old != null ? now[1] - old[1] : 0;
+      if (0 < bytes || 0 < cpu || 0 < e.getKey().getActiveCommands()) {
+        rows.add(new SessionRow(e.getKey(), bytes * 1000 / elapsed, //
+            cpu * 1000 / elapsed));
+      }
+    }
+    Collections.sort(rows, new Comparator<SessionRow>() {
+      @Override
+      public int compare(final SessionRow a, final SessionRow b) {
+        final long x = sort == SortKey.CPU ? a.cpuPerSec : a.bytesPerSec;
+        final long y = sort == SortKey.CPU ? b.cpuPerSec : b.bytesPerSec;
+        if (x != y) {
+          return x < y ? 1 : -1;
+        }
+        return a.session.getSessionId() - b.session.getSessionId();
+      }
+    });
+
+    p.print(String.format("%-8s %-15s %4s %10s %10s %8s %8s\n", //
+        "Session", "User", "Cmds", "Bytes/s", "CPU ms/s", "In", "Out"));
+    p.print("----------------------------------------------"
+        + "--------------------------------\n");
+    for (final SessionRow r : rows.subList(0, Math.min(limit, rows.size()))) {
+      final SshSession s = r.session;
+      p.print(String.format("%8s %-15.15s %4d %10s %10d %8s %8s\n", //
+          IdGenerator.format(s.getSessionId()), //
+          username(s), //
+          s.getActiveCommands(), //
+          size(r.bytesPerSec), //
+          r.cpuPerSec, //
+          size(s.getBytesIn()), //
+          size(s.getBytesOut())));
+    }
+    if (limit < rows.size()) {
+      p.print("  ... " + (rows.size() - limit) + " more\n");
+    }
+  }
+
+  private void sampleSessions() {
+    final Map<SshSession, long[]> m = new HashMap<SshSession, long[]>();
+    for (final SshSession s : accounting.getSessions()) {
+      m.put(s, new long[] {s.getBytesIn() + s.getBytesOut(), s.getCpuMillis()});
+    }
+    lastSample = m;
+    lastSampleTime = System.currentTimeMillis();
+  }
+
+  private void queues() {
+    p.print(String.format("%-28s %7s %6s %6s %12s %s\n", //
+        "Queue", "Threads", "Active", "Queued", "Oldest wait", "Task"));
+    p.print("----------------------------------------------"
+        + "--------------------------------\n");
+    for (final WorkQueue.Executor e : workQueue.getQueues()) {
+      final Task<?> oldest = e.getOldestWaitingTask();
+      final long wait =
+          oldest != null ? -oldest.getDelay(TimeUnit.MILLISECONDS) : 0;
+      p.print(String.format("%-28.28s %7d %6d %6d %12s %.20s\n", //
+          e.getName(), //
+          e.getPoolSize(), //
+          e.getActiveCount(), //
+          e.getQueueDepth(), //
+          oldest != null ? millis(wait) : "", //
+          oldest != null ? IdGenerator.format(oldest.getTaskId()) + " "
+              + oldest : ""));
+    }
+  }
+
+  private static String username(final SshSession s) {
+    final CurrentUser user = s.getCurrentUser();
+    if (user instanceof IdentifiedUser) {
+      final String name = ((IdentifiedUser) user).getUserName();
+      if (name != null) {
+        return name;
+      }
+    }
+    return "";
+  }
+
+  private void table(final String title, final List<Usage> usage) {
+    final List<Usage> rows = new ArrayList<Usage>(usage);
+    Collections.sort(rows, new Comparator<Usage>() {
+      @Override
+      public int compare(final Usage a, final Usage b) {
+        final long x = sort.of(a);
+        final long y = sort.of(b);
+        if (x != y) {
+          return x < y ? 1 : -1;
+        }
+        return a.getName().compareTo(b.getName());
+      }
+    });
+
+    p.print(String.format("%-24s %6s %9s %9s %8s %8s %8s %8s\n", //
+        title, "Cmds", "Exec", "CPU", "Alloc", "In", "Out", "Bytes/s"));
+    p.print("----------------------------------------------"
+        + "--------------------------------\n");
+    for (final Usage u : rows.subList(0, Math.min(limit, rows.size()))) {
+      p.print(String.format("%-24.24s %6d %9s %9s %8s %8s %8s %8s\n", //
+          u.getName(), //
+          u.getCommands(), //
+          millis(u.getExecMillis()), //
+          millis(u.getCpuMillis()), //
+          size(u.getAllocatedBytes()), //
+          size(u.getBytesIn()), //
+          size(u.getBytesOut()), //
+          size((u.getBytesIn() + u.getBytesOut()) / (minutes * 60L))));
+    }
+    if (limit < rows.size()) {
+      p.print("  ... " + (rows.size() - limit) + " more\n");
+    }
+  }
+
+  private static String millis(final long ms) {
+    if (ms < 10 * 1000) {
+      return ms + "ms";
+    } else if (ms < 10 * 60 * 1000) {
+      return (ms / 1000) + "s";
+    }
+    return (ms / (60 * 1000)) + "m";
+  }
+
+  private static String size(final long bytes) {
+    if (bytes < 1024) {
+      return String.valueOf(bytes);
+    } else if (bytes < 1024 * 1024) {
+      return (bytes / 1024) + "k";
+    } else if (bytes < 1024 * 1024 * 1024) {
+      return (bytes / (1024 * 1024)) + "m";
+    }
+    return (bytes / (1024 * 1024 * 1024)) + "g";
+  }
+}
@@ -35,6 +35,8 @@ public class ToyDefaultCommandModule extends CommandModule {
 	command(gerrit, "receive-pack").to(Receive.class);
     command(gerrit).toProvider(new DispatchCommandProvider(gerrit));
     command(gerrit, "show-connections").to(AdminShowConnections.class);
+    command(gerrit, "show-top").to(ShowTop.class);
+    command(gerrit, "show-threads").to(ShowThreads.class);
 
     command(git).toProvider(new DispatchCommandProvider(git));
     command(git, "receive-pack").to(Commands.key(gerrit, "receive-pack"));
@@ -15,6 +15,7 @@
 package com.google.gerrit.sshd.commands;
 
 import com.google.gerrit.server.git.TransferConfig;
+import com.google.gerrit.server.trace.TransferPhases;
 import com.google.gerrit.sshd.AbstractGitCommand;
 import com.google.inject.Inject;
 import org.eclipse.jgit.transport.UploadPack;
@@ -33,10 +34,14 @@ final class Upload extends AbstractGitCommand {
 
     up.setPackConfig(config.getPackConfig());
     up.setTimeout(config.getTimeout());
+    final TransferPhases phases =
+        newTransferPhases(TransferPhases.UPLOAD_PACK);
     try {
-      up.upload(in, out, err);
+      up.upload(phases.wrap(in), phases.wrap(out), err);
     } catch (InterruptedIOException err) {
       throw new Failure(128, "fatal: client IO read/write timeout", err);
+    } finally {
+      phases.finish();
     }
   }
 }
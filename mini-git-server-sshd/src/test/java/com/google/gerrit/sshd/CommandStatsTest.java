@@ -0,0 +1,71 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.sshd;
+
+import com.google.gerrit.server.metrics.MetricRegistry;
+
+import junit.framework.TestCase;
+
+import java.net.InetSocketAddress;
+
+public class CommandStatsTest extends TestCase {
+  private CommandAccounting accounting;
+  private SshSession session;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    accounting = new CommandAccounting(new MetricRegistry());
+    session = new SshSession(1, new InetSocketAddress("127.0.0.1", 29418));
+  }
+
+  public void testNormalExitIsNotAbandoned() {
+    final CommandStats stats = new CommandStats();
+    session.commandStarted(stats);
+    stats.workerStarted();
+
+    // The exit status closes the channel, and the channel destroys the
+    // command, before the command gets to log itself.
+    //
+    stats.exited();
+    stats.abandon();
+    session.abandonCommands();
+    stats.workerFinished();
+
+    session.commandFinished(stats);
+    accounting.onFinished(session, stats);
+
+    assertFalse(stats.isAbandoned());
+    assertEquals(-1, stats.getAbandonedCpuMillis());
+    assertEquals(0, accounting.getAbandonedCommands());
+    assertEquals(0, accounting.getAbandonedCpuMillis());
+  }
+
+  public void testDisconnectBeforeExitIsAbandoned() {
+    final CommandStats stats = new CommandStats();
+    session.commandStarted(stats);
+    stats.workerStarted();
+
+    session.abandonCommands();
+    stats.exited();
+    stats.workerFinished();
+
+    session.commandFinished(stats);
+    accounting.onFinished(session, stats);
+
+    assertTrue(stats.isAbandoned());
+    assertEquals(1, accounting.getAbandonedCommands());
+  }
+}